@@ -19,6 +19,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.zip.ZipOutputStream;
 
 import javax.jcr.Credentials;
 import javax.jcr.InvalidSerializedDataException;
@@ -237,6 +238,21 @@ public interface HippoSession extends Session {
     public File exportEnhancedSystemViewPackage(String parentAbsPath, boolean recurse)
             throws IOException, RepositoryException;
 
+    /**
+     * Export an enhanced system view package to a zip stream. Binaries are written to the stream as they are
+     * encountered instead of being buffered in temporary files first, and binaries shared by several properties
+     * are stored once when the repository can identify them. The stream is neither finished nor closed.
+     *
+     * @param parentAbsPath the absolute path of the node to export
+     * @param recurse whether to export the descendants of the node as well
+     * @param zipOut the zip stream to write the package to
+     * @throws IOException if writing to the stream fails
+     * @throws RepositoryException a generic error while accessing the repository
+     * @see #exportEnhancedSystemViewPackage(String, boolean)
+     */
+    public void exportEnhancedSystemViewPackage(String parentAbsPath, boolean recurse, ZipOutputStream zipOut)
+            throws IOException, RepositoryException;
+
     /**
      * Retrieves an {@link XAResource} object that the transaction manager
      * will use to manage this XASession object's participation in
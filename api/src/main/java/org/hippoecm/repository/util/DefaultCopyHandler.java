@@ -16,6 +16,8 @@
 package org.hippoecm.repository.util;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Stack;
 
 import javax.jcr.Node;
@@ -55,8 +57,15 @@ public class DefaultCopyHandler implements CopyHandler {
 
     private final Stack<Node> nodes = new Stack<>();
     private final Stack<NodeType[]> nodeTypes = new Stack<>();
+    private final Stack<String> nodeTypesKeys = new Stack<>();
     protected final NodeTypeManager nodeTypeManager;
 
+    /**
+     * Applicable definitions by node types and item, a copied subtree typically has many nodes of the same types
+     */
+    private final Map<String, NodeDefinition> childNodeDefinitions = new HashMap<>();
+    private final Map<String, PropertyDefinition> propertyDefinitions = new HashMap<>();
+
     public DefaultCopyHandler(Node node) throws RepositoryException {
         JcrUtils.ensureIsCheckedOut(node);
         setCurrent(node);
@@ -73,8 +82,14 @@ public class DefaultCopyHandler implements CopyHandler {
                 System.arraycopy(mixinNodeTypes, 0, nodeTypes, 1, mixinNodeTypes.length);
             }
             this.nodeTypes.push(nodeTypes);
+            final StringBuilder key = new StringBuilder();
+            for (NodeType nodeType : nodeTypes) {
+                key.append(nodeType.getName()).append(',');
+            }
+            nodeTypesKeys.push(key.toString());
         } else {
             nodeTypes.push(null);
+            nodeTypesKeys.push(null);
         }
         return this;
     }
@@ -82,7 +97,7 @@ public class DefaultCopyHandler implements CopyHandler {
     @Override
     public void startNode(final NodeInfo nodeInfo) throws RepositoryException {
         if (getCurrent() != null) {
-            final NodeDefinition definition = nodeInfo.getApplicableChildNodeDef(getCurrentNodeTypes());
+            final NodeDefinition definition = getApplicableChildNodeDef(nodeInfo);
             if (definition != null && !definition.isProtected()) {
                 final Node childDest;
                 if (definition.isAutoCreated() && nodeInfo.getIndex() == 1 && getCurrent().hasNode(nodeInfo.getName())) {
@@ -105,12 +120,13 @@ public class DefaultCopyHandler implements CopyHandler {
     public void endNode() throws RepositoryException {
         nodes.pop();
         nodeTypes.pop();
+        nodeTypesKeys.pop();
     }
 
     @Override
     public void setProperty(final PropInfo propInfo) throws RepositoryException {
         if (propInfo != null && getCurrent() != null && Arrays.binarySearch(PROTECTED, propInfo.getName()) < 0) {
-            PropertyDefinition definition = propInfo.getApplicablePropertyDef(getCurrentNodeTypes());
+            PropertyDefinition definition = getApplicablePropertyDef(propInfo);
             if (definition == null) {
                 log.error("Unable to create property from PropInfo " + propInfo + ": No applicable property definition");
             } else if (!definition.isProtected()) {
@@ -131,4 +147,32 @@ public class DefaultCopyHandler implements CopyHandler {
     protected NodeType[] getCurrentNodeTypes() {
         return nodeTypes.peek();
     }
+
+    /**
+     * @return the child node definition of the current node applicable to <code>nodeInfo</code>, or
+     * <code>null</code> if there is none
+     */
+    protected NodeDefinition getApplicableChildNodeDef(final NodeInfo nodeInfo) {
+        final String key = nodeTypesKeys.peek() + '/' + nodeInfo.getName() + '/' + nodeInfo.getNodeTypeName();
+        NodeDefinition definition = childNodeDefinitions.get(key);
+        if (definition == null && !childNodeDefinitions.containsKey(key)) {
+            definition = nodeInfo.getApplicableChildNodeDef(getCurrentNodeTypes());
+            childNodeDefinitions.put(key, definition);
+        }
+        return definition;
+    }
+
+    /**
+     * @return the property definition of the current node applicable to <code>propInfo</code>, or
+     * <code>null</code> if there is none
+     */
+    protected PropertyDefinition getApplicablePropertyDef(final PropInfo propInfo) {
+        final String key = nodeTypesKeys.peek() + '/' + propInfo.getName() + '/' + propInfo.isMultiple() + '/' + propInfo.getType();
+        PropertyDefinition definition = propertyDefinitions.get(key);
+        if (definition == null && !propertyDefinitions.containsKey(key)) {
+            definition = propInfo.getApplicablePropertyDef(getCurrentNodeTypes());
+            propertyDefinitions.put(key, definition);
+        }
+        return definition;
+    }
 }
\ No newline at end of file
@@ -583,11 +583,11 @@ public class JcrUtils {
             if (isVirtual(child)) {
                 continue;
             }
+            NodeInfo info = new NodeInfo(child);
             // virtual nodes are checked in with rep:root type
-            if ("rep:root".equals(getPrimaryNodeType(child).getName())) {
+            if ("rep:root".equals(info.getNodeTypeName())) {
                 continue;
             }
-            NodeInfo info = new NodeInfo(child);
             chain.startNode(info);
             copyToChain(child, chain);
             chain.endNode();
@@ -15,6 +15,10 @@
  */
 package org.onehippo.repository.security;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
 import javax.jcr.ItemNotFoundException;
 import javax.jcr.RepositoryException;
 
@@ -52,6 +56,18 @@ public interface SecurityService {
      */
     Iterable<User> getUsers(long offset, long limit) throws RepositoryException;
 
+    /**
+     * Get the {@link User}s in the repository ordered by id, starting after the user with the given {@code userId}.
+     * To page through all users, pass the id of the last user of a page to get the next page. Unlike paging by
+     * offset, the cost of getting a page does not depend on how deep the page is.
+     *
+     * @param userId  the id of the user after which to start; {@code null} to start at the first user
+     * @param limit  maximum size of the result; only has effect when value is larger than zero; defaults to no limit
+     * @return the list of {@link User}s following the user with the given {@code userId}. Never {@code null}.
+     * @throws RepositoryException
+     */
+    Iterable<User> getUsersAfter(String userId, long limit) throws RepositoryException;
+
     /**
      * Get all the {@link Group}s in the repository.
      *
@@ -63,6 +79,17 @@ public interface SecurityService {
      */
     Iterable<Group> getGroups(long offset, long limit) throws RepositoryException;
 
+    /**
+     * Get the {@link Group}s in the repository ordered by id, starting after the group with the given
+     * {@code groupId}. To page through all groups, pass the id of the last group of a page to get the next page.
+     *
+     * @param groupId  the id of the group after which to start; {@code null} to start at the first group
+     * @param limit  maximum size of the result; only has effect when value is larger than zero; defaults to no limit
+     * @return the list of {@link Group}s following the group with the given {@code groupId}. Never {@code null}.
+     * @throws RepositoryException
+     */
+    Iterable<Group> getGroupsAfter(String groupId, long limit) throws RepositoryException;
+
     /**
      * Check if the group with given {@code groupId} exists.
      * @param groupId  the id of the group to check
@@ -81,4 +108,35 @@ public interface SecurityService {
      */
     Group getGroup(final String groupId) throws ItemNotFoundException, RepositoryException;
 
+    /**
+     * Get the ids of the groups that each of the given users is a member of, in one call. Unlike
+     * {@link User#getMemberships()}, the cost does not grow with the number of groups for every user, which makes
+     * this the method to use for rendering many users at once.
+     * <p>
+     * The result is eventually consistent: it is resolved from an index that is updated asynchronously, so changes
+     * to the memberships become visible shortly after they have been saved. Use {@link User#getMemberships()} when
+     * the memberships must reflect the latest saved state.
+     *
+     * @param userIds  the ids of the users
+     * @return an immutable map from each of the given user ids to the immutable set of the ids of its groups.
+     * Never {@code null}.
+     * @throws RepositoryException
+     */
+    Map<String, Set<String>> getMembershipIds(Collection<String> userIds) throws RepositoryException;
+
+    /**
+     * Get the ids of the members of each of the given groups, in one call. Unlike {@link Group#getMembers()}, the
+     * members are not loaded as {@link User}s. A member id {@code "*"} means that every user is a member.
+     * <p>
+     * Like {@link #getMembershipIds(Collection)}, the result is eventually consistent: changes to the members become
+     * visible shortly after they have been saved. Use {@link Group#getMembers()} when the members must reflect the
+     * latest saved state.
+     *
+     * @param groupIds  the ids of the groups
+     * @return an immutable map from the ids of the given groups that exist to the immutable set of the ids of
+     * their members. Never {@code null}.
+     * @throws RepositoryException
+     */
+    Map<String, Set<String>> getMemberIds(Collection<String> groupIds) throws RepositoryException;
+
 }
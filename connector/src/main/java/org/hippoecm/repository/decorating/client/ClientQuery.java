@@ -33,6 +33,7 @@ import javax.jcr.version.VersionException;
 import org.apache.jackrabbit.rmi.client.RemoteRepositoryException;
 
 import org.hippoecm.repository.api.HippoQuery;
+import org.hippoecm.repository.decorating.remote.QueryResultPage;
 import org.hippoecm.repository.decorating.remote.RemoteQuery;
 
 public class ClientQuery extends org.apache.jackrabbit.rmi.client.ClientQuery implements HippoQuery {
@@ -82,7 +83,18 @@ public class ClientQuery extends org.apache.jackrabbit.rmi.client.ClientQuery im
         }
     }
 
+    @Override
+    public QueryResult execute() throws RepositoryException {
+        if (isPrefetchEnabled()) {
+            return executePage(null);
+        }
+        return super.execute();
+    }
+
     public QueryResult execute(Map<String,String> arguments) throws RepositoryException {
+        if (isPrefetchEnabled()) {
+            return executePage(arguments);
+        }
         try {
             return getFactory().getQueryResult(session, remote.execute(arguments));
         } catch(RemoteException ex) {
@@ -122,4 +134,20 @@ public class ClientQuery extends org.apache.jackrabbit.rmi.client.ClientQuery im
             // this is in case of a connection problem, the actual call to execute() will fail next
         }
     }
+
+    private boolean isPrefetchEnabled() {
+        return ((LocalServicingAdapterFactory) getFactory()).isPrefetchEnabled() && session instanceof PrefetchingSession;
+    }
+
+    private QueryResult executePage(Map<String,String> arguments) throws RepositoryException {
+        LocalServicingAdapterFactory factory = (LocalServicingAdapterFactory) getFactory();
+        long generation = ClientServicingNode.getSnapshotGeneration(session);
+        try {
+            QueryResultPage page = remote.executePage(arguments, factory.getPrefetchSize(),
+                    factory.isCompressionEnabled()).get();
+            return new PrefetchedQueryResult(session, factory, page, generation);
+        } catch (RemoteException ex) {
+            throw new RemoteRepositoryException(ex);
+        }
+    }
 }
@@ -16,6 +16,7 @@
 package org.hippoecm.repository.decorating.client;
 
 import javax.jcr.Node;
+import javax.jcr.Property;
 import javax.jcr.Repository;
 import javax.jcr.Session;
 import javax.jcr.Workspace;
@@ -23,6 +24,7 @@ import javax.jcr.query.Query;
 
 import org.apache.jackrabbit.rmi.client.ClientAdapterFactory;
 import org.apache.jackrabbit.rmi.remote.RemoteNode;
+import org.apache.jackrabbit.rmi.remote.RemoteProperty;
 import org.apache.jackrabbit.rmi.remote.RemoteSession;
 import org.apache.jackrabbit.rmi.remote.RemoteWorkspace;
 import org.apache.jackrabbit.rmi.remote.RemoteXASession;
@@ -38,9 +40,52 @@ import org.hippoecm.repository.decorating.remote.RemoteWorkflowManager;
 
 public class ClientServicesAdapterFactory extends ClientAdapterFactory implements LocalServicingAdapterFactory {
 
+    /**
+     * System property enabling batched fetching of nodes and query results
+     */
+    public static final String PREFETCH_PROPERTY = "hippo.rmi.prefetch";
+
+    /**
+     * System property holding the number of child nodes or query result nodes fetched in a single batch
+     */
+    public static final String PREFETCH_SIZE_PROPERTY = "hippo.rmi.prefetch.size";
+
+    /**
+     * System property enabling compression of batches
+     */
+    public static final String COMPRESS_PROPERTY = "hippo.rmi.compress";
+
+    private boolean prefetchEnabled = Boolean.getBoolean(PREFETCH_PROPERTY);
+    private int prefetchSize = Integer.getInteger(PREFETCH_SIZE_PROPERTY, 100);
+    private boolean compressionEnabled = Boolean.getBoolean(COMPRESS_PROPERTY);
+
     public ClientServicesAdapterFactory() {
     }
 
+    public boolean isPrefetchEnabled() {
+        return prefetchEnabled;
+    }
+
+    public void setPrefetchEnabled(boolean prefetchEnabled) {
+        this.prefetchEnabled = prefetchEnabled;
+    }
+
+    public int getPrefetchSize() {
+        return prefetchSize;
+    }
+
+    public void setPrefetchSize(int prefetchSize) {
+        this.prefetchSize = prefetchSize;
+    }
+
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    public void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
     @Override
     public Repository getRepository(org.apache.jackrabbit.rmi.remote.RemoteRepository remote) {
         return new ClientRepository((RemoteRepository)remote, this);
@@ -71,6 +116,11 @@ public class ClientServicesAdapterFactory extends ClientAdapterFactory implement
             return super.getNode(session, remote);
     }
 
+    @Override
+    public Property getProperty(Session session, RemoteProperty remote) {
+        return new ClientServicingProperty(session, remote, this);
+    }
+
     public WorkflowManager getWorkflowManager(Session session, RemoteWorkflowManager remote) {
         return new ClientWorkflowManager(session, remote, this);
     }
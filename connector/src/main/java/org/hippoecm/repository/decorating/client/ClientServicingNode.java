@@ -15,29 +15,404 @@
  */
 package org.hippoecm.repository.decorating.client;
 
+import java.io.InputStream;
+import java.math.BigDecimal;
 import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
 
+import javax.jcr.Binary;
 import javax.jcr.NamespaceException;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.lock.Lock;
 import javax.jcr.nodetype.NoSuchNodeTypeException;
+import javax.jcr.version.Version;
 
+import org.apache.jackrabbit.commons.iterator.PropertyIteratorAdapter;
 import org.apache.jackrabbit.rmi.client.ClientNode;
 import org.apache.jackrabbit.rmi.client.RemoteRepositoryException;
 import org.apache.jackrabbit.rmi.remote.RemoteNode;
 import org.hippoecm.repository.api.HippoNode;
 import org.hippoecm.repository.api.HippoSession;
+import org.hippoecm.repository.decorating.remote.NodeSnapshot;
+import org.hippoecm.repository.decorating.remote.PropertySnapshot;
 import org.hippoecm.repository.decorating.remote.RemoteServicingNode;
 
+/**
+ * Remote node.  When prefetching is enabled in the {@link LocalServicingAdapterFactory}, the node is fetched
+ * together with its properties in a single call, and child nodes are fetched in batches together with their
+ * properties.  Reads are served from these snapshots until the session is refreshed or modified.
+ */
 public class ClientServicingNode extends ClientNode implements HippoNode {
 
     private RemoteServicingNode remote;
+    private Session session;
+    private LocalServicingAdapterFactory factory;
+
+    private NodeSnapshot snapshot;
+    private long snapshotGeneration = -1;
 
     protected ClientServicingNode(Session session, RemoteServicingNode remote, LocalServicingAdapterFactory factory) {
         super(session, remote, factory);
         this.remote = remote;
+        this.session = session;
+        this.factory = factory;
+    }
+
+    static long getSnapshotGeneration(Session session) {
+        return (session instanceof PrefetchingSession ? ((PrefetchingSession) session).getSnapshotGeneration() : -1);
+    }
+
+    static void invalidateSnapshots(Session session) {
+        if (session instanceof PrefetchingSession) {
+            ((PrefetchingSession) session).invalidateSnapshots();
+        }
+    }
+
+    void setSnapshot(NodeSnapshot snapshot, long generation) {
+        this.snapshot = snapshot;
+        this.snapshotGeneration = generation;
+    }
+
+    private boolean isPrefetchEnabled() {
+        return factory.isPrefetchEnabled() && session instanceof PrefetchingSession;
+    }
+
+    /**
+     * @param withChildren whether the snapshot must include child nodes
+     * @return a current snapshot of this node, or <code>null</code> if prefetching is disabled
+     */
+    private NodeSnapshot getSnapshot(boolean withChildren) throws RepositoryException {
+        if (!isPrefetchEnabled()) {
+            return null;
+        }
+        long generation = getSnapshotGeneration(session);
+        if (snapshot != null && snapshotGeneration == generation && (!withChildren || snapshot.getChildren() != null)) {
+            return snapshot;
+        }
+        try {
+            NodeSnapshot fetched = remote.getSnapshot(withChildren ? factory.getPrefetchSize() : 0,
+                    factory.isCompressionEnabled()).get();
+            setSnapshot(fetched, generation);
+            return fetched;
+        } catch (RemoteException ex) {
+            throw new RemoteRepositoryException(ex);
+        }
+    }
+
+    private static boolean isPropertyName(String relPath) {
+        return relPath.indexOf('/') < 0 && relPath.indexOf('[') < 0 && !relPath.startsWith("{")
+                && !".".equals(relPath) && !"..".equals(relPath);
+    }
+
+    Property getRemoteProperty(String name) throws RepositoryException {
+        return super.getProperty(name);
+    }
+
+    @Override
+    public String getName() throws RepositoryException {
+        NodeSnapshot current = getSnapshot(false);
+        return (current != null ? current.getName() : super.getName());
+    }
+
+    @Override
+    public String getPath() throws RepositoryException {
+        NodeSnapshot current = getSnapshot(false);
+        return (current != null ? current.getPath() : super.getPath());
+    }
+
+    @Override
+    public String getIdentifier() throws RepositoryException {
+        NodeSnapshot current = getSnapshot(false);
+        return (current != null ? current.getIdentifier() : super.getIdentifier());
+    }
+
+    @Override
+    public Property getProperty(String relPath) throws PathNotFoundException, RepositoryException {
+        if (!isPropertyName(relPath)) {
+            return super.getProperty(relPath);
+        }
+        NodeSnapshot current = getSnapshot(false);
+        if (current == null) {
+            return super.getProperty(relPath);
+        }
+        PropertySnapshot property = current.getProperties().get(relPath);
+        if (property == null) {
+            throw new PathNotFoundException(relPath);
+        }
+        return new SnapshotProperty(this, property);
+    }
+
+    @Override
+    public boolean hasProperty(String relPath) throws RepositoryException {
+        if (!isPropertyName(relPath)) {
+            return super.hasProperty(relPath);
+        }
+        NodeSnapshot current = getSnapshot(false);
+        return (current != null ? current.getProperties().containsKey(relPath) : super.hasProperty(relPath));
+    }
+
+    @Override
+    public boolean hasProperties() throws RepositoryException {
+        NodeSnapshot current = getSnapshot(false);
+        return (current != null ? !current.getProperties().isEmpty() : super.hasProperties());
+    }
+
+    @Override
+    public PropertyIterator getProperties() throws RepositoryException {
+        NodeSnapshot current = getSnapshot(false);
+        if (current == null) {
+            return super.getProperties();
+        }
+        List<Property> properties = new ArrayList<Property>(current.getProperties().size());
+        for (PropertySnapshot property : current.getProperties().values()) {
+            properties.add(new SnapshotProperty(this, property));
+        }
+        return new PropertyIteratorAdapter(properties);
+    }
+
+    @Override
+    public NodeIterator getNodes() throws RepositoryException {
+        NodeSnapshot current = getSnapshot(true);
+        if (current == null) {
+            return super.getNodes();
+        }
+        List<NodeSnapshot> children = current.getChildren();
+        long size = (current.getRemainingChildren() == null ? children.size() : -1);
+        NodeIterator nodes = new PrefetchedNodeIterator(session, factory, children, current.getRemainingChildren(),
+                size, snapshotGeneration);
+        if (current.getRemainingChildren() != null) {
+            // the remaining children can only be iterated once
+            snapshot = current.withoutChildren();
+        }
+        return nodes;
+    }
+
+    @Override
+    public boolean hasNodes() throws RepositoryException {
+        if (isPrefetchEnabled() && snapshot != null && snapshot.getChildren() != null
+                && snapshotGeneration == getSnapshotGeneration(session)) {
+            return !snapshot.getChildren().isEmpty() || snapshot.getRemainingChildren() != null;
+        }
+        return super.hasNodes();
+    }
+
+    @Override
+    public Node addNode(String relPath) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.addNode(relPath);
+    }
+
+    @Override
+    public Node addNode(String relPath, String primaryNodeTypeName) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.addNode(relPath, primaryNodeTypeName);
+    }
+
+    @Override
+    public void orderBefore(String srcChildRelPath, String destChildRelPath) throws RepositoryException {
+        invalidateSnapshots(session);
+        super.orderBefore(srcChildRelPath, destChildRelPath);
+    }
+
+    @Override
+    public Property setProperty(String name, Value value) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.setProperty(name, value);
+    }
+
+    @Override
+    public Property setProperty(String name, Value value, int type) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.setProperty(name, value, type);
+    }
+
+    @Override
+    public Property setProperty(String name, Value[] values) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.setProperty(name, values);
+    }
+
+    @Override
+    public Property setProperty(String name, Value[] values, int type) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.setProperty(name, values, type);
+    }
+
+    @Override
+    public Property setProperty(String name, String[] values) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.setProperty(name, values);
+    }
+
+    @Override
+    public Property setProperty(String name, String[] values, int type) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.setProperty(name, values, type);
+    }
+
+    @Override
+    public Property setProperty(String name, String value) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.setProperty(name, value);
+    }
+
+    @Override
+    public Property setProperty(String name, String value, int type) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.setProperty(name, value, type);
+    }
+
+    @Override
+    public Property setProperty(String name, InputStream value) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.setProperty(name, value);
+    }
+
+    @Override
+    public Property setProperty(String name, Binary value) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.setProperty(name, value);
+    }
+
+    @Override
+    public Property setProperty(String name, boolean value) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.setProperty(name, value);
+    }
+
+    @Override
+    public Property setProperty(String name, double value) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.setProperty(name, value);
+    }
+
+    @Override
+    public Property setProperty(String name, BigDecimal value) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.setProperty(name, value);
+    }
+
+    @Override
+    public Property setProperty(String name, long value) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.setProperty(name, value);
+    }
+
+    @Override
+    public Property setProperty(String name, Calendar value) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.setProperty(name, value);
+    }
+
+    @Override
+    public Property setProperty(String name, Node value) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.setProperty(name, value);
+    }
+
+    @Override
+    public void setPrimaryType(String nodeTypeName) throws RepositoryException {
+        invalidateSnapshots(session);
+        super.setPrimaryType(nodeTypeName);
+    }
+
+    @Override
+    public void addMixin(String mixinName) throws RepositoryException {
+        invalidateSnapshots(session);
+        super.addMixin(mixinName);
+    }
+
+    @Override
+    public void removeMixin(String mixinName) throws RepositoryException {
+        invalidateSnapshots(session);
+        super.removeMixin(mixinName);
+    }
+
+    @Override
+    public void remove() throws RepositoryException {
+        invalidateSnapshots(session);
+        super.remove();
+    }
+
+    @Override
+    public void save() throws RepositoryException {
+        invalidateSnapshots(session);
+        super.save();
+    }
+
+    @Override
+    public void refresh(boolean keepChanges) throws RepositoryException {
+        invalidateSnapshots(session);
+        super.refresh(keepChanges);
+    }
+
+    @Override
+    public void update(String srcWorkspace) throws RepositoryException {
+        invalidateSnapshots(session);
+        super.update(srcWorkspace);
+    }
+
+    @Override
+    public Version checkin() throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.checkin();
+    }
+
+    @Override
+    public void checkout() throws RepositoryException {
+        invalidateSnapshots(session);
+        super.checkout();
+    }
+
+    @Override
+    public void restore(String versionName, boolean removeExisting) throws RepositoryException {
+        invalidateSnapshots(session);
+        super.restore(versionName, removeExisting);
+    }
+
+    @Override
+    public void restore(Version version, boolean removeExisting) throws RepositoryException {
+        invalidateSnapshots(session);
+        super.restore(version, removeExisting);
+    }
+
+    @Override
+    public void restore(Version version, String relPath, boolean removeExisting) throws RepositoryException {
+        invalidateSnapshots(session);
+        super.restore(version, relPath, removeExisting);
+    }
+
+    @Override
+    public void restoreByLabel(String versionLabel, boolean removeExisting) throws RepositoryException {
+        invalidateSnapshots(session);
+        super.restoreByLabel(versionLabel, removeExisting);
+    }
+
+    @Override
+    public NodeIterator merge(String srcWorkspace, boolean bestEffort) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.merge(srcWorkspace, bestEffort);
+    }
+
+    @Override
+    public Lock lock(boolean isDeep, boolean isSessionScoped) throws RepositoryException {
+        invalidateSnapshots(session);
+        return super.lock(isDeep, isSessionScoped);
+    }
+
+    @Override
+    public void unlock() throws RepositoryException {
+        invalidateSnapshots(session);
+        super.unlock();
     }
 
     public Node getCanonicalNode() throws RepositoryException {
@@ -0,0 +1,132 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.decorating.client;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.Calendar;
+
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+
+import org.apache.jackrabbit.rmi.client.ClientProperty;
+import org.apache.jackrabbit.rmi.remote.RemoteProperty;
+
+/**
+ * Property that invalidates the node snapshots of its session when it is modified.
+ */
+public class ClientServicingProperty extends ClientProperty {
+
+    private Session session;
+
+    protected ClientServicingProperty(Session session, RemoteProperty remote, LocalServicingAdapterFactory factory) {
+        super(session, remote, factory);
+        this.session = session;
+    }
+
+    @Override
+    public void setValue(Value value) throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.setValue(value);
+    }
+
+    @Override
+    public void setValue(Value[] values) throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.setValue(values);
+    }
+
+    @Override
+    public void setValue(String value) throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.setValue(value);
+    }
+
+    @Override
+    public void setValue(String[] values) throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.setValue(values);
+    }
+
+    @Override
+    public void setValue(InputStream value) throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.setValue(value);
+    }
+
+    @Override
+    public void setValue(Binary value) throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.setValue(value);
+    }
+
+    @Override
+    public void setValue(long value) throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.setValue(value);
+    }
+
+    @Override
+    public void setValue(double value) throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.setValue(value);
+    }
+
+    @Override
+    public void setValue(BigDecimal value) throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.setValue(value);
+    }
+
+    @Override
+    public void setValue(Calendar value) throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.setValue(value);
+    }
+
+    @Override
+    public void setValue(boolean value) throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.setValue(value);
+    }
+
+    @Override
+    public void setValue(Node value) throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.setValue(value);
+    }
+
+    @Override
+    public void remove() throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.remove();
+    }
+
+    @Override
+    public void refresh(boolean keepChanges) throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.refresh(keepChanges);
+    }
+
+    @Override
+    public void save() throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.save();
+    }
+}
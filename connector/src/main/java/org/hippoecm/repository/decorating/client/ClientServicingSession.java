@@ -21,6 +21,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.rmi.RemoteException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipOutputStream;
 
 import javax.jcr.InvalidSerializedDataException;
 import javax.jcr.ItemExistsException;
@@ -57,17 +59,65 @@ import org.onehippo.repository.xml.ImportResult;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 
-public class ClientServicingSession extends ClientSession implements HippoSession {
+public class ClientServicingSession extends ClientSession implements HippoSession, PrefetchingSession {
 
     private RemoteServicingSession remote;
+    private final AtomicLong snapshotGeneration = new AtomicLong();
 
     protected ClientServicingSession(Repository repository, RemoteServicingSession remote, LocalServicingAdapterFactory factory) {
         super(repository, remote, factory);
         this.remote = remote;
     }
 
+    @Override
+    public long getSnapshotGeneration() {
+        return snapshotGeneration.get();
+    }
+
+    @Override
+    public void invalidateSnapshots() {
+        snapshotGeneration.incrementAndGet();
+    }
+
+    @Override
+    public void refresh(boolean keepChanges) throws RepositoryException {
+        invalidateSnapshots();
+        super.refresh(keepChanges);
+    }
+
+    @Override
+    public void save() throws RepositoryException {
+        invalidateSnapshots();
+        super.save();
+    }
+
+    @Override
+    public void move(String srcAbsPath, String destAbsPath) throws RepositoryException {
+        invalidateSnapshots();
+        super.move(srcAbsPath, destAbsPath);
+    }
+
+    @Override
+    public void removeItem(String absPath) throws RepositoryException {
+        invalidateSnapshots();
+        super.removeItem(absPath);
+    }
+
+    @Override
+    public void importXML(String path, InputStream xml, int mode) throws IOException, RepositoryException {
+        invalidateSnapshots();
+        super.importXML(path, xml, mode);
+    }
+
+    @Override
+    public ContentHandler getImportContentHandler(String path, int mode) throws RepositoryException {
+        invalidateSnapshots();
+        return super.getImportContentHandler(path, mode);
+    }
+
     @Override
     public Node copy(Node original, String absPath) throws RepositoryException {
+        invalidateSnapshots();
         try {
             return getNode(this, remote.copy(original.getPath(), absPath));
         } catch (RemoteException ex) {
@@ -159,6 +209,11 @@ public class ClientServicingSession extends ClientSession implements HippoSessio
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void exportEnhancedSystemViewPackage(final String parentAbsPath, final boolean recurse, final ZipOutputStream zipOut) throws IOException, RepositoryException {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public ClassLoader getSessionClassLoader() throws RepositoryException {
         return Thread.currentThread().getContextClassLoader();
@@ -15,6 +15,8 @@
  */
 package org.hippoecm.repository.decorating.client;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.rmi.RemoteException;
 
 import javax.jcr.RepositoryException;
@@ -42,6 +44,37 @@ public class ClientServicingWorkspace extends ClientWorkspace implements HippoWo
         this.remote = remote;
     }
 
+    @Override
+    public void copy(String srcAbsPath, String destAbsPath) throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.copy(srcAbsPath, destAbsPath);
+    }
+
+    @Override
+    public void copy(String srcWorkspace, String srcAbsPath, String destAbsPath) throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.copy(srcWorkspace, srcAbsPath, destAbsPath);
+    }
+
+    @Override
+    public void clone(String srcWorkspace, String srcAbsPath, String destAbsPath, boolean removeExisting)
+            throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.clone(srcWorkspace, srcAbsPath, destAbsPath, removeExisting);
+    }
+
+    @Override
+    public void move(String srcAbsPath, String destAbsPath) throws RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.move(srcAbsPath, destAbsPath);
+    }
+
+    @Override
+    public void importXML(String path, InputStream xml, int uuidBehaviour) throws IOException, RepositoryException {
+        ClientServicingNode.invalidateSnapshots(session);
+        super.importXML(path, xml, uuidBehaviour);
+    }
+
     public WorkflowManager getWorkflowManager() throws RepositoryException {
         try {
             RemoteWorkflowManager manager = remote.getWorkflowManager();
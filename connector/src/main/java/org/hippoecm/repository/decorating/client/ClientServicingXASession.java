@@ -21,6 +21,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.rmi.RemoteException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipOutputStream;
 
 import javax.jcr.InvalidSerializedDataException;
 import javax.jcr.ItemExistsException;
@@ -59,17 +61,65 @@ import org.onehippo.repository.xml.ImportResult;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 
-public class ClientServicingXASession extends ClientSession implements HippoSession {
+public class ClientServicingXASession extends ClientSession implements HippoSession, PrefetchingSession {
 
     private RemoteServicingXASession remote;
+    private final AtomicLong snapshotGeneration = new AtomicLong();
 
     protected ClientServicingXASession(Repository repository, RemoteServicingXASession remote, LocalServicingAdapterFactory factory) {
         super(repository, remote, factory);
         this.remote = remote;
     }
 
+    @Override
+    public long getSnapshotGeneration() {
+        return snapshotGeneration.get();
+    }
+
+    @Override
+    public void invalidateSnapshots() {
+        snapshotGeneration.incrementAndGet();
+    }
+
+    @Override
+    public void refresh(boolean keepChanges) throws RepositoryException {
+        invalidateSnapshots();
+        super.refresh(keepChanges);
+    }
+
+    @Override
+    public void save() throws RepositoryException {
+        invalidateSnapshots();
+        super.save();
+    }
+
+    @Override
+    public void move(String srcAbsPath, String destAbsPath) throws RepositoryException {
+        invalidateSnapshots();
+        super.move(srcAbsPath, destAbsPath);
+    }
+
+    @Override
+    public void removeItem(String absPath) throws RepositoryException {
+        invalidateSnapshots();
+        super.removeItem(absPath);
+    }
+
+    @Override
+    public void importXML(String path, InputStream xml, int mode) throws IOException, RepositoryException {
+        invalidateSnapshots();
+        super.importXML(path, xml, mode);
+    }
+
+    @Override
+    public ContentHandler getImportContentHandler(String path, int mode) throws RepositoryException {
+        invalidateSnapshots();
+        return super.getImportContentHandler(path, mode);
+    }
+
     @Override
     public Node copy(Node original, String absPath) throws RepositoryException {
+        invalidateSnapshots();
         try {
             return getNode(this, remote.copy(original.getPath(), absPath));
         } catch (RemoteException ex) {
@@ -161,6 +211,11 @@ public class ClientServicingXASession extends ClientSession implements HippoSess
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void exportEnhancedSystemViewPackage(final String parentAbsPath, final boolean recurse, final ZipOutputStream zipOut) throws IOException, RepositoryException {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public ClassLoader getSessionClassLoader() throws RepositoryException {
         return Thread.currentThread().getContextClassLoader();
@@ -176,6 +231,7 @@ public class ClientServicingXASession extends ClientSession implements HippoSess
         return new XAResource() {
 
             public void commit(Xid arg0, boolean arg1) throws XAException {
+                invalidateSnapshots();
                 try {
                     remote.commit(arg0, arg1);
                 } catch (RemoteException ex) {
@@ -228,6 +284,7 @@ public class ClientServicingXASession extends ClientSession implements HippoSess
             }
 
             public void rollback(Xid arg0) throws XAException {
+                invalidateSnapshots();
                 try {
                     remote.rollback(arg0);
                 } catch (RemoteException ex) {
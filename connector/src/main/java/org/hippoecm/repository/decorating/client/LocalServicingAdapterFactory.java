@@ -27,4 +27,20 @@ public interface LocalServicingAdapterFactory extends LocalAdapterFactory {
 
     public WorkflowManager getWorkflowManager(Session session, RemoteWorkflowManager remote);
     public HierarchyResolver getHierarchyResolver(Session session, RemoteHierarchyResolver remote);
+
+    /**
+     * @return whether nodes and query results are fetched in batches, and reads are served from the fetched
+     * snapshots until the session is refreshed or modified
+     */
+    public boolean isPrefetchEnabled();
+
+    /**
+     * @return the maximum number of child nodes or query result nodes fetched in a single batch
+     */
+    public int getPrefetchSize();
+
+    /**
+     * @return whether batches are transferred in compressed form
+     */
+    public boolean isCompressionEnabled();
 }
@@ -0,0 +1,113 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.decorating.client;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Session;
+
+import org.apache.jackrabbit.rmi.remote.RemoteIterator;
+import org.hippoecm.repository.decorating.remote.NodeSnapshot;
+
+/**
+ * Iterates over the nodes of which snapshots were fetched in a batch, followed by the nodes of a remote iterator.
+ */
+class PrefetchedNodeIterator implements NodeIterator {
+
+    private final Session session;
+    private final LocalServicingAdapterFactory factory;
+    private final List<NodeSnapshot> snapshots;
+    private final RemoteIterator remaining;
+    private final long size;
+    private final long generation;
+
+    private int index = 0;
+    private long position = 0;
+    private NodeIterator tail;
+
+    PrefetchedNodeIterator(Session session, LocalServicingAdapterFactory factory, List<NodeSnapshot> snapshots,
+                           RemoteIterator remaining, long size, long generation) {
+        this.session = session;
+        this.factory = factory;
+        this.snapshots = snapshots;
+        this.remaining = remaining;
+        this.size = size;
+        this.generation = generation;
+    }
+
+    private NodeIterator getTail() {
+        if (tail == null) {
+            tail = factory.getNodeIterator(session, remaining);
+        }
+        return tail;
+    }
+
+    public Node nextNode() {
+        Node node;
+        if (index < snapshots.size()) {
+            NodeSnapshot snapshot = snapshots.get(index++);
+            node = factory.getNode(session, snapshot.getNode());
+            if (node instanceof ClientServicingNode) {
+                ((ClientServicingNode) node).setSnapshot(snapshot, generation);
+            }
+        } else if (remaining != null) {
+            node = getTail().nextNode();
+        } else {
+            throw new NoSuchElementException();
+        }
+        position++;
+        return node;
+    }
+
+    public Object next() {
+        return nextNode();
+    }
+
+    public boolean hasNext() {
+        return index < snapshots.size() || (remaining != null && getTail().hasNext());
+    }
+
+    public void skip(long skipNum) {
+        if (skipNum < 0) {
+            throw new IllegalArgumentException("Negative skip is not allowed");
+        }
+        long skipped = Math.min(skipNum, snapshots.size() - index);
+        index += skipped;
+        position += skipped;
+        if (skipped < skipNum) {
+            if (remaining == null) {
+                throw new NoSuchElementException();
+            }
+            getTail().skip(skipNum - skipped);
+            position += skipNum - skipped;
+        }
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
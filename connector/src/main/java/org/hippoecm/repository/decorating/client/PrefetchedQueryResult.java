@@ -0,0 +1,74 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.decorating.client;
+
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.query.QueryResult;
+import javax.jcr.query.RowIterator;
+
+import org.hippoecm.repository.decorating.remote.QueryResultPage;
+
+/**
+ * Query result of which the first page of nodes was fetched together with the result.  Only the first iteration
+ * over the nodes is served from the page, rows and further iterations are delegated to the remote result.
+ */
+class PrefetchedQueryResult implements QueryResult {
+
+    private final Session session;
+    private final LocalServicingAdapterFactory factory;
+    private final QueryResultPage page;
+    private final long generation;
+    private QueryResult result;
+    private boolean pageConsumed = false;
+
+    PrefetchedQueryResult(Session session, LocalServicingAdapterFactory factory, QueryResultPage page,
+                          long generation) {
+        this.session = session;
+        this.factory = factory;
+        this.page = page;
+        this.generation = generation;
+    }
+
+    private QueryResult getResult() {
+        if (result == null) {
+            result = factory.getQueryResult(session, page.getResult());
+        }
+        return result;
+    }
+
+    public String[] getColumnNames() throws RepositoryException {
+        return getResult().getColumnNames();
+    }
+
+    public RowIterator getRows() throws RepositoryException {
+        return getResult().getRows();
+    }
+
+    public NodeIterator getNodes() throws RepositoryException {
+        if (pageConsumed) {
+            return getResult().getNodes();
+        }
+        pageConsumed = true;
+        return new PrefetchedNodeIterator(session, factory, page.getNodes(), page.getRemainingNodes(), page.getSize(),
+                generation);
+    }
+
+    public String[] getSelectorNames() throws RepositoryException {
+        return getResult().getSelectorNames();
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.decorating.client;
+
+/**
+ * Session tracking the validity of the node snapshots fetched through it.  Snapshots fetched in an older
+ * generation are no longer used.
+ */
+interface PrefetchingSession {
+
+    long getSnapshotGeneration();
+
+    /**
+     * Called when the session is refreshed or modified.
+     */
+    void invalidateSnapshots();
+}
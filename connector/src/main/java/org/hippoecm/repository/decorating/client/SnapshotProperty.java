@@ -0,0 +1,273 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.decorating.client;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.Calendar;
+
+import javax.jcr.Binary;
+import javax.jcr.Item;
+import javax.jcr.ItemVisitor;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.ValueFormatException;
+import javax.jcr.nodetype.PropertyDefinition;
+
+import org.apache.jackrabbit.rmi.value.SerialValueFactory;
+import org.hippoecm.repository.decorating.remote.PropertySnapshot;
+
+/**
+ * Property of which the values are read from a snapshot of its node.  All other operations are delegated to the
+ * remote property, which is only looked up when needed.
+ */
+class SnapshotProperty implements Property {
+
+    private final ClientServicingNode parent;
+    private final PropertySnapshot snapshot;
+    private Property remote;
+
+    SnapshotProperty(ClientServicingNode parent, PropertySnapshot snapshot) {
+        this.parent = parent;
+        this.snapshot = snapshot;
+    }
+
+    private Property getRemote() throws RepositoryException {
+        if (remote == null) {
+            remote = parent.getRemoteProperty(snapshot.getName());
+        }
+        return remote;
+    }
+
+    private Value createValue(String value) throws RepositoryException {
+        return SerialValueFactory.getInstance().createValue(value, snapshot.getType());
+    }
+
+    public Value getValue() throws RepositoryException {
+        if (!snapshot.hasValues()) {
+            return getRemote().getValue();
+        }
+        if (snapshot.isMultiple()) {
+            throw new ValueFormatException("Property " + getPath() + " is multi-valued");
+        }
+        return createValue(snapshot.getValues()[0]);
+    }
+
+    public Value[] getValues() throws RepositoryException {
+        if (!snapshot.hasValues()) {
+            return getRemote().getValues();
+        }
+        if (!snapshot.isMultiple()) {
+            throw new ValueFormatException("Property " + getPath() + " is single-valued");
+        }
+        String[] strings = snapshot.getValues();
+        Value[] values = new Value[strings.length];
+        for (int i = 0; i < strings.length; i++) {
+            values[i] = createValue(strings[i]);
+        }
+        return values;
+    }
+
+    public String getString() throws RepositoryException {
+        return getValue().getString();
+    }
+
+    public InputStream getStream() throws RepositoryException {
+        return getRemote().getStream();
+    }
+
+    public Binary getBinary() throws RepositoryException {
+        return getRemote().getBinary();
+    }
+
+    public long getLong() throws RepositoryException {
+        return getValue().getLong();
+    }
+
+    public double getDouble() throws RepositoryException {
+        return getValue().getDouble();
+    }
+
+    public BigDecimal getDecimal() throws RepositoryException {
+        return getValue().getDecimal();
+    }
+
+    public Calendar getDate() throws RepositoryException {
+        return getValue().getDate();
+    }
+
+    public boolean getBoolean() throws RepositoryException {
+        return getValue().getBoolean();
+    }
+
+    public Node getNode() throws RepositoryException {
+        return getRemote().getNode();
+    }
+
+    public Property getProperty() throws RepositoryException {
+        return getRemote().getProperty();
+    }
+
+    public long getLength() throws RepositoryException {
+        if (!snapshot.hasValues()) {
+            return getRemote().getLength();
+        }
+        return getValue().getString().length();
+    }
+
+    public long[] getLengths() throws RepositoryException {
+        if (!snapshot.hasValues()) {
+            return getRemote().getLengths();
+        }
+        if (!snapshot.isMultiple()) {
+            throw new ValueFormatException("Property " + getPath() + " is single-valued");
+        }
+        String[] strings = snapshot.getValues();
+        long[] lengths = new long[strings.length];
+        for (int i = 0; i < strings.length; i++) {
+            lengths[i] = strings[i].length();
+        }
+        return lengths;
+    }
+
+    public PropertyDefinition getDefinition() throws RepositoryException {
+        return getRemote().getDefinition();
+    }
+
+    public int getType() throws RepositoryException {
+        return snapshot.getType();
+    }
+
+    public boolean isMultiple() throws RepositoryException {
+        return snapshot.isMultiple();
+    }
+
+    public void setValue(Value value) throws RepositoryException {
+        getRemote().setValue(value);
+    }
+
+    public void setValue(Value[] values) throws RepositoryException {
+        getRemote().setValue(values);
+    }
+
+    public void setValue(String value) throws RepositoryException {
+        getRemote().setValue(value);
+    }
+
+    public void setValue(String[] values) throws RepositoryException {
+        getRemote().setValue(values);
+    }
+
+    public void setValue(InputStream value) throws RepositoryException {
+        getRemote().setValue(value);
+    }
+
+    public void setValue(Binary value) throws RepositoryException {
+        getRemote().setValue(value);
+    }
+
+    public void setValue(long value) throws RepositoryException {
+        getRemote().setValue(value);
+    }
+
+    public void setValue(double value) throws RepositoryException {
+        getRemote().setValue(value);
+    }
+
+    public void setValue(BigDecimal value) throws RepositoryException {
+        getRemote().setValue(value);
+    }
+
+    public void setValue(Calendar value) throws RepositoryException {
+        getRemote().setValue(value);
+    }
+
+    public void setValue(boolean value) throws RepositoryException {
+        getRemote().setValue(value);
+    }
+
+    public void setValue(Node value) throws RepositoryException {
+        getRemote().setValue(value);
+    }
+
+    public String getPath() throws RepositoryException {
+        String parentPath = parent.getPath();
+        return ("/".equals(parentPath) ? "" : parentPath) + "/" + snapshot.getName();
+    }
+
+    public String getName() throws RepositoryException {
+        return snapshot.getName();
+    }
+
+    public Item getAncestor(int depth) throws RepositoryException {
+        return getRemote().getAncestor(depth);
+    }
+
+    public Node getParent() throws RepositoryException {
+        return parent;
+    }
+
+    public int getDepth() throws RepositoryException {
+        return getRemote().getDepth();
+    }
+
+    public Session getSession() throws RepositoryException {
+        return parent.getSession();
+    }
+
+    public boolean isNode() {
+        return false;
+    }
+
+    public boolean isNew() {
+        try {
+            return getRemote().isNew();
+        } catch (RepositoryException ex) {
+            return false;
+        }
+    }
+
+    public boolean isModified() {
+        try {
+            return getRemote().isModified();
+        } catch (RepositoryException ex) {
+            return false;
+        }
+    }
+
+    public boolean isSame(Item otherItem) throws RepositoryException {
+        return getRemote().isSame(otherItem);
+    }
+
+    public void accept(ItemVisitor visitor) throws RepositoryException {
+        visitor.visit(this);
+    }
+
+    public void save() throws RepositoryException {
+        getRemote().save();
+    }
+
+    public void refresh(boolean keepChanges) throws RepositoryException {
+        getRemote().refresh(keepChanges);
+    }
+
+    public void remove() throws RepositoryException {
+        getRemote().remove();
+    }
+}
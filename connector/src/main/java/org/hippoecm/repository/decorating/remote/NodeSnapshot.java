@@ -0,0 +1,99 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.decorating.remote;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jackrabbit.rmi.remote.RemoteIterator;
+import org.apache.jackrabbit.rmi.remote.RemoteNode;
+
+/**
+ * The state of a node at the time it was fetched: its name, path, identifier and properties, and optionally the
+ * snapshots of its first child nodes.  Child nodes that did not fit in the batch are available through a remote
+ * iterator.
+ */
+public class NodeSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final RemoteNode node;
+    private final String name;
+    private final String path;
+    private final String identifier;
+    private final Map<String, PropertySnapshot> properties;
+    private final List<NodeSnapshot> children;
+    private final RemoteIterator remainingChildren;
+
+    public NodeSnapshot(final RemoteNode node, final String name, final String path, final String identifier,
+                        final Map<String, PropertySnapshot> properties, final List<NodeSnapshot> children,
+                        final RemoteIterator remainingChildren) {
+        this.node = node;
+        this.name = name;
+        this.path = path;
+        this.identifier = identifier;
+        this.properties = properties;
+        this.children = children;
+        this.remainingChildren = remainingChildren;
+    }
+
+    public RemoteNode getNode() {
+        return node;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    /**
+     * @return the properties by name, in the order the repository returned them
+     */
+    public Map<String, PropertySnapshot> getProperties() {
+        return Collections.unmodifiableMap(properties);
+    }
+
+    /**
+     * @return the snapshots of the first child nodes, or <code>null</code> if child nodes were not fetched
+     */
+    public List<NodeSnapshot> getChildren() {
+        return children != null ? Collections.unmodifiableList(children) : null;
+    }
+
+    /**
+     * @return the iterator over the child nodes following {@link #getChildren()}, or <code>null</code> if there
+     * are none.  The iterator can only be consumed once.
+     */
+    public RemoteIterator getRemainingChildren() {
+        return remainingChildren;
+    }
+
+    /**
+     * @return this snapshot without its child nodes
+     */
+    public NodeSnapshot withoutChildren() {
+        return new NodeSnapshot(node, name, path, identifier, properties, null, null);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.decorating.remote;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.rmi.MarshalException;
+import java.rmi.MarshalledObject;
+import java.rmi.RemoteException;
+import java.rmi.UnmarshalException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Result of a batched remote call, optionally transferred in compressed form.  Compressed values are marshalled
+ * with RMI semantics before compression, so remote objects contained in the value arrive as stubs.
+ *
+ * @param <T> the type of the transferred value
+ */
+public final class Payload<T extends Serializable> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Values that serialize to fewer bytes than this are not compressed
+     */
+    static final int MIN_COMPRESSED_SIZE = 1024;
+
+    private final T value;
+    private final byte[] compressed;
+
+    private Payload(final T value, final byte[] compressed) {
+        this.value = value;
+        this.compressed = compressed;
+    }
+
+    public static <T extends Serializable> Payload<T> of(final T value, final boolean compress) throws RemoteException {
+        if (!compress || value == null) {
+            return new Payload<>(value, null);
+        }
+        try {
+            final ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+                out.writeObject(new MarshalledObject<>(value));
+            }
+            if (serialized.size() < MIN_COMPRESSED_SIZE) {
+                return new Payload<>(value, null);
+            }
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream(serialized.size() / 4);
+            try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+                serialized.writeTo(out);
+            }
+            return new Payload<>(null, buffer.toByteArray());
+        } catch (IOException ex) {
+            throw new MarshalException("Cannot compress " + value.getClass().getName(), ex);
+        }
+    }
+
+    public boolean isCompressed() {
+        return compressed != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get() throws RemoteException {
+        if (compressed == null) {
+            return value;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(new ByteArrayInputStream(compressed)))) {
+            return ((MarshalledObject<T>) in.readObject()).get();
+        } catch (IOException | ClassNotFoundException ex) {
+            throw new UnmarshalException("Cannot decompress payload", ex);
+        }
+    }
+}
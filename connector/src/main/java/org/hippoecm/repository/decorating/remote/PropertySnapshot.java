@@ -0,0 +1,80 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.decorating.remote;
+
+import java.io.Serializable;
+
+import javax.jcr.Property;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+
+/**
+ * The state of a property at the time it was fetched.  Values are kept in their string form, values of binary
+ * properties are not transferred.
+ */
+public class PropertySnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final int type;
+    private final boolean multiple;
+    private final String[] values;
+
+    public PropertySnapshot(final Property property) throws RepositoryException {
+        this.name = property.getName();
+        this.type = property.getType();
+        this.multiple = property.isMultiple();
+        if (type == PropertyType.BINARY) {
+            values = null;
+        } else if (multiple) {
+            final Value[] propertyValues = property.getValues();
+            values = new String[propertyValues.length];
+            for (int i = 0; i < propertyValues.length; i++) {
+                values[i] = propertyValues[i].getString();
+            }
+        } else {
+            values = new String[] { property.getValue().getString() };
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public boolean isMultiple() {
+        return multiple;
+    }
+
+    /**
+     * @return whether the values are available, which is the case for all but binary properties
+     */
+    public boolean hasValues() {
+        return values != null;
+    }
+
+    /**
+     * @return the string form of the values, or <code>null</code> if they were not transferred
+     */
+    public String[] getValues() {
+        return values != null ? values.clone() : null;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.decorating.remote;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jackrabbit.rmi.remote.RemoteIterator;
+import org.apache.jackrabbit.rmi.remote.RemoteQueryResult;
+
+/**
+ * The first page of result nodes of a query, preloaded with their properties.
+ */
+public class QueryResultPage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final RemoteQueryResult result;
+    private final List<NodeSnapshot> nodes;
+    private final RemoteIterator remainingNodes;
+    private final long size;
+
+    public QueryResultPage(final RemoteQueryResult result, final List<NodeSnapshot> nodes,
+                           final RemoteIterator remainingNodes, final long size) {
+        this.result = result;
+        this.nodes = nodes;
+        this.remainingNodes = remainingNodes;
+        this.size = size;
+    }
+
+    /**
+     * @return the complete query result, for access to rows and column names
+     */
+    public RemoteQueryResult getResult() {
+        return result;
+    }
+
+    public List<NodeSnapshot> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    /**
+     * @return the iterator over the result nodes following {@link #getNodes()}, or <code>null</code> if there are
+     * none
+     */
+    public RemoteIterator getRemainingNodes() {
+        return remainingNodes;
+    }
+
+    /**
+     * @return the total number of result nodes, or -1 if unknown
+     */
+    public long getSize() {
+        return size;
+    }
+}
@@ -40,6 +40,16 @@ public interface RemoteQuery extends org.apache.jackrabbit.rmi.remote.RemoteQuer
     public int getArgumentCount() throws RepositoryException, RemoteException;
     public RemoteQueryResult execute(Map<String,String> arguments) throws RepositoryException, RemoteException;
 
+    /**
+     * Executes the query and preloads the first result nodes with their properties.
+     *
+     * @param arguments the query arguments, or <code>null</code> to execute the query without arguments
+     * @param pageSize  the maximum number of result nodes to preload
+     * @param compress  whether to compress the result
+     */
+    public Payload<QueryResultPage> executePage(Map<String,String> arguments, int pageSize, boolean compress)
+            throws RepositoryException, RemoteException;
+
     public void bindValue(String varName, Value value) throws RepositoryException, RemoteException;
     public String[] getBindVariableNames() throws RepositoryException, RemoteException;
     public void setLimit(long limit) throws RemoteException;
@@ -30,4 +30,12 @@ public interface RemoteServicingNode extends RemoteNode, Remote, Serializable {
     String getHippoName() throws RepositoryException, RemoteException;
 
     boolean recomputeDerivedData() throws RepositoryException, RemoteException;
+
+    /**
+     * Fetches the node together with its properties in a single call.
+     *
+     * @param childNodeLimit the maximum number of child nodes to include with their properties, 0 for none
+     * @param compress       whether to compress the result
+     */
+    Payload<NodeSnapshot> getSnapshot(int childNodeLimit, boolean compress) throws RepositoryException, RemoteException;
 }
@@ -16,22 +16,29 @@
 package org.hippoecm.repository.decorating.server;
 
 import java.rmi.RemoteException;
+import java.util.List;
 import java.util.Map;
 
 import javax.jcr.ItemExistsException;
 import javax.jcr.Node;
+import javax.jcr.NodeIterator;
 import javax.jcr.PathNotFoundException;
 import javax.jcr.RepositoryException;
 import javax.jcr.UnsupportedRepositoryOperationException;
 import javax.jcr.Value;
 import javax.jcr.lock.LockException;
 import javax.jcr.nodetype.ConstraintViolationException;
+import javax.jcr.query.QueryResult;
 import javax.jcr.version.VersionException;
 
+import org.apache.jackrabbit.rmi.remote.RemoteIterator;
 import org.apache.jackrabbit.rmi.remote.RemoteQueryResult;
 import org.apache.jackrabbit.rmi.server.ServerQueryResult;
 
 import org.hippoecm.repository.api.HippoQuery;
+import org.hippoecm.repository.decorating.remote.NodeSnapshot;
+import org.hippoecm.repository.decorating.remote.Payload;
+import org.hippoecm.repository.decorating.remote.QueryResultPage;
 import org.hippoecm.repository.decorating.remote.RemoteQuery;
 
 public class ServerQuery extends org.apache.jackrabbit.rmi.server.ServerQuery implements RemoteQuery {
@@ -62,6 +69,21 @@ public class ServerQuery extends org.apache.jackrabbit.rmi.server.ServerQuery im
         return new ServerQueryResult(query.execute(arguments), getFactory());
     }
 
+    public Payload<QueryResultPage> executePage(Map<String,String> arguments, int pageSize, boolean compress)
+            throws RepositoryException, RemoteException {
+        try {
+            QueryResult result = (arguments != null ? query.execute(arguments) : query.execute());
+            NodeIterator nodes = result.getNodes();
+            long size = nodes.getSize();
+            List<NodeSnapshot> snapshots = SnapshotBuilder.createSnapshots(getFactory(), nodes, pageSize);
+            RemoteIterator remaining = (nodes.hasNext() ? getFactory().getRemoteNodeIterator(nodes) : null);
+            return Payload.of(new QueryResultPage(new ServerQueryResult(result, getFactory()), snapshots, remaining, size),
+                    compress);
+        } catch (RepositoryException ex) {
+            throw getRepositoryException(ex);
+        }
+    }
+
     public void bindValue(String varName, Value value) throws RepositoryException, RemoteException {
         query.bindValue(varName, value);
     }
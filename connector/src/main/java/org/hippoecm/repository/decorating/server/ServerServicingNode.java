@@ -23,6 +23,8 @@ import javax.jcr.RepositoryException;
 import org.apache.jackrabbit.rmi.remote.RemoteNode;
 import org.apache.jackrabbit.rmi.server.ServerNode;
 import org.hippoecm.repository.api.HippoNode;
+import org.hippoecm.repository.decorating.remote.NodeSnapshot;
+import org.hippoecm.repository.decorating.remote.Payload;
 import org.hippoecm.repository.decorating.remote.RemoteServicingNode;
 
 public class ServerServicingNode extends ServerNode implements RemoteServicingNode {
@@ -56,4 +58,13 @@ public class ServerServicingNode extends ServerNode implements RemoteServicingNo
             throw getRepositoryException(ex);
         }
     }
+
+    @Override
+    public Payload<NodeSnapshot> getSnapshot(int childNodeLimit, boolean compress) throws RepositoryException, RemoteException {
+        try {
+            return Payload.of(SnapshotBuilder.createSnapshot(getFactory(), node, this, childNodeLimit), compress);
+        } catch(RepositoryException ex) {
+            throw getRepositoryException(ex);
+        }
+    }
 }
@@ -0,0 +1,73 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.decorating.server;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
+import javax.jcr.RepositoryException;
+
+import org.apache.jackrabbit.rmi.remote.RemoteIterator;
+import org.apache.jackrabbit.rmi.remote.RemoteNode;
+import org.apache.jackrabbit.rmi.server.RemoteAdapterFactory;
+import org.hippoecm.repository.decorating.remote.NodeSnapshot;
+import org.hippoecm.repository.decorating.remote.PropertySnapshot;
+
+final class SnapshotBuilder {
+
+    private SnapshotBuilder() {
+    }
+
+    static NodeSnapshot createSnapshot(RemoteAdapterFactory factory, Node node, RemoteNode remote, int childNodeLimit)
+            throws RepositoryException, RemoteException {
+        Map<String, PropertySnapshot> properties = new LinkedHashMap<String, PropertySnapshot>();
+        for (PropertyIterator iter = node.getProperties(); iter.hasNext(); ) {
+            Property property = iter.nextProperty();
+            properties.put(property.getName(), new PropertySnapshot(property));
+        }
+        List<NodeSnapshot> children = null;
+        RemoteIterator remainingChildren = null;
+        if (childNodeLimit > 0) {
+            NodeIterator childNodes = node.getNodes();
+            children = createSnapshots(factory, childNodes, childNodeLimit);
+            if (childNodes.hasNext()) {
+                remainingChildren = factory.getRemoteNodeIterator(childNodes);
+            }
+        }
+        return new NodeSnapshot(remote, node.getName(), node.getPath(), node.getIdentifier(), properties, children,
+                remainingChildren);
+    }
+
+    /**
+     * Creates snapshots without child nodes of at most <code>limit</code> nodes from the iterator.
+     */
+    static List<NodeSnapshot> createSnapshots(RemoteAdapterFactory factory, NodeIterator nodes, int limit)
+            throws RepositoryException, RemoteException {
+        List<NodeSnapshot> snapshots = new ArrayList<NodeSnapshot>();
+        while (snapshots.size() < limit && nodes.hasNext()) {
+            Node node = nodes.nextNode();
+            snapshots.add(createSnapshot(factory, node, factory.getRemoteNode(node), 0));
+        }
+        return snapshots;
+    }
+}
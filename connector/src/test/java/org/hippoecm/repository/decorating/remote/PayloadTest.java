@@ -0,0 +1,65 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.decorating.remote;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PayloadTest {
+
+    @SuppressWarnings("unchecked")
+    private static <T extends java.io.Serializable> Payload<T> roundTrip(Payload<T> payload) throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+            out.writeObject(payload);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+            return (Payload<T>) in.readObject();
+        }
+    }
+
+    @Test
+    public void uncompressedPayloadHoldsValue() throws Exception {
+        Payload<String> payload = Payload.of("value", false);
+        assertFalse(payload.isCompressed());
+        assertEquals("value", roundTrip(payload).get());
+    }
+
+    @Test
+    public void smallValuesAreNotCompressed() throws Exception {
+        assertFalse(Payload.of("value", true).isCompressed());
+    }
+
+    @Test
+    public void largeValuesAreCompressed() throws Exception {
+        ArrayList<String> value = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            value.add("value " + i);
+        }
+        Payload<ArrayList<String>> payload = Payload.of(value, true);
+        assertTrue(payload.isCompressed());
+        assertEquals(value, roundTrip(payload).get());
+    }
+}
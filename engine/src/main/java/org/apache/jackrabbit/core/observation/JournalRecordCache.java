@@ -0,0 +1,263 @@
+/*
+ * Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.observation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.jackrabbit.core.cluster.ChangeLogRecord;
+import org.apache.jackrabbit.core.cluster.ClusterRecord;
+import org.apache.jackrabbit.core.cluster.ClusterRecordDeserializer;
+import org.apache.jackrabbit.core.cluster.ClusterRecordProcessor;
+import org.apache.jackrabbit.core.cluster.LockRecord;
+import org.apache.jackrabbit.core.cluster.NamespaceRecord;
+import org.apache.jackrabbit.core.cluster.NodeTypeRecord;
+import org.apache.jackrabbit.core.cluster.PrivilegeRecord;
+import org.apache.jackrabbit.core.cluster.WorkspaceRecord;
+import org.apache.jackrabbit.core.journal.Journal;
+import org.apache.jackrabbit.core.journal.JournalException;
+import org.apache.jackrabbit.core.journal.Record;
+
+/**
+ * Journal wide cache shared by all {@link RevisionEventJournalImpl} instances reading the same journal for the same
+ * producer.
+ * <p>
+ * It holds two structures:
+ * <ul>
+ *     <li>a compact timestamp to revision index, sampled every {@link #INDEX_INTERVAL} records, that is kept
+ *     for the lifetime of the journal and used to seek by date;</li>
+ *     <li>a bounded read-ahead cache of deserialized records, chained by the revision preceding each record, so
+ *     that concurrent readers following each other through the journal do not re-read and re-deserialize the same
+ *     records.</li>
+ * </ul>
+ */
+class JournalRecordCache {
+
+    /**
+     * Number of records between two entries in the timestamp index.
+     */
+    static final int INDEX_INTERVAL = 64;
+
+    /**
+     * Maximum number of events kept in the read-ahead cache.
+     */
+    static final int MAX_CACHED_EVENTS = 16 * 1024;
+
+    private static final int INITIAL_INDEX_CAPACITY = 256;
+
+    private static final Map<Journal, Map<String, JournalRecordCache>> CACHES = new WeakHashMap<>();
+
+    static JournalRecordCache getInstance(final Journal journal, final String producerId) {
+        synchronized (CACHES) {
+            Map<String, JournalRecordCache> caches = CACHES.get(journal);
+            if (caches == null) {
+                caches = new HashMap<>();
+                CACHES.put(journal, caches);
+            }
+            JournalRecordCache cache = caches.get(producerId);
+            if (cache == null) {
+                cache = new JournalRecordCache(producerId);
+                caches.put(producerId, cache);
+            }
+            return cache;
+        }
+    }
+
+    private final String producerId;
+
+    private long[] indexTimestamps = new long[INITIAL_INDEX_CAPACITY];
+    private long[] indexRevisions = new long[INITIAL_INDEX_CAPACITY];
+    private int indexSize;
+    private int recordsSinceLastIndexEntry;
+
+    /**
+     * Cached records keyed by the revision of the record that precedes them in the journal.
+     */
+    private final LinkedHashMap<Long, CachedRecord> records = new LinkedHashMap<>();
+    private int cachedEvents;
+
+    JournalRecordCache(final String producerId) {
+        this.producerId = producerId;
+    }
+
+    /**
+     * @param previousRevision the revision of the last record read
+     * @return the cached record following <code>previousRevision</code> or <code>null</code> if not cached
+     */
+    synchronized CachedRecord get(final long previousRevision) {
+        return records.get(previousRevision);
+    }
+
+    /**
+     * Deserializes <code>record</code> if it was produced by the producer of this cache, adds it to the read-ahead
+     * cache and the timestamp index.
+     *
+     * @param previousRevision the revision of the record preceding <code>record</code> or <code>null</code> if
+     *                         <code>record</code> is the first record of the journal
+     * @param record the record to read
+     * @param deserializer the deserializer to use
+     * @return the cached record
+     * @throws JournalException if the record could not be deserialized
+     */
+    CachedRecord read(final Long previousRevision, final Record record, final ClusterRecordDeserializer deserializer)
+            throws JournalException {
+        final CachedRecord cached;
+        if (producerId.equals(record.getProducerId())) {
+            final ClusterRecord clusterRecord = deserializer.deserialize(record);
+            final RecordReader reader = new RecordReader();
+            clusterRecord.process(reader);
+            cached = new CachedRecord(record.getRevision(), clusterRecord.getWorkspace(),
+                    reader.timestamp, reader.userData, reader.events);
+        } else {
+            cached = new CachedRecord(record.getRevision(), null, -1, null, null);
+        }
+        synchronized (this) {
+            if (cached.events != null) {
+                index(cached.timestamp, cached.revision);
+            }
+            if (previousRevision != null && !records.containsKey(previousRevision)) {
+                records.put(previousRevision, cached);
+                cachedEvents += cached.size();
+                evict();
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * Remember that <code>revision</code> was written at <code>timestamp</code>. Only every
+     * {@link #INDEX_INTERVAL}th call is stored, and only if both timestamp and revision are ascending.
+     */
+    synchronized void index(final long timestamp, final long revision) {
+        if (indexSize > 0) {
+            if (revision <= indexRevisions[indexSize - 1] || timestamp < indexTimestamps[indexSize - 1]) {
+                return;
+            }
+            if (++recordsSinceLastIndexEntry < INDEX_INTERVAL) {
+                return;
+            }
+        }
+        if (indexSize == indexTimestamps.length) {
+            indexTimestamps = Arrays.copyOf(indexTimestamps, indexSize * 2);
+            indexRevisions = Arrays.copyOf(indexRevisions, indexSize * 2);
+        }
+        indexTimestamps[indexSize] = timestamp;
+        indexRevisions[indexSize] = revision;
+        indexSize++;
+        recordsSinceLastIndexEntry = 0;
+    }
+
+    /**
+     * @return the highest indexed revision written before <code>timestamp</code> or <code>null</code> if there is
+     * none
+     */
+    synchronized Long getRevisionBefore(final long timestamp) {
+        int low = 0;
+        int high = indexSize - 1;
+        int found = -1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (indexTimestamps[mid] < timestamp) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found < 0 ? null : indexRevisions[found];
+    }
+
+    synchronized int getIndexSize() {
+        return indexSize;
+    }
+
+    synchronized int getCachedRecordCount() {
+        return records.size();
+    }
+
+    private void evict() {
+        final Iterator<CachedRecord> iterator = records.values().iterator();
+        while (cachedEvents > MAX_CACHED_EVENTS && iterator.hasNext()) {
+            cachedEvents -= iterator.next().size();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Immutable, deserialized journal record. Records of other producers or records not carrying a change log
+     * have <code>null</code> events.
+     */
+    static final class CachedRecord {
+
+        final long revision;
+        final String workspace;
+        final long timestamp;
+        final String userData;
+        final List<EventState> events;
+
+        CachedRecord(final long revision, final String workspace, final long timestamp, final String userData,
+                     final List<EventState> events) {
+            this.revision = revision;
+            this.workspace = workspace;
+            this.timestamp = timestamp;
+            this.userData = userData;
+            this.events = events == null ? null : Collections.unmodifiableList(events);
+        }
+
+        int size() {
+            return events == null ? 1 : events.size() + 1;
+        }
+    }
+
+    private static class RecordReader implements ClusterRecordProcessor {
+
+        private long timestamp = -1;
+        private String userData;
+        private List<EventState> events;
+
+        public void process(ChangeLogRecord record) {
+            timestamp = record.getTimestamp();
+            userData = record.getUserData();
+            events = record.getEvents();
+        }
+
+        public void process(LockRecord record) {
+            // ignore
+        }
+
+        public void process(NamespaceRecord record) {
+            // ignore
+        }
+
+        public void process(NodeTypeRecord record) {
+            // ignore
+        }
+
+        public void process(PrivilegeRecord record) {
+            // ignore
+        }
+
+        public void process(WorkspaceRecord record) {
+            // ignore
+        }
+    }
+}
@@ -16,35 +16,20 @@
  */
 package org.apache.jackrabbit.core.observation;
 
-import java.text.DateFormat;
 import java.util.Collections;
-import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.SortedMap;
-import java.util.TreeMap;
-import java.util.WeakHashMap;
 
 import javax.jcr.RepositoryException;
-import javax.jcr.Session;
 import javax.jcr.observation.Event;
 import javax.jcr.observation.EventIterator;
 
 import org.apache.jackrabbit.core.SessionImpl;
-import org.apache.jackrabbit.core.cluster.ChangeLogRecord;
-import org.apache.jackrabbit.core.cluster.ClusterRecord;
 import org.apache.jackrabbit.core.cluster.ClusterRecordDeserializer;
-import org.apache.jackrabbit.core.cluster.ClusterRecordProcessor;
-import org.apache.jackrabbit.core.cluster.LockRecord;
-import org.apache.jackrabbit.core.cluster.NamespaceRecord;
-import org.apache.jackrabbit.core.cluster.NodeTypeRecord;
-import org.apache.jackrabbit.core.cluster.PrivilegeRecord;
-import org.apache.jackrabbit.core.cluster.WorkspaceRecord;
 import org.apache.jackrabbit.core.journal.Journal;
 import org.apache.jackrabbit.core.journal.JournalException;
-import org.apache.jackrabbit.core.journal.Record;
 import org.apache.jackrabbit.core.journal.RecordIterator;
 import org.hippoecm.repository.api.RevisionEvent;
 import org.hippoecm.repository.api.RevisionEventJournal;
@@ -54,7 +39,8 @@ import org.slf4j.LoggerFactory;
 /**
  * Copied from Jackrabbit {@link org.apache.jackrabbit.core.observation.EventJournalImpl},
  * with the addition of {@link #skipToRevision(long)} method to allow skipping by
- * event revision instead of timestamp.
+ * event revision instead of timestamp. Records are read through a {@link JournalRecordCache}
+ * shared by all event journals on the same journal.
  */
 public class RevisionEventJournalImpl implements RevisionEventJournal {
     /**
@@ -67,14 +53,6 @@ public class RevisionEventJournalImpl implements RevisionEventJournal {
      */
     private static final int MIN_BUFFER_SIZE = 1024;
 
-    /**
-     * Map of skip maps. Key=Journal, Value=SortedMap
-     * </p>
-     * Each sorted map has the following structure:
-     * Key=Long (timestamp), Value=Long (revision)
-     */
-    private static final Map<Journal, SortedMap<Long, Long>> REVISION_SKIP_MAPS = new WeakHashMap<Journal, SortedMap<Long, Long>>();
-
     /**
      * Last revision seen by this event journal.
      */
@@ -135,14 +113,11 @@ public class RevisionEventJournalImpl implements RevisionEventJournal {
     public void skipTo(long date) {
         long time = System.currentTimeMillis();
 
-        // get skip map for this journal
-        SortedMap<Long, Long> skipMap = getSkipMap();
-        synchronized (skipMap) {
-            SortedMap<Long, Long> head = skipMap.headMap(date);
-            if (!head.isEmpty()) {
-                eventBundleBuffer.clear();
-                lastRevision = head.get(head.lastKey());
-            }
+        // seek to the last indexed revision before date
+        Long revision = JournalRecordCache.getInstance(journal, producerId).getRevisionBefore(date);
+        if (revision != null && (lastRevision == null || revision > lastRevision)) {
+            eventBundleBuffer.clear();
+            lastRevision = revision;
         }
 
         try {
@@ -253,76 +228,6 @@ public class RevisionEventJournalImpl implements RevisionEventJournal {
         return nextEvent();
     }
 
-    //----------------------< ClusterRecordProcessor >--------------------------
-
-    /**
-     * Implements {@link org.apache.jackrabbit.core.cluster.ClusterRecordProcessor} and keeps track of the number
-     * of events read and the timestamp of the last record processed.
-     */
-    private class RecordProcessor implements ClusterRecordProcessor {
-
-        /**
-         * Number of events read so far.
-         */
-        private int numEvents;
-
-        /**
-         * The timestamp of the last record processed.
-         */
-        private long lastTimestamp;
-
-        /**
-         * @return the number of events read so far.
-         */
-        private int getNumEvents() {
-            return numEvents;
-        }
-
-        /**
-         * @return the timestamp of the last record processed.
-         */
-        private long getLastTimestamp() {
-            return lastTimestamp;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        public void process(ChangeLogRecord record) {
-            List<EventState> events = record.getEvents();
-            if (!events.isEmpty()) {
-                EventBundle bundle = new EventBundle(
-                        events, record.getTimestamp(), record.getUserData(), record.getRevision());
-                if (bundle.events.hasNext()) {
-                    // only queue bundle if there is an event
-                    eventBundleBuffer.add(bundle);
-                    numEvents += events.size();
-                    lastTimestamp = record.getTimestamp();
-                }
-            }
-        }
-
-        public void process(LockRecord record) {
-            // ignore
-        }
-
-        public void process(NamespaceRecord record) {
-            // ignore
-        }
-
-        public void process(NodeTypeRecord record) {
-            // ignore
-        }
-
-        public void process(PrivilegeRecord record) {
-            // ignore
-        }
-
-        public void process(WorkspaceRecord record) {
-            // ignore
-        }
-    }
-
     //-------------------------------< internal >-------------------------------
 
     /**
@@ -341,68 +246,57 @@ public class RevisionEventJournalImpl implements RevisionEventJournal {
     }
 
     /**
-     * Refills the {@link #eventBundleBuffer}.
+     * Refills the {@link #eventBundleBuffer}. Records already read by another event journal on the same journal are
+     * taken from the shared {@link JournalRecordCache}; the journal itself is only opened on a cache miss.
      */
     private void refill() {
         assert eventBundleBuffer.isEmpty();
+        final JournalRecordCache cache = JournalRecordCache.getInstance(journal, producerId);
+        final ClusterRecordDeserializer deserializer = new ClusterRecordDeserializer();
+        final String workspaceName = session.getWorkspace().getName();
+        int numEvents = 0;
+        RecordIterator records = null;
         try {
-            RecordProcessor processor = new RecordProcessor();
-            ClusterRecordDeserializer deserializer = new ClusterRecordDeserializer();
-            RecordIterator records;
-            if (lastRevision != null) {
-                log.debug("refilling event bundle buffer starting at revision {}",
-                        lastRevision);
-                records = journal.getRecords(lastRevision);
-            } else {
-                log.debug("refilling event bundle buffer starting at journal beginning");
-                records = journal.getRecords();
-            }
-            try {
-                while (processor.getNumEvents() < MIN_BUFFER_SIZE && records.hasNext()) {
-                    Record record = records.nextRecord();
-                    if (record.getProducerId().equals(producerId)) {
-                        ClusterRecord cr = deserializer.deserialize(record);
-                        if (!session.getWorkspace().getName().equals(cr.getWorkspace())) {
-                            continue;
-                        }
-                        cr.process(processor);
-                        lastRevision = cr.getRevision();
+            while (numEvents < MIN_BUFFER_SIZE) {
+                JournalRecordCache.CachedRecord cached = null;
+                if (records == null && lastRevision != null) {
+                    cached = cache.get(lastRevision);
+                }
+                if (cached == null) {
+                    if (records == null) {
+                        records = openRecords();
                     }
+                    if (!records.hasNext()) {
+                        break;
+                    }
+                    cached = cache.read(lastRevision, records.nextRecord(), deserializer);
                 }
-
-                if (processor.getNumEvents() >= MIN_BUFFER_SIZE) {
-                    // remember in skip map
-                    SortedMap<Long, Long> skipMap = getSkipMap();
-                    Long timestamp = processor.getLastTimestamp();
-                    synchronized (skipMap) {
-                        if (log.isDebugEnabled()) {
-                            DateFormat df = DateFormat.getDateTimeInstance();
-                            log.debug("remember record in skip map: {} -> {}",
-                                    df.format(new Date(timestamp)),
-                                    lastRevision);
-                        }
-                        skipMap.put(timestamp, lastRevision);
+                lastRevision = cached.revision;
+                if (cached.events != null && !cached.events.isEmpty() && workspaceName.equals(cached.workspace)) {
+                    EventBundle bundle = new EventBundle(cached.events, cached.timestamp, cached.userData, cached.revision);
+                    if (bundle.events.hasNext()) {
+                        // only queue bundle if there is an event
+                        eventBundleBuffer.add(bundle);
+                        numEvents += cached.events.size();
                     }
                 }
-            } finally {
-                records.close();
             }
         } catch (JournalException e) {
             log.warn("Unable to read journal records", e);
+        } finally {
+            if (records != null) {
+                records.close();
+            }
         }
     }
 
-    /**
-     * @return the revision skip map for this journal.
-     */
-    private SortedMap<Long, Long> getSkipMap() {
-        synchronized (REVISION_SKIP_MAPS) {
-            SortedMap<Long, Long> map = REVISION_SKIP_MAPS.get(journal);
-            if (map == null) {
-                map = new TreeMap<Long, Long>();
-                REVISION_SKIP_MAPS.put(journal, map);
-            }
-            return map;
+    private RecordIterator openRecords() throws JournalException {
+        if (lastRevision != null) {
+            log.debug("refilling event bundle buffer starting at revision {}", lastRevision);
+            return journal.getRecords(lastRevision);
+        } else {
+            log.debug("refilling event bundle buffer starting at journal beginning");
+            return journal.getRecords();
         }
     }
 
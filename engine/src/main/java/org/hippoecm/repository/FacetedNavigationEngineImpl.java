@@ -18,14 +18,17 @@ package org.hippoecm.repository;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
@@ -94,7 +97,8 @@ import org.slf4j.LoggerFactory;
 
 public class FacetedNavigationEngineImpl extends ServicingSearchIndex
         implements
-        FacetedNavigationEngine<FacetedNavigationEngineImpl.QueryImpl, FacetedNavigationEngineImpl.ContextImpl> {
+        FacetedNavigationEngine<FacetedNavigationEngineImpl.QueryImpl, FacetedNavigationEngineImpl.ContextImpl>,
+        FacetedNavigationEngine.ViewCaching<FacetedNavigationEngineImpl.ContextImpl> {
 
     class QueryAndSort {
         org.apache.lucene.search.Query query;
@@ -194,6 +198,7 @@ public class FacetedNavigationEngineImpl extends ServicingSearchIndex
     class ResultImpl extends FacetedNavigationEngine.Result {
         int length;
         Iterator<NodeId> iter = null;
+        Map<NodeId, Name> names = null;
 
         ResultImpl(int length, Set<NodeId> result) {
             this.length = length;
@@ -202,6 +207,11 @@ public class FacetedNavigationEngineImpl extends ServicingSearchIndex
             }
         }
 
+        ResultImpl(int length, Set<NodeId> result, Map<NodeId, Name> names) {
+            this(length, result);
+            this.names = names;
+        }
+
         public int length() {
             return length;
         }
@@ -210,6 +220,11 @@ public class FacetedNavigationEngineImpl extends ServicingSearchIndex
             return iter;
         }
 
+        @Override
+        public Name getName(final NodeId nodeId) {
+            return names != null ? names.get(nodeId) : null;
+        }
+
         public String toString() {
             return getClass().getName() + "[length=" + length + "]";
         }
@@ -218,6 +233,7 @@ public class FacetedNavigationEngineImpl extends ServicingSearchIndex
     class ContextImpl extends FacetedNavigationEngine.Context {
         SessionImpl session;
         private AuthorizationQuery authorizationQuery;
+        private Object authorizationKey;
 
         ContextImpl(SessionImpl session, String userId, Subject subject, NodeTypeManager ntMgr) throws RepositoryException {
             this.session = session;
@@ -228,6 +244,18 @@ public class FacetedNavigationEngineImpl extends ServicingSearchIndex
             return authorizationQuery != null ? authorizationQuery.getQuery() : null;
         }
 
+        Object getAuthorizationKey() {
+            if (authorizationKey == null) {
+                if ("system".equals(session.getUserID())) {
+                    authorizationKey = "system";
+                } else {
+                    final BooleanQuery query = getAuthorizationQuery();
+                    authorizationKey = query != null ? new AuthorizationKey(query) : "unrestricted";
+                }
+            }
+            return authorizationKey;
+        }
+
         DocIdSet getAuthorisationIdSet(IndexReader reader) throws IOException {
             final CachingMultiReaderQueryFilter authorizationFilter = getAuthorizationFilter(session);
             if (authorizationFilter == null) {
@@ -237,6 +265,73 @@ public class FacetedNavigationEngineImpl extends ServicingSearchIndex
         }
     }
 
+    /**
+     * Authorization query wrapper with a precomputed hash code, as hashing a large authorization query is not cheap
+     */
+    private static final class AuthorizationKey {
+
+        private final BooleanQuery query;
+        private final int hashCode;
+
+        private AuthorizationKey(final BooleanQuery query) {
+            this.query = query;
+            this.hashCode = query.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof AuthorizationKey)) {
+                return false;
+            }
+            final AuthorizationKey other = (AuthorizationKey) o;
+            return hashCode == other.hashCode && (query == other.query || query.equals(other.query));
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * The index generation is only unique within one engine, the engine id within the JVM
+     */
+    private static final class ViewCacheKey {
+
+        private final long engineId;
+        private final Object authorizationKey;
+        private final long indexGeneration;
+
+        private ViewCacheKey(final long engineId, final Object authorizationKey, final long indexGeneration) {
+            this.engineId = engineId;
+            this.authorizationKey = authorizationKey;
+            this.indexGeneration = indexGeneration;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ViewCacheKey)) {
+                return false;
+            }
+            final ViewCacheKey other = (ViewCacheKey) o;
+            return engineId == other.engineId && indexGeneration == other.indexGeneration
+                    && authorizationKey.equals(other.authorizationKey);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (engineId ^ (engineId >>> 32));
+            result = 31 * result + authorizationKey.hashCode();
+            return 31 * result + (int) (indexGeneration ^ (indexGeneration >>> 32));
+        }
+    }
+
     private static class DocIdSetFilter extends Filter {
 
         private final OpenBitSet docIdSet;
@@ -255,6 +350,13 @@ public class FacetedNavigationEngineImpl extends ServicingSearchIndex
     /** The logger instance for this class */
     private static final Logger log = LoggerFactory.getLogger(FacetedNavigationEngine.class);
 
+    private static final AtomicLong engineCounter = new AtomicLong();
+
+    /**
+     * Distinguishes the view cache keys of the engines of different workspaces, repositories and restarts
+     */
+    private final long engineId = engineCounter.incrementAndGet();
+
     // note some Jackrabbit Queries like ParentAxisQuery cannot be very well cached because do not have proper equals and hashCode :
     // however, for single fac nav nodes the same ParentAxisQuery instance is reused, and thus still valuable. Also note
     // that most 'free text queries' do not involve parent or child axis queries: We need to document the cost of using these in faceted
@@ -463,7 +565,11 @@ public class FacetedNavigationEngineImpl extends ServicingSearchIndex
                     }
                     
                     Map<String, Count> resultFacetValueCountMap = resultset.get(namespacedFacet);
-                    resultFacetValueCountMap.putAll(facetValueCountMap);
+                    if (parsedFacet.getFacetRanges() == null && hitsRequested.getFacetValuesLimit() < facetValueCountMap.size()) {
+                        putTopFacetValueCounts(facetValueCountMap, resultFacetValueCountMap, hitsRequested.getFacetValuesLimit());
+                    } else {
+                        resultFacetValueCountMap.putAll(facetValueCountMap);
+                    }
                     
                     // set the numHits value
                     if (hitsRequested.isFixedDrillPath()) {
@@ -507,6 +613,7 @@ public class FacetedNavigationEngineImpl extends ServicingSearchIndex
 
                     Set<String> fieldNames = new HashSet<String>();
                     fieldNames.add(FieldNames.UUID);
+                    fieldNames.add(ServicingFieldNames.HIPPO_NODE_NAME);
                     FieldSelector fieldSelector = new SetBasedFieldSelector(fieldNames, new HashSet<String>());
 
                     int fetchTotal = hitsRequested.getOffset() + hitsRequested.getLimit();
@@ -591,15 +698,22 @@ public class FacetedNavigationEngineImpl extends ServicingSearchIndex
 
                     // LinkedHashSet because ordering should be kept!
                     Set<NodeId> nodeIdHits = new LinkedHashSet<NodeId>();
+                    Map<NodeId, Name> nodeNames = new HashMap<NodeId, Name>();
                     while (position < hits.length) {
                         Document d = indexReader.document(hits[position].doc, fieldSelector);
                         Field uuidField = d.getField(FieldNames.UUID);
                         if (uuidField != null) {
-                            nodeIdHits.add(NodeId.valueOf(uuidField.stringValue()));
+                            final NodeId nodeId = NodeId.valueOf(uuidField.stringValue());
+                            nodeIdHits.add(nodeId);
+                            // documents indexed before the node name was stored lack the field
+                            Field nameField = d.getField(ServicingFieldNames.HIPPO_NODE_NAME);
+                            if (nameField != null) {
+                                nodeNames.put(nodeId, NameFactoryImpl.getInstance().create(nameField.stringValue()));
+                            }
                         }
                         position++;
                     }
-                    return new ResultImpl(nodeIdHits.size(), nodeIdHits);
+                    return new ResultImpl(nodeIdHits.size(), nodeIdHits, nodeNames);
                 }
             }
 
@@ -638,6 +752,13 @@ public class FacetedNavigationEngineImpl extends ServicingSearchIndex
                 hitsRequested);
     }
 
+    public Object getViewCacheKey(ContextImpl context) {
+        if (context == null) {
+            return null;
+        }
+        return new ViewCacheKey(engineId, context.getAuthorizationKey(), getIndexGeneration());
+    }
+
     public QueryImpl parse(String query) throws IllegalArgumentException {
         return this.new QueryImpl(query);
     }
@@ -804,6 +925,41 @@ public class FacetedNavigationEngineImpl extends ServicingSearchIndex
     }
 
 
+    /**
+     * Puts the <code>limit</code> facet values with the highest counts of <code>facetValueCountMap</code> in
+     * <code>result</code>. Facet values with equal counts are ordered by value, like the faceted navigation
+     * providers order them. The empty facet value is left out, as the providers do not list it.
+     */
+    static void putTopFacetValueCounts(final Map<String, Count> facetValueCountMap, final Map<String, Count> result,
+                                       final int limit) {
+        if (limit <= 0) {
+            return;
+        }
+        // head of the queue is the entry that is dropped first: lowest count, highest value
+        final PriorityQueue<Map.Entry<String, Count>> top = new PriorityQueue<>(limit + 1,
+                new Comparator<Map.Entry<String, Count>>() {
+                    @Override
+                    public int compare(final Map.Entry<String, Count> e1, final Map.Entry<String, Count> e2) {
+                        if (e1.getValue().count != e2.getValue().count) {
+                            return e1.getValue().count < e2.getValue().count ? -1 : 1;
+                        }
+                        return e2.getKey().compareTo(e1.getKey());
+                    }
+                });
+        for (Map.Entry<String, Count> entry : facetValueCountMap.entrySet()) {
+            if (entry.getKey().isEmpty()) {
+                continue;
+            }
+            top.offer(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        for (Map.Entry<String, Count> entry : top) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+    }
+
     private DocIdSet filterDocIdSetPlainLuceneQuery(final org.apache.lucene.search.Query query,
                                                     final IndexReader indexReader, final ContextImpl contextImpl) throws IOException {
         if ((query instanceof BooleanQuery) && ((BooleanQuery)query).clauses().size() == 0) {
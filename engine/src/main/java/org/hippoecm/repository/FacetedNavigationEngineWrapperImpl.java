@@ -26,7 +26,7 @@ import javax.security.auth.Subject;
 import org.apache.jackrabbit.spi.Name;
 
 public class FacetedNavigationEngineWrapperImpl<Q extends FacetedNavigationEngine.Query, C extends FacetedNavigationEngine.Context>
-        implements FacetedNavigationEngine<Q, C> {
+        implements FacetedNavigationEngine<Q, C>, FacetedNavigationEngine.ViewCaching<C> {
 
     private FacetedNavigationEngine<Q, C> upstream;
 
@@ -100,4 +100,11 @@ public class FacetedNavigationEngineWrapperImpl<Q extends FacetedNavigationEngin
         return upstream.query(statement, context);
     }
 
+    public Object getViewCacheKey(C context) {
+        if (upstream instanceof ViewCaching) {
+            return ((ViewCaching<C>) upstream).getViewCacheKey(context);
+        }
+        return null;
+    }
+
 }
@@ -15,10 +15,12 @@
  */
 package org.hippoecm.repository.impl;
 
+import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
@@ -28,6 +30,9 @@ import javax.jcr.lock.LockException;
 import javax.jcr.lock.LockManager;
 
 import org.hippoecm.repository.jackrabbit.InternalHippoSession;
+import org.hippoecm.repository.jackrabbit.LockKeepAliveScheduler;
+import org.hippoecm.repository.jackrabbit.LockKeepAliveScheduler.KeepAlive;
+import org.hippoecm.repository.jackrabbit.LockKeepAliveScheduler.Refresher;
 import org.hippoecm.repository.util.JcrUtils;
 import org.onehippo.repository.locking.HippoLock;
 import org.onehippo.repository.locking.HippoLockManager;
@@ -37,7 +42,7 @@ import org.slf4j.LoggerFactory;
 import static org.hippoecm.repository.api.HippoNodeType.HIPPO_LOCKEXPIRATIONTIME;
 import static org.hippoecm.repository.api.HippoNodeType.NT_LOCKABLE;
 
-public class LockManagerDecorator extends org.hippoecm.repository.decorating.LockManagerDecorator implements HippoLockManager {
+public class LockManagerDecorator extends org.hippoecm.repository.decorating.LockManagerDecorator implements HippoLockManager, Refresher {
 
     private static final Logger log = LoggerFactory.getLogger(LockManagerDecorator.class);
     private static final Calendar NO_TIMEOUT = Calendar.getInstance();
@@ -45,11 +50,11 @@ public class LockManagerDecorator extends org.hippoecm.repository.decorating.Loc
         NO_TIMEOUT.setTimeInMillis(Long.MAX_VALUE);
     }
 
-    private final ScheduledExecutorService executor;
+    private final LockKeepAliveScheduler keepAliveScheduler;
 
     public LockManagerDecorator(final Session session, final LockManager lockManager) {
         super(session, lockManager);
-        executor = ((InternalHippoSession) SessionDecorator.unwrap(session)).getExecutor();
+        keepAliveScheduler = ((InternalHippoSession) SessionDecorator.unwrap(session)).getLockKeepAliveScheduler();
     }
 
     public static LockManager unwrap(LockManager lockManager) {
@@ -92,20 +97,36 @@ public class LockManagerDecorator extends org.hippoecm.repository.decorating.Loc
         return new LockDecorator(super.getLock(absPath));
     }
 
+    @Override
+    public Collection<KeepAlive> refresh(final List<KeepAlive> keepAlives) {
+        final List<KeepAlive> refreshed = new ArrayList<>(keepAlives.size());
+        final Set<Session> sessions = new HashSet<>();
+        for (KeepAlive keepAlive : keepAlives) {
+            final LockDecorator lock = (LockDecorator) keepAlive;
+            final Session lockSession = lock.refreshKeepAlive();
+            if (lockSession != null) {
+                sessions.add(lockSession);
+                refreshed.add(lock);
+            }
+        }
+        for (Session lockSession : sessions) {
+            try {
+                lockSession.save();
+            } catch (RepositoryException e) {
+                if (log.isDebugEnabled()) {
+                    log.error("Failed to set hippo:timeout on locks", e);
+                } else {
+                    log.error("Failed to set hippo:timeout on locks: {}", e.toString());
+                }
+            }
+        }
+        return refreshed;
+    }
+
     private void setTimeout(final Lock lock, final long timeoutHint) {
         try {
             final Node lockNode = lock.getNode();
-            if (timeoutHint != Long.MAX_VALUE) {
-                lockNode.addMixin(NT_LOCKABLE);
-                final Calendar timeout = Calendar.getInstance();
-                final long timeoutTime = System.currentTimeMillis() + timeoutHint * 1000;
-                timeout.setTimeInMillis(timeoutTime);
-                lockNode.setProperty(HIPPO_LOCKEXPIRATIONTIME, timeout);
-            } else {
-                if (lockNode.hasProperty(HIPPO_LOCKEXPIRATIONTIME)) {
-                    lockNode.getProperty(HIPPO_LOCKEXPIRATIONTIME).remove();
-                }
-            }
+            setTimeoutProperty(lockNode, timeoutHint);
             lockNode.getSession().save();
         } catch (RepositoryException e) {
             if (log.isDebugEnabled()) {
@@ -116,11 +137,23 @@ public class LockManagerDecorator extends org.hippoecm.repository.decorating.Loc
         }
     }
 
-    public class LockDecorator implements HippoLock {
+    private static void setTimeoutProperty(final Node lockNode, final long timeoutHint) throws RepositoryException {
+        if (timeoutHint != Long.MAX_VALUE) {
+            lockNode.addMixin(NT_LOCKABLE);
+            final Calendar timeout = Calendar.getInstance();
+            final long timeoutTime = System.currentTimeMillis() + timeoutHint * 1000;
+            timeout.setTimeInMillis(timeoutTime);
+            lockNode.setProperty(HIPPO_LOCKEXPIRATIONTIME, timeout);
+        } else {
+            if (lockNode.hasProperty(HIPPO_LOCKEXPIRATIONTIME)) {
+                lockNode.getProperty(HIPPO_LOCKEXPIRATIONTIME).remove();
+            }
+        }
+    }
+
+    public class LockDecorator implements HippoLock, KeepAlive {
 
-        private Lock lock;
-        private volatile ScheduledFuture future;
-        private final Object monitor = this; // guards future
+        private volatile Lock lock;
         private final long timeout;
 
         private LockDecorator(final Lock lock, final long timeout) {
@@ -194,65 +227,67 @@ public class LockManagerDecorator extends org.hippoecm.repository.decorating.Loc
             long delay = secondsRemaining - 8;
             if (secondsRemaining < 8) {
                 refresh();
-                delay = timeout - 8;
+                delay = getInterval();
             }
-            future = executor.schedule(new Runnable() {
-                @Override
-                public void run() {
-                    synchronized (monitor) {
-                        if (future.isCancelled()) {
-                            return;
-                        }
-                        boolean success = false;
-                        try {
-                            refresh();
-                            log.debug("Refreshed lock {}", lock.getNode().getPath());
-                            success = true;
-                        } catch(LockException e) {
-                            if (log.isDebugEnabled()) {
-                                log.warn("Failed to refresh lock, this might have occurred due to a hiccup; trying to obtain new lock...", e);
-                            } else {
-                                log.warn("Failed to refresh lock, this might have occurred due to a hiccup; trying to obtain new lock... ({})", e);
-                            }
-                            try {
-                                lock = lockManager.lock(lock.getNode().getPath(), lock.isDeep(), lock.isSessionScoped(), timeout, lock.getLockOwner());
-                                setTimeout(lock, timeout);
-                                success = true;
-                            } catch (RepositoryException e1) {
-                                if (log.isDebugEnabled()) {
-                                    log.error("Failed to refresh lock", e1);
-                                } else {
-                                    log.error("Failed to refresh lock: " + e1);
-                                }
-                            }
-                        } catch (RepositoryException e) {
-                            if (log.isDebugEnabled()) {
-                                log.error("Failed to refresh lock", e);
-                            } else {
-                                log.error("Failed to refresh lock: " + e);
-                            }
-                        }
-                        if (success) {
-                            try {
-                                startKeepAlive();
-                            } catch (RepositoryException e) {
-                                if (log.isDebugEnabled()) {
-                                    log.error("Failed to schedule next keep-alive", e);
-                                } else {
-                                    log.error("Failed to schedule next keep-alive: " + e);
-                                }
-                            }
-                        }
-                    }
-                }
-            }, delay, TimeUnit.SECONDS);
+            keepAliveScheduler.schedule(this, delay);
+        }
+
+        @Override
+        public void stopKeepAlive() {
+            keepAliveScheduler.cancel(this);
+        }
+
+        @Override
+        public Session getSession() {
+            return session;
+        }
+
+        @Override
+        public Refresher getRefresher() {
+            return LockManagerDecorator.this;
         }
 
         @Override
-        public synchronized void stopKeepAlive() {
-            if (future != null) {
-                future.cancel(false);
+        public long getInterval() {
+            return timeout - 8;
+        }
+
+        /**
+         * Refreshes the lock, or obtains a new one if it was lost, and sets its timeout without saving it.
+         *
+         * @return the session in which the timeout was set, or <code>null</code> if the lock could not be refreshed
+         */
+        private synchronized Session refreshKeepAlive() {
+            try {
+                lock.refresh();
+                setTimeoutProperty(lock.getNode(), getSecondsRemaining());
+                log.debug("Refreshed lock {}", lock.getNode().getPath());
+                return lock.getNode().getSession();
+            } catch (LockException e) {
+                if (log.isDebugEnabled()) {
+                    log.warn("Failed to refresh lock, this might have occurred due to a hiccup; trying to obtain new lock...", e);
+                } else {
+                    log.warn("Failed to refresh lock, this might have occurred due to a hiccup; trying to obtain new lock... ({})", e);
+                }
+                try {
+                    lock = lockManager.lock(lock.getNode().getPath(), lock.isDeep(), lock.isSessionScoped(), timeout, lock.getLockOwner());
+                    setTimeoutProperty(lock.getNode(), timeout);
+                    return lock.getNode().getSession();
+                } catch (RepositoryException e1) {
+                    if (log.isDebugEnabled()) {
+                        log.error("Failed to refresh lock", e1);
+                    } else {
+                        log.error("Failed to refresh lock: " + e1);
+                    }
+                }
+            } catch (RepositoryException e) {
+                if (log.isDebugEnabled()) {
+                    log.error("Failed to refresh lock", e);
+                } else {
+                    log.error("Failed to refresh lock: " + e);
+                }
             }
+            return null;
         }
 
     }
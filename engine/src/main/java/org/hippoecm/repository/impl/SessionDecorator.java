@@ -16,12 +16,13 @@
 package org.hippoecm.repository.impl;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import javax.jcr.AccessDeniedException;
 import javax.jcr.Credentials;
@@ -70,11 +71,11 @@ import org.onehippo.repository.security.User;
 import org.onehippo.repository.security.domain.DomainRuleExtension;
 import org.onehippo.repository.xml.ContentResourceLoader;
 import org.onehippo.repository.xml.DereferencedSysViewSAXEventGenerator;
-import org.onehippo.repository.xml.EnhancedSystemViewPackage;
 import org.onehippo.repository.xml.HippoDocumentViewExporter;
 import org.onehippo.repository.xml.ImportContext;
 import org.onehippo.repository.xml.ImportResult;
 import org.onehippo.repository.xml.PhysicalSysViewSAXEventGenerator;
+import org.onehippo.repository.xml.ZipBinaryExporter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.ContentHandler;
@@ -334,20 +335,43 @@ public class SessionDecorator extends org.hippoecm.repository.decorating.Session
 
     @Override
     public File exportEnhancedSystemViewPackage(final String parentAbsPath, final boolean recurse) throws IOException, RepositoryException {
+        final File archive = File.createTempFile("esv", ".zip");
+        boolean exported = false;
+        try (final ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(archive))) {
+            exportEnhancedSystemViewPackage(parentAbsPath, recurse, zipOut);
+            exported = true;
+        } finally {
+            if (!exported) {
+                FileUtils.deleteQuietly(archive);
+            }
+        }
+        return archive;
+    }
+
+    @Override
+    public void exportEnhancedSystemViewPackage(final String parentAbsPath, final boolean recurse, final ZipOutputStream zipOut)
+            throws IOException, RepositoryException {
         Item item = getItem(parentAbsPath);
         if (!item.isNode()) {
             // there's a property, though not a node at the specified path
             throw new PathNotFoundException(parentAbsPath);
         }
+        // binaries are written to the zip while the xml is generated, so only the xml is buffered
         final File xml = File.createTempFile("esv", "xml");
-        final Collection<File> binaries = new ArrayList<>();
         final FileOutputStream out = new FileOutputStream(xml);
         try {
             final ContentHandler handler = getExportContentHandler(out);
             postMountEnabled(false);
-            new DereferencedSysViewSAXEventGenerator((Node) item, !recurse, handler, binaries).serialize();
-            final EnhancedSystemViewPackage pckg = EnhancedSystemViewPackage.create(xml, binaries);
-            return pckg.toZipFile();
+            new DereferencedSysViewSAXEventGenerator((Node) item, !recurse, handler, new ZipBinaryExporter(zipOut)).serialize();
+            out.close();
+            zipOut.putNextEntry(new ZipEntry("esv.xml"));
+            final FileInputStream xmlIn = new FileInputStream(xml);
+            try {
+                IOUtils.copy(xmlIn, zipOut);
+            } finally {
+                IOUtils.closeQuietly(xmlIn);
+            }
+            zipOut.closeEntry();
         } catch (SAXException e) {
             if (e.getException() instanceof IOException) {
                 throw (IOException) e.getException();
@@ -360,9 +384,6 @@ public class SessionDecorator extends org.hippoecm.repository.decorating.Session
             postMountEnabled(true);
             IOUtils.closeQuietly(out);
             FileUtils.deleteQuietly(xml);
-            for (File binary : binaries) {
-                FileUtils.deleteQuietly(binary);
-            }
         }
     }
 
@@ -22,7 +22,10 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.rmi.Remote;
 import java.security.AccessControlException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -81,6 +84,11 @@ public class WorkflowManagerImpl implements WorkflowManager {
     private final String configurationId;
     private final WorkflowLogger workflowLogger;
 
+    /**
+     * The batch of the current thread, if it defers the saves of the workflow actions it invokes
+     */
+    private final ThreadLocal<Batch> tlBatch = new ThreadLocal<>();
+
     public WorkflowManagerImpl(Session session) throws RepositoryException {
         this.userSession = session;
         this.rootSession = session.impersonate(new SimpleCredentials("workflowuser", new char[] {}));
@@ -322,6 +330,106 @@ public class WorkflowManagerImpl implements WorkflowManager {
         return result.toArray(new Class[result.size()]);
     }
 
+    /**
+     * Start deferring the saves of the workflow actions that the current thread invokes through workflows of this
+     * manager, until {@link #saveBatch()} or {@link #rollbackBatch()} is called. All actions of the batch are part of
+     * one interaction. Their workflow events are only posted when the actions are saved.
+     * <p>
+     * While a batch is active, a failing action does not discard the pending changes of the internal workflow session;
+     * the caller must roll back the batch instead. Nodes that actions of the batch check in are only checked in after
+     * the batch has been saved, see {@link #checkinAfterSave(Node)}. Workflow tasks must not save the internal workflow
+     * session while a batch is active, see {@link #isBatchActive()}: that would also save the changes of the actions
+     * before them, which then can no longer be rolled back. Always end a batch with {@link #endBatch()}.
+     *
+     * @param interaction  the name of the interaction of the actions in the batch
+     * @throws IllegalStateException if the current thread already has an active batch
+     */
+    public void beginBatch(final String interaction) {
+        if (tlBatch.get() != null) {
+            throw new IllegalStateException("Workflow batch already started");
+        }
+        if (tlInteractionId.get() != null) {
+            throw new IllegalStateException("Cannot start a workflow batch from within a workflow action");
+        }
+        tlBatch.set(new Batch());
+        tlInteractionId.set(UUID.randomUUID().toString());
+        tlInteraction.set(interaction);
+    }
+
+    /**
+     * Save the changes of the workflow actions invoked since the batch started or was last saved or rolled back.
+     */
+    public void saveBatch() throws RepositoryException {
+        final Batch batch = getBatch();
+        rootSession.save();
+        batch.checkinPendingNodes(rootSession);
+        batch.logPendingSteps(false);
+    }
+
+    /**
+     * Discard the changes of the workflow actions invoked since the batch started or was last saved or rolled back.
+     * Only the events of the actions that failed are posted.
+     */
+    public void rollbackBatch() throws RepositoryException {
+        final Batch batch = getBatch();
+        rootSession.refresh(false);
+        batch.pendingCheckins.clear();
+        batch.logPendingSteps(true);
+    }
+
+    /**
+     * @return whether the current thread has an active batch
+     */
+    public boolean isBatchActive() {
+        return tlBatch.get() != null;
+    }
+
+    /**
+     * Check in a node of the internal workflow session once the current batch has been saved. A check in writes to
+     * the version storage immediately, which a rollback of the batch cannot undo, so it is deferred until the changes
+     * it versions have been saved. A node that is checked in more than once in a batch gets one version.
+     *
+     * @throws IllegalStateException if the current thread has no active batch
+     */
+    public void checkinAfterSave(final Node node) throws RepositoryException {
+        final Batch batch = getBatch();
+        batch.pendingCheckins.add(node.getIdentifier());
+    }
+
+    /**
+     * @return the workflow manager that created the workflow context, or null if it was not created by a
+     * WorkflowManagerImpl
+     */
+    public static WorkflowManagerImpl getWorkflowManager(final WorkflowContext context) {
+        return context instanceof WorkflowContextImpl ? ((WorkflowContextImpl) context).getWorkflowManager() : null;
+    }
+
+    /**
+     * Stop deferring saves, discarding the changes of actions that have not been saved.
+     */
+    public void endBatch() {
+        final Batch batch = tlBatch.get();
+        tlBatch.remove();
+        tlInteraction.remove();
+        tlInteractionId.remove();
+        if (batch != null && !batch.pendingSteps.isEmpty()) {
+            log.warn("Workflow batch ended with {} unsaved actions, discarding their changes", batch.pendingSteps.size());
+            try {
+                rootSession.refresh(false);
+            } catch (RepositoryException e) {
+                log.error("Failed to discard the changes of unsaved workflow actions", e);
+            }
+        }
+    }
+
+    private Batch getBatch() {
+        final Batch batch = tlBatch.get();
+        if (batch == null) {
+            throw new IllegalStateException("No workflow batch started");
+        }
+        return batch;
+    }
+
     public void close() {
         if (rootSession != null && rootSession.isLive()) {
             rootSession.logout();
@@ -354,6 +462,7 @@ public class WorkflowManagerImpl implements WorkflowManager {
                 return "WorkflowInvocationHandler[" + category + ", " + workflowName + "]";
             }
 
+            final Batch batch = tlBatch.get();
             boolean resetInteraction = false;
             String interaction = tlInteraction.get();
             String interactionId = tlInteractionId.get();
@@ -368,7 +477,7 @@ public class WorkflowManagerImpl implements WorkflowManager {
             try {
                 targetMethod = upstream.getClass().getMethod(method.getName(), method.getParameterTypes());
                 returnObject = targetMethod.invoke(upstream, args);
-                if (objectPersist && !targetMethod.getName().equals("hints")) {
+                if (objectPersist && !targetMethod.getName().equals("hints") && batch == null) {
                     rootSession.save();
                 }
                 if (returnObject instanceof Document) {
@@ -380,12 +489,14 @@ public class WorkflowManagerImpl implements WorkflowManager {
                 throw exception = new RepositoryException("Failed to execute workflow action " + interaction, e);
             } catch (InvocationTargetException e) {
                 exception = e.getCause();
-                if (exception instanceof RepositoryException) {
+                if (exception instanceof RepositoryException && batch == null) {
                     rootSession.refresh(false);
                 }
                 throw exception;
             } catch (RepositoryException e) {
-                rootSession.refresh(false);
+                if (batch == null) {
+                    rootSession.refresh(false);
+                }
                 throw e;
             } finally {
                 if (resetInteraction) {
@@ -394,7 +505,11 @@ public class WorkflowManagerImpl implements WorkflowManager {
                 }
                 WorkflowAction wfActionAnno = AnnotationUtils.findMethodAnnotation(targetMethod, WorkflowAction.class);
                 if (wfActionAnno == null || wfActionAnno.loggable()) {
-                    logWorkflowStep(targetMethod, args, returnObject, interaction, interactionId, exception);
+                    if (batch != null) {
+                        batch.addPendingStep(this, targetMethod, args, returnObject, interaction, interactionId, exception);
+                    } else {
+                        logWorkflowStep(targetMethod, args, returnObject, interaction, interactionId, exception);
+                    }
                 }
             }
         }
@@ -410,6 +525,69 @@ public class WorkflowManagerImpl implements WorkflowManager {
 
     }
 
+    /**
+     * The workflow steps of a batch that have not been saved yet, to be logged once they are.
+     */
+    private static class Batch {
+
+        private final List<PendingStep> pendingSteps = new ArrayList<>();
+        private final Set<String> pendingCheckins = new LinkedHashSet<>();
+
+        private void addPendingStep(final WorkflowInvocationHandler handler, final Method targetMethod,
+                                    final Object[] args, final Object returnObject, final String interaction,
+                                    final String interactionId, final Throwable exception) {
+            pendingSteps.add(new PendingStep(handler, targetMethod, args, returnObject, interaction, interactionId,
+                    exception));
+        }
+
+        private void logPendingSteps(final boolean failedOnly) {
+            for (PendingStep step : pendingSteps) {
+                if (!failedOnly || step.exception != null) {
+                    step.handler.logWorkflowStep(step.targetMethod, step.args, step.returnObject, step.interaction,
+                            step.interactionId, step.exception);
+                }
+            }
+            pendingSteps.clear();
+        }
+
+        /**
+         * The changes are saved, so a failing check in only loses the version
+         */
+        private void checkinPendingNodes(final Session session) {
+            for (String identifier : pendingCheckins) {
+                try {
+                    session.getNodeByIdentifier(identifier).checkin();
+                } catch (RepositoryException e) {
+                    log.error("Failed to check in node " + identifier + " after saving a workflow batch", e);
+                }
+            }
+            pendingCheckins.clear();
+        }
+    }
+
+    private static class PendingStep {
+
+        private final WorkflowInvocationHandler handler;
+        private final Method targetMethod;
+        private final Object[] args;
+        private final Object returnObject;
+        private final String interaction;
+        private final String interactionId;
+        private final Throwable exception;
+
+        private PendingStep(final WorkflowInvocationHandler handler, final Method targetMethod, final Object[] args,
+                            final Object returnObject, final String interaction, final String interactionId,
+                            final Throwable exception) {
+            this.handler = handler;
+            this.targetMethod = targetMethod;
+            this.args = args;
+            this.returnObject = returnObject;
+            this.interaction = interaction;
+            this.interactionId = interactionId;
+            this.exception = exception;
+        }
+    }
+
     private class WorkflowContextImpl implements WorkflowContext {
         private final Session subjectSession;
         private final WorkflowDefinition workflowDefinition;
@@ -470,5 +648,9 @@ public class WorkflowManagerImpl implements WorkflowManager {
         public String getInteractionId() {
             return tlInteractionId.get();
         }
+
+        private WorkflowManagerImpl getWorkflowManager() {
+            return WorkflowManagerImpl.this;
+        }
     }
 }
@@ -0,0 +1,127 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.jackrabbit;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded cache without locks, with approximate least recently used eviction.
+ * <p>
+ * The table is divided into shards of {@link #WAYS} slots; a key can only be stored in the shard selected by its
+ * hash. Within a shard, entries are evicted with the CLOCK algorithm: a lookup marks the entry it finds as referenced,
+ * and a put replaces the first entry that has not been referenced since the previous sweep over the shard.
+ * <p>
+ * Lookups only read the table and do not allocate. Concurrent puts into the same shard may overwrite each other,
+ * which only means that an entry is computed again later. The referenced flags are deliberately not volatile:
+ * a flag set by one thread that is missed by another only makes eviction less accurate.
+ */
+class ClockCache<K, V> {
+
+    static final int WAYS = 8;
+
+    private static final class Entry<K, V> {
+
+        private final int hash;
+        private final K key;
+        private final V value;
+        private boolean referenced;
+
+        private Entry(final int hash, final K key, final V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry<K, V>> table;
+    private final int shardMask;
+
+    /**
+     * @param capacity the maximum number of entries, rounded up to a power of two of at least {@link #WAYS}
+     */
+    ClockCache(final int capacity) {
+        int shards = 1;
+        while (shards * WAYS < capacity) {
+            shards <<= 1;
+        }
+        table = new AtomicReferenceArray<>(shards * WAYS);
+        shardMask = shards - 1;
+    }
+
+    /**
+     * @return the value cached for <code>key</code>, or <code>null</code> if it is not cached
+     */
+    V get(final K key) {
+        final int hash = hash(key);
+        final int base = (hash & shardMask) * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            final Entry<K, V> entry = table.get(i);
+            if (entry != null && entry.hash == hash && entry.key.equals(key)) {
+                if (!entry.referenced) {
+                    entry.referenced = true;
+                }
+                return entry.value;
+            }
+        }
+        return null;
+    }
+
+    void put(final K key, final V value) {
+        final int hash = hash(key);
+        final int base = (hash & shardMask) * WAYS;
+        final Entry<K, V> added = new Entry<>(hash, key, value);
+        for (int i = base; i < base + WAYS; i++) {
+            final Entry<K, V> entry = table.get(i);
+            if (entry == null || (entry.hash == hash && entry.key.equals(key))) {
+                table.set(i, added);
+                return;
+            }
+        }
+        // shard is full: sweep from a position that differs per key, giving referenced entries a second chance
+        final int start = (hash >>> 24) & (WAYS - 1);
+        for (int sweep = 0; sweep < 2 * WAYS; sweep++) {
+            final int i = base + ((start + sweep) & (WAYS - 1));
+            final Entry<K, V> entry = table.get(i);
+            if (entry == null || !entry.referenced) {
+                table.set(i, added);
+                return;
+            }
+            entry.referenced = false;
+        }
+        // only reached when concurrent lookups keep referencing every entry
+        table.set(base + start, added);
+    }
+
+    int capacity() {
+        return table.length();
+    }
+
+    int size() {
+        int size = 0;
+        for (int i = 0; i < table.length(); i++) {
+            if (table.get(i) != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    private static int hash(final Object key) {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.jackrabbit;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Repository-wide cache of content digests of nodes, keyed by node identifier.
+ * <p>
+ * The digest of a node covers the subtree below it, so when an item is saved the digests of its node and of all
+ * ancestors of that node are invalidated. This happens for local as well as for cluster-wide changes. A digest that
+ * was computed while content was being saved might reflect content that is already outdated, so a digest is only
+ * stored when no invalidation took place since the {@link #getStamp() stamp} taken before computing it.
+ */
+public class ContentDigestCache {
+
+    private static final int DEFAULT_SIZE = 50000;
+
+    private final int size;
+    private final Map<String, byte[]> digests;
+    private long stamp = 0;
+
+    public ContentDigestCache() {
+        this(Integer.getInteger("repo.contentdigest.cachesize", DEFAULT_SIZE));
+    }
+
+    ContentDigestCache(final int size) {
+        this.size = size;
+        digests = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, byte[]> eldest) {
+                return size() > ContentDigestCache.this.size;
+            }
+        };
+    }
+
+    /**
+     * @return the current stamp, to be passed to {@link #put} when storing digests computed after this call
+     */
+    public synchronized long getStamp() {
+        return stamp;
+    }
+
+    /**
+     * @return the digest of the node with identifier <code>id</code>, or <code>null</code> if it is not known
+     */
+    public synchronized byte[] get(final String id) {
+        return digests.get(id);
+    }
+
+    /**
+     * Store the digest of the node with identifier <code>id</code>, unless content was saved since <code>stamp</code>
+     * was taken.
+     */
+    public synchronized void put(final String id, final byte[] digest, final long stamp) {
+        if (stamp == this.stamp) {
+            digests.put(id, digest);
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        return digests.isEmpty();
+    }
+
+    synchronized void invalidate(final Collection<String> ids) {
+        stamp++;
+        for (String id : ids) {
+            digests.remove(id);
+        }
+    }
+
+}
@@ -531,11 +531,38 @@ public class HippoLocalItemStateManager extends XAItemStateManager implements Da
     @Override
     public PropertyState getPropertyState(PropertyId id) throws NoSuchItemStateException, ItemStateException {
         if (id.getParentId() instanceof HippoNodeId) {
-            throw new NoSuchItemStateException("Property of a virtual node cannot be retrieved from shared ISM");
+            PropertyState state = populate((HippoNodeId)id.getParentId(), id.getName());
+            if (state == null) {
+                throw new NoSuchItemStateException("Property of a virtual node cannot be retrieved from shared ISM");
+            }
+            return state;
         }
         return super.getPropertyState(id);
     }
 
+    /**
+     * Creates a property state of an already populated virtual node on first read.  Providers such as the mirror
+     * providers only add property names when populating a node, the state itself (sharing the values of the
+     * canonical property) is created here and then kept in the change log like any other virtual item state.
+     */
+    private PropertyState populate(HippoNodeId parentId, Name propName) throws ItemStateException {
+        if (!virtualNodes.containsKey(parentId)) {
+            return null;
+        }
+        boolean editPreviousMode = editFakeMode;
+        editFakeMode = true;
+        try {
+            edit();
+            return parentId.populate(propName);
+        } catch (InvalidItemStateException ex) {
+            throw new ItemStateException("Source location has changed", ex);
+        } catch (RepositoryException ex) {
+            throw new ItemStateException("Failed to populate property state", ex);
+        } finally {
+            editFakeMode = editPreviousMode;
+        }
+    }
+
     private NodeState populate(HippoNodeId nodeId) throws NoSuchItemStateException, ItemStateException {
         try {
             NodeState dereference = getNodeState(rootNodeId);
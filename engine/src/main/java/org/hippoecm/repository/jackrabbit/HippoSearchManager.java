@@ -16,6 +16,7 @@
 package org.hippoecm.repository.jackrabbit;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -53,6 +54,7 @@ import org.apache.jackrabbit.spi.commons.query.qom.QOMTreeVisitor;
 import org.apache.jackrabbit.spi.commons.query.qom.QueryObjectModelFactoryImpl;
 import org.apache.jackrabbit.spi.commons.query.qom.QueryObjectModelTree;
 import org.apache.jackrabbit.stats.RepositoryStatisticsImpl;
+import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
 import org.slf4j.Logger;
@@ -132,12 +134,20 @@ public class HippoSearchManager extends SearchManager {
 
             final Constraint fullConstraint;
             if (constraint != null) {
-                fullConstraint = new HippoQueryObjectModelFactoryImpl(sessionContext).and(constraint, authorizationConstraint);
+                fullConstraint = factory.and(constraint, authorizationConstraint);
             } else {
                 fullConstraint = authorizationConstraint;
             }
 
-            final QueryResult result = engine.execute(getColumns(), getSource(), fullConstraint, getOrderings(), offset, limit);
+            QueryResult result = null;
+            if (getSource() instanceof Join && IndexedJoinEngine.isEnabled()) {
+                final IndexedJoinEngine joinEngine = new IndexedJoinEngine(sessionContext.getSessionImpl(),
+                        (SearchIndex) handler, (AuthorizedLuceneQueryFactory) lqf, factory);
+                result = joinEngine.execute(getColumns(), (Join) getSource(), fullConstraint, getOrderings(), offset, limit);
+            }
+            if (result == null) {
+                result = engine.execute(getColumns(), getSource(), fullConstraint, getOrderings(), offset, limit);
+            }
             time = System.nanoTime() - time;
             final long timeMs = time / 1000000;
             log.debug("executed in {} ms. ({})", timeMs, statement);
@@ -154,7 +164,7 @@ public class HippoSearchManager extends SearchManager {
                 throws RepositoryException {
             final Constraint constraint;
             if (source instanceof Join) {
-                final Join join = (Join) getSource();
+                final Join join = (Join) source;
                 final Constraint leftAuthorization = getAuthorizationConstraint(factory, join.getLeft());
                 final Constraint rightAuthorization = getAuthorizationConstraint(factory, join.getRight());
                 constraint = factory.and(leftAuthorization, rightAuthorization);
@@ -173,7 +183,7 @@ public class HippoSearchManager extends SearchManager {
 
     }
 
-    private static class AuthorizedLuceneQueryFactory extends LuceneQueryFactory {
+    private static class AuthorizedLuceneQueryFactory extends LuceneQueryFactory implements IndexedJoinEngine.SelectorQueryFactory {
 
         private final SessionImpl sessionImpl;
 
@@ -196,6 +206,21 @@ public class HippoSearchManager extends SearchManager {
                 return super.create(constraint, selectorMap, searcher);
             }
         }
+
+        @Override
+        public Query create(final Selector selector, final Constraint constraint, final JackrabbitIndexSearcher searcher)
+                throws RepositoryException, IOException {
+            final Query selectorQuery = create(selector);
+            if (constraint == null) {
+                return selectorQuery;
+            }
+            final NodeType nodeType = sessionImpl.getWorkspace().getNodeTypeManager().getNodeType(selector.getNodeTypeName());
+            final BooleanQuery query = new BooleanQuery();
+            query.add(selectorQuery, BooleanClause.Occur.MUST);
+            query.add(create(constraint, Collections.singletonMap(selector.getSelectorName(), nodeType), searcher),
+                    BooleanClause.Occur.MUST);
+            return query;
+        }
     }
 
     private static class HippoQueryObjectModelFactoryImpl extends QueryObjectModelFactoryImpl {
@@ -17,6 +17,7 @@ package org.hippoecm.repository.jackrabbit;
 
 import java.lang.ref.WeakReference;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -90,9 +91,46 @@ public class HippoSharedItemStateManager extends SharedItemStateManager {
     @Override
     public void externalUpdate(ChangeLog external, EventStateCollection events) {
         super.externalUpdate(external, events);
+        invalidateContentDigests(external);
         notifyDocumentListeners(external);
     }
 
+    void invalidateContentDigests(ChangeLog changeLog) {
+        final ContentDigestCache contentDigestCache = repository.getContentDigestCache();
+        if (contentDigestCache.isEmpty()) {
+            contentDigestCache.invalidate(Collections.<String>emptySet());
+            return;
+        }
+        final Set<NodeId> invalidated = new HashSet<>();
+        addChangedNodes(changeLog.addedStates(), invalidated);
+        addChangedNodes(changeLog.modifiedStates(), invalidated);
+        addChangedNodes(changeLog.deletedStates(), invalidated);
+        final Set<String> ids = new HashSet<>();
+        for (NodeId id : invalidated) {
+            ids.add(id.toString());
+        }
+        contentDigestCache.invalidate(ids);
+    }
+
+    private void addChangedNodes(final Iterable<ItemState> states, final Set<NodeId> nodes) {
+        for (ItemState state : states) {
+            NodeId id = state.isNode() ? (NodeId) state.getId() : state.getParentId();
+            NodeId parentId = state.isNode() ? state.getParentId() : null;
+            while (id != null && nodes.add(id)) {
+                if (parentId == null) {
+                    try {
+                        parentId = ((NodeState) getItemState(id)).getParentId();
+                    } catch (ItemStateException e) {
+                        // deleted along with its parent, which is in the change log itself
+                        break;
+                    }
+                }
+                id = parentId;
+                parentId = null;
+            }
+        }
+    }
+
     void notifyDocumentListeners(ChangeLog changeLog) {
         if (handleListeners.size() == 0) {
             return;
@@ -272,6 +310,11 @@ public class HippoSharedItemStateManager extends SharedItemStateManager {
             if (upstream != null) {
                 upstream.updateCommitted(update, path);
             }
+            try {
+                invalidateContentDigests(update.getChanges());
+            } catch (Throwable t) {
+                log.error("Exception thrown when invalidating content digests", t);
+            }
             try {
                 notifyDocumentListeners(update.getChanges());
             } catch (Throwable t) {
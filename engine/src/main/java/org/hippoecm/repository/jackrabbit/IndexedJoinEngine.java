@@ -0,0 +1,711 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.jackrabbit;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Property;
+import javax.jcr.PropertyType;
+import javax.jcr.RepositoryException;
+import javax.jcr.UnsupportedRepositoryOperationException;
+import javax.jcr.Value;
+import javax.jcr.ValueFactory;
+import javax.jcr.nodetype.NodeType;
+import javax.jcr.nodetype.PropertyDefinition;
+import javax.jcr.query.QueryResult;
+import javax.jcr.query.Row;
+import javax.jcr.query.RowIterator;
+import javax.jcr.query.qom.And;
+import javax.jcr.query.qom.ChildNode;
+import javax.jcr.query.qom.ChildNodeJoinCondition;
+import javax.jcr.query.qom.Column;
+import javax.jcr.query.qom.Comparison;
+import javax.jcr.query.qom.Constraint;
+import javax.jcr.query.qom.DescendantNode;
+import javax.jcr.query.qom.DescendantNodeJoinCondition;
+import javax.jcr.query.qom.DynamicOperand;
+import javax.jcr.query.qom.EquiJoinCondition;
+import javax.jcr.query.qom.FullTextSearch;
+import javax.jcr.query.qom.FullTextSearchScore;
+import javax.jcr.query.qom.Join;
+import javax.jcr.query.qom.JoinCondition;
+import javax.jcr.query.qom.Length;
+import javax.jcr.query.qom.LowerCase;
+import javax.jcr.query.qom.NodeLocalName;
+import javax.jcr.query.qom.NodeName;
+import javax.jcr.query.qom.Not;
+import javax.jcr.query.qom.Or;
+import javax.jcr.query.qom.Ordering;
+import javax.jcr.query.qom.PropertyExistence;
+import javax.jcr.query.qom.PropertyValue;
+import javax.jcr.query.qom.QueryObjectModelConstants;
+import javax.jcr.query.qom.QueryObjectModelFactory;
+import javax.jcr.query.qom.SameNode;
+import javax.jcr.query.qom.SameNodeJoinCondition;
+import javax.jcr.query.qom.Selector;
+import javax.jcr.query.qom.UpperCase;
+
+import org.apache.jackrabbit.commons.iterator.NodeIteratorAdapter;
+import org.apache.jackrabbit.commons.iterator.RangeIteratorAdapter;
+import org.apache.jackrabbit.commons.iterator.RowIteratorAdapter;
+import org.apache.jackrabbit.core.SessionImpl;
+import org.apache.jackrabbit.core.id.NodeId;
+import org.apache.jackrabbit.core.query.lucene.FieldNames;
+import org.apache.jackrabbit.core.query.lucene.FieldSelectors;
+import org.apache.jackrabbit.core.query.lucene.JackrabbitIndexSearcher;
+import org.apache.jackrabbit.core.query.lucene.SearchIndex;
+import org.apache.jackrabbit.core.query.lucene.Util;
+import org.apache.jackrabbit.core.query.lucene.hits.AbstractHitCollector;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.index.TermEnum;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.OpenBitSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes inner joins of two selectors directly on the search index.
+ * <p>
+ * Each side of the join is evaluated into a bit set of matching documents, including the authorization constraint of
+ * the session on that side. The join condition is then resolved through term lookups in the index: an equi-join
+ * matches the indexed values of both properties, a child node join matches the parent field of the children with the
+ * identifier field of the parents and a descendant node join walks up the parent fields of the descendants. Only the
+ * identifiers of the joined nodes are kept; the nodes themselves are loaded while the rows are iterated.
+ * <p>
+ * Joins that cannot be executed this way, such as outer joins, nested joins, ordered joins or joins with constraints
+ * that span both selectors, are left to the Jackrabbit query engine.
+ */
+class IndexedJoinEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexedJoinEngine.class);
+
+    /**
+     * Set to <code>false</code> to execute all joins with the Jackrabbit query engine.
+     */
+    static final String INDEXED_JOINS_PROPERTY = "repo.query.indexedjoins";
+
+    /**
+     * Guards against cycles in the parent fields, which can only exist transiently while the index is updated.
+     */
+    private static final int MAX_DEPTH = 1000;
+
+    /**
+     * Creates the Lucene query that matches the nodes of a selector that satisfy a constraint.
+     */
+    interface SelectorQueryFactory {
+
+        /**
+         * @throws UnsupportedRepositoryOperationException if the constraint cannot be expressed as a Lucene query
+         */
+        Query create(Selector selector, Constraint constraint, JackrabbitIndexSearcher searcher)
+                throws RepositoryException, IOException;
+
+    }
+
+    private final SessionImpl session;
+    private final SearchIndex index;
+    private final SelectorQueryFactory queryFactory;
+    private final QueryObjectModelFactory qomFactory;
+
+    IndexedJoinEngine(final SessionImpl session, final SearchIndex index, final SelectorQueryFactory queryFactory,
+                      final QueryObjectModelFactory qomFactory) {
+        this.session = session;
+        this.index = index;
+        this.queryFactory = queryFactory;
+        this.qomFactory = qomFactory;
+    }
+
+    static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty(INDEXED_JOINS_PROPERTY, "true"));
+    }
+
+    /**
+     * @return the result of the join, or <code>null</code> if the join cannot be executed on the index
+     */
+    QueryResult execute(final Column[] columns, final Join join, final Constraint constraint,
+                        final Ordering[] orderings, final long offset, final long limit) throws RepositoryException {
+        if (!QueryObjectModelConstants.JCR_JOIN_TYPE_INNER.equals(join.getJoinType())
+                || !(join.getLeft() instanceof Selector) || !(join.getRight() instanceof Selector)
+                || (orderings != null && orderings.length > 0)) {
+            return null;
+        }
+        final Selector left = (Selector) join.getLeft();
+        final Selector right = (Selector) join.getRight();
+        final Map<String, Constraint> constraints = splitConstraint(constraint, left.getSelectorName(),
+                right.getSelectorName());
+        if (constraints == null) {
+            return null;
+        }
+
+        final List<NodeId[]> pairs;
+        try {
+            pairs = join(join.getJoinCondition(), left, constraints.get(left.getSelectorName()),
+                    right, constraints.get(right.getSelectorName()));
+        } catch (UnsupportedRepositoryOperationException e) {
+            log.debug("Join cannot be executed on the index: {}", e.getMessage());
+            return null;
+        } catch (IOException e) {
+            throw new RepositoryException("Failed to execute join on the index", e);
+        }
+        if (pairs == null) {
+            return null;
+        }
+
+        final int from = (int) Math.min(Math.max(offset, 0), pairs.size());
+        final int to = limit > 0 ? (int) Math.min(from + limit, pairs.size()) : pairs.size();
+        return new JoinResult(getColumns(columns, left, right), new String[] {
+                left.getSelectorName(), right.getSelectorName()}, pairs.subList(from, to));
+    }
+
+    /**
+     * Splits a constraint that is a conjunction into the constraints of the individual selectors.
+     *
+     * @return the constraint of each selector, or <code>null</code> if a part of the constraint concerns both
+     * selectors or cannot be analysed
+     */
+    private Map<String, Constraint> splitConstraint(final Constraint constraint, final String left, final String right)
+            throws RepositoryException {
+        final Map<String, List<Constraint>> split = new HashMap<>();
+        split.put(left, new ArrayList<Constraint>());
+        split.put(right, new ArrayList<Constraint>());
+        if (constraint != null && !split(constraint, split)) {
+            return null;
+        }
+        final Map<String, Constraint> constraints = new HashMap<>();
+        for (Map.Entry<String, List<Constraint>> entry : split.entrySet()) {
+            Constraint selectorConstraint = null;
+            for (Constraint part : entry.getValue()) {
+                selectorConstraint = selectorConstraint == null ? part : qomFactory.and(selectorConstraint, part);
+            }
+            constraints.put(entry.getKey(), selectorConstraint);
+        }
+        return constraints;
+    }
+
+    private static boolean split(final Constraint constraint, final Map<String, List<Constraint>> split) {
+        if (constraint instanceof And) {
+            return split(((And) constraint).getConstraint1(), split) && split(((And) constraint).getConstraint2(), split);
+        }
+        final Set<String> selectors = new HashSet<>();
+        if (!collectSelectors(constraint, selectors) || selectors.size() != 1) {
+            return false;
+        }
+        final List<Constraint> parts = split.get(selectors.iterator().next());
+        if (parts == null) {
+            return false;
+        }
+        parts.add(constraint);
+        return true;
+    }
+
+    private static boolean collectSelectors(final Constraint constraint, final Set<String> selectors) {
+        if (constraint instanceof And) {
+            return collectSelectors(((And) constraint).getConstraint1(), selectors)
+                    && collectSelectors(((And) constraint).getConstraint2(), selectors);
+        } else if (constraint instanceof Or) {
+            return collectSelectors(((Or) constraint).getConstraint1(), selectors)
+                    && collectSelectors(((Or) constraint).getConstraint2(), selectors);
+        } else if (constraint instanceof Not) {
+            return collectSelectors(((Not) constraint).getConstraint(), selectors);
+        } else if (constraint instanceof Comparison) {
+            return collectSelectors(((Comparison) constraint).getOperand1(), selectors);
+        } else if (constraint instanceof PropertyExistence) {
+            selectors.add(((PropertyExistence) constraint).getSelectorName());
+        } else if (constraint instanceof FullTextSearch) {
+            selectors.add(((FullTextSearch) constraint).getSelectorName());
+        } else if (constraint instanceof SameNode) {
+            selectors.add(((SameNode) constraint).getSelectorName());
+        } else if (constraint instanceof ChildNode) {
+            selectors.add(((ChildNode) constraint).getSelectorName());
+        } else if (constraint instanceof DescendantNode) {
+            selectors.add(((DescendantNode) constraint).getSelectorName());
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean collectSelectors(final DynamicOperand operand, final Set<String> selectors) {
+        if (operand instanceof PropertyValue) {
+            selectors.add(((PropertyValue) operand).getSelectorName());
+        } else if (operand instanceof Length) {
+            selectors.add(((Length) operand).getPropertyValue().getSelectorName());
+        } else if (operand instanceof NodeName) {
+            selectors.add(((NodeName) operand).getSelectorName());
+        } else if (operand instanceof NodeLocalName) {
+            selectors.add(((NodeLocalName) operand).getSelectorName());
+        } else if (operand instanceof FullTextSearchScore) {
+            selectors.add(((FullTextSearchScore) operand).getSelectorName());
+        } else if (operand instanceof LowerCase) {
+            return collectSelectors(((LowerCase) operand).getOperand(), selectors);
+        } else if (operand instanceof UpperCase) {
+            return collectSelectors(((UpperCase) operand).getOperand(), selectors);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the identifiers of the joined nodes, left first, or <code>null</code> if the join condition is not
+     * supported
+     */
+    private List<NodeId[]> join(final JoinCondition condition,
+                                final Selector left, final Constraint leftConstraint,
+                                final Selector right, final Constraint rightConstraint)
+            throws RepositoryException, IOException {
+        final IndexReader reader = index.getIndexReader();
+        try {
+            final JackrabbitIndexSearcher searcher = new JackrabbitIndexSearcher(session, reader,
+                    index.getContext().getItemStateManager());
+            searcher.setSimilarity(index.getSimilarity());
+
+            final DocPairs pairs = new DocPairs(reader, left.getSelectorName());
+            final OpenBitSet leftDocs = collect(searcher, reader, left, leftConstraint);
+            if (leftDocs.isEmpty()) {
+                return pairs.getNodeIds();
+            }
+            final OpenBitSet rightDocs = collect(searcher, reader, right, rightConstraint);
+            if (rightDocs.isEmpty()) {
+                return pairs.getNodeIds();
+            }
+            final Map<String, OpenBitSet> docs = new HashMap<>();
+            docs.put(left.getSelectorName(), leftDocs);
+            docs.put(right.getSelectorName(), rightDocs);
+
+            if (condition instanceof EquiJoinCondition) {
+                final EquiJoinCondition equiJoin = (EquiJoinCondition) condition;
+                termJoin(reader,
+                        FieldNames.PROPERTIES, getValuePrefix(equiJoin.getProperty1Name()),
+                        equiJoin.getSelector1Name(), docs.get(equiJoin.getSelector1Name()),
+                        FieldNames.PROPERTIES, getValuePrefix(equiJoin.getProperty2Name()),
+                        equiJoin.getSelector2Name(), docs.get(equiJoin.getSelector2Name()), pairs);
+            } else if (condition instanceof ChildNodeJoinCondition) {
+                final ChildNodeJoinCondition childJoin = (ChildNodeJoinCondition) condition;
+                termJoin(reader,
+                        FieldNames.PARENT, "", childJoin.getChildSelectorName(),
+                        docs.get(childJoin.getChildSelectorName()),
+                        FieldNames.UUID, "", childJoin.getParentSelectorName(),
+                        docs.get(childJoin.getParentSelectorName()), pairs);
+            } else if (condition instanceof DescendantNodeJoinCondition) {
+                final DescendantNodeJoinCondition descendantJoin = (DescendantNodeJoinCondition) condition;
+                descendantJoin(reader,
+                        descendantJoin.getDescendantSelectorName(),
+                        docs.get(descendantJoin.getDescendantSelectorName()),
+                        descendantJoin.getAncestorSelectorName(),
+                        docs.get(descendantJoin.getAncestorSelectorName()), pairs);
+            } else if (condition instanceof SameNodeJoinCondition
+                    && ((SameNodeJoinCondition) condition).getSelector2Path() == null) {
+                leftDocs.intersect(rightDocs);
+                for (int doc = leftDocs.nextSetBit(0); doc >= 0; doc = leftDocs.nextSetBit(doc + 1)) {
+                    pairs.add(left.getSelectorName(), doc, right.getSelectorName(), doc);
+                }
+            } else {
+                return null;
+            }
+            return pairs.getNodeIds();
+        } finally {
+            Util.closeOrRelease(reader);
+        }
+    }
+
+    private OpenBitSet collect(final JackrabbitIndexSearcher searcher, final IndexReader reader,
+                               final Selector selector, final Constraint constraint)
+            throws RepositoryException, IOException {
+        final OpenBitSet bits = new OpenBitSet(reader.maxDoc());
+        searcher.search(queryFactory.create(selector, constraint, searcher), new AbstractHitCollector() {
+            @Override
+            protected void collect(final int doc, final float score) {
+                bits.set(doc);
+            }
+        });
+        return bits;
+    }
+
+    /**
+     * Joins the documents of which a term in field A equals a term in field B, after stripping the prefixes. Each
+     * pair of documents is joined once, however many terms they share.
+     */
+    private static void termJoin(final IndexReader reader,
+                                 final String fieldA, final String prefixA, final String selectorA, final OpenBitSet docsA,
+                                 final String fieldB, final String prefixB, final String selectorB, final OpenBitSet docsB,
+                                 final DocPairs pairs) throws IOException {
+        final TermEnum terms = reader.terms(new Term(fieldA, prefixA));
+        final TermDocs termDocs = reader.termDocs();
+        final Set<Long> joined = new HashSet<>();
+        try {
+            do {
+                final Term term = terms.term();
+                if (term == null || !term.field().equals(fieldA) || !term.text().startsWith(prefixA)) {
+                    break;
+                }
+                final int[] matchesA = getDocs(termDocs, term, docsA);
+                if (matchesA.length == 0) {
+                    continue;
+                }
+                final String value = term.text().substring(prefixA.length());
+                final int[] matchesB = getDocs(termDocs, new Term(fieldB, prefixB + value), docsB);
+                for (int docA : matchesA) {
+                    for (int docB : matchesB) {
+                        // documents that share more than one value are joined once
+                        if (joined.add(((long) docA << 32) | (docB & 0xffffffffL))) {
+                            pairs.add(selectorA, docA, selectorB, docB);
+                        }
+                    }
+                }
+            } while (terms.next());
+        } finally {
+            terms.close();
+            termDocs.close();
+        }
+    }
+
+    private static int[] getDocs(final TermDocs termDocs, final Term term, final OpenBitSet filter) throws IOException {
+        int[] docs = new int[0];
+        int size = 0;
+        termDocs.seek(term);
+        while (termDocs.next()) {
+            final int doc = termDocs.doc();
+            if (filter.get(doc)) {
+                if (size == docs.length) {
+                    docs = Arrays.copyOf(docs, Math.max(4, size * 2));
+                }
+                docs[size++] = doc;
+            }
+        }
+        return size == docs.length ? docs : Arrays.copyOf(docs, size);
+    }
+
+    private static void descendantJoin(final IndexReader reader,
+                                       final String descendantSelector, final OpenBitSet descendantDocs,
+                                       final String ancestorSelector, final OpenBitSet ancestorDocs,
+                                       final DocPairs pairs) throws IOException {
+        final Map<Integer, Integer> parents = new HashMap<>();
+        final TermDocs termDocs = reader.termDocs();
+        try {
+            for (int doc = descendantDocs.nextSetBit(0); doc >= 0; doc = descendantDocs.nextSetBit(doc + 1)) {
+                int ancestor = getParent(reader, termDocs, doc, parents);
+                for (int depth = 0; ancestor >= 0 && depth < MAX_DEPTH; depth++) {
+                    if (ancestorDocs.get(ancestor)) {
+                        pairs.add(descendantSelector, doc, ancestorSelector, ancestor);
+                    }
+                    ancestor = getParent(reader, termDocs, ancestor, parents);
+                }
+            }
+        } finally {
+            termDocs.close();
+        }
+    }
+
+    private static int getParent(final IndexReader reader, final TermDocs termDocs, final int doc,
+                                 final Map<Integer, Integer> parents) throws IOException {
+        Integer parent = parents.get(doc);
+        if (parent == null) {
+            parent = -1;
+            final String parentId = reader.document(doc, FieldSelectors.UUID_AND_PARENT).get(FieldNames.PARENT);
+            if (parentId != null && !parentId.isEmpty()) {
+                termDocs.seek(new Term(FieldNames.UUID, parentId));
+                if (termDocs.next()) {
+                    parent = termDocs.doc();
+                }
+            }
+            parents.put(doc, parent);
+        }
+        return parent;
+    }
+
+    private String getValuePrefix(final String propertyName) throws RepositoryException {
+        return FieldNames.createNamedValue(index.getNamespaceMappings().translateName(session.getQName(propertyName)), "");
+    }
+
+    private Map<String, Column> getColumns(final Column[] columns, final Selector... selectors)
+            throws RepositoryException {
+        final Map<String, Column> columnMap = new LinkedHashMap<>();
+        for (Column column : columns) {
+            if (column.getPropertyName() != null) {
+                final String name = column.getColumnName() != null ? column.getColumnName()
+                        : column.getSelectorName() + "." + column.getPropertyName();
+                columnMap.put(name, column);
+            } else {
+                // all properties of the node type of the selector(s)
+                for (Selector selector : selectors) {
+                    if (column.getSelectorName() == null || column.getSelectorName().equals(selector.getSelectorName())) {
+                        final NodeType type = session.getWorkspace().getNodeTypeManager()
+                                .getNodeType(selector.getNodeTypeName());
+                        for (PropertyDefinition definition : type.getPropertyDefinitions()) {
+                            final String name = definition.getName();
+                            if (!definition.isMultiple() && !"*".equals(name)) {
+                                columnMap.put(selector.getSelectorName() + "." + name,
+                                        qomFactory.column(selector.getSelectorName(), name,
+                                                selector.getSelectorName() + "." + name));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return columnMap;
+    }
+
+    /**
+     * Joined document pairs, translated to node identifiers while the index reader is still open.
+     */
+    private static class DocPairs {
+
+        private final IndexReader reader;
+        private final String leftSelector;
+        private final Map<Integer, NodeId> ids = new HashMap<>();
+        private final List<NodeId[]> pairs = new ArrayList<>();
+
+        private DocPairs(final IndexReader reader, final String leftSelector) {
+            this.reader = reader;
+            this.leftSelector = leftSelector;
+        }
+
+        private void add(final String selector1, final int doc1, final String selector2, final int doc2)
+                throws IOException {
+            if (selector1.equals(leftSelector)) {
+                pairs.add(new NodeId[] { getNodeId(doc1), getNodeId(doc2) });
+            } else {
+                pairs.add(new NodeId[] { getNodeId(doc2), getNodeId(doc1) });
+            }
+        }
+
+        private NodeId getNodeId(final int doc) throws IOException {
+            NodeId id = ids.get(doc);
+            if (id == null) {
+                final Document document = reader.document(doc, FieldSelectors.UUID);
+                id = new NodeId(document.get(FieldNames.UUID));
+                ids.put(doc, id);
+            }
+            return id;
+        }
+
+        private List<NodeId[]> getNodeIds() {
+            return pairs;
+        }
+    }
+
+    private class JoinResult implements QueryResult {
+
+        private final Map<String, Column> columns;
+        private final String[] selectorNames;
+        private final List<NodeId[]> pairs;
+
+        private JoinResult(final Map<String, Column> columns, final String[] selectorNames, final List<NodeId[]> pairs) {
+            this.columns = columns;
+            this.selectorNames = selectorNames;
+            this.pairs = pairs;
+        }
+
+        @Override
+        public String[] getColumnNames() throws RepositoryException {
+            return columns.keySet().toArray(new String[columns.size()]);
+        }
+
+        @Override
+        public String[] getSelectorNames() throws RepositoryException {
+            return selectorNames.clone();
+        }
+
+        @Override
+        public RowIterator getRows() throws RepositoryException {
+            final JoinRows rows = new JoinRows(columns, selectorNames, pairs.iterator());
+            return new RowIteratorAdapter(new RangeIteratorAdapter(rows) {
+                @Override
+                public long getSize() {
+                    // pairs of which a node cannot be loaded are skipped, so the rows are counted by loading them
+                    return getPosition() + rows.loadRemaining();
+                }
+            });
+        }
+
+        @Override
+        public NodeIterator getNodes() throws RepositoryException {
+            throw new RepositoryException("This query result contains more than one selector");
+        }
+    }
+
+    /**
+     * The rows of the joined pairs of which both nodes can be loaded by the session, loaded while iterating.
+     */
+    private class JoinRows implements Iterator<Row> {
+
+        private final Map<String, Column> columns;
+        private final String[] selectorNames;
+        private final Iterator<NodeId[]> pairs;
+        private final Deque<Row> loaded = new ArrayDeque<>();
+
+        private JoinRows(final Map<String, Column> columns, final String[] selectorNames,
+                         final Iterator<NodeId[]> pairs) {
+            this.columns = columns;
+            this.selectorNames = selectorNames;
+            this.pairs = pairs;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !loaded.isEmpty() || loadNext();
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return loaded.removeFirst();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * @return the number of rows that have not been returned yet
+         */
+        private int loadRemaining() {
+            while (loadNext()) {
+                // continue
+            }
+            return loaded.size();
+        }
+
+        private boolean loadNext() {
+            while (pairs.hasNext()) {
+                final NodeId[] pair = pairs.next();
+                try {
+                    loaded.addLast(new JoinRow(columns, selectorNames,
+                            new Node[] { session.getNodeById(pair[0]), session.getNodeById(pair[1]) }));
+                    return true;
+                } catch (ItemNotFoundException ignore) {
+                    // removed after the index was read, or not readable by the session
+                } catch (RepositoryException e) {
+                    log.warn("Failed to load row of join: " + e);
+                }
+            }
+            return false;
+        }
+    }
+
+    private class JoinRow implements Row {
+
+        private final Map<String, Column> columns;
+        private final String[] selectorNames;
+        private final Node[] nodes;
+
+        private JoinRow(final Map<String, Column> columns, final String[] selectorNames, final Node[] nodes) {
+            this.columns = columns;
+            this.selectorNames = selectorNames;
+            this.nodes = nodes;
+        }
+
+        @Override
+        public Value[] getValues() throws RepositoryException {
+            final Value[] values = new Value[columns.size()];
+            int i = 0;
+            for (Column column : columns.values()) {
+                values[i++] = getValue(column);
+            }
+            return values;
+        }
+
+        @Override
+        public Value getValue(final String columnName) throws ItemNotFoundException, RepositoryException {
+            final Column column = columns.get(columnName);
+            if (column == null) {
+                throw new ItemNotFoundException("Unknown column name: " + columnName);
+            }
+            return getValue(column);
+        }
+
+        private Value getValue(final Column column) throws RepositoryException {
+            final Node node = getNode(column.getSelectorName());
+            final String propertyName = column.getPropertyName();
+            final ValueFactory valueFactory = session.getValueFactory();
+            if ("jcr:path".equals(propertyName)) {
+                return valueFactory.createValue(node.getPath(), PropertyType.PATH);
+            } else if ("jcr:name".equals(propertyName)) {
+                return valueFactory.createValue(node.getName(), PropertyType.NAME);
+            } else if ("jcr:score".equals(propertyName)) {
+                return valueFactory.createValue(0.0);
+            } else if (node.hasProperty(propertyName)) {
+                final Property property = node.getProperty(propertyName);
+                if (!property.isMultiple()) {
+                    return property.getValue();
+                }
+                final Value[] values = property.getValues();
+                return values.length == 1 ? values[0] : null;
+            }
+            return null;
+        }
+
+        @Override
+        public Node getNode() throws RepositoryException {
+            throw new RepositoryException("This query result contains more than one selector");
+        }
+
+        @Override
+        public Node getNode(final String selectorName) throws RepositoryException {
+            for (int i = 0; i < selectorNames.length; i++) {
+                if (selectorNames[i].equals(selectorName)) {
+                    return nodes[i];
+                }
+            }
+            throw new RepositoryException("Unknown selector name: " + selectorName);
+        }
+
+        @Override
+        public String getPath() throws RepositoryException {
+            throw new RepositoryException("This query result contains more than one selector");
+        }
+
+        @Override
+        public String getPath(final String selectorName) throws RepositoryException {
+            return getNode(selectorName).getPath();
+        }
+
+        @Override
+        public double getScore() throws RepositoryException {
+            throw new RepositoryException("This query result contains more than one selector");
+        }
+
+        @Override
+        public double getScore(final String selectorName) throws RepositoryException {
+            getNode(selectorName);
+            return 0.0;
+        }
+    }
+
+}
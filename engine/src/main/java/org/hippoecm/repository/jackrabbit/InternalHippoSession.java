@@ -66,4 +66,8 @@ public interface InternalHippoSession extends JackrabbitSession, NamespaceResolv
     ItemManager getItemManager();
 
     ScheduledExecutorService getExecutor();
+
+    LockKeepAliveScheduler getLockKeepAliveScheduler();
+
+    ContentDigestCache getContentDigestCache();
 }
@@ -0,0 +1,218 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.jackrabbit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.jcr.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Repository-wide scheduler of lock keep-alives, built on a timing wheel.
+ * <p>
+ * A single task on the repository executor advances the wheel every tick, so the number of timers does not grow with
+ * the number of locks that are kept alive. The keep-alives that are due in a tick are refreshed together, in one batch
+ * per session. Keep-alives of which the session is no longer live are dropped when the wheel passes them.
+ */
+public class LockKeepAliveScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(LockKeepAliveScheduler.class);
+
+    private static final long DEFAULT_TICK_MILLIS = 1000L;
+    private static final int DEFAULT_WHEEL_SIZE = 64;
+
+    /**
+     * A lock that is kept alive by this scheduler.
+     */
+    public interface KeepAlive {
+
+        /**
+         * @return the session holding the lock, the keep-alive is dropped once it is no longer live
+         */
+        Session getSession();
+
+        /**
+         * @return the refresher through which this keep-alive is refreshed, together with the other keep-alives of
+         * the same session that are due
+         */
+        Refresher getRefresher();
+
+        /**
+         * @return the number of seconds after a successful refresh at which the lock is to be refreshed again
+         */
+        long getInterval();
+
+    }
+
+    /**
+     * Refreshes a batch of locks.
+     */
+    public interface Refresher {
+
+        /**
+         * Refresh the locks of <code>keepAlives</code>, which all belong to the same session.
+         *
+         * @return the keep-alives that were refreshed successfully and are to be scheduled again
+         */
+        Collection<KeepAlive> refresh(List<KeepAlive> keepAlives);
+
+    }
+
+    private static final class Entry {
+
+        private final KeepAlive keepAlive;
+        private int slot = -1;
+        private long rounds;
+
+        private Entry(final KeepAlive keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+    }
+
+    private final long tickMillis;
+    private final List<Set<Entry>> wheel;
+    private final Map<KeepAlive, Entry> entries = new HashMap<>();
+    private final ScheduledFuture<?> future;
+    private int cursor = 0;
+
+    public LockKeepAliveScheduler(final ScheduledExecutorService executor) {
+        this(executor, DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+    }
+
+    LockKeepAliveScheduler(final ScheduledExecutorService executor, final long tickMillis, final int wheelSize) {
+        this.tickMillis = tickMillis;
+        wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new LinkedHashSet<Entry>());
+        }
+        future = executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    tick();
+                } catch (RuntimeException e) {
+                    // an exception would cancel the periodic task and with it all keep-alives
+                    log.error("Failed to refresh locks", e);
+                }
+            }
+        }, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedule <code>keepAlive</code> to be refreshed after <code>delay</code> seconds, replacing an earlier schedule
+     * of the same keep-alive. The keep-alive is refreshed at the latest tick before it is due.
+     */
+    public synchronized void schedule(final KeepAlive keepAlive, final long delay) {
+        if (future.isCancelled()) {
+            throw new IllegalStateException("Lock keep-alive scheduler has been stopped");
+        }
+        cancel(keepAlive);
+        final Entry entry = new Entry(keepAlive);
+        entries.put(keepAlive, entry);
+        place(entry, delay);
+    }
+
+    public synchronized void cancel(final KeepAlive keepAlive) {
+        final Entry entry = entries.remove(keepAlive);
+        if (entry != null && entry.slot != -1) {
+            wheel.get(entry.slot).remove(entry);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void stop() {
+        future.cancel(false);
+        for (Set<Entry> slot : wheel) {
+            slot.clear();
+        }
+        entries.clear();
+    }
+
+    private void place(final Entry entry, final long delay) {
+        final long ticks = Math.max(1L, TimeUnit.SECONDS.toMillis(delay) / tickMillis);
+        entry.slot = (int) ((cursor + ticks) % wheel.size());
+        entry.rounds = (ticks - 1) / wheel.size();
+        wheel.get(entry.slot).add(entry);
+    }
+
+    void tick() {
+        final Map<Session, List<KeepAlive>> due = new LinkedHashMap<>();
+        final Map<KeepAlive, Entry> refreshing = new HashMap<>();
+        synchronized (this) {
+            cursor = (cursor + 1) % wheel.size();
+            for (Iterator<Entry> iterator = wheel.get(cursor).iterator(); iterator.hasNext(); ) {
+                final Entry entry = iterator.next();
+                final Session session = entry.keepAlive.getSession();
+                if (!session.isLive()) {
+                    iterator.remove();
+                    entries.remove(entry.keepAlive);
+                } else if (entry.rounds > 0) {
+                    entry.rounds--;
+                } else {
+                    iterator.remove();
+                    entry.slot = -1;
+                    refreshing.put(entry.keepAlive, entry);
+                    List<KeepAlive> batch = due.get(session);
+                    if (batch == null) {
+                        batch = new ArrayList<>();
+                        due.put(session, batch);
+                    }
+                    batch.add(entry.keepAlive);
+                }
+            }
+        }
+
+        for (List<KeepAlive> batch : due.values()) {
+            final Set<KeepAlive> refreshed = new HashSet<>();
+            try {
+                refreshed.addAll(batch.get(0).getRefresher().refresh(batch));
+            } catch (RuntimeException e) {
+                log.error("Failed to refresh locks", e);
+            }
+            synchronized (this) {
+                for (KeepAlive keepAlive : batch) {
+                    final Entry entry = refreshing.get(keepAlive);
+                    // the keep-alive may have been stopped or restarted while it was being refreshed
+                    if (entries.get(keepAlive) == entry) {
+                        if (refreshed.contains(keepAlive)) {
+                            place(entry, keepAlive.getInterval());
+                        } else {
+                            entries.remove(keepAlive);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -63,6 +63,11 @@ public class RepositoryImpl extends org.apache.jackrabbit.core.RepositoryImpl im
 
     private ExternalRepositorySyncRevisionService externalRepositorySyncRevisionService;
 
+    private LockKeepAliveScheduler lockKeepAliveScheduler;
+    private boolean lockKeepAliveSchedulerStopped = false;
+
+    private final ContentDigestCache contentDigestCache = new ContentDigestCache();
+
     protected RepositoryImpl(RepositoryConfig repConfig) throws RepositoryException {
         super(repConfig);
         searchIndexConsistencyCheck();
@@ -247,6 +252,35 @@ public class RepositoryImpl extends org.apache.jackrabbit.core.RepositoryImpl im
         return externalRepositorySyncRevisionService;
     }
 
+    /**
+     * @throws IllegalStateException if the repository is shut down before the scheduler was needed, as the
+     * executor of the repository no longer accepts its task
+     */
+    public synchronized LockKeepAliveScheduler getLockKeepAliveScheduler() {
+        if (lockKeepAliveScheduler == null) {
+            if (lockKeepAliveSchedulerStopped) {
+                throw new IllegalStateException("Repository has been shut down");
+            }
+            lockKeepAliveScheduler = new LockKeepAliveScheduler(context.getExecutor());
+        }
+        return lockKeepAliveScheduler;
+    }
+
+    public ContentDigestCache getContentDigestCache() {
+        return contentDigestCache;
+    }
+
+    @Override
+    protected synchronized void doShutdown() {
+        // the stopped scheduler is kept, so that keep-alives scheduled during shutdown fail instead of
+        // recreating the scheduler on the executor that is shut down
+        lockKeepAliveSchedulerStopped = true;
+        if (lockKeepAliveScheduler != null) {
+            lockKeepAliveScheduler.stop();
+        }
+        super.doShutdown();
+    }
+
     @Override
     protected HippoWorkspaceInfo getWorkspaceInfo(final String workspaceName) throws RepositoryException {
         return (HippoWorkspaceInfo) super.getWorkspaceInfo(workspaceName);
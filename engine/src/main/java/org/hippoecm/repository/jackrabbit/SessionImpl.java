@@ -241,6 +241,16 @@ public class SessionImpl extends org.apache.jackrabbit.core.SessionImpl implemen
         return context.getRepositoryContext().getExecutor();
     }
 
+    @Override
+    public LockKeepAliveScheduler getLockKeepAliveScheduler() {
+        return ((RepositoryImpl) context.getRepository()).getLockKeepAliveScheduler();
+    }
+
+    @Override
+    public ContentDigestCache getContentDigestCache() {
+        return ((RepositoryImpl) context.getRepository()).getContentDigestCache();
+    }
+
     @Override
     public LocalItemStateManager createItemStateManager(RepositoryContext repositoryContext, WorkspaceImpl workspace, SharedItemStateManager sharedStateMgr, EventStateCollectionFactory factory, String attribute, ItemStateCacheFactory cacheFactory) {
         LocalItemStateManager mgr = new HippoLocalItemStateManager(sharedStateMgr, context.getWorkspace(), context.getRepositoryContext().getItemStateCacheFactory(), attribute, ((RepositoryImpl)context.getRepository()).getNodeTypeRegistry(), ((RepositoryImpl)context.getRepository()).isStarted(), ((RepositoryImpl)context.getRepository()).getRootNodeId());
@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -49,7 +50,6 @@ import javax.jcr.version.VersionException;
 import javax.security.auth.Subject;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.jackrabbit.core.HierarchyManager;
 import org.apache.jackrabbit.core.NodeImpl;
 import org.apache.jackrabbit.core.RepositoryContext;
 import org.apache.jackrabbit.core.id.NodeId;
@@ -405,66 +405,46 @@ abstract class SessionImplHelper {
         } catch (IllegalNameException ex) {
             throw new NoSuchNodeTypeException(nodeType);
         }
-        final Set<NodeId> filteredResults = new HashSet<NodeId>();
+        /* collect the distinct modified nodes, a changed property denotes a change of its parent node
+         */
+        final Set<NodeId> candidates = new LinkedHashSet<NodeId>();
         if (node==null) {
             node = session.getRootNode();
-            if (node.isModified()&&(nodeType==null||node.isNodeType(nodeType))) {
-                filteredResults.add(((org.apache.jackrabbit.core.NodeImpl)node).getNodeId());
+            if (node.isModified()) {
+                candidates.add(((org.apache.jackrabbit.core.NodeImpl)node).getNodeId());
             }
         }
         NodeId nodeId = ((org.apache.jackrabbit.core.NodeImpl)NodeDecorator.unwrap(node)).getNodeId();
 
         for(ItemState itemState : getItemStateManager().getDescendantTransientItemStates(nodeId)) {
-            NodeState state = null;
-            if (!itemState.isNode()) {
-                try {
-                    if (filteredResults.contains(itemState.getParentId()))
-                        continue;
-                    state = (NodeState)getItemStateManager().getItemState(itemState.getParentId());
-                } catch (NoSuchItemStateException ex) {
-                    log.error("Cannot find parent of changed property", ex);
-                    continue;
-                } catch (ItemStateException ex) {
-                    log.error("Cannot find parent of changed property", ex);
-                    continue;
-                }
-            } else {
-                state = (NodeState)itemState;
-            }
+            candidates.add(itemState.isNode() ? (NodeId)itemState.getId() : itemState.getParentId());
+        }
 
-            /* if the node type of the current node state is not of required
-             * type (if set), continue with next.
+        final Set<NodeId> filteredResults = new LinkedHashSet<NodeId>();
+        if (prune) {
+            /* visit the candidates top down, so that a candidate is pruned as soon as one of its ancestors is in
+             * the result, without evaluating its node type
              */
-            if (nodeType!=null) {
-                if (!ntName.equals(state.getNodeTypeName())) {
-                    Set mixins = state.getMixinTypeNames();
-                    if (!mixins.contains(ntName)) {
-                        // build effective node type of mixins & primary type
-                        try {
-                            if (!ntReg.getEffectiveNodeType(state.getNodeTypeName(),mixins).includesNodeType(ntName)) {
-                                continue;
-                            }
-                        } catch (NodeTypeConflictException ntce) {
-                            String msg = "internal error: failed to build effective node type";
-                            log.debug(msg);
-                            throw new RepositoryException(msg, ntce);
-                        }
-                    }
+            final List<PendingChange> changes = new ArrayList<PendingChange>(candidates.size());
+            for (NodeId candidate : candidates) {
+                NodeState state = getPendingNodeState(candidate);
+                if (state != null) {
+                    changes.add(new PendingChange(state, getPendingDepth(state)));
                 }
             }
-
-            /* if pruning, check that there are already children in the
-             * current list.  If so, remove them.
-             */
-            if (prune) {
-                HierarchyManager hierMgr = session.getHierarchyManager();
-                for (Iterator<NodeId> i = filteredResults.iterator(); i.hasNext();) {
-                    if (hierMgr.isAncestor(state.getNodeId(), i.next()))
-                        i.remove();
+            Collections.sort(changes);
+            for (PendingChange change : changes) {
+                if (!hasPendingAncestor(change.state, filteredResults) && isPendingNodeType(change.state, ntName)) {
+                    filteredResults.add(change.state.getNodeId());
+                }
+            }
+        } else {
+            for (NodeId candidate : candidates) {
+                NodeState state = getPendingNodeState(candidate);
+                if (state != null && isPendingNodeType(state, ntName)) {
+                    filteredResults.add(candidate);
                 }
             }
-
-            filteredResults.add(state.getNodeId());
         }
 
         return new NodeIterator() {
@@ -528,6 +508,71 @@ abstract class SessionImplHelper {
         };
     }
 
+    private NodeState getPendingNodeState(NodeId id) {
+        try {
+            return (NodeState)getItemStateManager().getItemState(id);
+        } catch (NoSuchItemStateException ex) {
+            log.error("Cannot find changed node or parent of changed property", ex);
+        } catch (ItemStateException ex) {
+            log.error("Cannot find changed node or parent of changed property", ex);
+        }
+        return null;
+    }
+
+    private int getPendingDepth(NodeState state) {
+        int depth = 0;
+        for (NodeState current = state; current != null && current.getParentId() != null; ) {
+            current = getPendingNodeState(current.getParentId());
+            depth++;
+        }
+        return depth;
+    }
+
+    private boolean hasPendingAncestor(NodeState state, Set<NodeId> results) {
+        for (NodeState current = state; current != null && current.getParentId() != null; ) {
+            if (results.contains(current.getParentId())) {
+                return true;
+            }
+            current = getPendingNodeState(current.getParentId());
+        }
+        return false;
+    }
+
+    /* if the node type of the node state is not of required type (if set), it is not a pending change
+     */
+    private boolean isPendingNodeType(NodeState state, Name ntName) throws RepositoryException {
+        if (ntName == null || ntName.equals(state.getNodeTypeName())) {
+            return true;
+        }
+        Set<Name> mixins = state.getMixinTypeNames();
+        if (mixins.contains(ntName)) {
+            return true;
+        }
+        // build effective node type of mixins & primary type
+        try {
+            return ntReg.getEffectiveNodeType(state.getNodeTypeName(), mixins).includesNodeType(ntName);
+        } catch (NodeTypeConflictException ntce) {
+            String msg = "internal error: failed to build effective node type";
+            log.debug(msg);
+            throw new RepositoryException(msg, ntce);
+        }
+    }
+
+    private static class PendingChange implements Comparable<PendingChange> {
+
+        private final NodeState state;
+        private final int depth;
+
+        private PendingChange(NodeState state, int depth) {
+            this.state = state;
+            this.depth = depth;
+        }
+
+        public int compareTo(PendingChange other) {
+            return depth < other.depth ? -1 : (depth == other.depth ? 0 : 1);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -615,7 +660,8 @@ abstract class SessionImplHelper {
                             queryHandler.getIndexingConfig(),
                             context.getNodeTypeManager(),
                             context.getSessionImpl(),
-                            userId);
+                            userId,
+                            queryHandler);
                 }
             } catch (RepositoryException e) {
                 throw new RuntimeException(e);
@@ -253,6 +253,16 @@ public class XASessionImpl extends org.apache.jackrabbit.core.XASessionImpl impl
         return context.getRepositoryContext().getExecutor();
     }
 
+    @Override
+    public LockKeepAliveScheduler getLockKeepAliveScheduler() {
+        return ((RepositoryImpl) context.getRepository()).getLockKeepAliveScheduler();
+    }
+
+    @Override
+    public ContentDigestCache getContentDigestCache() {
+        return ((RepositoryImpl) context.getRepository()).getContentDigestCache();
+    }
+
     @Override
     public LocalItemStateManager createItemStateManager(RepositoryContext repositoryContext, WorkspaceImpl workspace, SharedItemStateManager sharedStateMgr, EventStateCollectionFactory factory, String attribute, ItemStateCacheFactory cacheFactory) {
         RepositoryImpl repository = (RepositoryImpl) repositoryContext.getRepository();
@@ -94,6 +94,11 @@ public class AuthorizationQuery {
      */
     private final BooleanQuery query;
 
+    /**
+     * Resolves descendant-or-self constraints, may be <code>null</code>
+     */
+    private final HippoQueryHandler queryHandler;
+
 
     public AuthorizationQuery(final Subject subject,
                               final NamespaceMappings nsMappings,
@@ -101,6 +106,17 @@ public class AuthorizationQuery {
                               final NodeTypeManager ntMgr,
                               final Session session,
                               final String userId) throws RepositoryException {
+        this(subject, nsMappings, indexingConfig, ntMgr, session, userId, null);
+    }
+
+    public AuthorizationQuery(final Subject subject,
+                              final NamespaceMappings nsMappings,
+                              final ServicingIndexingConfiguration indexingConfig,
+                              final NodeTypeManager ntMgr,
+                              final Session session,
+                              final String userId,
+                              final HippoQueryHandler queryHandler) throws RepositoryException {
+        this.queryHandler = queryHandler;
         // set the max clauses for booleans higher than the default 1024.
         BooleanQuery.setMaxClauseCount(Integer.MAX_VALUE);
         if (!(session instanceof InternalHippoSession)) {
@@ -238,12 +254,12 @@ public class AuthorizationQuery {
                         } else {
                             // disallow *all* descendant nodes below the node with UUID = value because our access mngr
                             // is hierarchical: you cannot read nodes below a node you are not allowed to read
-                            final Query tq = new TermQuery(new Term(ServicingFieldNames.HIPPO_UUIDS, value));
+                            final Query tq = getDescendantOrSelfQuery(value);
                             return negateQuery(tq);
                         }
                     }
                     if (NameConstants.JCR_PATH.equals(facetName)) {
-                        final Query tq = new TermQuery(new Term(ServicingFieldNames.HIPPO_UUIDS, value));
+                        final Query tq = getDescendantOrSelfQuery(value);
                         // note no check required for isFacetOptional since every node has a uuid
                         if (facetRule.isEqual()) {
                             return tq;
@@ -345,6 +361,13 @@ public class AuthorizationQuery {
         return createNoHitsQuery();
     }
 
+    private Query getDescendantOrSelfQuery(final String id) {
+        if (queryHandler != null) {
+            return queryHandler.getDescendantOrSelfQuery(id);
+        }
+        return new TermQuery(new Term(ServicingFieldNames.HIPPO_UUIDS, id));
+    }
+
     private Query getNodeTypeDescendantQuery(final QFacetRule facetRule,
                                              final NodeTypeManager ntMgr,
                                              final InternalHippoSession session,
@@ -0,0 +1,187 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.query.lucene;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.parser.ParserDecorator;
+import org.apache.tika.sax.ContentHandlerDecorator;
+import org.apache.tika.sax.XHTMLContentHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+/**
+ * Parser used for extracting the text of binaries while indexing. It serves the text of binaries that were parsed
+ * before from an {@link ExtractedTextCache}, and otherwise parses the binary with the decorated parser and stores the
+ * text it produced in the cache. Binaries are identified by the {@link #CONTENT_IDENTITY} metadata set by the
+ * {@link ServicingNodeIndexer}; binaries without one are always parsed.
+ * <p>
+ * Parsing is aborted when a binary takes longer than the configured timeout, so a single pathological binary
+ * cannot keep an extractor thread busy indefinitely. Parsers are only able to notice the timeout when they produce
+ * output, a parser that hangs without producing any text is not stopped.
+ */
+public class CachingTextExtractor extends ParserDecorator {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger log = LoggerFactory.getLogger(CachingTextExtractor.class);
+
+    /**
+     * Metadata key holding the data store identifier of the binary that is parsed
+     */
+    public static final String CONTENT_IDENTITY = "hippo:contentIdentity";
+
+    /**
+     * Texts longer than this are not cached
+     */
+    static final int MAX_CACHED_LENGTH = 1000 * 1000;
+
+    private final transient ExtractedTextCache cache;
+    private final String extractorVersion;
+    private final long timeout;
+
+    /**
+     * @param parser           the parser to decorate
+     * @param cache            the cache for extracted text, or <code>null</code> to only enforce the timeout
+     * @param extractorVersion version of the parser, part of the cache keys
+     * @param timeout          maximum time in milliseconds for parsing a single binary, or 0 for no timeout
+     */
+    public CachingTextExtractor(final Parser parser, final ExtractedTextCache cache,
+                                final String extractorVersion, final long timeout) {
+        super(parser);
+        this.cache = cache;
+        this.extractorVersion = extractorVersion;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void parse(final InputStream stream, final ContentHandler handler, final Metadata metadata,
+                      final ParseContext context) throws IOException, SAXException, TikaException {
+        final String key = getKey(metadata);
+        if (key != null) {
+            final String text = cache.get(key);
+            if (text != null) {
+                log.debug("Using cached text for binary {}", key);
+                final XHTMLContentHandler xhtml = new XHTMLContentHandler(handler, metadata);
+                xhtml.startDocument();
+                xhtml.characters(text);
+                xhtml.endDocument();
+                return;
+            }
+        }
+
+        final TextCapturingHandler capture = new TextCapturingHandler(handler, key != null,
+                timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE);
+        boolean completed = false;
+        try {
+            super.parse(stream, capture, metadata, context);
+            completed = true;
+        } finally {
+            if (capture.timedOut) {
+                log.warn("Text extraction of binary {} took longer than {} ms and was aborted",
+                        metadata.get(CONTENT_IDENTITY), timeout);
+            } else if (completed || capture.refused) {
+                // a refusing handler does not want more text, typically because it reached its write limit
+                store(key, capture);
+            }
+        }
+    }
+
+    private void store(final String key, final TextCapturingHandler capture) {
+        if (key != null && capture.text != null) {
+            cache.put(key, capture.text.toString());
+        }
+    }
+
+    private String getKey(final Metadata metadata) {
+        if (cache == null) {
+            return null;
+        }
+        final String identity = metadata.get(CONTENT_IDENTITY);
+        return identity != null ? identity + "/" + extractorVersion : null;
+    }
+
+    private static class TextCapturingHandler extends ContentHandlerDecorator {
+
+        private final long deadline;
+        private StringBuilder text;
+        private boolean refused;
+        private boolean timedOut;
+
+        private TextCapturingHandler(final ContentHandler handler, final boolean capture, final long deadline) {
+            super(handler);
+            this.text = capture ? new StringBuilder() : null;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void startElement(final String uri, final String localName, final String name,
+                                 final Attributes atts) throws SAXException {
+            checkDeadline();
+            super.startElement(uri, localName, name, atts);
+        }
+
+        @Override
+        public void characters(final char[] ch, final int start, final int length) throws SAXException {
+            checkDeadline();
+            capture(ch, start, length);
+            try {
+                super.characters(ch, start, length);
+            } catch (SAXException e) {
+                refused = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void ignorableWhitespace(final char[] ch, final int start, final int length) throws SAXException {
+            checkDeadline();
+            capture(ch, start, length);
+            try {
+                super.ignorableWhitespace(ch, start, length);
+            } catch (SAXException e) {
+                refused = true;
+                throw e;
+            }
+        }
+
+        private void capture(final char[] ch, final int start, final int length) {
+            if (text != null) {
+                if (text.length() + length > MAX_CACHED_LENGTH) {
+                    text = null;
+                } else {
+                    text.append(ch, start, length);
+                }
+            }
+        }
+
+        private void checkDeadline() throws SAXException {
+            if (System.currentTimeMillis() > deadline) {
+                timedOut = true;
+                text = null;
+                throw new SAXException("Text extraction timed out");
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.query.lucene;
+
+import java.io.IOException;
+
+/**
+ * Storage for the text extracted from binaries, so unchanged binaries do not have to be parsed again when the
+ * search index is rebuilt. Keys combine the data store identifier of the binary with the version of the text
+ * extractor, so a new extractor never sees text extracted by an older one.
+ * <p>
+ * Implementations are configured with the <code>extractedTextCacheClass</code> parameter of the search index and
+ * must have a public no-argument constructor. They are used concurrently by the text extractor threads.
+ */
+public interface ExtractedTextCache {
+
+    /**
+     * Called once before the cache is used.
+     *
+     * @param location the value of the <code>extractedTextCacheLocation</code> parameter of the search index, a
+     *                 relative location resolved against the directory that contains the index directory
+     */
+    void init(String location) throws IOException;
+
+    /**
+     * @return the text extracted before for <code>key</code>, or <code>null</code> if there is none
+     */
+    String get(String key);
+
+    void put(String key, String text);
+
+    void close();
+
+}
@@ -0,0 +1,122 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.query.lucene;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ExtractedTextCache} storing each extracted text as a gzipped file in a directory. The file name is the
+ * SHA-1 hash of the key, spread over subdirectories by its first characters to keep directories small.
+ * Files are written to a temporary file first and then renamed, so readers never see partially written text.
+ */
+public class FileExtractedTextCache implements ExtractedTextCache {
+
+    private static final Logger log = LoggerFactory.getLogger(FileExtractedTextCache.class);
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private File directory;
+
+    @Override
+    public void init(final String location) throws IOException {
+        if (location == null) {
+            throw new IOException("No location configured for the extracted text cache");
+        }
+        directory = new File(location);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create extracted text cache directory " + directory);
+        }
+        log.info("Caching extracted text in {}", directory.getAbsolutePath());
+    }
+
+    @Override
+    public String get(final String key) {
+        final File file = getFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            return IOUtils.toString(in, "UTF-8");
+        } catch (IOException e) {
+            log.warn("Cannot read extracted text from {}: {}", file, e.toString());
+            return null;
+        }
+    }
+
+    @Override
+    public void put(final String key, final String text) {
+        final File file = getFile(key);
+        final File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            log.warn("Cannot create extracted text cache directory {}", dir);
+            return;
+        }
+        File tmp = null;
+        try {
+            tmp = File.createTempFile(file.getName(), ".tmp", dir);
+            try (OutputStream out = new GZIPOutputStream(new FileOutputStream(tmp))) {
+                out.write(text.getBytes(StandardCharsets.UTF_8));
+            }
+            if (!tmp.renameTo(file)) {
+                // another thread stored the same text in the meantime
+                log.debug("Cannot rename {} to {}", tmp, file);
+            }
+        } catch (IOException e) {
+            log.warn("Cannot write extracted text to {}: {}", file, e.toString());
+        } finally {
+            if (tmp != null && tmp.exists() && !tmp.delete()) {
+                log.debug("Cannot delete {}", tmp);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    File getFile(final String key) {
+        final String hash = sha1(key);
+        return new File(new File(new File(directory, hash.substring(0, 2)), hash.substring(2, 4)), hash + ".txt.gz");
+    }
+
+    private static String sha1(final String key) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            final char[] chars = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                chars[2 * i] = HEX[(digest[i] >> 4) & 0xf];
+                chars[2 * i + 1] = HEX[digest[i] & 0xf];
+            }
+            return new String(chars);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+}
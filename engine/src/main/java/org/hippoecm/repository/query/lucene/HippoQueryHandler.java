@@ -17,6 +17,7 @@ package org.hippoecm.repository.query.lucene;
 
 import org.apache.jackrabbit.core.query.QueryHandler;
 import org.apache.jackrabbit.core.query.lucene.NamespaceMappings;
+import org.apache.lucene.search.Query;
 
 /**
  * Expose search index functionality necessary for building (optimized) queries.
@@ -27,4 +28,9 @@ public interface HippoQueryHandler extends QueryHandler {
 
     ServicingIndexingConfiguration getIndexingConfig();
 
+    /**
+     * @return a query matching the node with identifier <code>id</code> and all its descendants
+     */
+    Query getDescendantOrSelfQuery(String id);
+
 }
@@ -0,0 +1,237 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.query.lucene;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jackrabbit.core.id.NodeId;
+import org.apache.jackrabbit.core.query.lucene.FieldNames;
+import org.apache.jackrabbit.core.state.ItemStateException;
+import org.apache.jackrabbit.core.state.ItemStateManager;
+import org.apache.jackrabbit.core.state.NodeState;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.FieldCache;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.OpenBitSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves descendant-or-self constraints at query time from the parent id that Jackrabbit indexes for every node,
+ * instead of from the ids of all ancestors indexed by the {@link ServicingNodeIndexer}. Because a document then
+ * only contains its own parent id, moving a node only requires that node to be reindexed, not its descendants.
+ * <p>
+ * The hierarchy keeps the parent of every node that has child nodes in memory: the parent of any other node is
+ * read from its document. It is built from the index once and then maintained from the index updates.
+ * The {@link #getGeneration() generation} is incremented whenever a node with child nodes moves, as that changes
+ * the outcome of descendant queries for documents that are not reindexed. Results of these queries that are
+ * cached per index segment must be discarded when the generation changes.
+ */
+public class ParentIdHierarchy {
+
+    private static final Logger log = LoggerFactory.getLogger(ParentIdHierarchy.class);
+
+    /**
+     * Guards against cycles, which can only exist transiently while a concurrent update is applied
+     */
+    private static final int MAX_DEPTH = 10000;
+
+    private final Map<String, String> parents = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile boolean initialized;
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * Builds the hierarchy from the parent ids in the index.
+     *
+     * @param readers the readers of all index segments
+     */
+    public synchronized void initialize(final IndexReader[] readers) throws IOException {
+        if (initialized) {
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        final Set<String> parentIds = new HashSet<>();
+        for (IndexReader reader : readers) {
+            final String[] docParentIds = FieldCache.DEFAULT.getStrings(reader, FieldNames.PARENT);
+            for (int doc = 0; doc < docParentIds.length; doc++) {
+                if (docParentIds[doc] != null && !reader.isDeleted(doc)) {
+                    parentIds.add(docParentIds[doc]);
+                }
+            }
+        }
+        for (IndexReader reader : readers) {
+            final String[] docIds = FieldCache.DEFAULT.getStrings(reader, FieldNames.UUID);
+            final String[] docParentIds = FieldCache.DEFAULT.getStrings(reader, FieldNames.PARENT);
+            for (int doc = 0; doc < docIds.length; doc++) {
+                if (docIds[doc] != null && docParentIds[doc] != null && parentIds.contains(docIds[doc])
+                        && !reader.isDeleted(doc)) {
+                    parents.put(docIds[doc], docParentIds[doc]);
+                }
+            }
+        }
+        initialized = true;
+        log.info("Initialized hierarchy of {} nodes with child nodes in {} ms", parents.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Applies an index update. Nodes that are both removed and added are updated nodes.
+     *
+     * @param itemStateManager used to look up the parents of added nodes, which are not reindexed when they get
+     *                         their first child node
+     */
+    public synchronized void update(final Set<NodeId> removed, final Iterable<NodeState> added,
+                                    final ItemStateManager itemStateManager) {
+        if (!initialized) {
+            // the update is already in the index that the hierarchy will be built from
+            return;
+        }
+        final Set<String> addedIds = new HashSet<>();
+        for (NodeState state : added) {
+            final String id = state.getNodeId().toString();
+            addedIds.add(id);
+            final NodeId parentId = state.getParentId();
+            if (parentId == null) {
+                continue;
+            }
+            if (state.hasChildNodeEntries() || parents.containsKey(id)) {
+                final String previous = parents.put(id, parentId.toString());
+                if (previous != null && !previous.equals(parentId.toString())) {
+                    generation.incrementAndGet();
+                }
+            }
+            if (!parents.containsKey(parentId.toString())) {
+                addParent(parentId, itemStateManager);
+            }
+        }
+        for (NodeId nodeId : removed) {
+            final String id = nodeId.toString();
+            if (!addedIds.contains(id)) {
+                parents.remove(id);
+            }
+        }
+    }
+
+    private void addParent(final NodeId parentId, final ItemStateManager itemStateManager) {
+        try {
+            final NodeId grandParentId = ((NodeState) itemStateManager.getItemState(parentId)).getParentId();
+            if (grandParentId != null) {
+                parents.put(parentId.toString(), grandParentId.toString());
+            }
+        } catch (ItemStateException e) {
+            log.debug("Unable to retrieve parent state {}: {}", parentId, e.getMessage());
+        }
+    }
+
+    /**
+     * @return a number that is incremented every time a node with child nodes moves
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    int size() {
+        return parents.size();
+    }
+
+    /**
+     * @return a query matching the node with identifier <code>id</code> and all its descendants
+     */
+    public Query getDescendantOrSelfQuery(final String id) {
+        return new ConstantScoreQuery(new DescendantOrSelfFilter(id));
+    }
+
+    private boolean isDescendantOrSelf(final String nodeId, final Map<String, Boolean> known) {
+        final List<String> path = new ArrayList<>();
+        Boolean result = null;
+        String current = nodeId;
+        while (current != null && path.size() < MAX_DEPTH) {
+            result = known.get(current);
+            if (result != null) {
+                break;
+            }
+            path.add(current);
+            current = parents.get(current);
+        }
+        if (result == null) {
+            result = Boolean.FALSE;
+        }
+        for (String node : path) {
+            known.put(node, result);
+        }
+        return result;
+    }
+
+    private class DescendantOrSelfFilter extends Filter {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String id;
+
+        private DescendantOrSelfFilter(final String id) {
+            this.id = id;
+        }
+
+        @Override
+        public DocIdSet getDocIdSet(final IndexReader reader) throws IOException {
+            final String[] docIds = FieldCache.DEFAULT.getStrings(reader, FieldNames.UUID);
+            final String[] docParentIds = FieldCache.DEFAULT.getStrings(reader, FieldNames.PARENT);
+            final OpenBitSet bits = new OpenBitSet(reader.maxDoc());
+            final Map<String, Boolean> known = new HashMap<>();
+            known.put(id, Boolean.TRUE);
+            for (int doc = 0; doc < docIds.length; doc++) {
+                if (reader.isDeleted(doc)) {
+                    continue;
+                }
+                if (id.equals(docIds[doc])
+                        || (docParentIds[doc] != null && isDescendantOrSelf(docParentIds[doc], known))) {
+                    bits.set(doc);
+                }
+            }
+            return bits;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof DescendantOrSelfFilter && id.equals(((DescendantOrSelfFilter) obj).id);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "DescendantOrSelfFilter(" + id + ")";
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.query.lucene;
+
+import java.util.Arrays;
+
+import javax.jcr.NamespaceException;
+import javax.jcr.RepositoryException;
+import javax.jcr.query.InvalidQueryException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import org.apache.jackrabbit.core.SessionImpl;
+import org.apache.jackrabbit.core.session.SessionContext;
+import org.apache.jackrabbit.spi.commons.query.QueryNodeFactory;
+import org.apache.jackrabbit.spi.commons.query.QueryParser;
+import org.apache.jackrabbit.spi.commons.query.QueryRootNode;
+import org.hippoecm.repository.nodetypes.NodeTypesChangeTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of parsed query trees, shared by all sessions that query the same search index.
+ * <p>
+ * A query tree only contains qualified names, so it can be shared by sessions as long as they map the namespace
+ * prefixes in the statement to the same namespaces. The key of a tree therefore consists of the query language, the
+ * statement and a fingerprint of the namespace mappings of the session. Trees parsed before node types or namespaces
+ * changed, as reported by {@link NodeTypesChangeTracker}, are never returned again.
+ */
+public class QueryTreeCache {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryTreeCache.class);
+
+    private final Cache<Key, QueryRootNode> trees;
+    private volatile int nodeTypesChanges;
+    private volatile String lastFingerprint = "";
+
+    /**
+     * @param size the maximum number of query trees in the cache
+     */
+    public QueryTreeCache(final int size) {
+        trees = CacheBuilder.newBuilder().maximumSize(size).recordStats().build();
+        nodeTypesChanges = NodeTypesChangeTracker.getChangesCounter();
+    }
+
+    /**
+     * @return the cached query tree for <code>statement</code>, parsed when it is not cached yet
+     */
+    public QueryRootNode getQueryTree(final String statement, final String language,
+                                      final SessionContext sessionContext, final QueryNodeFactory factory)
+            throws InvalidQueryException {
+        final int changes = NodeTypesChangeTracker.getChangesCounter();
+        if (changes != nodeTypesChanges) {
+            nodeTypesChanges = changes;
+            trees.invalidateAll();
+        }
+
+        final Key key;
+        try {
+            key = new Key(changes, language, statement, getNamespaceFingerprint(sessionContext.getSessionImpl()));
+        } catch (RepositoryException e) {
+            log.warn("Cannot determine namespace mappings of session, query is not cached: " + e);
+            return QueryParser.parse(statement, language, sessionContext, factory);
+        }
+        QueryRootNode tree = trees.getIfPresent(key);
+        if (tree == null) {
+            // concurrent misses for the same statement parse it more than once, which is harmless
+            tree = QueryParser.parse(statement, language, sessionContext, factory);
+            trees.put(key, tree);
+        }
+        return tree;
+    }
+
+    public long size() {
+        return trees.size();
+    }
+
+    public long getHitCount() {
+        return trees.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return trees.stats().missCount();
+    }
+
+    public CacheStats getStats() {
+        return trees.stats();
+    }
+
+    public void clear() {
+        trees.invalidateAll();
+    }
+
+    private String getNamespaceFingerprint(final SessionImpl session) throws RepositoryException {
+        final String[] prefixes = session.getNamespacePrefixes();
+        Arrays.sort(prefixes);
+        final StringBuilder builder = new StringBuilder();
+        for (String prefix : prefixes) {
+            try {
+                builder.append(prefix).append('=').append(session.getNamespaceURI(prefix)).append(' ');
+            } catch (NamespaceException ignore) {
+                // unregistered concurrently
+            }
+        }
+        final String fingerprint = builder.toString();
+        // almost all sessions share the same mappings, keep a single copy of them for all keys
+        final String last = lastFingerprint;
+        if (fingerprint.equals(last)) {
+            return last;
+        }
+        lastFingerprint = fingerprint;
+        return fingerprint;
+    }
+
+    private static final class Key {
+
+        private final int nodeTypesChanges;
+        private final String language;
+        private final String statement;
+        private final String namespaces;
+        private final int hash;
+
+        private Key(final int nodeTypesChanges, final String language, final String statement, final String namespaces) {
+            this.nodeTypesChanges = nodeTypesChanges;
+            this.language = language;
+            this.statement = statement;
+            this.namespaces = namespaces;
+            this.hash = Arrays.hashCode(new Object[] { nodeTypesChanges, language, statement, namespaces });
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return nodeTypesChanges == other.nodeTypesChanges && language.equals(other.language)
+                    && statement.equals(other.statement) && namespaces.equals(other.namespaces);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
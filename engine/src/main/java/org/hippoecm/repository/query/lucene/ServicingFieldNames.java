@@ -51,6 +51,12 @@ public interface ServicingFieldNames {
      */
     public static final String HIPPO_UUIDS = "_:HIPPOUUID".intern();
 
+    /**
+     * Name of the field that contains the name of the node in the form of {@link org.apache.jackrabbit.spi.Name#toString()},
+     * so that it can be read from the index without accessing the parent node. The value is stored but not indexed.
+     */
+    public static final String HIPPO_NODE_NAME = "_:HIPPO_NODE_NAME".intern();
+
     /**
      * Prefix for all field names that are depth properties.
      */
@@ -15,7 +15,9 @@
  */
 package org.hippoecm.repository.query.lucene;
 
-import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
@@ -23,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import javax.jcr.ItemNotFoundException;
 import javax.jcr.NamespaceException;
@@ -31,7 +34,7 @@ import javax.jcr.RepositoryException;
 
 import com.google.common.collect.ImmutableSet;
 
-import org.apache.commons.io.IOUtils;
+import org.apache.jackrabbit.core.data.DataIdentifier;
 import org.apache.jackrabbit.core.id.PropertyId;
 import org.apache.jackrabbit.core.query.QueryHandlerContext;
 import org.apache.jackrabbit.core.query.lucene.DoubleField;
@@ -50,6 +53,8 @@ import org.apache.jackrabbit.spi.commons.conversion.NamePathResolver;
 import org.apache.jackrabbit.spi.commons.name.NameConstants;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Fieldable;
+import org.apache.tika.metadata.Metadata;
 import org.apache.tika.parser.Parser;
 import org.hippoecm.repository.api.HippoNodeType;
 import org.hippoecm.repository.util.DateTools;
@@ -75,6 +80,7 @@ public class ServicingNodeIndexer extends NodeIndexer {
     protected ServicingIndexingConfiguration servicingIndexingConfig;
     private boolean supportSimilarityOnStrings = true;
     private boolean supportSimilarityOnBinaries;
+    private boolean indexAncestorIds = true;
 
     private static Set<String> UNSUPPORTED_BINARY_TYPES = ImmutableSet.of(
             "application/x-archive",
@@ -95,7 +101,15 @@ public class ServicingNodeIndexer extends NodeIndexer {
             "image/x-xcf");
 
     public ServicingNodeIndexer(NodeState node, QueryHandlerContext context, NamespaceMappings mappings, Parser parser) {
-        super(node, context.getItemStateManager(), mappings, context.getExecutor(), parser);
+        this(node, context, mappings, context.getExecutor(), parser);
+    }
+
+    /**
+     * @param executor the executor binaries are parsed with
+     */
+    public ServicingNodeIndexer(NodeState node, QueryHandlerContext context, NamespaceMappings mappings,
+                                Executor executor, Parser parser) {
+        super(node, context.getItemStateManager(), mappings, executor, parser);
         this.queryHandlerContext = context;
     }
 
@@ -108,8 +122,10 @@ public class ServicingNodeIndexer extends NodeIndexer {
     public Document createDoc() throws RepositoryException {
         Document doc = super.createDoc();
 
-        // index ancestor uuids + self
-        indexUuidsHierarchy(doc);
+        if (indexAncestorIds) {
+            // index ancestor uuids + self
+            indexUuidsHierarchy(doc);
+        }
 
         addBinaries(doc);
 
@@ -275,6 +291,19 @@ public class ServicingNodeIndexer extends NodeIndexer {
         return new Field(FieldNames.FULLTEXT, false, value,Field.Store.NO, Field.Index.ANALYZED, tv);
     }
 
+    /**
+     * Creates the fulltext field for a binary. Overridden to pass the data store identifier of the binary to the
+     * parser, see {@link CachingTextExtractor}.
+     */
+    @Override
+    protected Fieldable createFulltextField(InternalValue value, Metadata metadata, boolean withNorms) {
+        final DataIdentifier identifier = value.getBLOBFileValue().getDataIdentifier();
+        if (identifier != null) {
+            metadata.set(CachingTextExtractor.CONTENT_IDENTITY, identifier.toString());
+        }
+        return super.createFulltextField(value, metadata, withNorms);
+    }
+
     @Override
     protected void throwRepositoryException(final Exception e) throws RepositoryException {
         if (e instanceof NoSuchItemStateException) {
@@ -361,13 +390,11 @@ public class ServicingNodeIndexer extends NodeIndexer {
 
     private void addHippoTextValue(final Document doc, final BinaryValue hippoTextBinaryValue) throws RepositoryException {
         log.debug("The '{}' property is present and thus will be used to index this binary", HippoNodeType.HIPPO_TEXT);
-        try {
-            final String hippoText = IOUtils.toString(hippoTextBinaryValue.internalValue.getStream(), "UTF-8");
-            // never store for binaries!
-            doc.add(createFulltextField(hippoText, false, supportSimilarityOnBinaries, true));
-        } catch (IOException e) {
-            log.warn("Exception during indexing hippo:text binary property", e);
-        }
+        // the text is streamed into the index, the reader is closed after the document has been indexed
+        final Reader hippoText = new InputStreamReader(hippoTextBinaryValue.internalValue.getStream(), StandardCharsets.UTF_8);
+        // never store for binaries!
+        doc.add(new Field(FieldNames.FULLTEXT, hippoText,
+                supportSimilarityOnBinaries ? Field.TermVector.YES : Field.TermVector.NO));
     }
 
     private String getHippoTextPropertyName() {
@@ -418,6 +445,10 @@ public class ServicingNodeIndexer extends NodeIndexer {
                 indexFacetProperty(doc, jcrName);
                 indexFacet(doc, jcrName, nodeName);
 
+                // store the internal node name, so that hits can be mapped onto child node entries without loading the parent
+                doc.add(new Field(ServicingFieldNames.HIPPO_NODE_NAME, child.getName().toString(), Field.Store.YES,
+                        Field.Index.NO));
+
                 // index the local name for full text search
                 indexNodeLocalName(doc, child.getName().getLocalName());
 
@@ -575,6 +606,14 @@ public class ServicingNodeIndexer extends NodeIndexer {
         this.supportSimilarityOnBinaries = supportSimilarityOnBinaries;
     }
 
+    /**
+     * Whether the ids of the node and all its ancestors are indexed, see {@link ParentIdHierarchy} for the
+     * alternative
+     */
+    public void setIndexAncestorIds(final boolean indexAncestorIds) {
+        this.indexAncestorIds = indexAncestorIds;
+    }
+
 
     @Override
     protected boolean isSupportedMediaType(final String type) {
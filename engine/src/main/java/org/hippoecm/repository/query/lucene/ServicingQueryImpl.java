@@ -0,0 +1,161 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.query.lucene;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.nodetype.PropertyDefinition;
+import javax.jcr.query.QueryResult;
+import javax.jcr.query.qom.QueryObjectModelFactory;
+
+import org.apache.jackrabbit.core.nodetype.NodeTypeImpl;
+import org.apache.jackrabbit.core.nodetype.PropertyDefinitionImpl;
+import org.apache.jackrabbit.core.query.PropertyTypeRegistry;
+import org.apache.jackrabbit.core.query.lucene.AbstractQueryImpl;
+import org.apache.jackrabbit.core.query.lucene.LuceneQueryBuilder;
+import org.apache.jackrabbit.core.query.lucene.QueryImpl;
+import org.apache.jackrabbit.core.query.lucene.SearchIndex;
+import org.apache.jackrabbit.core.session.SessionContext;
+import org.apache.jackrabbit.spi.Name;
+import org.apache.jackrabbit.spi.Path;
+import org.apache.jackrabbit.spi.QPropertyDefinition;
+import org.apache.jackrabbit.spi.commons.name.NameConstants;
+import org.apache.jackrabbit.spi.commons.query.AndQueryNode;
+import org.apache.jackrabbit.spi.commons.query.DefaultQueryNodeVisitor;
+import org.apache.jackrabbit.spi.commons.query.LocationStepQueryNode;
+import org.apache.jackrabbit.spi.commons.query.NodeTypeQueryNode;
+import org.apache.jackrabbit.spi.commons.query.OrderQueryNode;
+import org.apache.jackrabbit.spi.commons.query.QueryRootNode;
+import org.apache.jackrabbit.spi.commons.query.qom.ColumnImpl;
+import org.apache.lucene.search.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executable XPath or SQL query on a query tree that has been parsed before, see {@link QueryTreeCache}. The query
+ * tree is shared with other queries and must not be modified; the Lucene query is built from it on every execution.
+ */
+class ServicingQueryImpl extends AbstractQueryImpl {
+
+    private static final Logger log = LoggerFactory.getLogger(ServicingQueryImpl.class);
+
+    private final QueryRootNode root;
+
+    ServicingQueryImpl(final SessionContext sessionContext, final SearchIndex index,
+                       final PropertyTypeRegistry propReg, final QueryRootNode root) {
+        super(sessionContext, index, propReg);
+        this.root = root;
+    }
+
+    @Override
+    public QueryResult execute(long offset, long limit) throws RepositoryException {
+        if (log.isDebugEnabled()) {
+            log.debug("Executing query: \n" + root.dump());
+        }
+
+        // build lucene query
+        final Query query = LuceneQueryBuilder.createQuery(root, sessionContext.getSessionImpl(),
+                index.getContext().getItemStateManager(),
+                index.getNamespaceMappings(), index.getTextAnalyzer(),
+                propReg, index.getSynonymProvider(),
+                index.getIndexFormatVersion(), cache);
+
+        OrderQueryNode orderNode = root.getOrderNode();
+
+        OrderQueryNode.OrderSpec[] orderSpecs;
+        if (orderNode != null) {
+            orderSpecs = orderNode.getOrderSpecs();
+        } else {
+            orderSpecs = new OrderQueryNode.OrderSpec[0];
+        }
+        Path[] orderProperties = new Path[orderSpecs.length];
+        boolean[] ascSpecs = new boolean[orderSpecs.length];
+        String[] orderFuncs = new String[orderSpecs.length];
+        for (int i = 0; i < orderSpecs.length; i++) {
+            orderProperties[i] = orderSpecs[i].getPropertyPath();
+            ascSpecs[i] = orderSpecs[i].isAscending();
+            orderFuncs[i] = orderSpecs[i].getFunction();
+        }
+
+        return new HippoQueryResult(index, sessionContext,
+                this, query,
+                getColumns(), orderProperties, ascSpecs, orderFuncs,
+                orderProperties.length == 0 && getRespectDocumentOrder(),
+                offset, limit);
+    }
+
+    /**
+     * Same columns as the Jackrabbit {@link QueryImpl}: the selected properties or else the single valued properties
+     * of the node type of the last location step, followed by <code>jcr:path</code> and <code>jcr:score</code>.
+     */
+    protected ColumnImpl[] getColumns() throws RepositoryException {
+        final Map<Name, ColumnImpl> columns = new LinkedHashMap<>();
+        for (Name name : root.getSelectProperties()) {
+            columns.put(name, columnForName(name));
+        }
+        if (columns.isEmpty()) {
+            // use node type constraint
+            final LocationStepQueryNode[] steps = root.getLocationNode().getPathSteps();
+            final Name[] ntName = new Name[1];
+            steps[steps.length - 1].acceptOperands(new DefaultQueryNodeVisitor() {
+
+                @Override
+                public Object visit(final AndQueryNode node, final Object data) throws RepositoryException {
+                    return node.acceptOperands(this, data);
+                }
+
+                @Override
+                public Object visit(final NodeTypeQueryNode node, final Object data) {
+                    ntName[0] = node.getValue();
+                    return data;
+                }
+            }, null);
+            if (ntName[0] == null) {
+                ntName[0] = NameConstants.NT_BASE;
+            }
+            final NodeTypeImpl nt = sessionContext.getSessionImpl().getNodeTypeManager().getNodeType(ntName[0]);
+            for (PropertyDefinition pd : nt.getPropertyDefinitions()) {
+                final QPropertyDefinition propDef = ((PropertyDefinitionImpl) pd).unwrap();
+                if (!propDef.definesResidual() && !propDef.isMultiple()) {
+                    columns.put(propDef.getName(), columnForName(propDef.getName()));
+                }
+            }
+        }
+        // add jcr:path and jcr:score if not selected already
+        if (!columns.containsKey(NameConstants.JCR_PATH)) {
+            columns.put(NameConstants.JCR_PATH, columnForName(NameConstants.JCR_PATH));
+        }
+        if (!columns.containsKey(NameConstants.JCR_SCORE)) {
+            columns.put(NameConstants.JCR_SCORE, columnForName(NameConstants.JCR_SCORE));
+        }
+        return columns.values().toArray(new ColumnImpl[columns.size()]);
+    }
+
+    private ColumnImpl columnForName(final Name propertyName) throws RepositoryException {
+        final QueryObjectModelFactory qomFactory =
+                sessionContext.getSessionImpl().getWorkspace().getQueryManager().getQOMFactory();
+        final String name = sessionContext.getJCRName(propertyName);
+        return (ColumnImpl) qomFactory.column(sessionContext.getJCRName(QueryImpl.DEFAULT_SELECTOR_NAME), name, name);
+    }
+
+    @Override
+    protected boolean needsSystemTree() {
+        return root.needsSystemTree();
+    }
+
+}
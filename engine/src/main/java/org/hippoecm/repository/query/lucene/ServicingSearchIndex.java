@@ -27,7 +27,13 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.jcr.ItemNotFoundException;
 import javax.jcr.RepositoryException;
@@ -53,9 +59,9 @@ import org.apache.jackrabbit.core.query.lucene.FieldNames;
 import org.apache.jackrabbit.core.query.lucene.FilterMultiColumnQueryHits;
 import org.apache.jackrabbit.core.query.lucene.IndexFormatVersion;
 import org.apache.jackrabbit.core.query.lucene.IndexingConfigurationEntityResolver;
-import org.apache.jackrabbit.core.query.lucene.LuceneQueryBuilder;
 import org.apache.jackrabbit.core.query.lucene.MultiColumnQuery;
 import org.apache.jackrabbit.core.query.lucene.MultiColumnQueryHits;
+import org.apache.jackrabbit.core.query.lucene.MultiIndexReader;
 import org.apache.jackrabbit.core.query.lucene.NamespaceMappings;
 import org.apache.jackrabbit.core.query.lucene.Ordering;
 import org.apache.jackrabbit.core.query.lucene.QueryImpl;
@@ -72,14 +78,17 @@ import org.apache.jackrabbit.core.value.InternalValue;
 import org.apache.jackrabbit.spi.Name;
 import org.apache.jackrabbit.spi.Path;
 import org.apache.jackrabbit.spi.commons.conversion.NamePathResolver;
-import org.apache.jackrabbit.spi.commons.query.OrderQueryNode;
+import org.apache.jackrabbit.spi.commons.query.QueryRootNode;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Fieldable;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TermQuery;
+import org.apache.tika.parser.Parser;
 import org.hippoecm.repository.dataprovider.HippoNodeId;
 import org.hippoecm.repository.jackrabbit.InternalHippoSession;
 import org.hippoecm.repository.query.lucene.util.CachingMultiReaderQueryFilter;
@@ -110,6 +119,34 @@ public class ServicingSearchIndex extends SearchIndex implements HippoQueryHandl
 
     private boolean useSimpleFSDirectory = true;
 
+    /**
+     * Hierarchy encoding where every document contains the ids of the node and all its ancestors
+     */
+    public static final String HIERARCHY_ENCODING_ANCESTORS = "ancestors";
+
+    /**
+     * Hierarchy encoding where every document only contains the id of its parent, see {@link ParentIdHierarchy}
+     */
+    public static final String HIERARCHY_ENCODING_PARENT = "parent";
+
+    private String hierarchyEncoding = HIERARCHY_ENCODING_ANCESTORS;
+    private boolean keepAncestorIds = false;
+    private ParentIdHierarchy parentIdHierarchy;
+    private long authorizationFiltersHierarchyGeneration;
+
+    private int queryTreeCacheSize = 1000;
+    private QueryTreeCache queryTreeCache;
+
+    private String extractedTextCacheClass = FileExtractedTextCache.class.getName();
+    private String extractedTextCacheLocation;
+    private String extractorVersion;
+    private int textExtractorPoolSize = Runtime.getRuntime().availableProcessors();
+    private long textExtractorTimeout = 2 * 60 * 1000L;
+
+    private ExtractedTextCache extractedTextCache;
+    private Parser textExtractor;
+    private ThreadPoolExecutor textExtractorExecutor;
+
     /**
      * Whether similarity searches on String properties are supported.Supporting similarity on
      * Strings increases the Lucene index. If no similarity searches are needed, it is better
@@ -148,8 +185,149 @@ public class ServicingSearchIndex extends SearchIndex implements HippoQueryHandl
         this.slowAlwaysExactSizedQueryResult = slowAlwaysExactSizedQueryResult;
     }
 
+    /**
+     * How the hierarchy is encoded in the index for resolving descendant constraints: {@value
+     * #HIERARCHY_ENCODING_ANCESTORS} (default) indexes the ids of all ancestors with every node, {@value
+     * #HIERARCHY_ENCODING_PARENT} only uses the parent id of every node so moving a node does not require its
+     * descendants to be reindexed. Switching to {@value #HIERARCHY_ENCODING_PARENT} does not require a reindex.
+     */
+    public void setHierarchyEncoding(final String hierarchyEncoding) {
+        if (HIERARCHY_ENCODING_PARENT.equals(hierarchyEncoding)) {
+            this.hierarchyEncoding = HIERARCHY_ENCODING_PARENT;
+            parentIdHierarchy = new ParentIdHierarchy();
+        } else {
+            if (!HIERARCHY_ENCODING_ANCESTORS.equals(hierarchyEncoding)) {
+                log.warn("Unknown hierarchy encoding '{}', using '{}'", hierarchyEncoding, HIERARCHY_ENCODING_ANCESTORS);
+            }
+            this.hierarchyEncoding = HIERARCHY_ENCODING_ANCESTORS;
+            parentIdHierarchy = null;
+        }
+    }
+
+    public String getHierarchyEncoding() {
+        return hierarchyEncoding;
+    }
+
+    /**
+     * Migration flag for the {@value #HIERARCHY_ENCODING_PARENT} hierarchy encoding: keep indexing the ids of all
+     * ancestors, so the index stays usable when switching back to the {@value #HIERARCHY_ENCODING_ANCESTORS}
+     * encoding. Without it, switching back requires the index to be rebuilt.
+     */
+    public void setKeepAncestorIds(final boolean keepAncestorIds) {
+        this.keepAncestorIds = keepAncestorIds;
+    }
+
+    public boolean getKeepAncestorIds() {
+        return keepAncestorIds;
+    }
+
+    @Override
+    public Query getDescendantOrSelfQuery(final String id) {
+        if (parentIdHierarchy == null) {
+            return new TermQuery(new Term(ServicingFieldNames.HIPPO_UUIDS, id));
+        }
+        if (!parentIdHierarchy.isInitialized()) {
+            try {
+                final IndexReader reader = getIndexReader();
+                try {
+                    parentIdHierarchy.initialize(reader instanceof MultiIndexReader ?
+                            ((MultiIndexReader) reader).getIndexReaders() : new IndexReader[] { reader });
+                } finally {
+                    Util.closeOrRelease(reader);
+                }
+            } catch (IOException e) {
+                log.error("Cannot initialize the index hierarchy, using ancestor ids instead", e);
+                return new TermQuery(new Term(ServicingFieldNames.HIPPO_UUIDS, id));
+            }
+        }
+        return parentIdHierarchy.getDescendantOrSelfQuery(id);
+    }
+
+    /**
+     * Directory in which the text extracted from binaries is cached, so binaries are not parsed again when the
+     * index is rebuilt. A relative location is resolved against the directory that contains the index directory,
+     * the workspace home in the default configuration, as the index directory itself is removed when the index is
+     * rebuilt. Caching is disabled when no location is configured.
+     */
+    public void setExtractedTextCacheLocation(final String extractedTextCacheLocation) {
+        this.extractedTextCacheLocation = extractedTextCacheLocation;
+    }
+
+    public String getExtractedTextCacheLocation() {
+        return extractedTextCacheLocation;
+    }
+
+    /**
+     * Class name of the {@link ExtractedTextCache} implementation, by default a {@link FileExtractedTextCache}
+     */
+    public void setExtractedTextCacheClass(final String extractedTextCacheClass) {
+        this.extractedTextCacheClass = extractedTextCacheClass;
+    }
+
+    public String getExtractedTextCacheClass() {
+        return extractedTextCacheClass;
+    }
+
+    /**
+     * Version of the text extractor that is part of the keys of the extracted text cache. Defaults to the version
+     * of Tika, change it to invalidate the cache when the extraction configuration changes.
+     */
+    public void setExtractorVersion(final String extractorVersion) {
+        this.extractorVersion = extractorVersion;
+    }
+
+    public String getExtractorVersion() {
+        return extractorVersion;
+    }
+
+    /**
+     * Number of threads that extract text from binaries, defaults to the number of processors
+     */
+    public void setTextExtractorPoolSize(final int textExtractorPoolSize) {
+        this.textExtractorPoolSize = textExtractorPoolSize;
+    }
+
+    public int getTextExtractorPoolSize() {
+        return textExtractorPoolSize;
+    }
+
+    /**
+     * Maximum time in milliseconds for extracting the text of a single binary, 0 for no limit. Defaults to two
+     * minutes. Binaries that take longer are indexed without the remaining text.
+     */
+    public void setTextExtractorTimeout(final long textExtractorTimeout) {
+        this.textExtractorTimeout = textExtractorTimeout;
+    }
+
+    public long getTextExtractorTimeout() {
+        return textExtractorTimeout;
+    }
+
+    /**
+     * Maximum number of parsed XPath and SQL queries that are cached, defaults to 1000
+     */
+    public void setQueryTreeCacheSize(final int queryTreeCacheSize) {
+        this.queryTreeCacheSize = queryTreeCacheSize;
+    }
+
+    public int getQueryTreeCacheSize() {
+        return queryTreeCacheSize;
+    }
+
     private final Cache<String, CachingMultiReaderQueryFilter> cache = CacheBuilder.newBuilder().expireAfterAccess(10, TimeUnit.MINUTES).build();
 
+    /**
+     * Incremented after every index update, so results derived from the index can be cached until it changes
+     */
+    private final AtomicLong indexGeneration = new AtomicLong();
+
+    /**
+     * @return a number that is incremented every time the index is updated
+     */
+    public long getIndexGeneration() {
+        return indexGeneration.get();
+    }
+
     /**
      * @return the authorization bitset and <code>null</code> when every bit is allowed to be read
      * @throws IOException
@@ -162,6 +340,12 @@ public class ServicingSearchIndex extends SearchIndex implements HippoQueryHandl
             return null;
         }
 
+        if (parentIdHierarchy != null && parentIdHierarchy.getGeneration() != authorizationFiltersHierarchyGeneration) {
+            // the cached filters contain descendant constraints that are no longer valid after a move
+            authorizationFiltersHierarchyGeneration = parentIdHierarchy.getGeneration();
+            cache.invalidateAll();
+        }
+
         String userId = session.getUserID();
         CachingMultiReaderQueryFilter filter = cache.getIfPresent(userId);
         InternalHippoSession internalHippoSession = (InternalHippoSession) session;
@@ -266,50 +450,24 @@ public class ServicingSearchIndex extends SearchIndex implements HippoQueryHandl
             SessionContext sessionContext, String statement, String language)
             throws InvalidQueryException {
 
-        QueryImpl query = new QueryImpl(sessionContext, this,
-                getContext().getPropertyTypeRegistry(), statement, language, getQueryNodeFactory()) {
-            @Override
-            public QueryResult execute(long offset, long limit) throws RepositoryException {
-                if (log.isDebugEnabled()) {
-                    log.debug("Executing query: \n" + root.dump());
-                }
-
-                // build lucene query
-                final Query query = LuceneQueryBuilder.createQuery(root, sessionContext.getSessionImpl(),
-                        index.getContext().getItemStateManager(),
-                        index.getNamespaceMappings(), index.getTextAnalyzer(),
-                        propReg, index.getSynonymProvider(),
-                        index.getIndexFormatVersion(), cache);
-
-                OrderQueryNode orderNode = root.getOrderNode();
-
-                OrderQueryNode.OrderSpec[] orderSpecs;
-                if (orderNode != null) {
-                    orderSpecs = orderNode.getOrderSpecs();
-                } else {
-                    orderSpecs = new OrderQueryNode.OrderSpec[0];
-                }
-                Path[] orderProperties = new Path[orderSpecs.length];
-                boolean[] ascSpecs = new boolean[orderSpecs.length];
-                String[] orderFuncs = new String[orderSpecs.length];
-                for (int i = 0; i < orderSpecs.length; i++) {
-                    orderProperties[i] = orderSpecs[i].getPropertyPath();
-                    ascSpecs[i] = orderSpecs[i].isAscending();
-                    orderFuncs[i] = orderSpecs[i].getFunction();
-                }
-
-
-                return new HippoQueryResult(index, sessionContext,
-                        this, query,
-                        getColumns(), orderProperties, ascSpecs, orderFuncs,
-                        orderProperties.length == 0 && getRespectDocumentOrder(),
-                        offset, limit);
-            }
-        };
+        final QueryRootNode root = getQueryTreeCache().getQueryTree(statement, language, sessionContext,
+                getQueryNodeFactory());
+        final AbstractQueryImpl query = new ServicingQueryImpl(sessionContext, this,
+                getContext().getPropertyTypeRegistry(), root);
         query.setRespectDocumentOrder(getRespectDocumentOrder());
         return query;
     }
 
+    /**
+     * @return the cache of parsed XPath and SQL queries
+     */
+    public synchronized QueryTreeCache getQueryTreeCache() {
+        if (queryTreeCache == null) {
+            queryTreeCache = new QueryTreeCache(queryTreeCacheSize);
+        }
+        return queryTreeCache;
+    }
+
 
     /**
      * Returns the document element of the indexing configuration or
@@ -414,9 +572,15 @@ public class ServicingSearchIndex extends SearchIndex implements HippoQueryHandl
         //  now filter out documents that have a 'skip index' marker
         Map<NodeId, NodeState> includedNodeStates = getSkipIndexFilteredNodeStates(augmentedAdd);
 
-        super.updateNodes(augmentedRemove.iterator(),
-                includedNodeStates.values().iterator());
-
+        try {
+            super.updateNodes(augmentedRemove.iterator(),
+                    includedNodeStates.values().iterator());
+            if (parentIdHierarchy != null) {
+                parentIdHierarchy.update(augmentedRemove, includedNodeStates.values(), getItemStateManager());
+            }
+        } finally {
+            indexGeneration.incrementAndGet();
+        }
     }
 
     private Map<NodeId, NodeState> getSkipIndexFilteredNodeStates(final Map<NodeId, NodeState> augmentedAdd) throws RepositoryException {
@@ -513,12 +677,14 @@ public class ServicingSearchIndex extends SearchIndex implements HippoQueryHandl
             return null;
         }
 
-        ServicingNodeIndexer indexer = new ServicingNodeIndexer(node, getContext(), nsMappings, getParser());
+        ServicingNodeIndexer indexer = new ServicingNodeIndexer(node, getContext(), nsMappings,
+                getTextExtractorExecutor(), getTextExtractor());
 
         indexer.setSupportHighlighting(getSupportHighlighting());
         indexer.setSupportSimilarityOnStrings(getSupportSimilarityOnStrings());
         indexer.setSupportSimilarityOnBinaries(getSupportSimilarityOnBinaries());
         indexer.setServicingIndexingConfiguration(getIndexingConfig());
+        indexer.setIndexAncestorIds(parentIdHierarchy == null || keepAncestorIds);
         indexer.setIndexFormatVersion(indexFormatVersion);
         Document doc = indexer.createDoc();
         mergeAggregatedNodeIndexes(node, doc, indexFormatVersion);
@@ -541,6 +707,77 @@ public class ServicingSearchIndex extends SearchIndex implements HippoQueryHandl
     }
 
 
+    private synchronized Executor getTextExtractorExecutor() {
+        if (textExtractorExecutor == null) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            final ThreadFactory threadFactory = new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "hippo-text-extractor-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            };
+            final int poolSize = Math.max(1, textExtractorPoolSize);
+            textExtractorExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), threadFactory);
+            textExtractorExecutor.allowCoreThreadTimeOut(true);
+        }
+        return textExtractorExecutor;
+    }
+
+    private synchronized Parser getTextExtractor() {
+        if (textExtractor == null) {
+            String version = extractorVersion;
+            if (version == null) {
+                version = Parser.class.getPackage().getImplementationVersion();
+            }
+            textExtractor = new CachingTextExtractor(getParser(), createExtractedTextCache(),
+                    version != null ? version : "unknown", textExtractorTimeout);
+        }
+        return textExtractor;
+    }
+
+    private ExtractedTextCache createExtractedTextCache() {
+        if (extractedTextCacheLocation == null) {
+            return null;
+        }
+        try {
+            File location = new File(extractedTextCacheLocation);
+            if (!location.isAbsolute()) {
+                location = new File(new File(getPath()).getAbsoluteFile().getParentFile(), extractedTextCacheLocation);
+            }
+            final ExtractedTextCache cache = (ExtractedTextCache) Class.forName(extractedTextCacheClass).newInstance();
+            cache.init(location.getPath());
+            extractedTextCache = cache;
+            return cache;
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | ClassCastException | IOException e) {
+            log.error("Cannot create extracted text cache, binaries are parsed every time they are indexed", e);
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        synchronized (this) {
+            if (textExtractorExecutor != null) {
+                textExtractorExecutor.shutdownNow();
+                textExtractorExecutor = null;
+            }
+            if (extractedTextCache != null) {
+                extractedTextCache.close();
+                extractedTextCache = null;
+            }
+            textExtractor = null;
+            if (queryTreeCache != null) {
+                log.info("Query tree cache statistics: {}", queryTreeCache.getStats());
+                queryTreeCache = null;
+            }
+        }
+    }
+
     private boolean skipIndexing(final NodeState node,
                                  final Set<NodeId> excludedIdsCache,
                                  final Set<NodeId> includedIdsCache) throws RepositoryException {
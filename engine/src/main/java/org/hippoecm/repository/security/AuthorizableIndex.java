@@ -0,0 +1,346 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.security;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Property;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
+
+import org.apache.jackrabbit.commons.iterator.NodeIteratorAdapter;
+import org.hippoecm.repository.util.NodeIterable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory index of the users or groups below a path, from node name to node identifier and ordered by node name.
+ * <p>
+ * The index is loaded when it is started and kept up to date by observation of nodes being added, removed or moved
+ * below the path. As observation is asynchronous, changes become visible in the index shortly after they are saved;
+ * callers that need to see their own (pending) changes must fall back to looking up nodes by path.
+ * <p>
+ * Optionally the values of a multi-valued members property are indexed as well, both per node and per member, so
+ * that the memberships of many users can be resolved without visiting any group node.
+ */
+public class AuthorizableIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthorizableIndex.class);
+
+    private static final class Entry {
+
+        private final String name;
+        private final String identifier;
+        private final String path;
+        private final Set<String> members;
+
+        private Entry(final Node node, final String membersProperty) throws RepositoryException {
+            this.name = node.getName();
+            this.identifier = node.getIdentifier();
+            this.path = node.getPath();
+            this.members = membersProperty != null ? getValues(node, membersProperty) : Collections.<String>emptySet();
+        }
+
+        private static Set<String> getValues(final Node node, final String propertyName) throws RepositoryException {
+            if (!node.hasProperty(propertyName)) {
+                return Collections.emptySet();
+            }
+            final Property property = node.getProperty(propertyName);
+            if (!property.isMultiple()) {
+                return Collections.singleton(property.getString());
+            }
+            final Set<String> values = new HashSet<>();
+            for (Value value : property.getValues()) {
+                values.add(value.getString());
+            }
+            return Collections.unmodifiableSet(values);
+        }
+    }
+
+    private final Session session;
+    private final String path;
+    private final String nodeType;
+    private final String folderNodeType;
+    private final String membersProperty;
+
+    private final ConcurrentNavigableMap<String, Entry> byName = new ConcurrentSkipListMap<>();
+    private final Map<String, Entry> byIdentifier = new ConcurrentHashMap<>();
+    /**
+     * From member to the names of the nodes listing it; the sets are immutable and replaced when they change
+     */
+    private final Map<String, Set<String>> byMember = new ConcurrentHashMap<>();
+
+    private final EventListener listener = new EventListener() {
+        @Override
+        public void onEvent(final EventIterator events) {
+            update(events);
+        }
+    };
+
+    /**
+     * @param session  the session used for loading the index and processing events, owned by the index
+     * @param path  the path, relative to the root, below which the users or groups are stored
+     * @param nodeType  the node type of the indexed nodes
+     * @param folderNodeType  the node type of the folders in which the indexed nodes may be stored
+     */
+    public AuthorizableIndex(final Session session, final String path, final String nodeType, final String folderNodeType) {
+        this(session, path, nodeType, folderNodeType, null);
+    }
+
+    /**
+     * @param session  the session used for loading the index and processing events, owned by the index
+     * @param path  the path, relative to the root, below which the users or groups are stored
+     * @param nodeType  the node type of the indexed nodes
+     * @param folderNodeType  the node type of the folders in which the indexed nodes may be stored
+     * @param membersProperty  the name of the property of the indexed nodes listing their members, or
+     *                         <code>null</code> if members are not indexed
+     */
+    public AuthorizableIndex(final Session session, final String path, final String nodeType, final String folderNodeType,
+                             final String membersProperty) {
+        this.session = session;
+        this.path = path.startsWith("/") ? path : "/" + path;
+        this.nodeType = nodeType;
+        this.folderNodeType = folderNodeType;
+        this.membersProperty = membersProperty;
+    }
+
+    public void start() throws RepositoryException {
+        int eventTypes = Event.NODE_ADDED | Event.NODE_REMOVED | Event.NODE_MOVED;
+        if (membersProperty != null) {
+            eventTypes |= Event.PROPERTY_ADDED | Event.PROPERTY_CHANGED | Event.PROPERTY_REMOVED;
+        }
+        // register before loading so no change gets lost, events are applied to the current state anyway
+        session.getWorkspace().getObservationManager().addEventListener(listener, eventTypes, path, true, null, null, false);
+        synchronized (this) {
+            if (session.nodeExists(path)) {
+                index(session.getNode(path));
+            }
+        }
+        log.info("Indexed {} nodes of type {} below {}", byName.size(), nodeType, path);
+    }
+
+    public void stop() {
+        // note session logout also removes the listener
+        session.logout();
+    }
+
+    /**
+     * @return the identifier of the node with name <code>name</code>, or <code>null</code> if it is not indexed
+     */
+    public String getIdentifier(final String name) {
+        final Entry entry = byName.get(name);
+        return entry != null ? entry.identifier : null;
+    }
+
+    public int size() {
+        return byName.size();
+    }
+
+    /**
+     * @return whether the members of the indexed nodes are indexed as well
+     */
+    public boolean isIndexingMembers() {
+        return membersProperty != null;
+    }
+
+    /**
+     * @return the members listed by the node with name <code>name</code>, or <code>null</code> if it is not indexed;
+     * the returned set is immutable
+     */
+    public Set<String> getMembers(final String name) {
+        final Entry entry = byName.get(name);
+        return entry != null ? entry.members : null;
+    }
+
+    /**
+     * @return the names of the nodes listing <code>member</code> as one of their members; the returned set is
+     * immutable
+     */
+    public Set<String> getMemberOf(final String member) {
+        final Set<String> names = byMember.get(member);
+        return names != null ? names : Collections.<String>emptySet();
+    }
+
+    /**
+     * Get the indexed nodes in the order of their names, as far as they are accessible by <code>session</code>.
+     * Nodes are only loaded while iterating, entries skipped because of <code>after</code> or <code>offset</code>
+     * are not loaded at all.
+     *
+     * @param session  the session to load the nodes with
+     * @param after  only return nodes of which the name comes after this name; <code>null</code> to start at the
+     *               first node
+     * @param offset  the number of entries to skip; only has effect when value is larger than zero
+     * @param limit  the maximum number of nodes to return; only has effect when value is larger than zero
+     */
+    public NodeIterator getNodes(final Session session, final String after, final long offset, final long limit) {
+        final Iterator<Entry> entries = (after != null ? byName.tailMap(after, false) : byName).values().iterator();
+        for (long skipped = 0; skipped < offset && entries.hasNext(); skipped++) {
+            entries.next();
+        }
+        return new NodeIteratorAdapter(new Iterator<Node>() {
+
+            private long count = 0;
+            private Node next;
+
+            @Override
+            public boolean hasNext() {
+                fetchNext();
+                return next != null;
+            }
+
+            @Override
+            public Node next() {
+                fetchNext();
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                final Node result = next;
+                next = null;
+                count++;
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            private void fetchNext() {
+                while (next == null && (limit <= 0 || count < limit) && entries.hasNext()) {
+                    final Entry entry = entries.next();
+                    try {
+                        next = session.getNodeByIdentifier(entry.identifier);
+                    } catch (ItemNotFoundException ignore) {
+                        // removed in the mean time, or not readable by the session
+                    } catch (RepositoryException e) {
+                        log.warn("Failed to load node {}: {}", entry.path, e.toString());
+                    }
+                }
+            }
+        });
+    }
+
+    private synchronized void update(final EventIterator events) {
+        while (events.hasNext()) {
+            final Event event = events.nextEvent();
+            try {
+                if (event.getType() == Event.NODE_REMOVED) {
+                    unindex(event.getIdentifier(), event.getPath());
+                } else if (isPropertyEvent(event)) {
+                    // the identifier of a property event is the one of its parent node
+                    if (event.getPath().endsWith("/" + membersProperty)) {
+                        final Node node = session.getNodeByIdentifier(event.getIdentifier());
+                        if (node.isNodeType(nodeType) && node.getPath().startsWith(path + "/")) {
+                            index(node);
+                        }
+                    }
+                } else {
+                    // added, or moved within the indexed path: (re)index the current state of the node
+                    final Node node = session.getNodeByIdentifier(event.getIdentifier());
+                    if (node.getPath().startsWith(path + "/")) {
+                        index(node);
+                    }
+                }
+            } catch (ItemNotFoundException ignore) {
+                // removed again before the event was processed, its removal event follows
+            } catch (RepositoryException e) {
+                log.error("Failed to update index of " + path + " for event " + event, e);
+            }
+        }
+    }
+
+    private static boolean isPropertyEvent(final Event event) {
+        return (event.getType() & (Event.PROPERTY_ADDED | Event.PROPERTY_CHANGED | Event.PROPERTY_REMOVED)) != 0;
+    }
+
+    private void index(final Node node) throws RepositoryException {
+        if (node.isNodeType(nodeType)) {
+            final Entry entry = new Entry(node, membersProperty);
+            final Entry previous = byIdentifier.put(entry.identifier, entry);
+            if (previous != null) {
+                // renamed, or its members changed
+                byName.remove(previous.name, previous);
+                removeMembers(previous);
+            }
+            byName.put(entry.name, entry);
+            addMembers(entry);
+        } else if (node.isNodeType(folderNodeType) || node.getPath().equals(path)) {
+            for (Node child : new NodeIterable(node.getNodes())) {
+                index(child);
+            }
+        }
+    }
+
+    private void unindex(final String identifier, final String removedPath) {
+        final Entry entry = byIdentifier.get(identifier);
+        if (entry != null) {
+            // a node that moved within the indexed path may already be indexed at its new path
+            if (entry.path.equals(removedPath)) {
+                remove(entry);
+            }
+        } else {
+            // a folder; its descendants may have been moved away together with it
+            final String prefix = removedPath + "/";
+            for (Entry descendant : byIdentifier.values()) {
+                if (descendant.path.startsWith(prefix)) {
+                    remove(descendant);
+                }
+            }
+        }
+    }
+
+    private void remove(final Entry entry) {
+        byIdentifier.remove(entry.identifier);
+        byName.remove(entry.name, entry);
+        removeMembers(entry);
+    }
+
+    private void addMembers(final Entry entry) {
+        for (String member : entry.members) {
+            final Set<String> names = new HashSet<>(getMemberOf(member));
+            names.add(entry.name);
+            byMember.put(member, Collections.unmodifiableSet(names));
+        }
+    }
+
+    private void removeMembers(final Entry entry) {
+        for (String member : entry.members) {
+            final Set<String> names = new HashSet<>(getMemberOf(member));
+            names.remove(entry.name);
+            if (names.isEmpty()) {
+                byMember.remove(member);
+            } else {
+                byMember.put(member, Collections.unmodifiableSet(names));
+            }
+        }
+    }
+
+}
@@ -23,7 +23,8 @@ import org.apache.jackrabbit.core.id.ItemId;
 /**
  * Cache access permissions for the HippoAccessManager
  * User <code>HippoAccessCache.getInstance(userId)<code> to
- * get a cache for the given userId. The cache is thread safe.
+ * get a cache for the given userId. The cache is thread safe, as it is
+ * also invalidated by item state notifications from other threads.
  */
 public class HippoAccessCache {
 
@@ -60,7 +61,7 @@ public class HippoAccessCache {
      * @param id ItemId
      * @return cached value or null when not in cache
      */
-    public Boolean get(ItemId id) {
+    public synchronized Boolean get(ItemId id) {
         if (maxCacheSize < 1) {
             return null;
         }
@@ -79,7 +80,7 @@ public class HippoAccessCache {
      * @param id ItemId the key
      * @param isGranted the value
      */
-    public void put(ItemId id, boolean isGranted) {
+    public synchronized void put(ItemId id, boolean isGranted) {
         if (maxCacheSize < 1) {
             return;
         }
@@ -90,7 +91,7 @@ public class HippoAccessCache {
      * Remove key-value from cache
      * @param id ItemId the key
      */
-    public void remove(ItemId id) {
+    public synchronized void remove(ItemId id) {
         if (maxCacheSize < 1) {
             return;
         }
@@ -100,7 +101,7 @@ public class HippoAccessCache {
     /**
      * Clear the cache
      */
-    public void clear() {
+    public synchronized void clear() {
         if (maxCacheSize < 1) {
             return;
         }
@@ -111,7 +112,7 @@ public class HippoAccessCache {
      * The current number of items in the cache
      * @return int
      */
-    public int getSize() {
+    public synchronized int getSize() {
         int size;
         size = readAccessCache.size();
         return size;
@@ -121,7 +122,7 @@ public class HippoAccessCache {
      * Total number of times this cache is accessed
      * @return long
      */
-    public long getAccesses() {
+    public synchronized long getAccesses() {
         return accesses;
     }
 
@@ -129,7 +130,7 @@ public class HippoAccessCache {
      * Total number of cache hits
      * @return long
      */
-    public long getHits() {
+    public synchronized long getHits() {
         return hits;
     }
 
@@ -137,7 +138,7 @@ public class HippoAccessCache {
      * Total number of cache misses
      * @return long
      */
-    public long getMisses() {
+    public synchronized long getMisses() {
         return misses;
     }
 
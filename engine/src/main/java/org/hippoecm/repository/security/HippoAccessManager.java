@@ -17,6 +17,7 @@ package org.hippoecm.repository.security;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -33,8 +34,6 @@ import javax.jcr.PathNotFoundException;
 import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
 import javax.jcr.nodetype.NoSuchNodeTypeException;
-import javax.jcr.nodetype.NodeType;
-import javax.jcr.nodetype.NodeTypeIterator;
 import javax.jcr.nodetype.NodeTypeManager;
 import javax.jcr.security.AccessControlException;
 import javax.jcr.security.AccessControlManager;
@@ -102,7 +101,7 @@ public class HippoAccessManager implements AccessManager, AccessControlManager,
     /**
      * Intermediate readAccess state for current thread {@link #canRead(NodeId)} processing
      */
-    private final Set<NodeId> inprocessNodeReadAccess = new HashSet<>();
+    private final ThreadLocal<Set<NodeId>> inprocessNodeReadAccess = new ThreadLocal<>();
 
     /**
      * Subject whose access rights this AccessManager should reflect
@@ -163,7 +162,7 @@ public class HippoAccessManager implements AccessManager, AccessControlManager,
      * The HippoAccessCache instance
      */
     private HippoAccessCache readAccessCache;
-    private WeakHashMap<HippoNodeId, Boolean> readVirtualAccessCache;
+    private Map<HippoNodeId, Boolean> readVirtualAccessCache;
 
     private static final int DEFAULT_PERM_CACHE_SIZE = 20000;
 
@@ -193,7 +192,6 @@ public class HippoAccessManager implements AccessManager, AccessControlManager,
     private List<String> userIds = new ArrayList<String>();
 
     private final List<String> groupIds = new ArrayList<String>();
-    private final List<String> currentDomainRoleIds = new ArrayList<String>();
 
     private Map<String, Collection<QFacetRule>> extendedFacetRules;
 
@@ -276,7 +274,7 @@ public class HippoAccessManager implements AccessManager, AccessControlManager,
             initializeExtendedFacetRules(filterPrincipals);
         }
         readAccessCache = new HippoAccessCache(cacheSize);
-        readVirtualAccessCache = new WeakHashMap<>();
+        readVirtualAccessCache = Collections.synchronizedMap(new WeakHashMap<HippoNodeId, Boolean>());
 
         // we're done
         initialized = true;
@@ -311,7 +309,6 @@ public class HippoAccessManager implements AccessManager, AccessControlManager,
         readVirtualAccessCache.clear();
         //requestItemStateCache.clear();
         groupIds.clear();
-        currentDomainRoleIds.clear();
 
         log.info("Closed HippoAccessManager for user " + getUserIdAsString());
     }
@@ -497,14 +494,19 @@ public class HippoAccessManager implements AccessManager, AccessControlManager,
         }
 
         // because the getItemState(id) call below will recursively call us (canRead(id)) again
-        // we allow that call to succeed here by caching read access in the inprocessNodeReadAccess instance variable,
+        // we allow that call to succeed here by caching read access in the inprocessNodeReadAccess thread local,
         // which will be returned from getAccessFromCache(NodeId) if set instead of looking it up in the
-        // backing cache. Note: the HippoAccessManager itself is accessed thread safe.
+        // backing cache. Being thread local, concurrent checks on the same node by other threads are not affected.
         // This way we can then use the item state to do the work of determining if the read access is indeed allowed
         // after which we put the real result in the cache before returning.
         // if we wouldn't do this we'd have an infinite loop on our hands
+        Set<NodeId> inprocess = inprocessNodeReadAccess.get();
+        if (inprocess == null) {
+            inprocess = new HashSet<>();
+            inprocessNodeReadAccess.set(inprocess);
+        }
         try {
-            inprocessNodeReadAccess.add(id);
+            inprocess.add(id);
 
             if (log.isDebugEnabled()) {
                 log.debug("Checking canRead for node: {}", npRes.getJCRPath(hierMgr.getPath(id)));
@@ -553,12 +555,16 @@ public class HippoAccessManager implements AccessManager, AccessControlManager,
             return false;
         }
         finally {
-            inprocessNodeReadAccess.remove(id);
+            inprocess.remove(id);
+            if (inprocess.isEmpty()) {
+                inprocessNodeReadAccess.remove();
+            }
         }
     }
 
     private Boolean getAccessFromCache(NodeId id) {
-        if (inprocessNodeReadAccess.contains(id)) {
+        final Set<NodeId> inprocess = inprocessNodeReadAccess.get();
+        if (inprocess != null && inprocess.contains(id)) {
             return Boolean.TRUE;
         }
         if (id instanceof HippoNodeId) {
@@ -629,9 +635,6 @@ public class HippoAccessManager implements AccessManager, AccessControlManager,
         log.trace("Checking if node : {} is in domain of {}", nodeState.getId(), fap);
         boolean isInDomain = false;
 
-        currentDomainRoleIds.clear();
-        currentDomainRoleIds.addAll(fap.getRoles());
-
         // check is node matches ONE of the domain rules
         for (DomainRule domainRule : fap.getRules()) {
 
@@ -645,7 +648,7 @@ public class HippoAccessManager implements AccessManager, AccessControlManager,
             }
             // check if node matches ALL of the facet rules
             for (QFacetRule facetRule : facetRules) {
-                if (!matchFacetRule(nodeState, facetRule)) {
+                if (!matchFacetRule(nodeState, facetRule, fap.getRoles())) {
                     allRulesMatched = false;
                     log.trace("Rule doesn't match for : {} facet rule: {}", nodeState.getId(), facetRule);
                     break;
@@ -695,11 +698,12 @@ public class HippoAccessManager implements AccessManager, AccessControlManager,
      * Check if a node matches the current QFacetRule
      * @param nodeState the state of the node to check
      * @param facetRule the facet rule to check
+     * @param domainRoleIds the roles of the domain the facet rule belongs to
      * @return true if the node matches the facet rule
      * @throws RepositoryException
      * @see org.hippoecm.repository.security.domain.QFacetRule
      */
-    private boolean matchFacetRule(NodeState nodeState, QFacetRule facetRule) throws RepositoryException {
+    private boolean matchFacetRule(NodeState nodeState, QFacetRule facetRule, Set<String> domainRoleIds) throws RepositoryException {
         log.trace("Checking node : {} for facet rule: {}", nodeState.getId(), facetRule);
 
         // is this a 'NodeType' facet rule?
@@ -799,7 +803,7 @@ public class HippoAccessManager implements AccessManager, AccessControlManager,
         }
 
         // check if node has the required property value
-        if (matchPropertyWithFacetRule(nodeState, facetRule)) {
+        if (matchPropertyWithFacetRule(nodeState, facetRule, domainRoleIds)) {
             log.trace("Found match : {} for facetVal: {}", nodeState.getId(), facetRule);
             return true;
         }
@@ -876,33 +880,7 @@ public class HippoAccessManager implements AccessManager, AccessControlManager,
             return true;
         }
 
-        Boolean isInstance = ntIOCache.get(nodeStateType, nodeType);
-        if (isInstance != null) {
-            return isInstance;
-        }
-
-        // get iterator over all types
-        NodeTypeIterator allTypes = ntMgr.getAllNodeTypes();
-        NodeType nodeStateNodeType = ntMgr.getNodeType(nodeStateType);
-
-        // iterate over All NodeTypes untill...
-        while (allTypes.hasNext()) {
-            NodeType nt = allTypes.nextNodeType();
-            // the correct NodeType is found
-            if (nt.equals(nodeStateNodeType)) {
-                // get all supertypes of the nodeState's primaryType's NodeType
-                NodeType[] superTypes = nt.getSupertypes();
-                // check if one of the superTypes matches the nodeType
-                for (NodeType type : superTypes) {
-                    if (type.getName().equals(nodeType)) {
-                        ntIOCache.put(nodeStateType, nodeType, true);
-                        return true;
-                    }
-                }
-            }
-        }
-        ntIOCache.put(nodeStateType, nodeType, false);
-        return false;
+        return ntIOCache.isInstanceOf(ntMgr, nodeStateType, nodeType);
     }
 
     /**
@@ -910,11 +888,12 @@ public class HippoAccessManager implements AccessManager, AccessControlManager,
      * check on the properties of the node.
      * @param nodeState the state of the node to check
      * @param rule the facet rule to check
+     * @param domainRoleIds the roles of the domain the facet rule belongs to
      * @return true if the node matches the facet rule
      * @throws RepositoryException
      * @see org.hippoecm.repository.security.domain.QFacetRule
      */
-    private boolean matchPropertyWithFacetRule(NodeState nodeState, QFacetRule rule) throws RepositoryException {
+    private boolean matchPropertyWithFacetRule(NodeState nodeState, QFacetRule rule, Set<String> domainRoleIds) throws RepositoryException {
 
         boolean match = false;
 
@@ -1004,7 +983,7 @@ public class HippoAccessManager implements AccessManager, AccessControlManager,
                     }
                 }
                 if (FacetAuthConstants.EXPANDER_ROLE.equals(rule.getValue())) {
-                    if (isUser && currentDomainRoleIds.contains(iVal.getString())) {
+                    if (isUser && domainRoleIds.contains(iVal.getString())) {
                         match = true;
                         break;
                     }
@@ -1315,74 +1294,6 @@ public class HippoAccessManager implements AccessManager, AccessControlManager,
         }
     }
 
-    /**
-     * Simple Cache for <String, <String,Boolean>> key-value pairs
-     */
-    private static class NodeTypeInstanceOfCache {
-
-        /**
-         * The cache map
-         */
-        private static Map<String, Map<String, Boolean>> map = new WeakHashMap<String, Map<String, Boolean>>();
-
-        private static NodeTypeInstanceOfCache cache = new NodeTypeInstanceOfCache();
-
-        /**
-         * Create a new LRU cache
-         */
-        private NodeTypeInstanceOfCache() {
-        }
-
-        private static NodeTypeInstanceOfCache getInstance() {
-            return cache;
-        }
-
-        /**
-         * Fetch cache value
-         * @return cached value or null when not in cache
-         */
-        synchronized public Boolean get(String type, String instanceOfType) {
-            Map<String, Boolean> typeMap = map.get(instanceOfType);
-            if (typeMap != null) {
-                return typeMap.get(type);
-            }
-            return null;
-        }
-
-        /**
-         * Store key-value in cache
-         */
-        synchronized public void put(String type, String instanceOfType, boolean isInstanceOf) {
-            Map<String, Boolean> typeMap = map.get(instanceOfType);
-            if (typeMap == null) {
-                typeMap = new WeakHashMap<String, Boolean>();
-            }
-            typeMap.put(type, isInstanceOf);
-            map.put(instanceOfType, typeMap);
-        }
-
-        /**
-         * Remove key-value from cache
-         */
-        synchronized public void remove(String type, String instanceOfType) {
-            Map<String, Boolean> typeMap = map.get(instanceOfType);
-            if (typeMap == null) {
-                return;
-            }
-
-            if (typeMap.containsKey(type)) {
-                map.remove(type);
-            }
-        }
-
-        /**
-         * Clear the cache
-         */
-        synchronized public void clear() {
-            map.clear();
-        }
-    }
-
     //---------------------------- ACCESS CONTROL MANAGER ---------------------------//
 
     /**
@@ -50,6 +50,11 @@ public class ManagerContext {
 
     private boolean maintenanceMode;
 
+    /**
+     * The index of the users or groups below the target path, may be null
+     */
+    private final AuthorizableIndex index;
+
     /**
      * Initialize the context for the repository based authentication and authorization.
      * @param session Session The system/root session
@@ -58,11 +63,24 @@ public class ManagerContext {
      * @param session the providers own session
      */
     public ManagerContext(Session session, String providerPath, String path, boolean maintenanceMode) throws RepositoryException {
+        this(session, providerPath, path, maintenanceMode, null);
+    }
+
+    /**
+     * Initialize the context for the repository based authentication and authorization.
+     * @param session Session The system/root session
+     * @param path the path for exposing information e.g. hippo:users, hippo:groups, etc.
+     * @param providerPath the path to the configuration of this provider
+     * @param index the index of the users or groups below the path, or null if not available
+     */
+    public ManagerContext(Session session, String providerPath, String path, boolean maintenanceMode,
+                          AuthorizableIndex index) throws RepositoryException {
         this.session = session;
         this.providerPath = providerPath;
         this.providerId = providerPath.substring(providerPath.lastIndexOf('/') + 1);
         this.path = path;
         this.maintenanceMode = maintenanceMode;
+        this.index = index;
     }
 
     /**
@@ -102,4 +120,12 @@ public class ManagerContext {
     public boolean isMaintenanceMode() {
         return maintenanceMode;
     }
+
+    /**
+     * Get the index of the users or groups below the path to expose information for.
+     * @return the index, or null if the managers have to do without
+     */
+    public AuthorizableIndex getIndex() {
+        return index;
+    }
 }
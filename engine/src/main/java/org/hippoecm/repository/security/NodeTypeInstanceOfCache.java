@@ -0,0 +1,111 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.security;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.nodetype.NodeType;
+import javax.jcr.nodetype.NodeTypeIterator;
+import javax.jcr.nodetype.NodeTypeManager;
+
+import org.hippoecm.repository.nodetypes.NodeTypesChangeTracker;
+
+/**
+ * Repository wide cache for determining whether a node type is an instance of another node type, shared by the
+ * access managers of all sessions.
+ * <p>
+ * The cache holds an immutable matrix of all node types with all their supertypes. Lookups only read the current
+ * matrix and do not lock. The matrix is recomputed as a whole when the node types change, as reported by
+ * {@link NodeTypesChangeTracker}, or when a node type is asked for that is not in the matrix yet, as the tracker
+ * reports changes asynchronously. A node type that is still unknown after recomputing is remembered as such until
+ * the node types change, so that asking for it again does not recompute the matrix.
+ */
+class NodeTypeInstanceOfCache {
+
+    private static final NodeTypeInstanceOfCache cache = new NodeTypeInstanceOfCache();
+
+    private volatile Matrix matrix = new Matrix(-1, Collections.<String, Set<String>>emptyMap());
+
+    NodeTypeInstanceOfCache() {
+    }
+
+    static NodeTypeInstanceOfCache getInstance() {
+        return cache;
+    }
+
+    /**
+     * @param ntMgr the node type manager used to compute the matrix when it is out of date
+     * @param type the name of the node type to check
+     * @param instanceOfType the name of the (super) node type
+     * @return whether <code>type</code> equals or is a subtype of <code>instanceOfType</code>
+     */
+    boolean isInstanceOf(NodeTypeManager ntMgr, String type, String instanceOfType) throws RepositoryException {
+        if (type.equals(instanceOfType)) {
+            return true;
+        }
+        Matrix current = matrix;
+        final int changes = NodeTypesChangeTracker.getChangesCounter();
+        if (current.changes != changes || (!current.supertypes.containsKey(type) && !current.unknown.contains(type))) {
+            current = refresh(ntMgr, changes);
+        }
+        final Set<String> supertypes = current.supertypes.get(type);
+        if (supertypes == null) {
+            current.unknown.add(type);
+            return false;
+        }
+        return supertypes.contains(instanceOfType);
+    }
+
+    /**
+     * Computes and publishes a new matrix. Concurrent refreshes are harmless, they compute the same matrix.
+     */
+    private Matrix refresh(NodeTypeManager ntMgr, int changes) throws RepositoryException {
+        final Map<String, Set<String>> supertypes = new HashMap<>();
+        for (NodeTypeIterator types = ntMgr.getAllNodeTypes(); types.hasNext(); ) {
+            final NodeType type = types.nextNodeType();
+            final Set<String> names = new HashSet<>();
+            for (NodeType supertype : type.getSupertypes()) {
+                names.add(supertype.getName());
+            }
+            supertypes.put(type.getName(), Collections.unmodifiableSet(names));
+        }
+        final Matrix refreshed = new Matrix(changes, Collections.unmodifiableMap(supertypes));
+        matrix = refreshed;
+        return refreshed;
+    }
+
+    int size() {
+        return matrix.supertypes.size();
+    }
+
+    private static final class Matrix {
+
+        private final int changes;
+        private final Map<String, Set<String>> supertypes;
+        private final Set<String> unknown = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        private Matrix(final int changes, final Map<String, Set<String>> supertypes) {
+            this.changes = changes;
+            this.supertypes = supertypes;
+        }
+    }
+}
@@ -33,11 +33,13 @@ public class RepositorySecurityProvider extends AbstractSecurityProvider {
 
         ManagerContext mgrContext;
 
-        mgrContext = new ManagerContext(context.getSession(), context.getProviderPath(), context.getUsersPath(), context.isMaintenanceMode());
+        mgrContext = new ManagerContext(context.getSession(), context.getProviderPath(), context.getUsersPath(),
+                context.isMaintenanceMode(), context.getUsersIndex());
         userManager = new RepositoryUserManager();
         ((AbstractUserManager)userManager).init(mgrContext);
 
-        mgrContext = new ManagerContext(context.getSession(), context.getProviderPath(), context.getGroupsPath(), context.isMaintenanceMode());
+        mgrContext = new ManagerContext(context.getSession(), context.getProviderPath(), context.getGroupsPath(),
+                context.isMaintenanceMode(), context.getGroupsIndex());
         groupManager = new RepositoryGroupManager();
         groupManager.init(mgrContext);
     }
@@ -45,7 +47,7 @@ public class RepositorySecurityProvider extends AbstractSecurityProvider {
     @Override
     public UserManager getUserManager(final Session session) throws RepositoryException {
         final ManagerContext mgrContext = new ManagerContext(session, context.getProviderPath(),
-                context.getUsersPath(), context.isMaintenanceMode());
+                context.getUsersPath(), context.isMaintenanceMode(), context.getUsersIndex());
         final RepositoryUserManager userManager = new RepositoryUserManager();
         userManager.init(mgrContext);
         return userManager;
@@ -54,7 +56,7 @@ public class RepositorySecurityProvider extends AbstractSecurityProvider {
     @Override
     public GroupManager getGroupManager(final Session session) throws RepositoryException {
         final ManagerContext mgrContext = new ManagerContext(session, context.getProviderPath(),
-                context.getGroupsPath(), context.isMaintenanceMode());
+                context.getGroupsPath(), context.isMaintenanceMode(), context.getGroupsIndex());
         final RepositoryGroupManager groupManager = new RepositoryGroupManager();
         groupManager.init(mgrContext);
         return groupManager;
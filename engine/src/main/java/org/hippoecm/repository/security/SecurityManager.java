@@ -108,13 +108,20 @@ public class SecurityManager implements HippoSecurityManager {
 
     private AuthContextProvider authCtxProvider;
 
+    private AuthorizableIndex usersIndex;
+    private AuthorizableIndex groupsIndex;
+
     public void configure() throws RepositoryException {
         Node configNode = systemSession.getRootNode().getNode(SECURITY_CONFIG_PATH);
         usersPath = configNode.getProperty(HippoNodeType.HIPPO_USERSPATH).getString();
         groupsPath = configNode.getProperty(HippoNodeType.HIPPO_GROUPSPATH).getString();
         rolesPath = configNode.getProperty(HippoNodeType.HIPPO_ROLESPATH).getString();
         domainsPath = configNode.getProperty(HippoNodeType.HIPPO_DOMAINSPATH).getString();
-        SecurityProviderFactory spf = new SecurityProviderFactory(SECURITY_CONFIG_PATH, usersPath, groupsPath, rolesPath, domainsPath, maintenanceMode);
+        usersIndex = createIndex(usersPath, HippoNodeType.NT_USER, HippoNodeType.NT_USERFOLDER, null);
+        groupsIndex = createIndex(groupsPath, HippoNodeType.NT_GROUP, HippoNodeType.NT_GROUPFOLDER,
+                HippoNodeType.HIPPO_MEMBERS);
+        SecurityProviderFactory spf = new SecurityProviderFactory(SECURITY_CONFIG_PATH, usersPath, groupsPath, rolesPath, domainsPath, maintenanceMode,
+                usersIndex, groupsIndex);
 
         StringBuilder statement = new StringBuilder();
         statement.append("SELECT * FROM ").append(HippoNodeType.NT_SECURITYPROVIDER);
@@ -153,6 +160,20 @@ public class SecurityManager implements HippoSecurityManager {
         }
     }
 
+    private AuthorizableIndex createIndex(final String path, final String nodeType, final String folderNodeType,
+                                          final String membersProperty) {
+        try {
+            final Session indexSession = systemSession.impersonate(new SimpleCredentials("system", new char[]{}));
+            final AuthorizableIndex index = new AuthorizableIndex(indexSession, path, nodeType, folderNodeType,
+                    membersProperty);
+            index.start();
+            return index;
+        } catch (RepositoryException e) {
+            log.error("Failed to index " + path + ", user and group managers will do without: " + e);
+            return null;
+        }
+    }
+
     class HippoJAASAuthContext extends JAASAuthContext {
         public HippoJAASAuthContext(String appName, CallbackHandler cbHandler, Subject subject) {
             super(appName, cbHandler, subject);
@@ -682,6 +703,14 @@ public class SecurityManager implements HippoSecurityManager {
     }
 
     public void close() {
+        if (usersIndex != null) {
+            usersIndex.stop();
+            usersIndex = null;
+        }
+        if (groupsIndex != null) {
+            groupsIndex.stop();
+            groupsIndex = null;
+        }
     }
 
    public AuthContext getAuthContext(Credentials credentials, Subject subject, String workspaceName) throws RepositoryException {
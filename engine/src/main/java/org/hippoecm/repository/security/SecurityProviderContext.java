@@ -34,9 +34,17 @@ public class SecurityProviderContext {
     private final String rolesPath;
     private final String domainsPath;
     private final boolean isMaintenanceMode;
+    private final AuthorizableIndex usersIndex;
+    private final AuthorizableIndex groupsIndex;
 
     public SecurityProviderContext(Session session, String providerId, String securityPath, String usersPath,
             String groupsPath, String rolesPath, String domainsPath, boolean isMaintenanceMode) throws RepositoryException {
+        this(session, providerId, securityPath, usersPath, groupsPath, rolesPath, domainsPath, isMaintenanceMode, null, null);
+    }
+
+    public SecurityProviderContext(Session session, String providerId, String securityPath, String usersPath,
+            String groupsPath, String rolesPath, String domainsPath, boolean isMaintenanceMode,
+            AuthorizableIndex usersIndex, AuthorizableIndex groupsIndex) throws RepositoryException {
         this.session = session;
         this.providerId = providerId;
         this.securityPath = securityPath;
@@ -46,6 +54,8 @@ public class SecurityProviderContext {
         this.rolesPath = rolesPath;
         this.domainsPath = domainsPath;
         this.isMaintenanceMode = isMaintenanceMode;
+        this.usersIndex = usersIndex;
+        this.groupsIndex = groupsIndex;
     }
 
     public Session getSession() {
@@ -83,4 +93,12 @@ public class SecurityProviderContext {
     public boolean isMaintenanceMode() {
         return isMaintenanceMode;
     }
+
+    public AuthorizableIndex getUsersIndex() {
+        return usersIndex;
+    }
+
+    public AuthorizableIndex getGroupsIndex() {
+        return groupsIndex;
+    }
 }
@@ -32,14 +32,23 @@ public class SecurityProviderFactory {
     private final String rolesPath;
     private final String domainsPath;
     private boolean isMaintenance = false;
+    private final AuthorizableIndex usersIndex;
+    private final AuthorizableIndex groupsIndex;
 
     public SecurityProviderFactory(String securityPath, String usersPath, String groupsPath, String rolesPath, String domainsPath, boolean isMaintenance) {
+        this(securityPath, usersPath, groupsPath, rolesPath, domainsPath, isMaintenance, null, null);
+    }
+
+    public SecurityProviderFactory(String securityPath, String usersPath, String groupsPath, String rolesPath, String domainsPath, boolean isMaintenance,
+                                   AuthorizableIndex usersIndex, AuthorizableIndex groupsIndex) {
         this.securityPath = securityPath;
         this.usersPath = usersPath;
         this.groupsPath = groupsPath;
         this.rolesPath = rolesPath;
         this.domainsPath = domainsPath;
         this.isMaintenance = isMaintenance;
+        this.usersIndex = usersIndex;
+        this.groupsIndex = groupsIndex;
     }
 
     /**
@@ -63,7 +72,8 @@ public class SecurityProviderFactory {
 
         // create new session for each provider
         Session providerSession = session.impersonate(new SimpleCredentials("system", new char[] {}));
-        SecurityProviderContext context = new SecurityProviderContext(providerSession, providerId, securityPath, usersPath, groupsPath, rolesPath, domainsPath, isMaintenance);
+        SecurityProviderContext context = new SecurityProviderContext(providerSession, providerId, securityPath, usersPath, groupsPath, rolesPath, domainsPath, isMaintenance,
+                usersIndex, groupsIndex);
         sp.init(context);
         return sp;
     }
@@ -15,12 +15,18 @@
  */
 package org.hippoecm.repository.security.group;
 
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.jcr.InvalidItemStateException;
+import javax.jcr.ItemNotFoundException;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.Property;
@@ -34,6 +40,7 @@ import javax.transaction.NotSupportedException;
 import org.apache.jackrabbit.commons.iterator.NodeIteratorAdapter;
 import org.hippoecm.repository.api.HippoNodeType;
 import org.hippoecm.repository.api.NodeNameCodec;
+import org.hippoecm.repository.security.AuthorizableIndex;
 import org.hippoecm.repository.security.ManagerContext;
 import org.hippoecm.repository.util.JcrUtils;
 import org.hippoecm.repository.util.NodeIterable;
@@ -85,6 +92,11 @@ public abstract class AbstractGroupManager implements GroupManager {
      */
     private int dirLevels = 0;
 
+    /**
+     * Index of the groups below the groups path, null when the context does not provide one
+     */
+    private AuthorizableIndex index;
+
     /**
      * Logger
      */
@@ -95,6 +107,7 @@ public abstract class AbstractGroupManager implements GroupManager {
         this.groupsPath = context.getPath();
         this.providerId = context.getProviderId();
         this.providerPath = context.getProviderPath();
+        this.index = context.getIndex();
         setDirLevels();
         initManager(context);
     }
@@ -107,6 +120,9 @@ public abstract class AbstractGroupManager implements GroupManager {
         if (!isInitialized()) {
             throw new IllegalStateException("Not initialized.");
         }
+        if (getIndexedGroup(rawGroupId) != null) {
+            return true;
+        }
         String path = buildGroupPath(rawGroupId);
         if (session.getRootNode().hasNode(path)) {
             Node group = session.getRootNode().getNode(path);
@@ -121,6 +137,11 @@ public abstract class AbstractGroupManager implements GroupManager {
         if (!isInitialized()) {
             throw new IllegalStateException("Not initialized.");
         }
+        final Node indexed = getIndexedGroup(rawGroupId);
+        if (indexed != null) {
+            return indexed;
+        }
+        // not (yet) indexed: pending in this session, or saved but the index has not caught up
         String path = buildGroupPath(rawGroupId);
         if (session.getRootNode().hasNode(path)) {
             Node group = session.getRootNode().getNode(path);
@@ -133,6 +154,34 @@ public abstract class AbstractGroupManager implements GroupManager {
         return null;
     }
 
+    private Node getIndexedGroup(String rawGroupId) throws RepositoryException {
+        if (index == null || rawGroupId == null) {
+            return null;
+        }
+        return getIndexedGroupByName(NodeNameCodec.encode(sanitizeId(rawGroupId), true));
+    }
+
+    /**
+     * @return the indexed group node with the given (encoded) name, or null if it is not indexed or not readable
+     */
+    private Node getIndexedGroupByName(String groupName) {
+        final String identifier = index.getIdentifier(groupName);
+        if (identifier == null) {
+            return null;
+        }
+        try {
+            final Node group = session.getNodeByIdentifier(identifier);
+            if (group.getPrimaryNodeType().isNodeType(NT_GROUP)) {
+                return group;
+            }
+        } catch (ItemNotFoundException ignore) {
+            // removed, possibly only in this session
+        } catch (RepositoryException e) {
+            log.warn("Failed to load group {}: {}", groupName, e.toString());
+        }
+        return null;
+    }
+
     /**
      * Create a group node. Use the getNodeType to determine the type the node
      * should be.
@@ -176,6 +225,9 @@ public abstract class AbstractGroupManager implements GroupManager {
         if (!isInitialized()) {
             throw new IllegalStateException("Not initialized.");
         }
+        if (providerId == null && index != null) {
+            return index.getNodes(session, null, offset, limit);
+        }
         final StringBuilder statement = new StringBuilder();
         statement.append("//element");
         statement.append("(*, ").append(NT_GROUP).append(")");
@@ -198,6 +250,26 @@ public abstract class AbstractGroupManager implements GroupManager {
         return result.getNodes();
     }
 
+    @Override
+    public NodeIterator listGroupsAfter(final String groupId, final long limit) throws RepositoryException {
+        if (!isInitialized()) {
+            throw new IllegalStateException("Not initialized.");
+        }
+        if (index != null) {
+            return index.getNodes(session, groupId, 0, limit);
+        }
+        final List<Node> groups = new ArrayList<>();
+        for (Node group : new NodeIterable(listGroups(null, 0, 0))) {
+            if (limit > 0 && groups.size() >= limit) {
+                break;
+            }
+            if (groupId == null || group.getName().compareTo(groupId) > 0) {
+                groups.add(group);
+            }
+        }
+        return new NodeIteratorAdapter(groups);
+    }
+
     /**
      * Helper for building group path including the groupname itself. Takes care of the encoding
      * of the path AND the groupId (the eventual node name)
@@ -310,6 +382,72 @@ public abstract class AbstractGroupManager implements GroupManager {
         return groupIds;
     }
 
+    /**
+     * Resolves the memberships from the members indexed by the groups index, when there is one. Otherwise, or for users
+     * whose memberships were changed in the session of the manager, the groups are walked for every user. Changes
+     * saved by other sessions show up once the index has processed their events.
+     */
+    public final Map<String, Set<String>> getMembershipIds(Collection<String> userIds) throws RepositoryException {
+        final Map<String, Set<String>> memberships = new HashMap<>(userIds.size());
+        if (index == null || !index.isIndexingMembers() || session.hasPendingChanges()) {
+            for (String userId : userIds) {
+                memberships.put(userId, Collections.unmodifiableSet(getMembershipIds(userId)));
+            }
+            return Collections.unmodifiableMap(memberships);
+        }
+        // a group listing everybody is looked up once, as are the groups listing more than one of the users
+        final Map<String, Boolean> readable = new HashMap<>();
+        final Set<String> everybody = getReadableGroupIds(index.getMemberOf("*"), readable);
+        for (String userId : userIds) {
+            final Set<String> groupIds = new HashSet<>(everybody);
+            if (userId != null) {
+                final String member = NodeNameCodec.decode(sanitizeId(userId));
+                groupIds.addAll(getReadableGroupIds(index.getMemberOf(member), readable));
+            }
+            memberships.put(userId, Collections.unmodifiableSet(groupIds));
+        }
+        return Collections.unmodifiableMap(memberships);
+    }
+
+    private Set<String> getReadableGroupIds(final Set<String> groupNames, final Map<String, Boolean> readable) {
+        final Set<String> groupIds = new HashSet<>();
+        for (String groupName : groupNames) {
+            Boolean isReadable = readable.get(groupName);
+            if (isReadable == null) {
+                isReadable = getIndexedGroupByName(groupName) != null;
+                readable.put(groupName, isReadable);
+            }
+            if (isReadable) {
+                groupIds.add(NodeNameCodec.decode(groupName));
+            }
+        }
+        return groupIds;
+    }
+
+    public final Map<String, Set<String>> getMemberIds(Collection<String> groupIds) throws RepositoryException {
+        final Map<String, Set<String>> members = new HashMap<>(groupIds.size());
+        final boolean useIndex = index != null && index.isIndexingMembers() && !session.hasPendingChanges();
+        for (String groupId : groupIds) {
+            if (groupId == null) {
+                continue;
+            }
+            if (useIndex) {
+                final String groupName = NodeNameCodec.encode(sanitizeId(groupId), true);
+                final Set<String> indexed = index.getMembers(groupName);
+                if (indexed != null && getIndexedGroupByName(groupName) != null) {
+                    members.put(groupId, indexed);
+                    continue;
+                }
+            }
+            // not (yet) indexed
+            final Node group = getGroup(groupId);
+            if (group != null) {
+                members.put(groupId, Collections.unmodifiableSet(getMembers(group)));
+            }
+        }
+        return Collections.unmodifiableMap(members);
+    }
+
     private Set<Node> getMembershipsByPath(String userId, String providerId, Node groupFolder, int level) {
         final Set<Node> groups = new HashSet<>();
         try {
@@ -15,6 +15,8 @@
  */
 package org.hippoecm.repository.security.group;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 import javax.jcr.Node;
@@ -127,6 +129,29 @@ public interface GroupManager {
      */
     public Set<String> getMembers(Node group) throws RepositoryException;
 
+    /**
+     * Get the memberships of many users at once, regardless of the provider of the groups. Only groups that
+     * are readable by the session of the manager are included. Unlike {@link #getMemberships(String)}, the result is
+     * eventually consistent when it is resolved from the groups index, which is updated asynchronously.
+     *
+     * @param userIds the unparsed ids of the users
+     * @return an immutable map from each of the given user ids to the immutable set of ids of the groups the user is
+     * a member of
+     * @throws RepositoryException
+     */
+    public Map<String, Set<String>> getMembershipIds(Collection<String> userIds) throws RepositoryException;
+
+    /**
+     * Get the members of many groups at once. Unlike {@link #getMembers(Node)}, the result is eventually consistent
+     * when it is resolved from the groups index, which is updated asynchronously.
+     *
+     * @param groupIds the unparsed ids of the groups
+     * @return an immutable map from the ids of the given groups that exist and are readable by the session of the
+     * manager to the immutable set of their member ids
+     * @throws RepositoryException
+     */
+    public Map<String, Set<String>> getMemberIds(Collection<String> groupIds) throws RepositoryException;
+
     /**
      * Get all the groups, regardless of their provider.
      *
@@ -143,6 +168,18 @@ public interface GroupManager {
      */
     public NodeIterator listGroups(String providerId, long offset, long limit) throws RepositoryException;
 
+    /**
+     * Get the groups, regardless of their provider, ordered by id and starting after a particular group. Use the id
+     * of the last group of a page as the cursor for the next page, so that deep pages don't need to skip all the
+     * groups of the pages before.
+     *
+     * @param groupId the id of the group after which to start, <code>null</code> to start at the first group
+     * @param limit the maximum number of groups to return, only has effect when larger than zero
+     * @return an iterator of group nodes
+     * @throws RepositoryException
+     */
+    public NodeIterator listGroupsAfter(String groupId, long limit) throws RepositoryException;
+
     /**
      * Set members of a group
      * @param group
@@ -15,11 +15,13 @@
  */
 package org.hippoecm.repository.security.service;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 import javax.jcr.ItemNotFoundException;
 import javax.jcr.Node;
@@ -73,104 +75,40 @@ public final class SecurityServiceImpl implements SecurityService {
 
     @Override
     public Iterable<User> getUsers(final long offset, final long limit) throws RepositoryException {
-        return new Iterable<User>() {
+        return new UserIterable() {
             @Override
-            public Iterator<User> iterator() {
-                try {
-                    return new Iterator<User>() {
-
-                        private final NodeIterator nodeIterator = internalUserManager.listUsers(offset, limit);
-                        private User next;
-
-                        @Override
-                        public boolean hasNext() {
-                            fetchNext();
-                            return next != null;
-                        }
-
-                        @Override
-                        public User next() {
-                            fetchNext();
-                            if (next == null) {
-                                throw new NoSuchElementException();
-                            }
-                            final User result = next;
-                            next = null;
-                            return result;
-                        }
-
-                        @Override
-                        public void remove() {
-                            throw new UnsupportedOperationException();
-                        }
+            NodeIterator getNodes() throws RepositoryException {
+                return internalUserManager.listUsers(offset, limit);
+            }
+        };
+    }
 
-                        private void fetchNext() {
-                            while (next == null && nodeIterator.hasNext()) {
-                                final Node node = nodeIterator.nextNode();
-                                try {
-                                    next = new UserImpl(node, SecurityServiceImpl.this);
-                                } catch (RepositoryException e) {
-                                    log.warn("Failed to load next user in iterator: " + e);
-                                }
-                            }
-                        }
-                    };
-                } catch (RepositoryException e) {
-                    log.error("Failed to initialize user iterator: " + e);
-                }
-                return Collections.<User>emptyList().iterator();
+    @Override
+    public Iterable<User> getUsersAfter(final String userId, final long limit) throws RepositoryException {
+        return new UserIterable() {
+            @Override
+            NodeIterator getNodes() throws RepositoryException {
+                return internalUserManager.listUsersAfter(userId, limit);
             }
         };
     }
 
     @Override
     public Iterable<Group> getGroups(final long offset, final long limit) throws RepositoryException {
-        return new Iterable<Group>() {
+        return new GroupIterable() {
             @Override
-            public Iterator<Group> iterator() {
-                try {
-                    return new Iterator<Group>() {
-
-                        private final NodeIterator nodeIterator = internalGroupManager.listGroups(offset, limit);
-                        private Group next;
-
-                        @Override
-                        public boolean hasNext() {
-                            fetchNext();
-                            return next != null;
-                        }
-
-                        @Override
-                        public Group next() {
-                            fetchNext();
-                            if (next == null) {
-                                throw new NoSuchElementException();
-                            }
-                            final Group result = next;
-                            next = null;
-                            return result;
-                        }
-
-                        @Override
-                        public void remove() {
-                            throw new UnsupportedOperationException();
-                        }
+            NodeIterator getNodes() throws RepositoryException {
+                return internalGroupManager.listGroups(offset, limit);
+            }
+        };
+    }
 
-                        private void fetchNext() {
-                            while (next == null && nodeIterator.hasNext()) {
-                                final Node node = nodeIterator.nextNode();
-                                try {
-                                    next = new GroupImpl(node, SecurityServiceImpl.this);
-                                } catch (RepositoryException e) {
-                                    log.warn("Failed to load next group in iterator: " + e);
-                                }
-                            }
-                        }
-                    };
-                } catch (RepositoryException e) {
-                    log.error("Failed to initialize group iterator: " + e);
-                }
-                return Collections.<Group>emptyList().iterator();
+    @Override
+    public Iterable<Group> getGroupsAfter(final String groupId, final long limit) throws RepositoryException {
+        return new GroupIterable() {
+            @Override
+            NodeIterator getNodes() throws RepositoryException {
+                return internalGroupManager.listGroupsAfter(groupId, limit);
             }
         };
     }
@@ -189,6 +127,16 @@ public final class SecurityServiceImpl implements SecurityService {
         return new GroupImpl(node, this);
     }
 
+    @Override
+    public Map<String, Set<String>> getMembershipIds(final Collection<String> userIds) throws RepositoryException {
+        return internalGroupManager.getMembershipIds(userIds);
+    }
+
+    @Override
+    public Map<String, Set<String>> getMemberIds(final Collection<String> groupIds) throws RepositoryException {
+        return internalGroupManager.getMemberIds(groupIds);
+    }
+
     GroupManager getInternalGroupManager() {
         return internalGroupManager;
     }
@@ -225,4 +173,88 @@ public final class SecurityServiceImpl implements SecurityService {
         return userManager;
     }
 
+    private abstract class AuthorizableIterable<T> implements Iterable<T> {
+
+        private final String type;
+
+        private AuthorizableIterable(final String type) {
+            this.type = type;
+        }
+
+        abstract NodeIterator getNodes() throws RepositoryException;
+
+        abstract T create(Node node) throws RepositoryException;
+
+        @Override
+        public Iterator<T> iterator() {
+            try {
+                return new Iterator<T>() {
+
+                    private final NodeIterator nodeIterator = getNodes();
+                    private T next;
+
+                    @Override
+                    public boolean hasNext() {
+                        fetchNext();
+                        return next != null;
+                    }
+
+                    @Override
+                    public T next() {
+                        fetchNext();
+                        if (next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        final T result = next;
+                        next = null;
+                        return result;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    private void fetchNext() {
+                        while (next == null && nodeIterator.hasNext()) {
+                            final Node node = nodeIterator.nextNode();
+                            try {
+                                next = create(node);
+                            } catch (RepositoryException e) {
+                                log.warn("Failed to load next " + type + " in iterator: " + e);
+                            }
+                        }
+                    }
+                };
+            } catch (RepositoryException e) {
+                log.error("Failed to initialize " + type + " iterator: " + e);
+            }
+            return Collections.<T>emptyList().iterator();
+        }
+    }
+
+    private abstract class UserIterable extends AuthorizableIterable<User> {
+
+        private UserIterable() {
+            super("user");
+        }
+
+        @Override
+        User create(final Node node) throws RepositoryException {
+            return new UserImpl(node, SecurityServiceImpl.this);
+        }
+    }
+
+    private abstract class GroupIterable extends AuthorizableIterable<Group> {
+
+        private GroupIterable() {
+            super("group");
+        }
+
+        @Override
+        Group create(final Node node) throws RepositoryException {
+            return new GroupImpl(node, SecurityServiceImpl.this);
+        }
+    }
+
 }
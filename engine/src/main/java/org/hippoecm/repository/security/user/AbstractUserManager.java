@@ -16,10 +16,13 @@
 package org.hippoecm.repository.security.user;
 
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Iterator;
+import java.util.List;
 
 import javax.jcr.InvalidItemStateException;
+import javax.jcr.ItemNotFoundException;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.RepositoryException;
@@ -34,11 +37,13 @@ import org.apache.jackrabbit.api.security.user.Authorizable;
 import org.apache.jackrabbit.api.security.user.AuthorizableExistsException;
 import org.apache.jackrabbit.api.security.user.Group;
 import org.apache.jackrabbit.api.security.user.User;
-import org.apache.jackrabbit.util.ISO9075;
+import org.apache.jackrabbit.commons.iterator.NodeIteratorAdapter;
 import org.hippoecm.repository.api.HippoNodeType;
 import org.hippoecm.repository.api.NodeNameCodec;
+import org.hippoecm.repository.security.AuthorizableIndex;
 import org.hippoecm.repository.security.ManagerContext;
 import org.hippoecm.repository.util.JcrUtils;
+import org.hippoecm.repository.util.NodeIterable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -83,9 +88,9 @@ public abstract class AbstractUserManager implements HippoUserManager {
     private int dirLevels = 0;
 
     /**
-     * Don't use queries for now. It's too slow :(
+     * Index of the users below the users path, null when the context does not provide one
      */
-    private final boolean useQueries = false;
+    private AuthorizableIndex index;
 
     private boolean maintenanceMode = false;
 
@@ -104,6 +109,7 @@ public abstract class AbstractUserManager implements HippoUserManager {
         this.providerId = context.getProviderId();
         this.providerPath = context.getProviderPath();
         this.maintenanceMode = context.isMaintenanceMode();
+        this.index = context.getIndex();
         setDirLevels();
         initManager(context);
     }
@@ -116,27 +122,17 @@ public abstract class AbstractUserManager implements HippoUserManager {
         if (!isInitialized()) {
             throw new IllegalStateException("Not initialized.");
         }
-        if (useQueries) {
-            String userId = sanitizeId(rawUserId);
-            StringBuilder statement = new StringBuilder();
-            // Triggers: https://issues.apache.org/jira/browse/JCR-1573 don't use path in query for now
-            //statement.append("//").append(usersPath).append("//element");
-            statement.append("//element");
-            statement.append("(*, ").append(HippoNodeType.NT_USER).append(")");
-            statement.append('[').append("fn:name() = ").append("'").append(ISO9075.encode(NodeNameCodec.encode(userId, true))).append("'").append(']');
-            Query q = session.getWorkspace().getQueryManager().createQuery(statement.toString(), Query.XPATH);
-            QueryResult result = q.execute();
-            return result.getNodes().hasNext();
-        } else {
-            String path = buildUserPath(rawUserId);
-            if (session.getRootNode().hasNode(path)) {
-                Node user = session.getRootNode().getNode(path);
-                if (user.getPrimaryNodeType().isNodeType(HippoNodeType.NT_USER)) {
-                    return true;
-                }
+        if (getIndexedUser(rawUserId) != null) {
+            return true;
+        }
+        String path = buildUserPath(rawUserId);
+        if (session.getRootNode().hasNode(path)) {
+            Node user = session.getRootNode().getNode(path);
+            if (user.getPrimaryNodeType().isNodeType(HippoNodeType.NT_USER)) {
+                return true;
             }
-            return false;
         }
+        return false;
     }
 
     @Override
@@ -145,45 +141,53 @@ public abstract class AbstractUserManager implements HippoUserManager {
             throw new IllegalStateException("Not initialized.");
         }
 
-        if (useQueries) {
-            String userId = sanitizeId(rawUserId);
-            StringBuilder statement = new StringBuilder();
-            // Triggers: https://issues.apache.org/jira/browse/JCR-1573 don't use path in query for now
-            //statement.append("//").append(usersPath).append("//element");
-            statement.append("//element");
-            statement.append("(*, ").append(HippoNodeType.NT_USER).append(")");
-            statement.append('[').append("fn:name() = ").append("'").append(ISO9075.encode(NodeNameCodec.encode(userId, true))).append("'").append(']');
-            Query q = session.getWorkspace().getQueryManager().createQuery(statement.toString(), Query.XPATH);
-            QueryResult result = q.execute();
-            NodeIterator nodeIter = result.getNodes();
-            if (nodeIter.hasNext()) {
-                return nodeIter.nextNode();
+        final Node indexed = getIndexedUser(rawUserId);
+        if (indexed != null) {
+            return indexed;
+        }
+        // not (yet) indexed: pending in this session, or saved but the index has not caught up
+        String path = buildUserPath(rawUserId);
+        if (session.getRootNode().hasNode(path)) {
+            Node user = session.getRootNode().getNode(path);
+            if (user.getPrimaryNodeType().isNodeType(HippoNodeType.NT_USER)) {
+                return user;
+            } else {
+                return null;
             }
         } else {
-            String path = buildUserPath(rawUserId);
-            if (session.getRootNode().hasNode(path)) {
-                Node user = session.getRootNode().getNode(path);
-                if (user.getPrimaryNodeType().isNodeType(HippoNodeType.NT_USER)) {
-                    return user;
-                } else {
-                    return null;
-                }
-            } else {
-                if (maintenanceMode) {
-                    StringBuffer sb = new StringBuffer();
-                    sb.append("User not one of existing users:");
-                    for (NodeIterator nodeIter = session.getRootNode().getNode(usersPath).getNodes(); nodeIter.hasNext(); ) {
-                        Node userNode = nodeIter.nextNode();
-                        sb.append(" ");
-                        sb.append(userNode.getName());
-                    }
-                    log.warn(new String(sb));
+            if (maintenanceMode) {
+                StringBuffer sb = new StringBuffer();
+                sb.append("User not one of existing users:");
+                for (NodeIterator nodeIter = session.getRootNode().getNode(usersPath).getNodes(); nodeIter.hasNext(); ) {
+                    Node userNode = nodeIter.nextNode();
+                    sb.append(" ");
+                    sb.append(userNode.getName());
                 }
+                log.warn(new String(sb));
             }
         }
         return null;
     }
 
+    private Node getIndexedUser(String rawUserId) throws RepositoryException {
+        if (index == null || rawUserId == null) {
+            return null;
+        }
+        final String identifier = index.getIdentifier(NodeNameCodec.encode(sanitizeId(rawUserId), true));
+        if (identifier == null) {
+            return null;
+        }
+        try {
+            final Node user = session.getNodeByIdentifier(identifier);
+            if (user.getPrimaryNodeType().isNodeType(HippoNodeType.NT_USER)) {
+                return user;
+            }
+        } catch (ItemNotFoundException ignore) {
+            // removed, possibly only in this session
+        }
+        return null;
+    }
+
     /**
      * Create a new user in the repository. Use getNodeType to determine the
      * node's node type.
@@ -298,6 +302,9 @@ public abstract class AbstractUserManager implements HippoUserManager {
         if (!isInitialized()) {
             throw new IllegalStateException("Not initialized.");
         }
+        if (providerId == null && index != null) {
+            return index.getNodes(session, null, offset, limit);
+        }
         StringBuilder statement = new StringBuilder();
         // Triggers: https://issues.apache.org/jira/browse/JCR-1573 don't use path in query for now
         //statement.append("//").append(usersPath).append("//element");
@@ -322,6 +329,26 @@ public abstract class AbstractUserManager implements HippoUserManager {
         return result.getNodes();
     }
 
+    @Override
+    public final NodeIterator listUsersAfter(String userId, long limit) throws RepositoryException {
+        if (!isInitialized()) {
+            throw new IllegalStateException("Not initialized.");
+        }
+        if (index != null) {
+            return index.getNodes(session, userId, 0, limit);
+        }
+        final List<Node> users = new ArrayList<Node>();
+        for (Node user : new NodeIterable(listUsers(null, 0, 0))) {
+            if (limit > 0 && users.size() >= limit) {
+                break;
+            }
+            if (userId == null || user.getName().compareTo(userId) > 0) {
+                users.add(user);
+            }
+        }
+        return new NodeIteratorAdapter(users);
+    }
+
     public final boolean isManagerForUser(Node user) throws RepositoryException {
         if (user.hasProperty(HippoNodeType.HIPPO_SECURITYPROVIDER)) {
             return providerId.equals(user.getProperty(HippoNodeType.HIPPO_SECURITYPROVIDER).getString());
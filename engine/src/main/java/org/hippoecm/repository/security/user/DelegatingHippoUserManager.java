@@ -63,6 +63,11 @@ public class DelegatingHippoUserManager extends DelegatingUserManager implements
         return delegatee.listUsers(providerId, offset, limit);
     }
 
+    @Override
+    public NodeIterator listUsersAfter(String userId, long limit) throws RepositoryException {
+        return delegatee.listUsersAfter(userId, limit);
+    }
+
     @Override
     public boolean authenticate(SimpleCredentials creds) throws RepositoryException {
         return delegatee.authenticate(creds);
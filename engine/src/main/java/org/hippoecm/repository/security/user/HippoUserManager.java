@@ -67,6 +67,18 @@ public interface HippoUserManager extends UserManager {
      */
     NodeIterator listUsers(String providerId, long offset, long limit) throws RepositoryException;
 
+    /**
+     * Get the users, regardless of their provider, ordered by id and starting after a particular user. Use the id of
+     * the last user of a page as the cursor for the next page, so that deep pages don't need to skip all the users
+     * of the pages before.
+     *
+     * @param userId the id of the user after which to start, <code>null</code> to start at the first user
+     * @param limit the maximum number of users to return, only has effect when larger than zero
+     * @return an iterator of user nodes
+     * @throws RepositoryException
+     */
+    NodeIterator listUsersAfter(String userId, long limit) throws RepositoryException;
+
     /**
      * Authenticate the user by the credentials
      * @param creds SimpleCredentials
@@ -28,11 +28,25 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
 import javax.jcr.lock.LockException;
 import javax.jcr.lock.LockManager;
 import javax.jcr.query.Query;
@@ -54,8 +68,10 @@ import static org.onehippo.repository.bootstrap.util.BootstrapConstants.log;
 
 public class InitializationProcessorImpl implements InitializationProcessor {
 
-    private static final long LOCK_ATTEMPT_INTERVAL = 1000 * 5;
+    private static final long MIN_LOCK_ATTEMPT_INTERVAL = 250;
+    private static final long MAX_LOCK_ATTEMPT_INTERVAL = 1000 * 5;
     private static final long LOCK_TIMEOUT = Long.getLong("repo.bootstrap.lock.timeout", 30);
+    private static final int BOOTSTRAP_THREADS = Integer.getInteger("repo.bootstrap.threads", 1);
 
     private final static String PENDING_INITIALIZE_ITEMS_QUERY = String.format(
             "SELECT * FROM hipposys:initializeitem " +
@@ -102,6 +118,7 @@ public class InitializationProcessorImpl implements InitializationProcessor {
     public boolean lock(final Session session) throws RepositoryException {
         ensureIsLockable(session);
         final HippoLockManager lockManager = (HippoLockManager) session.getWorkspace().getLockManager();
+        long lockAttemptInterval = MIN_LOCK_ATTEMPT_INTERVAL;
         while (true) {
             log.debug("Attempting to obtain lock");
             try {
@@ -119,11 +136,12 @@ public class InitializationProcessorImpl implements InitializationProcessor {
                 }
                 return true;
             } catch (LockException e) {
-                log.debug("Obtaining lock failed, reattempting in {} ms", LOCK_ATTEMPT_INTERVAL);
+                log.debug("Obtaining lock failed, reattempting in {} ms", lockAttemptInterval);
                 try {
-                    Thread.sleep(LOCK_ATTEMPT_INTERVAL);
+                    Thread.sleep(lockAttemptInterval);
                 } catch (InterruptedException ignore) {
                 }
+                lockAttemptInterval = Math.min(lockAttemptInterval * 2, MAX_LOCK_ATTEMPT_INTERVAL);
             }
         }
     }
@@ -174,29 +192,162 @@ public class InitializationProcessorImpl implements InitializationProcessor {
         }
         Collections.sort(initializeItems, initializeItemComparator);
         final List<PostStartupTask> postStartupTasks = new ArrayList<>();
+        final InitializeItemTimings timings = new InitializeItemTimings();
         try {
             session.refresh(false);
-            for (final InitializeItem initializeItem : initializeItems) {
-                try {
-                    postStartupTasks.addAll(initializeItem.process());
-                } catch (RepositoryException e) {
-                    if (log.isDebugEnabled()) {
-                        log.error("Failed to initialize item {}", initializeItem.getName(), e);
-                    } else {
-                        log.error("Failed to process initialize item {}: {}", initializeItem.getName(), e.toString());
-                    }
+            if (BOOTSTRAP_THREADS > 1 && initializeItems.size() > 1) {
+                processConcurrently(session, new InitializeItemGraph(initializeItems), postStartupTasks, timings);
+            } else {
+                for (final InitializeItem initializeItem : initializeItems) {
+                    postStartupTasks.addAll(processItem(initializeItem, timings));
                 }
             }
         } catch (RepositoryException e) {
             log.error(e.getClass().getName() + ": " + e.getMessage(), e);
         }
+        timings.report();
         return postStartupTasks;
     }
 
+    private static List<PostStartupTask> processItem(final InitializeItem initializeItem, final InitializeItemTimings timings) {
+        final long start = System.currentTimeMillis();
+        try {
+            return initializeItem.process();
+        } catch (RepositoryException e) {
+            try {
+                if (log.isDebugEnabled()) {
+                    log.error("Failed to initialize item {}", initializeItem.getName(), e);
+                } else {
+                    log.error("Failed to process initialize item {}: {}", initializeItem.getName(), e.toString());
+                }
+            } catch (RepositoryException ignore) {
+            }
+            return Collections.emptyList();
+        } finally {
+            timings.record(initializeItem, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Processes the items between barriers concurrently, each on a session of its own, in an order that respects
+     * the dependencies between the items. Barrier items are processed with the given session when all earlier
+     * items are done, so their post startup tasks can use that session.
+     */
+    private void processConcurrently(final Session session, final InitializeItemGraph graph,
+                                     final List<PostStartupTask> postStartupTasks, final InitializeItemTimings timings)
+            throws RepositoryException {
+        final BlockingQueue<Session> sessions = new LinkedBlockingQueue<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(BOOTSTRAP_THREADS, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(runnable, "hippo-bootstrap-" + count.incrementAndGet());
+            }
+        });
+        try {
+            try {
+                for (int i = 0; i < BOOTSTRAP_THREADS; i++) {
+                    sessions.add(session.impersonate(new SimpleCredentials(session.getUserID(), new char[] {})));
+                }
+            } catch (RepositoryException e) {
+                log.warn("Failed to obtain sessions for processing initialize items concurrently, " +
+                        "processing them one by one: {}", e.toString());
+                for (int index = 0; index < graph.size(); index++) {
+                    postStartupTasks.addAll(processItem(graph.getItem(index), timings));
+                }
+                return;
+            }
+            int segmentStart = 0;
+            for (int index = 0; index <= graph.size(); index++) {
+                if (index == graph.size() || graph.isBarrier(index)) {
+                    postStartupTasks.addAll(processSegment(graph, segmentStart, index, executor, sessions, timings));
+                    session.refresh(false);
+                    if (index < graph.size()) {
+                        postStartupTasks.addAll(processItem(graph.getItem(index), timings));
+                    }
+                    segmentStart = index + 1;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            for (Session itemSession : sessions) {
+                itemSession.logout();
+            }
+        }
+    }
+
+    private List<PostStartupTask> processSegment(final InitializeItemGraph graph, final int from, final int to,
+                                                 final ExecutorService executor, final BlockingQueue<Session> sessions,
+                                                 final InitializeItemTimings timings) throws RepositoryException {
+        final List<PostStartupTask> postStartupTasks = new ArrayList<>();
+        final int[] pendingDependencies = new int[to - from];
+        final List<List<Integer>> dependents = new ArrayList<>(to - from);
+        for (int index = from; index < to; index++) {
+            dependents.add(new ArrayList<Integer>());
+        }
+        for (int index = from; index < to; index++) {
+            for (int dependency : graph.getDependencies(index)) {
+                if (dependency >= from) {
+                    pendingDependencies[index - from]++;
+                    dependents.get(dependency - from).add(index);
+                }
+            }
+        }
+
+        final CompletionService<List<PostStartupTask>> completionService = new ExecutorCompletionService<>(executor);
+        final Map<Future<List<PostStartupTask>>, Integer> running = new HashMap<>();
+        for (int index = from; index < to; index++) {
+            if (pendingDependencies[index - from] == 0) {
+                running.put(submitItem(completionService, graph.getItem(index), sessions, timings), index);
+            }
+        }
+        while (!running.isEmpty()) {
+            final Future<List<PostStartupTask>> done;
+            try {
+                done = completionService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RepositoryException("Interrupted while processing initialize items", e);
+            }
+            final int index = running.remove(done);
+            try {
+                postStartupTasks.addAll(done.get());
+            } catch (InterruptedException | ExecutionException e) {
+                log.error("Failed to process initialize item {}", graph.getItem(index).getName(), e);
+            }
+            for (int dependent : dependents.get(index - from)) {
+                if (--pendingDependencies[dependent - from] == 0) {
+                    running.put(submitItem(completionService, graph.getItem(dependent), sessions, timings), dependent);
+                }
+            }
+        }
+        return postStartupTasks;
+    }
+
+    private Future<List<PostStartupTask>> submitItem(
+            final CompletionService<List<PostStartupTask>> completionService, final InitializeItem initializeItem,
+            final BlockingQueue<Session> sessions, final InitializeItemTimings timings) throws RepositoryException {
+        final String identifier = initializeItem.getItemNode().getIdentifier();
+        return completionService.submit(new Callable<List<PostStartupTask>>() {
+            @Override
+            public List<PostStartupTask> call() throws Exception {
+                final Session itemSession = sessions.take();
+                try {
+                    itemSession.refresh(false);
+                    final InitializeItem item = new InitializeItem(itemSession.getNodeByIdentifier(identifier));
+                    return processItem(item, timings);
+                } finally {
+                    sessions.add(itemSession);
+                }
+            }
+        });
+    }
+
     void markReloadDownstreamItems(final Session session, final List<InitializeItem> initializeItems, final Collection<InitializeItem> reloadItems)
             throws RepositoryException {
+        final TreeMap<String, Collection<Integer>> downstreamPaths = indexDownstreamPaths(initializeItems);
         for (InitializeItem reloadItem : reloadItems) {
-            for (InitializeItem downstreamItem : resolveDownstreamItems(reloadItem, initializeItems)) {
+            for (InitializeItem downstreamItem : resolveDownstreamItems(reloadItem, initializeItems, downstreamPaths)) {
                 if (!downstreamItem.isMissing()) {
                     log.info("Marking item {} pending because downstream from {}", downstreamItem.getName(), reloadItem.getName());
                     downstreamItem.markDownstream(reloadItem);
@@ -208,8 +359,34 @@ public class InitializationProcessorImpl implements InitializationProcessor {
 
     Collection<InitializeItem> resolveDownstreamItems(final InitializeItem reloadItem, final List<InitializeItem> initializeItems)
             throws RepositoryException {
+        return resolveDownstreamItems(reloadItem, initializeItems, indexDownstreamPaths(initializeItems));
+    }
+
+    /**
+     * Only the items that have a downstream path equal to or below a context path of the reload item are
+     * candidates, so those are looked up in the index instead of testing every item against the reload item.
+     */
+    private Collection<InitializeItem> resolveDownstreamItems(final InitializeItem reloadItem,
+                                                              final List<InitializeItem> initializeItems,
+                                                              final TreeMap<String, Collection<Integer>> downstreamPaths)
+            throws RepositoryException {
+        final String[] reloadPaths = reloadItem.getContextPaths();
+        if (reloadPaths == null) {
+            return Collections.emptyList();
+        }
+        final Set<Integer> candidates = new TreeSet<>();
+        for (String reloadPath : reloadPaths) {
+            final Collection<Integer> exact = downstreamPaths.get(reloadPath);
+            if (exact != null) {
+                candidates.addAll(exact);
+            }
+            for (Collection<Integer> below : InitializeItemGraph.getDescendants(downstreamPaths, reloadPath).values()) {
+                candidates.addAll(below);
+            }
+        }
         final Collection<InitializeItem> downstreamItems = new ArrayList<>();
-        for (InitializeItem initializeItem : initializeItems) {
+        for (Integer candidate : candidates) {
+            final InitializeItem initializeItem = initializeItems.get(candidate);
             if (initializeItem.isDownstreamItem(reloadItem)) {
                 downstreamItems.add(initializeItem);
             }
@@ -217,6 +394,22 @@ public class InitializationProcessorImpl implements InitializationProcessor {
         return downstreamItems;
     }
 
+    private TreeMap<String, Collection<Integer>> indexDownstreamPaths(final List<InitializeItem> initializeItems)
+            throws RepositoryException {
+        final TreeMap<String, Collection<Integer>> downstreamPaths = new TreeMap<>();
+        for (int index = 0; index < initializeItems.size(); index++) {
+            for (String path : initializeItems.get(index).getDownstreamPaths()) {
+                Collection<Integer> items = downstreamPaths.get(path);
+                if (items == null) {
+                    items = new ArrayList<>();
+                    downstreamPaths.put(path, items);
+                }
+                items.add(index);
+            }
+        }
+        return downstreamPaths;
+    }
+
     private List<Node> getItemNodesToBeExecuted(final List<InitializeItem> initializeItems) throws RepositoryException {
         List<Node> pendingItems = new ArrayList<>();
         for (InitializeItem initializeItem : initializeItems) {
@@ -15,6 +15,8 @@
  */
 package org.onehippo.repository.bootstrap;
 
+import java.util.Collection;
+
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 
@@ -32,6 +34,22 @@ public abstract class InitializeInstruction {
         return false;
     }
 
+    /**
+     * The paths of the nodes below which this instruction modifies content. Instructions of which the paths
+     * do not overlap can be executed concurrently.
+     *
+     * @return the affected paths, or <code>null</code> if the instruction must not run concurrently with
+     * any other instruction
+     */
+    protected Collection<String> getAffectedPaths() throws RepositoryException {
+        return null;
+    }
+
+    protected static String getParentPath(final String path) {
+        final int index = path.lastIndexOf('/');
+        return index > 0 ? path.substring(0, index) : "/";
+    }
+
     protected void initializeItem() throws RepositoryException {}
 
     protected abstract String getName();
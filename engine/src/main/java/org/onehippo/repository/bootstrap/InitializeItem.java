@@ -601,6 +601,44 @@ public class InitializeItem {
         return false;
     }
 
+    /**
+     * The paths below which the instructions of this item modify content, or <code>null</code> if this item must
+     * not be processed concurrently with other items.
+     */
+    Collection<String> getAffectedPaths() throws RepositoryException {
+        final Collection<String> affectedPaths = new ArrayList<>();
+        for (InitializeInstruction instruction : getInstructions()) {
+            final Collection<String> paths = instruction.getAffectedPaths();
+            if (paths == null) {
+                return null;
+            }
+            affectedPaths.addAll(paths);
+        }
+        return affectedPaths;
+    }
+
+    /**
+     * The paths on which this item can be found downstream of a reload item: {@link #isDownstreamItem(InitializeItem)}
+     * can only hold if one of these paths is equal to or below a context path of the reload item.
+     */
+    Collection<String> getDownstreamPaths() throws RepositoryException {
+        final Collection<String> downstreamPaths = new ArrayList<>();
+        final String[] contextPaths = getContextPaths();
+        if (contextPaths != null) {
+            downstreamPaths.addAll(Arrays.asList(contextPaths));
+        }
+        final String contentDeletePath = getContentDeletePath();
+        if (contentDeletePath != null) {
+            downstreamPaths.add(contentDeletePath);
+        }
+        final String contentPropDeletePath = getContentPropDeletePath();
+        if (contentPropDeletePath != null) {
+            downstreamPaths.add(contentPropDeletePath);
+        }
+        downstreamPaths.add(getContentRoot());
+        return downstreamPaths;
+    }
+
     void markDownstream(final InitializeItem reloadItem) throws RepositoryException {
         final Value[] upstreamItemIds;
         final Value upstreamItemId = itemNode.getSession().getValueFactory().createValue(reloadItem.getItemNode().getIdentifier());
@@ -0,0 +1,137 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.onehippo.repository.bootstrap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.jcr.RepositoryException;
+
+/**
+ * Dependencies between initialize items, in the order in which they are to be processed.
+ * <p>
+ * An item depends on all earlier items of which the affected paths overlap with its own, that is, where one path is
+ * equal to or an ancestor of the other. Items without known affected paths, such as namespace and node type items,
+ * are barriers: they depend on all earlier items and all later items depend on them. Only the dependencies that are
+ * not implied by other dependencies are kept, so the graph is built in a single pass over the items.
+ */
+final class InitializeItemGraph {
+
+    private final List<InitializeItem> items;
+    private final boolean[] barriers;
+    private final int[][] dependencies;
+
+    InitializeItemGraph(final List<InitializeItem> items) throws RepositoryException {
+        this.items = new ArrayList<>(items);
+        barriers = new boolean[items.size()];
+        dependencies = new int[items.size()][];
+
+        // the last item that affected each path; paths below the path of a later item are superseded by that item
+        final TreeMap<String, Integer> lastAffected = new TreeMap<>();
+        int lastBarrier = -1;
+        for (int index = 0; index < items.size(); index++) {
+            final Collection<String> paths = getAffectedPaths(items.get(index));
+            final TreeSet<Integer> itemDependencies = new TreeSet<>();
+            if (paths == null) {
+                barriers[index] = true;
+                if (lastBarrier >= 0) {
+                    itemDependencies.add(lastBarrier);
+                }
+                itemDependencies.addAll(lastAffected.values());
+                lastAffected.clear();
+                lastBarrier = index;
+            } else {
+                if (lastBarrier >= 0) {
+                    itemDependencies.add(lastBarrier);
+                }
+                for (String path : paths) {
+                    for (String ancestor = path; ancestor != null; ancestor = getParent(ancestor)) {
+                        final Integer dependency = lastAffected.get(ancestor);
+                        if (dependency != null) {
+                            itemDependencies.add(dependency);
+                        }
+                    }
+                    itemDependencies.addAll(getDescendants(lastAffected, path).values());
+                }
+                for (String path : paths) {
+                    getDescendants(lastAffected, path).clear();
+                    lastAffected.put(path, index);
+                }
+            }
+            dependencies[index] = toArray(itemDependencies);
+        }
+    }
+
+    private static Collection<String> getAffectedPaths(final InitializeItem item) throws RepositoryException {
+        try {
+            return item.getAffectedPaths();
+        } catch (RepositoryException e) {
+            // invalid items fail when processed, let them do so in isolation
+            return null;
+        }
+    }
+
+    private static int[] toArray(final Collection<Integer> values) {
+        final int[] array = new int[values.size()];
+        int index = 0;
+        for (Integer value : values) {
+            array[index++] = value;
+        }
+        return array;
+    }
+
+    static String getParent(final String path) {
+        if ("/".equals(path)) {
+            return null;
+        }
+        final int index = path.lastIndexOf('/');
+        return index > 0 ? path.substring(0, index) : "/";
+    }
+
+    /**
+     * @return a view of the entries of <code>map</code> of which the key is a path strictly below <code>path</code>
+     */
+    static <V> SortedMap<String, V> getDescendants(final TreeMap<String, V> map, final String path) {
+        final String prefix = path.endsWith("/") ? path : path + "/";
+        return map.subMap(prefix.equals(path) ? prefix + Character.MIN_VALUE : prefix, prefix + Character.MAX_VALUE);
+    }
+
+    int size() {
+        return items.size();
+    }
+
+    InitializeItem getItem(final int index) {
+        return items.get(index);
+    }
+
+    /**
+     * @return whether the item at <code>index</code> must be processed while no other item is being processed
+     */
+    boolean isBarrier(final int index) {
+        return barriers[index];
+    }
+
+    /**
+     * @return the indexes of the items that must have been processed before the item at <code>index</code>
+     */
+    int[] getDependencies(final int index) {
+        return dependencies[index];
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.onehippo.repository.bootstrap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.jcr.RepositoryException;
+
+import static org.onehippo.repository.bootstrap.util.BootstrapConstants.log;
+
+/**
+ * Collects the time spent processing initialize items and reports it per item and per extension.
+ */
+class InitializeItemTimings {
+
+    private static final int SLOWEST_ITEMS_REPORTED = 10;
+
+    private static final Comparator<Timing> slowestFirst = new Comparator<Timing>() {
+        @Override
+        public int compare(final Timing t1, final Timing t2) {
+            return Long.compare(t2.millis, t1.millis);
+        }
+    };
+
+    private final long start = System.currentTimeMillis();
+    private final List<Timing> items = new ArrayList<>();
+
+    synchronized void record(final InitializeItem item, final long millis) {
+        String name;
+        String extension;
+        try {
+            name = item.getName();
+            extension = getExtensionName(item.getExtensionSource());
+        } catch (RepositoryException e) {
+            name = "<unknown>";
+            extension = "<unknown>";
+        }
+        items.add(new Timing(name, extension, millis));
+    }
+
+    static String getExtensionName(final String extensionSource) {
+        if (extensionSource == null) {
+            return "<none>";
+        }
+        final int jarSeparator = extensionSource.indexOf("!/");
+        if (jarSeparator != -1) {
+            final String jar = extensionSource.substring(0, jarSeparator);
+            return jar.substring(jar.lastIndexOf('/') + 1);
+        }
+        return extensionSource;
+    }
+
+    synchronized void report() {
+        if (items.isEmpty() || !log.isInfoEnabled()) {
+            return;
+        }
+        final Map<String, Timing> extensions = new HashMap<>();
+        for (Timing item : items) {
+            Timing extension = extensions.get(item.extension);
+            if (extension == null) {
+                extension = new Timing(item.extension, item.extension, 0);
+                extension.count = 0;
+                extensions.put(item.extension, extension);
+            }
+            extension.millis += item.millis;
+            extension.count++;
+        }
+        final List<Timing> sortedExtensions = new ArrayList<>(extensions.values());
+        Collections.sort(sortedExtensions, slowestFirst);
+        final List<Timing> sortedItems = new ArrayList<>(items);
+        Collections.sort(sortedItems, slowestFirst);
+
+        log.info("Processed {} initialize items from {} extensions in {} ms",
+                items.size(), extensions.size(), System.currentTimeMillis() - start);
+        for (Timing extension : sortedExtensions) {
+            log.info("  extension {}: {} items in {} ms", extension.name, extension.count, extension.millis);
+        }
+        for (int i = 0; i < sortedItems.size(); i++) {
+            final Timing item = sortedItems.get(i);
+            if (i < SLOWEST_ITEMS_REPORTED) {
+                log.info("  item {} ({}): {} ms", item.name, item.extension, item.millis);
+            } else {
+                log.debug("  item {} ({}): {} ms", item.name, item.extension, item.millis);
+            }
+        }
+    }
+
+    private static class Timing {
+
+        private final String name;
+        private final String extension;
+        private long millis;
+        private int count = 1;
+
+        private Timing(final String name, final String extension, final long millis) {
+            this.name = name;
+            this.extension = extension;
+            this.millis = millis;
+        }
+    }
+}
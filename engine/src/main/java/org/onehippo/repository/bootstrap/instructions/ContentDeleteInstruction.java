@@ -15,6 +15,9 @@
  */
 package org.onehippo.repository.bootstrap.instructions;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
@@ -38,6 +41,11 @@ public class ContentDeleteInstruction extends InitializeInstruction {
         return contentDeletePath.equals(reloadPaths[0]) || contentDeletePath.startsWith(reloadPaths[0] + "/");
     }
 
+    @Override
+    protected Collection<String> getAffectedPaths() throws RepositoryException {
+        return Collections.singletonList(getParentPath(item.getContentDeletePath()));
+    }
+
     @Override
     protected String getName() {
         return HIPPO_CONTENTDELETE;
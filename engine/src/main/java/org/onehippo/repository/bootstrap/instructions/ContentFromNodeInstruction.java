@@ -16,6 +16,8 @@
 package org.onehippo.repository.bootstrap.instructions;
 
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
 
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
@@ -34,6 +36,11 @@ public class ContentFromNodeInstruction extends InitializeInstruction {
         super(item, session);
     }
 
+    @Override
+    protected Collection<String> getAffectedPaths() throws RepositoryException {
+        return Collections.singletonList(item.getContentRoot());
+    }
+
     @Override
     protected String getName() {
         return HIPPO_CONTENT;
@@ -17,6 +17,8 @@ package org.onehippo.repository.bootstrap.instructions;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import javax.jcr.Property;
@@ -43,6 +45,11 @@ public class ContentPropAddInstruction extends InitializeInstruction {
         return contentRoot.startsWith(reloadPaths[0] + "/");
     }
 
+    @Override
+    protected Collection<String> getAffectedPaths() throws RepositoryException {
+        return Collections.singletonList(getParentPath(item.getContentRoot()));
+    }
+
     @Override
     protected String getName() {
         return HIPPO_CONTENTPROPADD;
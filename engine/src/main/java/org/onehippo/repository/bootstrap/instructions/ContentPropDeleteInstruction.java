@@ -15,6 +15,9 @@
  */
 package org.onehippo.repository.bootstrap.instructions;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 
@@ -37,6 +40,11 @@ public class ContentPropDeleteInstruction extends InitializeInstruction {
         return contentPropDeletePath.startsWith(reloadPaths[0] + "/");
     }
 
+    @Override
+    protected Collection<String> getAffectedPaths() throws RepositoryException {
+        return Collections.singletonList(getParentPath(item.getContentPropDeletePath()));
+    }
+
     @Override
     protected String getName() {
         return HIPPO_CONTENTPROPDELETE;
@@ -17,6 +17,8 @@ package org.onehippo.repository.bootstrap.instructions;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import javax.jcr.Node;
@@ -47,6 +49,11 @@ public class ContentPropSetInstruction extends InitializeInstruction {
         return contentRoot.startsWith(reloadPaths[0] + "/");
     }
 
+    @Override
+    protected Collection<String> getAffectedPaths() throws RepositoryException {
+        return Collections.singletonList(getParentPath(item.getContentRoot()));
+    }
+
     @Override
     protected String getName() {
         return HIPPO_CONTENTPROPSET;
@@ -26,6 +26,7 @@ import java.io.OutputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 
 import javax.jcr.InvalidSerializedDataException;
 import javax.jcr.Node;
@@ -92,6 +93,11 @@ public class ContentResourceInstruction extends InitializeInstruction {
         return false;
     }
 
+    @Override
+    protected Collection<String> getAffectedPaths() throws RepositoryException {
+        return Collections.singletonList(item.getContentRoot());
+    }
+
     @Override
     protected String getName() {
         return HIPPO_CONTENTRESOURCE;
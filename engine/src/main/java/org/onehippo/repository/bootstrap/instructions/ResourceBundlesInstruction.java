@@ -20,6 +20,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -93,6 +94,11 @@ public class ResourceBundlesInstruction extends InitializeInstruction {
         return bundleFileInfo;
     }
 
+    @Override
+    protected Collection<String> getAffectedPaths() throws RepositoryException {
+        return Collections.singletonList(TRANSLATIONS_PATH);
+    }
+
     @Override
     protected String getName() {
         return HIPPO_RESOURCEBUNDLES;
@@ -15,8 +15,9 @@
  */
 package org.onehippo.repository.l10n;
 
+import java.util.HashSet;
 import java.util.Locale;
-import java.util.Map;
+import java.util.Set;
 
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
@@ -38,7 +39,7 @@ public class LocalizationModule implements DaemonModule {
 
     private Session session;
     private ModuleConfigurationListener listener;
-    private Map<ResourceBundleKey, ResourceBundle> bundles;
+    private final ResourceBundleRegistry bundles = new ResourceBundleRegistry(TRANSLATIONS_PATH);
     private LocalizationService service;
 
     @Override
@@ -47,22 +48,7 @@ public class LocalizationModule implements DaemonModule {
         HippoServiceRegistry.registerService(service = new LocalizationService() {
             @Override
             public ResourceBundle getResourceBundle(final String name, final Locale locale) {
-                ResourceBundle bundle = null;
-                if (bundles != null) {
-                    bundle = bundles.get(new ResourceBundleKey(name, locale));
-                    // try less specific locales
-                    if (bundle == null && locale.getVariant() != null) {
-                        bundle = bundles.get(new ResourceBundleKey(name, new Locale(locale.getLanguage(), locale.getCountry())));
-                    }
-                    if (bundle == null && locale.getCountry() != null) {
-                        bundle = bundles.get(new ResourceBundleKey(name, new Locale(locale.getLanguage())));
-                    }
-                    // fall back on default locale
-                    if (bundle == null) {
-                        bundle = bundles.get(new ResourceBundleKey(name, DEFAULT_LOCALE));
-                    }
-                }
-                return bundle;
+                return bundles.getResourceBundle(name, locale);
             }
         }, LocalizationService.class);
         loadBundles(session);
@@ -71,7 +57,7 @@ public class LocalizationModule implements DaemonModule {
     }
 
     private void loadBundles(final Session session) throws RepositoryException {
-        bundles = ResourceBundleLoader.load(session.getNode(TRANSLATIONS_PATH));
+        bundles.load(session);
     }
 
     @Override
@@ -108,10 +94,30 @@ public class LocalizationModule implements DaemonModule {
 
         @Override
         public void onEvent(final EventIterator events) {
+            final Set<String> paths = new HashSet<>();
             try {
-                loadBundles(session);
+                while (events.hasNext()) {
+                    final Event event = events.nextEvent();
+                    final String path = event.getPath();
+                    if (event.getType() == Event.NODE_ADDED || event.getType() == Event.NODE_REMOVED
+                            || event.getType() == Event.NODE_MOVED) {
+                        paths.add(path);
+                        final Object source = event.getInfo().get("srcAbsPath");
+                        if (source instanceof String) {
+                            paths.add((String) source);
+                        }
+                    } else {
+                        paths.add(path.substring(0, path.lastIndexOf('/')));
+                    }
+                }
+                bundles.update(session, paths);
             } catch (RepositoryException e) {
-                log.error("Failed to reload resource bundles", e);
+                log.error("Failed to update resource bundles for changes below " + paths + ", reloading all", e);
+                try {
+                    loadBundles(session);
+                } catch (RepositoryException e2) {
+                    log.error("Failed to reload resource bundles", e2);
+                }
             }
         }
 
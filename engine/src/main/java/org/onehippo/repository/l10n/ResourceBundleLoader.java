@@ -15,9 +15,12 @@
  */
 package org.onehippo.repository.l10n;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Stack;
@@ -41,52 +44,92 @@ class ResourceBundleLoader {
 
     private static final Logger log = LoggerFactory.getLogger(ResourceBundleLoader.class);
 
-    private final Map<ResourceBundleKey, ResourceBundleImpl> bundles = new HashMap<>();
+    private final List<ResourceBundleImpl> bundles = new ArrayList<>();
     private final Stack<String> path = new Stack<>();
 
     private ResourceBundleLoader() {
     }
 
     static Map<ResourceBundleKey, ResourceBundle> load(final Node translations) throws RepositoryException {
+        final Map<ResourceBundleKey, ResourceBundleImpl> bundles = new HashMap<>();
+        for (ResourceBundleImpl bundle : loadBundles(translations, translations)) {
+            bundles.put(bundle.getKey(), bundle);
+        }
+        wireParentBundles(bundles.values());
+        return Collections.<ResourceBundleKey, ResourceBundle>unmodifiableMap(bundles);
+    }
+
+    /**
+     * Load the bundles stored at or below <code>node</code>, without wiring their parents.
+     *
+     * @param translations  the root node of the translations
+     * @param node  the root node itself or a node below it
+     */
+    static List<ResourceBundleImpl> loadBundles(final Node translations, final Node node) throws RepositoryException {
         final ResourceBundleLoader loader = new ResourceBundleLoader();
-        for (Node child : new NodeIterable(translations.getNodes())) {
-            loader.traverse(child);
+        if (node.isSame(translations)) {
+            for (Node child : new NodeIterable(node.getNodes())) {
+                loader.traverse(child);
+            }
+        } else {
+            final List<String> names = new ArrayList<>();
+            for (Node ancestor = node.getParent(); !ancestor.isSame(translations); ancestor = ancestor.getParent()) {
+                if (!ancestor.isNodeType(NT_RESOURCEBUNDLES)) {
+                    // not reachable from the root through resource bundles
+                    return loader.bundles;
+                }
+                names.add(0, ancestor.getName());
+            }
+            loader.path.addAll(names);
+            loader.traverse(node);
         }
-        loader.wireParentBundles();
-        return Collections.unmodifiableMap(loader.bundles);
+        return loader.bundles;
     }
 
-    private void wireParentBundles() {
-        for (ResourceBundleImpl bundle : bundles.values()) {
-            bundle.setParent(resolveParent(bundle));
+    /**
+     * Link bundles to the bundle with the same name of the nearest less specific locale, or else of the default
+     * locale. All bundles with the same name must be passed together.
+     */
+    static void wireParentBundles(final Collection<ResourceBundleImpl> bundles) {
+        final Map<String, List<ResourceBundleImpl>> byName = new HashMap<>();
+        for (ResourceBundleImpl bundle : bundles) {
+            List<ResourceBundleImpl> named = byName.get(bundle.getName());
+            if (named == null) {
+                named = new ArrayList<>();
+                byName.put(bundle.getName(), named);
+            }
+            named.add(bundle);
+        }
+        for (List<ResourceBundleImpl> named : byName.values()) {
+            for (ResourceBundleImpl bundle : named) {
+                bundle.setParent(resolveParent(bundle, named));
+            }
         }
     }
 
-    private ResourceBundle resolveParent(ResourceBundleImpl bundle) {
+    private static ResourceBundle resolveParent(ResourceBundleImpl bundle, List<ResourceBundleImpl> named) {
         ResourceBundle result = null;
-        for (ResourceBundleImpl parent : bundles.values()) {
+        for (ResourceBundleImpl parent : named) {
             if (parent == bundle) {
                 continue;
             }
-            if (parent.getName().equals(bundle.getName())) {
-                if (isParent(parent.getLocale(), bundle.getLocale())) {
-                    if (result == null || isParent(result.getLocale(), parent.getLocale())) {
-                        result = parent;
-                    }
-                }
-                if (result == null && isDefaultLocale(parent.getLocale())) {
+            if (isParent(parent.getLocale(), bundle.getLocale())) {
+                if (result == null || isParent(result.getLocale(), parent.getLocale())) {
                     result = parent;
                 }
             }
+            if (result == null && isDefaultLocale(parent.getLocale())) {
+                result = parent;
+            }
         }
         return result;
     }
 
-    private boolean isDefaultLocale(Locale locale) {
+    private static boolean isDefaultLocale(Locale locale) {
         return locale.equals(DEFAULT_LOCALE);
     }
 
-    private boolean isParent(Locale locale1, Locale locale2) {
+    private static boolean isParent(Locale locale1, Locale locale2) {
         if (locale1.getLanguage().equals(locale2.getLanguage())) {
             if (locale1.getCountry().equals(locale2.getCountry())) {
                 return locale1.getVariant().isEmpty() && !locale2.getVariant().isEmpty();
@@ -107,8 +150,7 @@ class ResourceBundleLoader {
         }
         if (node.isNodeType(NT_RESOURCEBUNDLE)) {
             try {
-                final ResourceBundleImpl bundle = createResourceBundle(node);
-                bundles.put(bundle.getKey(), bundle);
+                bundles.add(createResourceBundle(node));
             } catch (IllegalArgumentException e) {
                 log.error("Failed to load bundle '{}' for locale '{}': {}", getName(), node.getName(), e.getMessage());
             }
@@ -117,7 +159,7 @@ class ResourceBundleLoader {
 
     private ResourceBundleImpl createResourceBundle(final Node node) throws RepositoryException {
         final Locale locale = LocaleUtils.toLocale(node.getName());
-        final ResourceBundleImpl bundle = new ResourceBundleImpl(getName(), locale);
+        final ResourceBundleImpl bundle = new ResourceBundleImpl(getName(), locale, node.getPath());
         log.debug("Loading bundle '{}' for locale '{}'", getName(), locale);
         for (Property property : new PropertyIterable(node.getProperties())) {
             if (isTranslation(property)) {
@@ -143,15 +185,18 @@ class ResourceBundleLoader {
         return property.getType() == PropertyType.STRING;
     }
 
-    private static class ResourceBundleImpl implements ResourceBundle {
+    static class ResourceBundleImpl implements ResourceBundle {
         private final String name;
         private final Locale locale;
+        private final String path;
         private final Map<String, String> strings = new HashMap<>();
-        private ResourceBundle parent;
+        // rewired when a less specific bundle is reloaded
+        private volatile ResourceBundle parent;
 
-        private ResourceBundleImpl(final String name, final Locale locale) {
+        private ResourceBundleImpl(final String name, final Locale locale, final String path) {
             this.name = name;
             this.locale = locale;
+            this.path = path;
         }
 
         @Override
@@ -180,10 +225,17 @@ class ResourceBundleLoader {
             strings.put(key, value);
         }
 
-        private ResourceBundleKey getKey() {
+        ResourceBundleKey getKey() {
             return new ResourceBundleKey(name, locale);
         }
 
+        /**
+         * @return the path of the node the bundle was loaded from
+         */
+        String getPath() {
+            return path;
+        }
+
         private void setParent(ResourceBundle parent) {
             this.parent = parent;
         }
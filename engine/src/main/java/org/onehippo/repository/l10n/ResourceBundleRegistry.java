@@ -0,0 +1,255 @@
+/*
+ * Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.repository.l10n;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.onehippo.repository.l10n.ResourceBundleLoader.ResourceBundleImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.onehippo.repository.l10n.LocalizationService.DEFAULT_LOCALE;
+
+/**
+ * The resource bundles of the repository, which can be updated for the part of the translations tree that changed.
+ * <p>
+ * Lookups take two map hits and do not allocate: the bundles are grouped by name, and every group holds the resolved
+ * bundle of each locale it has been asked for. The resolutions for the locales of the bundles themselves and their
+ * less specific locales are computed when the group is built, those of other locales when they are first asked for.
+ * <p>
+ * Updates are done by one thread at a time. A changed group is replaced as a whole, so lookups never see a group
+ * that is partly updated.
+ */
+class ResourceBundleRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(ResourceBundleRegistry.class);
+
+    /**
+     * Bounds the number of resolutions of locales without bundles that a group remembers.
+     */
+    private static final int MAX_RESOLVED_LOCALES = 100;
+
+    private final String translationsPath;
+    private final Map<String, BundleGroup> groups = new ConcurrentHashMap<>();
+
+    // only used while updating
+    private final Map<String, ResourceBundleImpl> byPath = new HashMap<>();
+    private final Map<String, Map<Locale, ResourceBundleImpl>> byName = new HashMap<>();
+
+    ResourceBundleRegistry(final String translationsPath) {
+        this.translationsPath = translationsPath;
+    }
+
+    ResourceBundle getResourceBundle(final String name, final Locale locale) {
+        final BundleGroup group = groups.get(name);
+        return group != null ? group.resolve(locale) : null;
+    }
+
+    synchronized void load(final Session session) throws RepositoryException {
+        final Node translations = session.getNode(translationsPath);
+        final Set<String> names = new HashSet<>(byName.keySet());
+        byPath.clear();
+        byName.clear();
+        for (ResourceBundleImpl bundle : ResourceBundleLoader.loadBundles(translations, translations)) {
+            add(bundle);
+        }
+        names.addAll(byName.keySet());
+        publish(names);
+        log.debug("Loaded {} resource bundles", byPath.size());
+    }
+
+    /**
+     * Reload the bundles of the nodes at or below <code>paths</code>, and of the bundle nodes above them.
+     *
+     * @param paths  the paths of changed nodes
+     */
+    synchronized void update(final Session session, final Collection<String> paths) throws RepositoryException {
+        final Set<String> roots = getReloadRoots(paths);
+        if (roots.contains(translationsPath)) {
+            load(session);
+            return;
+        }
+
+        final Node translations = session.getNode(translationsPath);
+        final Set<String> names = new HashSet<>();
+        for (String root : roots) {
+            for (Iterator<ResourceBundleImpl> iterator = byPath.values().iterator(); iterator.hasNext(); ) {
+                final ResourceBundleImpl bundle = iterator.next();
+                if (bundle.getPath().equals(root) || bundle.getPath().startsWith(root + "/")) {
+                    iterator.remove();
+                    remove(bundle);
+                    names.add(bundle.getName());
+                }
+            }
+            if (session.nodeExists(root)) {
+                for (ResourceBundleImpl bundle : ResourceBundleLoader.loadBundles(translations, session.getNode(root))) {
+                    add(bundle);
+                    names.add(bundle.getName());
+                }
+            }
+        }
+        publish(names);
+        log.debug("Reloaded resource bundles {} below {}", names, roots);
+    }
+
+    /**
+     * @return the paths of the subtrees to reload: the bundle node containing a changed path if there is one, or
+     * else the changed path itself, without paths that are below other paths to reload
+     */
+    private Set<String> getReloadRoots(final Collection<String> paths) {
+        final TreeSet<String> candidates = new TreeSet<>();
+        for (String path : paths) {
+            if (!path.startsWith(translationsPath + "/")) {
+                candidates.add(translationsPath);
+                continue;
+            }
+            String root = path;
+            for (String ancestor = path; ancestor.length() > translationsPath.length();
+                 ancestor = ancestor.substring(0, ancestor.lastIndexOf('/'))) {
+                if (byPath.containsKey(ancestor)) {
+                    root = ancestor;
+                    break;
+                }
+            }
+            candidates.add(root);
+        }
+        final Set<String> roots = new HashSet<>();
+        for (String candidate : candidates) {
+            // sorted, so ancestors come before their descendants
+            if (!isAtOrBelow(candidate, roots)) {
+                roots.add(candidate);
+            }
+        }
+        return roots;
+    }
+
+    private static boolean isAtOrBelow(final String path, final Set<String> roots) {
+        for (String ancestor = path; !ancestor.isEmpty(); ancestor = ancestor.substring(0, ancestor.lastIndexOf('/'))) {
+            if (roots.contains(ancestor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(final ResourceBundleImpl bundle) {
+        final ResourceBundleImpl replaced = byPath.put(bundle.getPath(), bundle);
+        if (replaced != null) {
+            remove(replaced);
+        }
+        Map<Locale, ResourceBundleImpl> named = byName.get(bundle.getName());
+        if (named == null) {
+            named = new HashMap<>();
+            byName.put(bundle.getName(), named);
+        }
+        named.put(bundle.getLocale(), bundle);
+    }
+
+    private void remove(final ResourceBundleImpl bundle) {
+        final Map<Locale, ResourceBundleImpl> named = byName.get(bundle.getName());
+        if (named != null && named.get(bundle.getLocale()) == bundle) {
+            named.remove(bundle.getLocale());
+            if (named.isEmpty()) {
+                byName.remove(bundle.getName());
+            }
+        }
+    }
+
+    /**
+     * Rewire the parents of the bundles with the given names and replace their groups.
+     */
+    private void publish(final Collection<String> names) {
+        for (String name : names) {
+            final Map<Locale, ResourceBundleImpl> named = byName.get(name);
+            if (named == null) {
+                groups.remove(name);
+            } else {
+                ResourceBundleLoader.wireParentBundles(named.values());
+                groups.put(name, new BundleGroup(new HashMap<Locale, ResourceBundle>(named)));
+            }
+        }
+    }
+
+    private static final class BundleGroup {
+
+        private final Map<Locale, ResourceBundle> bundles;
+        private final Map<Locale, ResourceBundle> resolved = new ConcurrentHashMap<>();
+
+        private BundleGroup(final Map<Locale, ResourceBundle> bundles) {
+            this.bundles = bundles;
+            final List<Locale> locales = new ArrayList<>();
+            for (Locale locale : bundles.keySet()) {
+                locales.add(locale);
+                if (!locale.getVariant().isEmpty()) {
+                    locales.add(new Locale(locale.getLanguage(), locale.getCountry()));
+                }
+                if (!locale.getCountry().isEmpty()) {
+                    locales.add(new Locale(locale.getLanguage()));
+                }
+            }
+            locales.add(DEFAULT_LOCALE);
+            for (Locale locale : locales) {
+                final ResourceBundle bundle = fallback(locale);
+                if (bundle != null) {
+                    resolved.put(locale, bundle);
+                }
+            }
+        }
+
+        private ResourceBundle resolve(final Locale locale) {
+            ResourceBundle bundle = resolved.get(locale);
+            if (bundle == null) {
+                bundle = fallback(locale);
+                if (bundle != null && resolved.size() < MAX_RESOLVED_LOCALES) {
+                    resolved.put(locale, bundle);
+                }
+            }
+            return bundle;
+        }
+
+        /**
+         * Try the exact locale, then less specific locales, and finally the default locale.
+         */
+        private ResourceBundle fallback(final Locale locale) {
+            ResourceBundle bundle = bundles.get(locale);
+            if (bundle == null && !locale.getVariant().isEmpty()) {
+                bundle = bundles.get(new Locale(locale.getLanguage(), locale.getCountry()));
+            }
+            if (bundle == null && !locale.getCountry().isEmpty()) {
+                bundle = bundles.get(new Locale(locale.getLanguage()));
+            }
+            if (bundle == null) {
+                bundle = bundles.get(DEFAULT_LOCALE);
+            }
+            return bundle;
+        }
+    }
+
+}
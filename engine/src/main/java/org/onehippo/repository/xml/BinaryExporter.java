@@ -0,0 +1,36 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.onehippo.repository.xml;
+
+import java.io.IOException;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+
+/**
+ * Stores the binary values encountered while exporting an enhanced system view package.
+ */
+public interface BinaryExporter {
+
+    /**
+     * Stores a binary value.
+     *
+     * @param value  the binary value
+     * @return  the name of the resource under which the binary can be loaded when importing the package
+     */
+    String export(Value value) throws IOException, RepositoryException;
+
+}
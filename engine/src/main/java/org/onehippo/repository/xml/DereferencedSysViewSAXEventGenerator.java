@@ -70,6 +70,13 @@ public class DereferencedSysViewSAXEventGenerator extends PhysicalSysViewSAXEven
         basePath = node.getPath();
     }
 
+    public DereferencedSysViewSAXEventGenerator(Node node, boolean noRecurse,
+                                                ContentHandler handler, BinaryExporter binaryExporter)
+        throws RepositoryException {
+        super(node, noRecurse, handler, binaryExporter);
+        basePath = node.getPath();
+    }
+
     @Override
     protected boolean skip(final Property prop) throws RepositoryException {
         if (isVersioningProperty(prop) || isLockProperty(prop)) {
@@ -44,6 +44,13 @@ public class PhysicalSysViewSAXEventGenerator extends SysViewSAXEventGenerator {
         super(node, noRecurse, contentHandler, binaries);
     }
 
+    public PhysicalSysViewSAXEventGenerator(Node node, boolean noRecurse,
+                                            ContentHandler contentHandler,
+                                            BinaryExporter binaryExporter)
+            throws RepositoryException {
+        super(node, noRecurse, contentHandler, binaryExporter);
+    }
+
 
     @Override
     protected void process(Node node, int level) throws RepositoryException, SAXException {
@@ -78,7 +78,7 @@ public class SysViewSAXEventGenerator extends AbstractSAXEventGenerator {
     }
 
     private final NameResolver resolver;
-    private Collection<File> binaries;
+    private BinaryExporter binaryExporter;
 
     public SysViewSAXEventGenerator(Node node, boolean noRecurse,
                                     boolean skipBinary,
@@ -89,8 +89,12 @@ public class SysViewSAXEventGenerator extends AbstractSAXEventGenerator {
     }
 
     public SysViewSAXEventGenerator(Node node, boolean noRecurse, ContentHandler handler, Collection<File> binaries) throws RepositoryException {
+        this(node, noRecurse, handler, new FileBinaryExporter(binaries));
+    }
+
+    public SysViewSAXEventGenerator(Node node, boolean noRecurse, ContentHandler handler, BinaryExporter binaryExporter) throws RepositoryException {
         this(node, noRecurse, false, handler);
-        this.binaries = binaries;
+        this.binaryExporter = binaryExporter;
     }
 
     @Override
@@ -155,11 +159,15 @@ public class SysViewSAXEventGenerator extends AbstractSAXEventGenerator {
 
     private void exportValue(final Value val) throws RepositoryException, SAXException {
 
-        if (val.getType() == BINARY && binaries != null) {
-            File file = createBinaryFile(val);
-            binaries.add(file);
+        if (val.getType() == BINARY && binaryExporter != null) {
+            final String fileName;
+            try {
+                fileName = binaryExporter.export(val);
+            } catch (IOException e) {
+                throw new RepositoryException(e);
+            }
             AttributesImpl attributes = new AttributesImpl();
-            attributes.addAttribute(NS_XMLIMPORT_URI, "file", "h:file", CDATA_TYPE, file.getName());
+            attributes.addAttribute(NS_XMLIMPORT_URI, "file", "h:file", CDATA_TYPE, fileName);
             contentHandler.startPrefixMapping(NS_XMLIMPORT_PREFIX, NS_XMLIMPORT_URI);
             startElement(SV_VALUE, attributes);
             endElement(SV_VALUE);
@@ -228,8 +236,16 @@ public class SysViewSAXEventGenerator extends AbstractSAXEventGenerator {
         contentHandler.endElement(name.getNamespaceURI(), name.getLocalName(), resolver.getJCRName(name));
     }
 
-    private File createBinaryFile(final Value value) throws SAXException, RepositoryException {
-        try {
+    private static class FileBinaryExporter implements BinaryExporter {
+
+        private final Collection<File> binaries;
+
+        private FileBinaryExporter(final Collection<File> binaries) {
+            this.binaries = binaries;
+        }
+
+        @Override
+        public String export(final Value value) throws IOException, RepositoryException {
             final File file = File.createTempFile("binary", ".bin");
             final InputStream in = value.getBinary().getStream();
             final FileOutputStream out = new FileOutputStream(file);
@@ -239,9 +255,8 @@ public class SysViewSAXEventGenerator extends AbstractSAXEventGenerator {
                 IOUtils.closeQuietly(in);
                 IOUtils.closeQuietly(out);
             }
-            return file;
-        } catch (IOException e) {
-            throw new RepositoryException(e);
+            binaries.add(file);
+            return file.getName();
         }
     }
 
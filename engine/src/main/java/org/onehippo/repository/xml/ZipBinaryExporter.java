@@ -0,0 +1,78 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.onehippo.repository.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.jcr.Binary;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.jackrabbit.api.JackrabbitValue;
+
+/**
+ * Writes binaries directly to an entry of a zip stream, without buffering them. Binaries that have a content
+ * identity, those kept in the data store, are written once no matter how many properties refer to them.
+ */
+public class ZipBinaryExporter implements BinaryExporter {
+
+    private final ZipOutputStream zipOut;
+    private final Map<String, String> entryNames = new HashMap<>();
+    private int count = 0;
+
+    public ZipBinaryExporter(final ZipOutputStream zipOut) {
+        this.zipOut = zipOut;
+    }
+
+    @Override
+    public String export(final Value value) throws IOException, RepositoryException {
+        final String identity = value instanceof JackrabbitValue ? ((JackrabbitValue) value).getContentIdentity() : null;
+        if (identity != null) {
+            final String entryName = entryNames.get(identity);
+            if (entryName != null) {
+                return entryName;
+            }
+        }
+        final String entryName = "binary" + (++count) + ".bin";
+        zipOut.putNextEntry(new ZipEntry(entryName));
+        final Binary binary = value.getBinary();
+        final InputStream in = binary.getStream();
+        try {
+            IOUtils.copy(in, zipOut);
+        } finally {
+            IOUtils.closeQuietly(in);
+            binary.dispose();
+        }
+        zipOut.closeEntry();
+        if (identity != null) {
+            entryNames.put(identity, entryName);
+        }
+        return entryName;
+    }
+
+    /**
+     * @return the number of binaries written to the zip stream
+     */
+    public int getCount() {
+        return count;
+    }
+}
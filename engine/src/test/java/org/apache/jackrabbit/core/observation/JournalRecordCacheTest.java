@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jackrabbit.core.observation;
+
+import org.apache.jackrabbit.core.journal.Record;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class JournalRecordCacheTest {
+
+    @Test
+    public void index_is_sampled_and_searchable() {
+        final JournalRecordCache cache = new JournalRecordCache("producer");
+        for (int i = 0; i < 10 * JournalRecordCache.INDEX_INTERVAL; i++) {
+            cache.index(1000L + i, i);
+        }
+        assertEquals(10, cache.getIndexSize());
+        assertNull(cache.getRevisionBefore(1000L));
+        assertEquals(Long.valueOf(0L), cache.getRevisionBefore(1001L));
+        assertEquals(Long.valueOf(JournalRecordCache.INDEX_INTERVAL),
+                cache.getRevisionBefore(1001L + JournalRecordCache.INDEX_INTERVAL));
+        assertEquals(Long.valueOf(9 * JournalRecordCache.INDEX_INTERVAL), cache.getRevisionBefore(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void index_ignores_descending_entries() {
+        final JournalRecordCache cache = new JournalRecordCache("producer");
+        cache.index(2000L, 10L);
+        for (int i = 0; i < 2 * JournalRecordCache.INDEX_INTERVAL; i++) {
+            cache.index(1000L, 11L + i);
+            cache.index(3000L, 5L);
+        }
+        assertEquals(1, cache.getIndexSize());
+    }
+
+    @Test
+    public void records_of_other_producers_are_chained_without_deserializing() throws Exception {
+        final JournalRecordCache cache = new JournalRecordCache("producer");
+        final Record record = createNiceMock(Record.class);
+        expect(record.getProducerId()).andReturn("other").anyTimes();
+        expect(record.getRevision()).andReturn(42L).anyTimes();
+        replay(record);
+
+        final JournalRecordCache.CachedRecord cached = cache.read(41L, record, null);
+        assertEquals(42L, cached.revision);
+        assertNull(cached.events);
+        assertSame(cached, cache.get(41L));
+        assertNull(cache.get(42L));
+
+        cache.read(null, record, null);
+        assertEquals(1, cache.getCachedRecordCount());
+    }
+}
@@ -24,6 +24,7 @@ import javax.jcr.NodeIterator;
 import org.hippoecm.repository.api.HippoNode;
 import org.hippoecm.repository.api.HippoSession;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.onehippo.repository.testutils.RepositoryTestCase;
 
@@ -169,4 +170,51 @@ public class PendingChangesTest extends RepositoryTestCase {
         assertEquals("Unexepected number of pending changes after move", 2, count);
     }
 
+    @Test
+    public void testPruneReturnsTopMostMatchingNodes() throws Exception {
+        final Node folder = test.addNode("folder", "nt:unstructured");
+        final Node deep = folder.addNode("a", "nt:unstructured").addNode("b", "hippo:testdocument");
+        deep.addMixin("mix:versionable");
+        deep.addNode("c", "hippo:testdocument").addMixin("mix:versionable");
+        final Node top = folder.addNode("d", "hippo:testdocument");
+        top.addMixin("mix:versionable");
+        top.addNode("e", "nt:unstructured").addNode("f", "hippo:testdocument").addMixin("mix:versionable");
+
+        final Set<String> paths = new HashSet<String>();
+        for (NodeIterator changes = ((HippoSession) session).pendingChanges(test, "hippo:document", true); changes.hasNext(); ) {
+            paths.add(changes.nextNode().getPath());
+        }
+        assertEquals(2, paths.size());
+        assertTrue(paths.contains("/test/folder/a/b"));
+        assertTrue(paths.contains("/test/folder/d"));
+
+        paths.clear();
+        for (NodeIterator changes = ((HippoSession) session).pendingChanges(test, "hippo:document", false); changes.hasNext(); ) {
+            paths.add(changes.nextNode().getPath());
+        }
+        assertEquals(4, paths.size());
+    }
+
+    @Ignore
+    @Test
+    public void testPrunePerformance() throws Exception {
+        for (int count : new int[] { 10000, 50000, 100000 }) {
+            final Node root = test.addNode("perf" + count, "nt:unstructured");
+            for (int i = 0; i < count / 100; i++) {
+                final Node folder = root.addNode("folder" + i, "nt:unstructured");
+                for (int j = 0; j < 99; j++) {
+                    folder.addNode("node" + j, "nt:unstructured");
+                }
+            }
+            long t1 = System.currentTimeMillis();
+            int pruned = 0;
+            for (NodeIterator changes = ((HippoSession) session).pendingChanges(test, "nt:unstructured", true); changes.hasNext(); changes.nextNode()) {
+                pruned++;
+            }
+            long t2 = System.currentTimeMillis();
+            assertEquals(1, pruned);
+            log.info(count + "\t" + (t2 - t1));
+            session.refresh(false);
+        }
+    }
 }
@@ -15,8 +15,12 @@
  */
 package org.hippoecm.repository;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.jcr.Node;
@@ -25,6 +29,7 @@ import org.hippoecm.repository.api.HippoNodeType;
 import org.hippoecm.repository.api.HippoSession;
 import org.hippoecm.repository.api.HippoWorkspace;
 import org.hippoecm.repository.api.NodeNameCodec;
+import org.hippoecm.repository.util.NodeIterable;
 import org.junit.After;
 import org.junit.Test;
 import org.onehippo.repository.security.Group;
@@ -33,11 +38,15 @@ import org.onehippo.repository.security.User;
 import org.onehippo.repository.testutils.RepositoryTestCase;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertTrue;
 
 public class SecurityServiceTest extends RepositoryTestCase {
 
+    private static final String TEST_PREFIX = "securityservicetest-";
+    private static final long INDEX_TIMEOUT = 10000L;
+
     @After
     @Override
     public void tearDown() throws Exception {
@@ -50,6 +59,12 @@ public class SecurityServiceTest extends RepositoryTestCase {
         if (groups.hasNode(encodedName)) {
             groups.getNode(encodedName).remove();
         }
+        for (Node user : new NodeIterable(users.getNodes(TEST_PREFIX + "*"))) {
+            user.remove();
+        }
+        for (Node group : new NodeIterable(groups.getNodes(TEST_PREFIX + "*"))) {
+            group.remove();
+        }
         session.save();
         super.tearDown();
     }
@@ -126,4 +141,164 @@ public class SecurityServiceTest extends RepositoryTestCase {
         assertTrue(securityService.hasGroup(group.getName()));
         assertTrue(securityService.getGroup(group.getName()).getId().equals(group.getName()));
     }
+
+    @Test
+    public void testPageUsersAfter() throws Exception {
+        final Node users = session.getNode("/hippo:configuration/hippo:users");
+        for (int i = 0; i < 5; i++) {
+            users.addNode(TEST_PREFIX + i, HippoNodeType.NT_USER);
+        }
+        session.save();
+        final SecurityService securityService = ((HippoWorkspace) session.getWorkspace()).getSecurityService();
+        waitForUserIds(securityService, Arrays.asList(TEST_PREFIX + 0, TEST_PREFIX + 1, TEST_PREFIX + 2,
+                TEST_PREFIX + 3, TEST_PREFIX + 4));
+
+        final List<String> page = new ArrayList<>();
+        for (User user : securityService.getUsersAfter(TEST_PREFIX + 1, 2)) {
+            page.add(user.getId());
+        }
+        assertEquals(Arrays.asList(TEST_PREFIX + 2, TEST_PREFIX + 3), page);
+    }
+
+    @Test
+    public void testUsersAreReindexedOnChange() throws Exception {
+        final Node users = session.getNode("/hippo:configuration/hippo:users");
+        users.addNode(TEST_PREFIX + "a", HippoNodeType.NT_USER);
+        users.addNode(TEST_PREFIX + "b", HippoNodeType.NT_USER);
+        session.save();
+        final SecurityService securityService = ((HippoWorkspace) session.getWorkspace()).getSecurityService();
+        waitForUserIds(securityService, Arrays.asList(TEST_PREFIX + "a", TEST_PREFIX + "b"));
+
+        session.move(users.getPath() + "/" + TEST_PREFIX + "a", users.getPath() + "/" + TEST_PREFIX + "c");
+        users.getNode(TEST_PREFIX + "b").remove();
+        session.save();
+        waitForUserIds(securityService, Arrays.asList(TEST_PREFIX + "c"));
+        assertTrue(securityService.hasUser(TEST_PREFIX + "c"));
+        assertFalse(securityService.hasUser(TEST_PREFIX + "a"));
+        assertFalse(securityService.hasUser(TEST_PREFIX + "b"));
+    }
+
+    @Test
+    public void testPageGroupsAfter() throws Exception {
+        final Node groups = session.getNode("/hippo:configuration/hippo:groups");
+        for (int i = 0; i < 3; i++) {
+            groups.addNode(TEST_PREFIX + i, HippoNodeType.NT_GROUP);
+        }
+        session.save();
+        final SecurityService securityService = ((HippoWorkspace) session.getWorkspace()).getSecurityService();
+        final List<String> expected = Arrays.asList(TEST_PREFIX + 1, TEST_PREFIX + 2);
+        final long timeout = System.currentTimeMillis() + INDEX_TIMEOUT;
+        List<String> groupIds = getTestGroupIds(securityService, TEST_PREFIX + 0);
+        while (!groupIds.equals(expected) && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50);
+            groupIds = getTestGroupIds(securityService, TEST_PREFIX + 0);
+        }
+        assertEquals(expected, groupIds);
+    }
+
+    @Test
+    public void testBatchMemberships() throws Exception {
+        final Node groups = session.getNode("/hippo:configuration/hippo:groups");
+        groups.addNode(TEST_PREFIX + "editors", HippoNodeType.NT_GROUP).setProperty(HippoNodeType.HIPPO_MEMBERS,
+                new String[] { TEST_PREFIX + "a", TEST_PREFIX + "b" });
+        groups.addNode(TEST_PREFIX + "authors", HippoNodeType.NT_GROUP).setProperty(HippoNodeType.HIPPO_MEMBERS,
+                new String[] { TEST_PREFIX + "b" });
+        session.save();
+        final SecurityService securityService = ((HippoWorkspace) session.getWorkspace()).getSecurityService();
+        final List<String> userIds = Arrays.asList(TEST_PREFIX + "a", TEST_PREFIX + "b", TEST_PREFIX + "c");
+
+        waitForMembershipIds(securityService, userIds, TEST_PREFIX + "b",
+                new HashSet<>(Arrays.asList(TEST_PREFIX + "editors", TEST_PREFIX + "authors")));
+        final Map<String, Set<String>> memberships = securityService.getMembershipIds(userIds);
+        assertEquals(3, memberships.size());
+        assertEquals(new HashSet<>(Arrays.asList(TEST_PREFIX + "editors")), getTestGroupIds(memberships.get(TEST_PREFIX + "a")));
+        assertTrue(getTestGroupIds(memberships.get(TEST_PREFIX + "c")).isEmpty());
+        // everybody lists member "*"
+        assertTrue(memberships.get(TEST_PREFIX + "c").contains("everybody"));
+
+        final Map<String, Set<String>> members = securityService.getMemberIds(
+                Arrays.asList(TEST_PREFIX + "editors", TEST_PREFIX + "authors", TEST_PREFIX + "none"));
+        assertEquals(2, members.size());
+        assertEquals(new HashSet<>(Arrays.asList(TEST_PREFIX + "a", TEST_PREFIX + "b")), members.get(TEST_PREFIX + "editors"));
+        assertEquals(new HashSet<>(Arrays.asList(TEST_PREFIX + "b")), members.get(TEST_PREFIX + "authors"));
+    }
+
+    @Test
+    public void testBatchMembershipsFollowChanges() throws Exception {
+        final Node groups = session.getNode("/hippo:configuration/hippo:groups");
+        final Node editors = groups.addNode(TEST_PREFIX + "editors", HippoNodeType.NT_GROUP);
+        editors.setProperty(HippoNodeType.HIPPO_MEMBERS, new String[] { TEST_PREFIX + "a" });
+        session.save();
+        final SecurityService securityService = ((HippoWorkspace) session.getWorkspace()).getSecurityService();
+        final List<String> userIds = Arrays.asList(TEST_PREFIX + "a", TEST_PREFIX + "b");
+        waitForMembershipIds(securityService, userIds, TEST_PREFIX + "a",
+                new HashSet<>(Arrays.asList(TEST_PREFIX + "editors")));
+
+        editors.setProperty(HippoNodeType.HIPPO_MEMBERS, new String[] { TEST_PREFIX + "b" });
+        session.save();
+        waitForMembershipIds(securityService, userIds, TEST_PREFIX + "b",
+                new HashSet<>(Arrays.asList(TEST_PREFIX + "editors")));
+        assertTrue(getTestGroupIds(securityService.getMembershipIds(userIds).get(TEST_PREFIX + "a")).isEmpty());
+
+        editors.remove();
+        session.save();
+        waitForMembershipIds(securityService, userIds, TEST_PREFIX + "b", new HashSet<String>());
+    }
+
+    /**
+     * The members index is updated asynchronously, wait until the test groups of a user are the expected ones
+     */
+    private static void waitForMembershipIds(final SecurityService securityService, final List<String> userIds,
+                                             final String userId, final Set<String> expected) throws Exception {
+        final long timeout = System.currentTimeMillis() + INDEX_TIMEOUT;
+        Set<String> groupIds = getTestGroupIds(securityService.getMembershipIds(userIds).get(userId));
+        while (!groupIds.equals(expected) && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50);
+            groupIds = getTestGroupIds(securityService.getMembershipIds(userIds).get(userId));
+        }
+        assertEquals(expected, groupIds);
+    }
+
+    private static Set<String> getTestGroupIds(final Set<String> groupIds) {
+        final Set<String> testGroupIds = new HashSet<>();
+        for (String groupId : groupIds) {
+            if (groupId.startsWith(TEST_PREFIX)) {
+                testGroupIds.add(groupId);
+            }
+        }
+        return testGroupIds;
+    }
+
+    /**
+     * The index behind paging is updated asynchronously, wait until it lists exactly the expected test users
+     */
+    private static void waitForUserIds(final SecurityService securityService, final List<String> expected) throws Exception {
+        final long timeout = System.currentTimeMillis() + INDEX_TIMEOUT;
+        List<String> userIds = getTestUserIds(securityService);
+        while (!userIds.equals(expected) && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50);
+            userIds = getTestUserIds(securityService);
+        }
+        assertEquals(expected, userIds);
+    }
+
+    private static List<String> getTestUserIds(final SecurityService securityService) throws Exception {
+        final List<String> userIds = new ArrayList<>();
+        for (User user : securityService.getUsersAfter(TEST_PREFIX, 0)) {
+            if (user.getId().startsWith(TEST_PREFIX)) {
+                userIds.add(user.getId());
+            }
+        }
+        return userIds;
+    }
+
+    private static List<String> getTestGroupIds(final SecurityService securityService, final String after) throws Exception {
+        final List<String> groupIds = new ArrayList<>();
+        for (Group group : securityService.getGroupsAfter(after, 0)) {
+            if (group.getId().startsWith(TEST_PREFIX)) {
+                groupIds.add(group.getId());
+            }
+        }
+        return groupIds;
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hippoecm.repository.FacetedNavigationEngine.Count;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TopFacetValueCountsTest {
+
+    @Test
+    public void only_values_with_highest_counts_are_returned() {
+        final Map<String, Count> all = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            all.put("tag" + i, new Count(i % 100));
+        }
+        final Map<String, Count> top = new HashMap<>();
+        FacetedNavigationEngineImpl.putTopFacetValueCounts(all, top, 10);
+
+        assertEquals(10, top.size());
+        for (Count count : top.values()) {
+            assertEquals(99, count.count);
+        }
+    }
+
+    @Test
+    public void equal_counts_are_ordered_by_value() {
+        final Map<String, Count> all = new HashMap<>();
+        all.put("c", new Count(1));
+        all.put("a", new Count(1));
+        all.put("b", new Count(1));
+        all.put("d", new Count(2));
+        final Map<String, Count> top = new HashMap<>();
+        FacetedNavigationEngineImpl.putTopFacetValueCounts(all, top, 2);
+
+        assertEquals(2, top.size());
+        assertTrue(top.containsKey("d"));
+        assertTrue(top.containsKey("a"));
+    }
+
+    @Test
+    public void empty_value_does_not_take_a_place() {
+        final Map<String, Count> all = new HashMap<>();
+        all.put("", new Count(10));
+        all.put("a", new Count(3));
+        all.put("b", new Count(2));
+        all.put("c", new Count(1));
+        final Map<String, Count> top = new HashMap<>();
+        FacetedNavigationEngineImpl.putTopFacetValueCounts(all, top, 2);
+
+        assertEquals(2, top.size());
+        assertTrue(top.containsKey("a"));
+        assertTrue(top.containsKey("b"));
+    }
+
+    @Test
+    public void zero_limit_returns_nothing() {
+        final Map<String, Count> all = new HashMap<>();
+        all.put("a", new Count(1));
+        final Map<String, Count> top = new HashMap<>();
+        FacetedNavigationEngineImpl.putTopFacetValueCounts(all, top, 0);
+        assertTrue(top.isEmpty());
+    }
+}
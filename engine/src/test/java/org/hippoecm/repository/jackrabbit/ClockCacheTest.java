@@ -0,0 +1,71 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.jackrabbit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ClockCacheTest {
+
+    @Test
+    public void capacityIsRoundedUpToWholeShards() {
+        assertEquals(ClockCache.WAYS, new ClockCache<String, String>(1).capacity());
+        assertEquals(1024, new ClockCache<String, String>(1000).capacity());
+        assertEquals(1024, new ClockCache<String, String>(1024).capacity());
+    }
+
+    @Test
+    public void valuesAreReplaced() {
+        final ClockCache<String, String> cache = new ClockCache<>(16);
+        assertNull(cache.get("key"));
+        cache.put("key", "one");
+        assertEquals("one", cache.get("key"));
+        cache.put("key", "two");
+        assertEquals("two", cache.get("key"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void sizeIsBounded() {
+        final ClockCache<Integer, Integer> cache = new ClockCache<>(64);
+        for (int i = 0; i < 10000; i++) {
+            cache.put(i, i);
+        }
+        assertTrue(cache.size() <= 64);
+        for (int i = 0; i < 10000; i++) {
+            final Integer value = cache.get(i);
+            assertTrue(value == null || value == i);
+        }
+    }
+
+    @Test
+    public void referencedEntriesSurviveEviction() {
+        // a single shard, so all keys compete for the same slots
+        final ClockCache<Integer, Integer> cache = new ClockCache<>(ClockCache.WAYS);
+        for (int i = 0; i < ClockCache.WAYS; i++) {
+            cache.put(i, i);
+        }
+        for (int round = 0; round < 100; round++) {
+            assertEquals(Integer.valueOf(0), cache.get(0));
+            cache.put(ClockCache.WAYS + round, round);
+        }
+        assertEquals(Integer.valueOf(0), cache.get(0));
+    }
+
+}
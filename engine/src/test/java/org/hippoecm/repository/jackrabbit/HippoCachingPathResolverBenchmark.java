@@ -0,0 +1,148 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.jackrabbit;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jcr.NamespaceException;
+
+import org.apache.jackrabbit.spi.Path;
+import org.apache.jackrabbit.spi.commons.conversion.NameResolver;
+import org.apache.jackrabbit.spi.commons.conversion.ParsingNameResolver;
+import org.apache.jackrabbit.spi.commons.conversion.ParsingPathResolver;
+import org.apache.jackrabbit.spi.commons.name.NameFactoryImpl;
+import org.apache.jackrabbit.spi.commons.name.PathFactoryImpl;
+import org.apache.jackrabbit.spi.commons.namespace.NamespaceResolver;
+
+/**
+ * Microbenchmark of {@link HippoCachingPathResolver} shared by 1, 8 and 64 threads, in both directions.
+ * <p>
+ * Not a unit test; run it with the test classpath of the engine module:
+ * <pre>
+ *   java -cp ... org.hippoecm.repository.jackrabbit.HippoCachingPathResolverBenchmark [seconds per iteration]
+ * </pre>
+ * Like JMH, every configuration gets warmup iterations before the measured ones, and the results are consumed so
+ * the JIT cannot remove the lookups. Two working sets are measured: one that fits in the cache, so nearly all lookups
+ * are hits, and one that is four times as large.
+ */
+public class HippoCachingPathResolverBenchmark {
+
+    private static final int[] THREADS = { 1, 8, 64 };
+    private static final int[] WORKING_SETS = { 500, 4096 };
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+
+    private static final NamespaceResolver NAMESPACES = new NamespaceResolver() {
+        @Override
+        public String getURI(final String prefix) throws NamespaceException {
+            if (prefix.isEmpty()) {
+                return "";
+            } else if (prefix.equals("hippo")) {
+                return "http://www.onehippo.org/jcr/hippo/nt/2.0";
+            } else if (prefix.equals("jcr")) {
+                return "http://www.jcp.org/jcr/1.0";
+            }
+            throw new NamespaceException(prefix);
+        }
+
+        @Override
+        public String getPrefix(final String uri) throws NamespaceException {
+            if (uri.isEmpty()) {
+                return "";
+            } else if (uri.equals("http://www.onehippo.org/jcr/hippo/nt/2.0")) {
+                return "hippo";
+            } else if (uri.equals("http://www.jcp.org/jcr/1.0")) {
+                return "jcr";
+            }
+            throw new NamespaceException(uri);
+        }
+    };
+
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        final long iterationMillis = TimeUnit.SECONDS.toMillis(args.length > 0 ? Long.parseLong(args[0]) : 1);
+        for (int workingSet : WORKING_SETS) {
+            final String[] paths = createPaths(workingSet);
+            for (int threads : THREADS) {
+                final NameResolver nameResolver = new ParsingNameResolver(NameFactoryImpl.getInstance(), NAMESPACES);
+                final HippoCachingPathResolver resolver = new HippoCachingPathResolver(
+                        new ParsingPathResolver(PathFactoryImpl.getInstance(), nameResolver), nameResolver);
+                for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                    run(resolver, paths, threads, iterationMillis);
+                }
+                long total = 0;
+                for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+                    total += run(resolver, paths, threads, iterationMillis);
+                }
+                final long opsPerSecond = total * 1000 / (MEASUREMENT_ITERATIONS * iterationMillis);
+                System.out.println(String.format("paths=%5d threads=%2d %,15d ops/s", workingSet, threads, opsPerSecond));
+            }
+        }
+    }
+
+    private static String[] createPaths(final int count) {
+        final String[] paths = new String[count];
+        for (int i = 0; i < count; i++) {
+            paths[i] = "/content/documents/hippo:folder" + (i % 50) + "/document" + i + "/hippo:document" + i;
+        }
+        return paths;
+    }
+
+    /**
+     * @return the number of operations performed by all threads in one iteration; an operation resolves a JCR path
+     * to a qualified path and back
+     */
+    private static long run(final HippoCachingPathResolver resolver, final String[] paths, final int threads,
+                            final long millis) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicLong operations = new AtomicLong();
+        final long deadline = System.currentTimeMillis() + millis;
+        for (int t = 0; t < threads; t++) {
+            final int offset = t * 7919;
+            new Thread() {
+                @Override
+                public void run() {
+                    long count = 0;
+                    long hash = 0;
+                    try {
+                        start.await();
+                        for (int i = offset; ; i++) {
+                            final Path qpath = resolver.getQPath(paths[i % paths.length]);
+                            hash += resolver.getJCRPath(qpath).length();
+                            if ((++count & 0xFF) == 0 && System.currentTimeMillis() >= deadline) {
+                                break;
+                            }
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    } finally {
+                        sink += hash;
+                        operations.addAndGet(count);
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        start.countDown();
+        done.await();
+        return operations.get();
+    }
+
+}
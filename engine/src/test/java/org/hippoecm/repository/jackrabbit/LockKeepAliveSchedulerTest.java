@@ -0,0 +1,187 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.jackrabbit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.jcr.Session;
+
+import org.hippoecm.repository.jackrabbit.LockKeepAliveScheduler.KeepAlive;
+import org.hippoecm.repository.jackrabbit.LockKeepAliveScheduler.Refresher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LockKeepAliveSchedulerTest {
+
+    // ticks are driven by the test, the scheduled tick never fires while it runs
+    private static final long TICK_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int WHEEL_SIZE = 8;
+
+    private ScheduledThreadPoolExecutor executor;
+    private LockKeepAliveScheduler scheduler;
+    private CountingRefresher refresher;
+
+    @Before
+    public void setUp() {
+        executor = new ScheduledThreadPoolExecutor(1);
+        scheduler = new LockKeepAliveScheduler(executor, TICK_MILLIS, WHEEL_SIZE);
+        refresher = new CountingRefresher();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void tenThousandLocksShareOneTimer() throws Exception {
+        final int sessionCount = 10;
+        final int locksPerSession = 1000;
+        final int threads = Thread.activeCount();
+        assertEquals(1, executor.getQueue().size());
+
+        for (int i = 0; i < sessionCount; i++) {
+            final Session session = createSession(true);
+            for (int j = 0; j < locksPerSession; j++) {
+                scheduler.schedule(new TestKeepAlive(session, 0), 0);
+            }
+        }
+        assertEquals(sessionCount * locksPerSession, scheduler.size());
+
+        for (int tick = 0; tick < 3; tick++) {
+            scheduler.tick();
+            assertEquals(1, executor.getQueue().size());
+            assertTrue(Thread.activeCount() <= threads);
+        }
+
+        // every tick refreshes all locks, in one batch per session
+        assertEquals(3 * sessionCount, refresher.batches.size());
+        for (Integer batchSize : refresher.batches) {
+            assertEquals(locksPerSession, batchSize.intValue());
+        }
+        assertEquals(sessionCount * locksPerSession, scheduler.size());
+    }
+
+    @Test
+    public void keepAliveIsRefreshedWhenDue() throws Exception {
+        final Session session = createSession(true);
+        // more than one revolution of the wheel
+        final long interval = WHEEL_SIZE + 2;
+        final TestKeepAlive keepAlive = new TestKeepAlive(session, interval * TICK_MILLIS / 1000);
+        scheduler.schedule(keepAlive, keepAlive.getInterval());
+
+        for (int tick = 1; tick < interval; tick++) {
+            scheduler.tick();
+        }
+        assertEquals(0, refresher.batches.size());
+        scheduler.tick();
+        assertEquals(1, refresher.batches.size());
+        for (int tick = 1; tick <= interval; tick++) {
+            scheduler.tick();
+        }
+        assertEquals(2, refresher.batches.size());
+    }
+
+    @Test
+    public void keepAlivesOfLoggedOutSessionsAreDropped() throws Exception {
+        scheduler.schedule(new TestKeepAlive(createSession(false), 0), 0);
+        scheduler.schedule(new TestKeepAlive(createSession(true), 0), 0);
+        scheduler.tick();
+        assertEquals(1, refresher.batches.size());
+        assertEquals(1, scheduler.size());
+    }
+
+    @Test
+    public void stoppedOrFailedKeepAlivesAreNotRescheduled() throws Exception {
+        final Session session = createSession(true);
+        final TestKeepAlive stopped = new TestKeepAlive(session, 0);
+        final TestKeepAlive failing = new TestKeepAlive(session, 0);
+        failing.fail = true;
+        scheduler.schedule(stopped, 0);
+        scheduler.schedule(failing, 0);
+        scheduler.schedule(new TestKeepAlive(session, 0), 0);
+        scheduler.cancel(stopped);
+        assertEquals(2, scheduler.size());
+
+        scheduler.tick();
+        assertEquals(1, refresher.batches.size());
+        assertEquals(2, refresher.batches.get(0).intValue());
+        assertEquals(1, scheduler.size());
+    }
+
+    private static Session createSession(final boolean live) {
+        final Session session = createNiceMock(Session.class);
+        expect(session.isLive()).andReturn(live).anyTimes();
+        replay(session);
+        return session;
+    }
+
+    private class TestKeepAlive implements KeepAlive {
+
+        private final Session session;
+        private final long interval;
+        private boolean fail;
+
+        private TestKeepAlive(final Session session, final long interval) {
+            this.session = session;
+            this.interval = interval;
+        }
+
+        @Override
+        public Session getSession() {
+            return session;
+        }
+
+        @Override
+        public Refresher getRefresher() {
+            return refresher;
+        }
+
+        @Override
+        public long getInterval() {
+            return interval;
+        }
+    }
+
+    private static class CountingRefresher implements Refresher {
+
+        private final List<Integer> batches = new ArrayList<>();
+
+        @Override
+        public Collection<KeepAlive> refresh(final List<KeepAlive> keepAlives) {
+            batches.add(keepAlives.size());
+            final List<KeepAlive> refreshed = new ArrayList<>();
+            for (KeepAlive keepAlive : keepAlives) {
+                if (!((TestKeepAlive) keepAlive).fail) {
+                    refreshed.add(keepAlive);
+                }
+            }
+            return refreshed;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.query.lucene;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.mime.MediaType;
+import org.apache.tika.parser.AbstractParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.XHTMLContentHandler;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CachingTextExtractorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FileExtractedTextCache cache;
+    private CountingParser parser;
+
+    @Before
+    public void setUp() throws IOException {
+        cache = new FileExtractedTextCache();
+        cache.init(folder.newFolder("extracted").getPath());
+        parser = new CountingParser();
+    }
+
+    private static String extract(final CachingTextExtractor extractor, final String identity) throws Exception {
+        final BodyContentHandler handler = new BodyContentHandler();
+        final Metadata metadata = new Metadata();
+        if (identity != null) {
+            metadata.set(CachingTextExtractor.CONTENT_IDENTITY, identity);
+        }
+        extractor.parse(new ByteArrayInputStream("binary".getBytes("UTF-8")), handler, metadata, new ParseContext());
+        return handler.toString().trim();
+    }
+
+    @Test
+    public void cached_text_is_not_parsed_again() throws Exception {
+        final CachingTextExtractor extractor = new CachingTextExtractor(parser, cache, "1.0", 0);
+        assertEquals("extracted text", extract(extractor, "abc"));
+        assertEquals("extracted text", extract(extractor, "abc"));
+        assertEquals(1, parser.count);
+    }
+
+    @Test
+    public void extractor_version_is_part_of_key() throws Exception {
+        assertEquals("extracted text", extract(new CachingTextExtractor(parser, cache, "1.0", 0), "abc"));
+        assertEquals("extracted text", extract(new CachingTextExtractor(parser, cache, "2.0", 0), "abc"));
+        assertEquals(2, parser.count);
+    }
+
+    @Test
+    public void binaries_without_identity_are_always_parsed() throws Exception {
+        final CachingTextExtractor extractor = new CachingTextExtractor(parser, cache, "1.0", 0);
+        assertEquals("extracted text", extract(extractor, null));
+        assertEquals("extracted text", extract(extractor, null));
+        assertEquals(2, parser.count);
+    }
+
+    @Test
+    public void slow_extraction_is_aborted_and_not_cached() throws Exception {
+        parser.delay = 50;
+        final CachingTextExtractor extractor = new CachingTextExtractor(parser, cache, "1.0", 10);
+        try {
+            extract(extractor, "abc");
+            fail("Expected extraction to time out");
+        } catch (SAXException expected) {
+        }
+        assertNull(cache.get("abc/1.0"));
+    }
+
+    @Test
+    public void file_cache_stores_text() throws Exception {
+        assertNull(cache.get("key"));
+        cache.put("key", "text éè");
+        assertEquals("text éè", cache.get("key"));
+        assertTrue(cache.getFile("key").isFile());
+        assertFalse(cache.getFile("other").exists());
+    }
+
+    private static class CountingParser extends AbstractParser {
+
+        private int count;
+        private long delay;
+
+        @Override
+        public Set<MediaType> getSupportedTypes(final ParseContext context) {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public void parse(final InputStream stream, final ContentHandler handler, final Metadata metadata,
+                          final ParseContext context) throws IOException, SAXException, TikaException {
+            count++;
+            final XHTMLContentHandler xhtml = new XHTMLContentHandler(handler, metadata);
+            xhtml.startDocument();
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    throw new TikaException("interrupted", e);
+                }
+            }
+            xhtml.element("p", "extracted text");
+            xhtml.endDocument();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.query.lucene;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jackrabbit.core.id.NodeId;
+import org.apache.jackrabbit.core.query.lucene.FieldNames;
+import org.apache.jackrabbit.core.state.ItemState;
+import org.apache.jackrabbit.core.state.ItemStateManager;
+import org.apache.jackrabbit.core.state.NodeState;
+import org.apache.jackrabbit.spi.commons.name.NameConstants;
+import org.apache.jackrabbit.spi.commons.name.NameFactoryImpl;
+import org.apache.lucene.analysis.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParentIdHierarchyTest {
+
+    private final Map<String, NodeId> ids = new HashMap<>();
+    private final Map<String, String> parents = new HashMap<>();
+    private RAMDirectory directory;
+
+    /**
+     * root
+     *  +- a
+     *  |  +- a1
+     *  |  |  +- a1x
+     *  |  +- a2
+     *  +- b
+     *     +- b1
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = new RAMDirectory();
+        try (IndexWriter writer = createWriter()) {
+            addNode(writer, "root", null);
+            addNode(writer, "a", "root");
+            addNode(writer, "a1", "a");
+            addNode(writer, "a1x", "a1");
+            addNode(writer, "a2", "a");
+            addNode(writer, "b", "root");
+            addNode(writer, "b1", "b");
+        }
+    }
+
+    @Test
+    public void descendant_queries_match_ancestor_encoding() throws IOException {
+        final ParentIdHierarchy hierarchy = new ParentIdHierarchy();
+        try (IndexReader reader = IndexReader.open(directory)) {
+            hierarchy.initialize(new IndexReader[] { reader });
+            for (String name : ids.keySet()) {
+                final String id = ids.get(name).toString();
+                assertEquals("descendants of " + name,
+                        search(reader, new TermQuery(new Term(ServicingFieldNames.HIPPO_UUIDS, id))),
+                        search(reader, hierarchy.getDescendantOrSelfQuery(id)));
+            }
+        }
+        assertEquals("only nodes with child nodes are kept", 3, hierarchy.size());
+    }
+
+    @Test
+    public void moved_subtree_only_requires_moved_node_to_be_reindexed() throws IOException {
+        final ParentIdHierarchy hierarchy = new ParentIdHierarchy();
+        try (IndexReader reader = IndexReader.open(directory)) {
+            hierarchy.initialize(new IndexReader[] { reader });
+        }
+        final long generation = hierarchy.getGeneration();
+
+        // move a1 below b, reindexing a1 only
+        try (IndexWriter writer = createWriter()) {
+            writer.deleteDocuments(new Term(FieldNames.UUID, ids.get("a1").toString()));
+            addNode(writer, "a1", "b");
+        }
+        final NodeState a1 = createState("a1", "b");
+        a1.addChildNodeEntry(NameFactoryImpl.getInstance().create("", "a1x"), ids.get("a1x"));
+        hierarchy.update(Collections.singleton(ids.get("a1")), Collections.singletonList(a1), null);
+
+        assertTrue(hierarchy.getGeneration() > generation);
+        try (IndexReader reader = IndexReader.open(directory)) {
+            assertEquals(names("b", "b1", "a1", "a1x"), search(reader, hierarchy.getDescendantOrSelfQuery(id("b"))));
+            assertEquals(names("a", "a2"), search(reader, hierarchy.getDescendantOrSelfQuery(id("a"))));
+        }
+    }
+
+    @Test
+    public void first_child_node_adds_parent_to_hierarchy() throws Exception {
+        final ParentIdHierarchy hierarchy = new ParentIdHierarchy();
+        try (IndexReader reader = IndexReader.open(directory)) {
+            hierarchy.initialize(new IndexReader[] { reader });
+        }
+
+        try (IndexWriter writer = createWriter()) {
+            addNode(writer, "a2c", "a2");
+        }
+        final ItemStateManager itemStateManager = createMock(ItemStateManager.class);
+        expect(itemStateManager.getItemState(ids.get("a2"))).andReturn((ItemState) createState("a2", "a"));
+        replay(itemStateManager);
+        hierarchy.update(Collections.<NodeId>emptySet(), Collections.singletonList(createState("a2c", "a2")),
+                itemStateManager);
+        verify(itemStateManager);
+
+        try (IndexReader reader = IndexReader.open(directory)) {
+            assertEquals(names("a", "a1", "a1x", "a2", "a2c"), search(reader, hierarchy.getDescendantOrSelfQuery(id("a"))));
+        }
+    }
+
+    private IndexWriter createWriter() throws IOException {
+        return new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_36, new KeywordAnalyzer()));
+    }
+
+    private void addNode(final IndexWriter writer, final String name, final String parent) throws IOException {
+        if (!ids.containsKey(name)) {
+            ids.put(name, new NodeId());
+        }
+        parents.put(name, parent);
+        final Document doc = new Document();
+        doc.add(new Field(FieldNames.UUID, id(name), Field.Store.YES, Field.Index.NOT_ANALYZED_NO_NORMS));
+        if (parent != null) {
+            doc.add(new Field(FieldNames.PARENT, id(parent), Field.Store.NO, Field.Index.NOT_ANALYZED_NO_NORMS));
+        }
+        for (String ancestor = name; ancestor != null; ancestor = parents.get(ancestor)) {
+            doc.add(new Field(ServicingFieldNames.HIPPO_UUIDS, id(ancestor), Field.Store.NO,
+                    Field.Index.NOT_ANALYZED_NO_NORMS));
+        }
+        writer.addDocument(doc);
+    }
+
+    private NodeState createState(final String name, final String parent) {
+        return new NodeState(ids.get(name), NameConstants.NT_UNSTRUCTURED, ids.get(parent), ItemState.STATUS_NEW, false);
+    }
+
+    private String id(final String name) {
+        return ids.get(name).toString();
+    }
+
+    private Set<String> names(final String... names) {
+        final Set<String> result = new HashSet<>();
+        for (String name : Arrays.asList(names)) {
+            result.add(id(name));
+        }
+        return result;
+    }
+
+    private static Set<String> search(final IndexReader reader, final Query query) throws IOException {
+        final List<Integer> docs = new ArrayList<>();
+        final IndexSearcher searcher = new IndexSearcher(reader);
+        searcher.search(query, new Collector() {
+            private int docBase;
+
+            @Override
+            public void setScorer(final Scorer scorer) {
+            }
+
+            @Override
+            public void collect(final int doc) {
+                docs.add(docBase + doc);
+            }
+
+            @Override
+            public void setNextReader(final IndexReader reader, final int docBase) {
+                this.docBase = docBase;
+            }
+
+            @Override
+            public boolean acceptsDocsOutOfOrder() {
+                return true;
+            }
+        });
+        final Set<String> result = new HashSet<>();
+        for (int doc : docs) {
+            result.add(reader.document(doc).get(FieldNames.UUID));
+        }
+        return result;
+    }
+}
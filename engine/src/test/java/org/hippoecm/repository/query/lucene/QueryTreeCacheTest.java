@@ -0,0 +1,92 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.query.lucene;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.query.Query;
+
+import org.hippoecm.repository.decorating.RepositoryDecorator;
+import org.hippoecm.repository.jackrabbit.RepositoryImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.onehippo.repository.testutils.RepositoryTestCase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QueryTreeCacheTest extends RepositoryTestCase {
+
+    private static final String STATEMENT = "//element(*, nt:unstructured)[@qtc:querytreetest = 'value']";
+
+    private QueryTreeCache cache;
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        final Node test = session.getRootNode().addNode("test");
+        test.addNode("hippo", "nt:unstructured").setProperty("hippo:querytreetest", "value");
+        test.addNode("hippostd", "nt:unstructured").setProperty("hippostd:querytreetest", "value");
+        session.save();
+
+        final RepositoryImpl repository = (RepositoryImpl) RepositoryDecorator.unwrap(session.getRepository());
+        cache = ((ServicingSearchIndex) repository.getSearchManager("default").getQueryHandler()).getQueryTreeCache();
+    }
+
+    @Test
+    public void testQueryTreeIsSharedBySessions() throws Exception {
+        final String statement = "//element(*, nt:unstructured)[@hippo:querytreetest = 'value']";
+        final long hits = cache.getHitCount();
+
+        assertEquals("/test/hippo", executeSingle(session, statement));
+        final Session other = server.login(CREDENTIALS);
+        try {
+            assertEquals("/test/hippo", executeSingle(other, statement));
+        } finally {
+            other.logout();
+        }
+
+        // other queries may run in the background, so only check that the second query was a hit
+        assertTrue(cache.getHitCount() > hits);
+    }
+
+    @Test
+    public void testNamespaceMappingIsPartOfKey() throws Exception {
+        final Session hippo = server.login(CREDENTIALS);
+        final Session hippostd = server.login(CREDENTIALS);
+        try {
+            hippo.setNamespacePrefix("qtc", session.getNamespaceURI("hippo"));
+            hippostd.setNamespacePrefix("qtc", session.getNamespaceURI("hippostd"));
+            assertEquals("/test/hippo", executeSingle(hippo, STATEMENT));
+            assertEquals("/test/hippostd", executeSingle(hippostd, STATEMENT));
+            assertEquals("/test/hippo", executeSingle(hippo, STATEMENT));
+        } finally {
+            hippo.logout();
+            hippostd.logout();
+        }
+    }
+
+    private static String executeSingle(final Session session, final String statement) throws RepositoryException {
+        final NodeIterator nodes = session.getWorkspace().getQueryManager().createQuery(statement, Query.XPATH)
+                .execute().getNodes();
+        assertEquals(1L, nodes.getSize());
+        return nodes.nextNode().getPath();
+    }
+
+}
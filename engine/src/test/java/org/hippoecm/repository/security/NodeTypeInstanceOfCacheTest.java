@@ -0,0 +1,103 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.security;
+
+import java.util.Arrays;
+
+import javax.jcr.nodetype.NodeType;
+import javax.jcr.nodetype.NodeTypeManager;
+
+import org.apache.jackrabbit.commons.iterator.NodeTypeIteratorAdapter;
+import org.junit.Test;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.createStrictMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NodeTypeInstanceOfCacheTest {
+
+    private static NodeType nodeType(String name, NodeType... supertypes) {
+        final NodeType nodeType = createNiceMock(NodeType.class);
+        expect(nodeType.getName()).andReturn(name).anyTimes();
+        expect(nodeType.getSupertypes()).andReturn(supertypes).anyTimes();
+        replay(nodeType);
+        return nodeType;
+    }
+
+    @Test
+    public void matrix_is_computed_once_for_all_types() throws Exception {
+        final NodeType base = nodeType("nt:base");
+        final NodeType document = nodeType("hippo:document", base);
+        final NodeType news = nodeType("ns:news", document, base);
+
+        final NodeTypeManager ntMgr = createStrictMock(NodeTypeManager.class);
+        expect(ntMgr.getAllNodeTypes()).andReturn(new NodeTypeIteratorAdapter(Arrays.asList(base, document, news)));
+        replay(ntMgr);
+
+        final NodeTypeInstanceOfCache cache = new NodeTypeInstanceOfCache();
+        assertTrue(cache.isInstanceOf(ntMgr, "ns:news", "hippo:document"));
+        assertTrue(cache.isInstanceOf(ntMgr, "ns:news", "nt:base"));
+        assertTrue(cache.isInstanceOf(ntMgr, "hippo:document", "hippo:document"));
+        assertFalse(cache.isInstanceOf(ntMgr, "hippo:document", "ns:news"));
+        assertFalse(cache.isInstanceOf(ntMgr, "nt:base", "hippo:document"));
+        assertEquals(3, cache.size());
+
+        verify(ntMgr);
+    }
+
+    @Test
+    public void unknown_type_refreshes_matrix() throws Exception {
+        final NodeType base = nodeType("nt:base");
+        final NodeType news = nodeType("ns:news", base);
+
+        final NodeTypeManager ntMgr = createStrictMock(NodeTypeManager.class);
+        expect(ntMgr.getAllNodeTypes()).andReturn(new NodeTypeIteratorAdapter(Arrays.asList(base)));
+        expect(ntMgr.getAllNodeTypes()).andReturn(new NodeTypeIteratorAdapter(Arrays.asList(base, news)));
+        replay(ntMgr);
+
+        final NodeTypeInstanceOfCache cache = new NodeTypeInstanceOfCache();
+        assertFalse(cache.isInstanceOf(ntMgr, "nt:base", "ns:news"));
+        assertTrue(cache.isInstanceOf(ntMgr, "ns:news", "nt:base"));
+        assertEquals(2, cache.size());
+
+        verify(ntMgr);
+    }
+
+    @Test
+    public void unknown_type_refreshes_matrix_once() throws Exception {
+        final NodeType base = nodeType("nt:base");
+
+        final NodeTypeManager ntMgr = createStrictMock(NodeTypeManager.class);
+        expect(ntMgr.getAllNodeTypes()).andReturn(new NodeTypeIteratorAdapter(Arrays.asList(base)));
+        expect(ntMgr.getAllNodeTypes()).andReturn(new NodeTypeIteratorAdapter(Arrays.asList(base)));
+        replay(ntMgr);
+
+        final NodeTypeInstanceOfCache cache = new NodeTypeInstanceOfCache();
+        assertFalse(cache.isInstanceOf(ntMgr, "nt:base", "ns:unknown"));
+        // the second refresh finds the type is unknown, asking again does not refresh
+        for (int i = 0; i < 10; i++) {
+            assertFalse(cache.isInstanceOf(ntMgr, "ns:unknown", "nt:base"));
+        }
+        assertEquals(1, cache.size());
+
+        verify(ntMgr);
+    }
+}
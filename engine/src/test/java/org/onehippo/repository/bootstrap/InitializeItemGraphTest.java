@@ -0,0 +1,107 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.onehippo.repository.bootstrap;
+
+import java.util.Arrays;
+
+import javax.jcr.RepositoryException;
+
+import org.junit.Test;
+import org.onehippo.repository.mock.MockNode;
+
+import static org.hippoecm.repository.api.HippoNodeType.HIPPO_CONTENTDELETE;
+import static org.hippoecm.repository.api.HippoNodeType.HIPPO_CONTENTPROPSET;
+import static org.hippoecm.repository.api.HippoNodeType.HIPPO_CONTENTRESOURCE;
+import static org.hippoecm.repository.api.HippoNodeType.HIPPO_CONTENTROOT;
+import static org.hippoecm.repository.api.HippoNodeType.HIPPO_NAMESPACE;
+import static org.hippoecm.repository.api.HippoNodeType.HIPPO_WEB_FILE_BUNDLE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InitializeItemGraphTest {
+
+    @Test
+    public void itemsWithOverlappingPathsDependOnEachOther() throws Exception {
+        final InitializeItemGraph graph = new InitializeItemGraph(Arrays.asList(
+                createItem("namespace", HIPPO_NAMESPACE, null),
+                createItem("a", HIPPO_CONTENTRESOURCE, "/a"),
+                createItem("b", HIPPO_CONTENTRESOURCE, "/b"),
+                createItem("a-prop", HIPPO_CONTENTPROPSET, "/a/x/prop"),
+                createItem("b-delete", HIPPO_CONTENTDELETE, "/b/y"),
+                createItem("c", HIPPO_CONTENTRESOURCE, "/c"),
+                createItem("webfiles", HIPPO_WEB_FILE_BUNDLE, null),
+                createItem("root", HIPPO_CONTENTRESOURCE, "/")
+        ));
+
+        assertTrue(graph.isBarrier(0));
+        assertArrayEquals(new int[] {}, graph.getDependencies(0));
+        assertFalse(graph.isBarrier(1));
+        assertArrayEquals(new int[] { 0 }, graph.getDependencies(1));
+        assertArrayEquals(new int[] { 0 }, graph.getDependencies(2));
+        assertArrayEquals(new int[] { 0, 1 }, graph.getDependencies(3));
+        assertArrayEquals(new int[] { 0, 2 }, graph.getDependencies(4));
+        assertArrayEquals(new int[] { 0 }, graph.getDependencies(5));
+
+        assertTrue(graph.isBarrier(6));
+        final int[] barrierDependencies = graph.getDependencies(6);
+        for (int dependency : new int[] { 0, 3, 4, 5 }) {
+            assertTrue(Arrays.binarySearch(barrierDependencies, dependency) >= 0);
+        }
+        assertArrayEquals(new int[] { 6 }, graph.getDependencies(7));
+    }
+
+    @Test
+    public void pathsWithCommonPrefixDoNotOverlap() throws Exception {
+        final InitializeItemGraph graph = new InitializeItemGraph(Arrays.asList(
+                createItem("a", HIPPO_CONTENTRESOURCE, "/a"),
+                createItem("ab", HIPPO_CONTENTRESOURCE, "/ab"),
+                createItem("a-b", HIPPO_CONTENTRESOURCE, "/a/b")
+        ));
+        assertArrayEquals(new int[] {}, graph.getDependencies(0));
+        assertArrayEquals(new int[] {}, graph.getDependencies(1));
+        assertArrayEquals(new int[] { 0 }, graph.getDependencies(2));
+    }
+
+    @Test
+    public void ancestorSupersedesEarlierDescendants() throws Exception {
+        final InitializeItemGraph graph = new InitializeItemGraph(Arrays.asList(
+                createItem("a-b", HIPPO_CONTENTRESOURCE, "/a/b"),
+                createItem("a-c", HIPPO_CONTENTRESOURCE, "/a/c"),
+                createItem("a", HIPPO_CONTENTRESOURCE, "/a"),
+                createItem("a-d", HIPPO_CONTENTRESOURCE, "/a/d"),
+                createItem("a-b-e", HIPPO_CONTENTRESOURCE, "/a/b/e")
+        ));
+        assertArrayEquals(new int[] {}, graph.getDependencies(1));
+        assertArrayEquals(new int[] { 0, 1 }, graph.getDependencies(2));
+        assertArrayEquals(new int[] { 2 }, graph.getDependencies(3));
+        assertArrayEquals(new int[] { 2 }, graph.getDependencies(4));
+    }
+
+    private static InitializeItem createItem(final String name, final String instruction, final String path)
+            throws RepositoryException {
+        final MockNode node = new MockNode(name);
+        node.setProperty(instruction, "<dummy>");
+        if (path != null) {
+            if (HIPPO_CONTENTDELETE.equals(instruction)) {
+                node.setProperty(HIPPO_CONTENTDELETE, path);
+            } else {
+                node.setProperty(HIPPO_CONTENTROOT, path);
+            }
+        }
+        return new InitializeItem(node);
+    }
+}
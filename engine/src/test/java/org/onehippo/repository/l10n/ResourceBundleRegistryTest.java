@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.repository.l10n;
+
+import java.util.Collections;
+import java.util.Locale;
+
+import javax.jcr.Node;
+
+import org.apache.commons.lang.LocaleUtils;
+import org.junit.Test;
+import org.onehippo.repository.testutils.RepositoryTestCase;
+
+import static javax.jcr.ImportUUIDBehavior.IMPORT_UUID_COLLISION_THROW;
+import static org.hippoecm.repository.api.HippoNodeType.NT_RESOURCEBUNDLE;
+import static org.hippoecm.repository.api.HippoNodeType.NT_RESOURCEBUNDLES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ResourceBundleRegistryTest extends RepositoryTestCase {
+
+    private static final Locale NL = LocaleUtils.toLocale("nl");
+    private static final Locale NL_BE = LocaleUtils.toLocale("nl_BE");
+
+    private ResourceBundleRegistry registry;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        session.getRootNode().addNode("test", NT_RESOURCEBUNDLES);
+        session.importXML("/test", getClass().getResourceAsStream("test-translations.xml"), IMPORT_UUID_COLLISION_THROW);
+        session.getNode("/test/foo").addNode("baz", NT_RESOURCEBUNDLES).addNode("en", NT_RESOURCEBUNDLE)
+                .setProperty("key1", "baz1");
+        session.save();
+        registry = new ResourceBundleRegistry("/test");
+        registry.load(session);
+    }
+
+    @Test
+    public void testLocaleFallback() throws Exception {
+        assertEquals(NL, registry.getResourceBundle("foo.bar", NL_BE).getLocale());
+        assertEquals(Locale.ENGLISH, registry.getResourceBundle("foo.bar", Locale.FRENCH).getLocale());
+        assertEquals(Locale.ENGLISH, registry.getResourceBundle("foo.bar", Locale.CANADA_FRENCH).getLocale());
+        assertSame(registry.getResourceBundle("foo.bar", Locale.FRENCH), registry.getResourceBundle("foo.bar", Locale.FRENCH));
+        assertNull(registry.getResourceBundle("foo", Locale.ENGLISH));
+    }
+
+    @Test
+    public void testChangedBundleIsReloadedAndChildrenRewired() throws Exception {
+        final ResourceBundle baz = registry.getResourceBundle("foo.baz", Locale.ENGLISH);
+
+        session.getNode("/test/foo/bar/en").setProperty("key2", "changed");
+        session.save();
+        registry.update(session, Collections.singleton("/test/foo/bar/en"));
+
+        assertEquals("changed", registry.getResourceBundle("foo.bar", Locale.ENGLISH).getString("key2"));
+        // nl falls back on the new en bundle
+        assertEquals("changed", registry.getResourceBundle("foo.bar", NL).getString("key2"));
+        assertEquals("waarde1", registry.getResourceBundle("foo.bar", NL).getString("key1"));
+        // other bundles are not reloaded
+        assertSame(baz, registry.getResourceBundle("foo.baz", Locale.ENGLISH));
+    }
+
+    @Test
+    public void testAddedBundleIsLoaded() throws Exception {
+        session.getNode("/test/foo/bar").addNode("nl_BE", NT_RESOURCEBUNDLE).setProperty("key3", "waarde3");
+        session.save();
+        registry.update(session, Collections.singleton("/test/foo/bar/nl_BE"));
+
+        final ResourceBundle nlBE = registry.getResourceBundle("foo.bar", NL_BE);
+        assertEquals(NL_BE, nlBE.getLocale());
+        assertEquals("waarde3", nlBE.getString("key3"));
+        assertEquals("waarde1", nlBE.getString("key1"));
+        assertEquals("value2", nlBE.getString("key2"));
+    }
+
+    @Test
+    public void testRemovedBundlesAreUnloaded() throws Exception {
+        session.getNode("/test/foo/bar/nl").remove();
+        session.save();
+        registry.update(session, Collections.singleton("/test/foo/bar/nl"));
+        assertEquals(Locale.ENGLISH, registry.getResourceBundle("foo.bar", NL).getLocale());
+
+        final Node bar = session.getNode("/test/foo/bar");
+        bar.remove();
+        session.save();
+        registry.update(session, Collections.singleton("/test/foo/bar"));
+        assertNull(registry.getResourceBundle("foo.bar", Locale.ENGLISH));
+        assertEquals("baz1", registry.getResourceBundle("foo.baz", Locale.ENGLISH).getString("key1"));
+    }
+
+}
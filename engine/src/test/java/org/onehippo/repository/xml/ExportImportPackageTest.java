@@ -26,12 +26,18 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import javax.jcr.Binary;
 import javax.jcr.ImportUUIDBehavior;
@@ -41,6 +47,9 @@ import javax.jcr.ValueFactory;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.jackrabbit.api.JackrabbitValue;
+import org.hippoecm.repository.HippoRepository;
+import org.hippoecm.repository.HippoRepositoryFactory;
 import org.hippoecm.repository.api.HippoSession;
 import org.hippoecm.repository.api.ImportReferenceBehavior;
 import org.junit.Test;
@@ -112,6 +121,218 @@ public class ExportImportPackageTest extends RepositoryTestCase {
         }
     }
 
+    @Test
+    public void testStreamingExportImportPackage() throws Exception {
+        HippoSession session = (HippoSession) this.session;
+        final Node test = session.getNode("/test");
+        test.setProperty("shared", test.getProperty("test").getValue());
+        session.save();
+
+        final File file = File.createTempFile("esv", ".zip");
+        final ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            session.exportEnhancedSystemViewPackage("/test", true, zipOut);
+        } finally {
+            zipOut.close();
+        }
+
+        ZipFile zipFile = new ZipFile(file);
+        InputStream esvIn = null;
+        try {
+            // esv.xml and a binary per property, as the binaries of a repository without data store have no identity
+            assertEquals(3, Collections.list(zipFile.entries()).size());
+            assertNotNull(zipFile.getEntry("esv.xml"));
+
+            ContentResourceLoader contentResourceLoader = new ZipFileContentResourceLoader(zipFile);
+            esvIn = contentResourceLoader.getResourceAsStream("esv.xml");
+            session.importEnhancedSystemViewXML("/test", esvIn,
+                    ImportUUIDBehavior.IMPORT_UUID_COLLISION_THROW,
+                    ImportReferenceBehavior.IMPORT_REFERENCE_NOT_FOUND_THROW,
+                    contentResourceLoader);
+            final Node imported = session.getNode("/test/test");
+            for (String property : new String[] { "test", "shared" }) {
+                final InputStream binaryInput = imported.getProperty(property).getBinary().getStream();
+                assertEquals("test", IOUtils.toString(binaryInput));
+                binaryInput.close();
+            }
+        } finally {
+            IOUtils.closeQuietly(esvIn);
+            zipFile.close();
+            FileUtils.deleteQuietly(file);
+        }
+    }
+
+    @Test
+    public void testStreamingExportWritesDataStoreBinariesOnce() throws Exception {
+        final File storage = new File(System.getProperty("java.io.tmpdir"), "repository-" + UUID.randomUUID().toString());
+        final String originalRepoConfig = System.getProperty("repo.config");
+        HippoRepository repository = null;
+        final File file = File.createTempFile("esv", ".zip");
+        try {
+            System.setProperty("repo.config", "/org/onehippo/repository/testutils/datastore-repository.xml");
+            repository = HippoRepositoryFactory.getHippoRepository(storage.getAbsolutePath());
+            final HippoSession dataStoreSession = (HippoSession) repository.login(SYSTEMUSER_ID, SYSTEMUSER_PASSWORD);
+            try {
+                final ValueFactory valueFactory = dataStoreSession.getValueFactory();
+                final Node test = dataStoreSession.getRootNode().addNode("test");
+                final Node first = test.addNode("first");
+                first.setProperty("data", valueFactory.createBinary(new PatternInputStream(1024)));
+                first.setProperty("other", valueFactory.createBinary(new PatternInputStream(2048)));
+                test.addNode("second").setProperty("data", first.getProperty("data").getValue());
+                dataStoreSession.save();
+                assertNotNull("Binary is not stored in the data store",
+                        ((JackrabbitValue) first.getProperty("data").getValue()).getContentIdentity());
+
+                final ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(file));
+                try {
+                    dataStoreSession.exportEnhancedSystemViewPackage("/test", true, zipOut);
+                } finally {
+                    zipOut.close();
+                }
+                dataStoreSession.getNode("/test").remove();
+                dataStoreSession.save();
+
+                final ZipFile zipFile = new ZipFile(file);
+                InputStream esvIn = null;
+                try {
+                    // esv.xml, the binary shared by both data properties and the other binary
+                    assertEquals(3, Collections.list(zipFile.entries()).size());
+
+                    final ContentResourceLoader contentResourceLoader = new ZipFileContentResourceLoader(zipFile);
+                    esvIn = contentResourceLoader.getResourceAsStream("esv.xml");
+                    dataStoreSession.importEnhancedSystemViewXML("/", esvIn,
+                            ImportUUIDBehavior.IMPORT_UUID_COLLISION_THROW,
+                            ImportReferenceBehavior.IMPORT_REFERENCE_NOT_FOUND_THROW,
+                            contentResourceLoader);
+                    assertEquals(1024, dataStoreSession.getNode("/test/first").getProperty("data").getBinary().getSize());
+                    assertEquals(2048, dataStoreSession.getNode("/test/first").getProperty("other").getBinary().getSize());
+                    assertEquals(1024, dataStoreSession.getNode("/test/second").getProperty("data").getBinary().getSize());
+                } finally {
+                    IOUtils.closeQuietly(esvIn);
+                    zipFile.close();
+                }
+            } finally {
+                dataStoreSession.logout();
+            }
+        } finally {
+            if (originalRepoConfig != null) {
+                System.setProperty("repo.config", originalRepoConfig);
+            } else {
+                System.clearProperty("repo.config");
+            }
+            if (repository != null) {
+                repository.close();
+            }
+            FileUtils.deleteQuietly(storage);
+            FileUtils.deleteQuietly(file);
+        }
+    }
+
+    @Test
+    public void testStreamingExportOfLargeBinariesUsesBoundedTempSpace() throws Exception {
+        final int binaryCount = 4;
+        final long binarySize = 8L * 1024 * 1024;
+
+        final Node large = session.getRootNode().addNode("large");
+        for (int i = 0; i < binaryCount; i++) {
+            final Binary binary = session.getValueFactory().createBinary(new PatternInputStream(binarySize));
+            large.addNode("asset" + i).setProperty("data", binary);
+            binary.dispose();
+        }
+        session.save();
+
+        try {
+            final TempSpaceMonitoringOutputStream out = new TempSpaceMonitoringOutputStream();
+            final ZipOutputStream zipOut = new ZipOutputStream(out);
+            zipOut.setLevel(Deflater.NO_COMPRESSION);
+            ((HippoSession) session).exportEnhancedSystemViewPackage("/large", true, zipOut);
+            zipOut.finish();
+
+            assertTrue("expected " + binaryCount + " binaries to be written, got " + out.count + " bytes",
+                    out.count >= binaryCount * binarySize);
+            assertTrue("expected the binaries to be written once", out.count < (binaryCount + 1) * binarySize);
+            assertTrue("temporary files grew to " + out.maxTempSpace + " bytes during export",
+                    out.maxTempSpace < binarySize / 2);
+        } finally {
+            session.getNode("/large").remove();
+            session.save();
+        }
+    }
+
+    /**
+     * Produces a repeating byte pattern of a given length without keeping it in memory
+     */
+    private static class PatternInputStream extends InputStream {
+
+        private final long size;
+        private long position = 0;
+
+        private PatternInputStream(final long size) {
+            this.size = size;
+        }
+
+        @Override
+        public int read() {
+            return position < size ? (int) (position++ % 251) : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (position >= size) {
+                return -1;
+            }
+            final int count = (int) Math.min(len, size - position);
+            for (int i = 0; i < count; i++) {
+                b[off + i] = (byte) (position++ % 251);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Discards what is written to it, measuring the size of the temporary files created since it was constructed
+     * after each MB written
+     */
+    private static class TempSpaceMonitoringOutputStream extends OutputStream {
+
+        private static final long CHECK_INTERVAL = 1024 * 1024;
+
+        private final File tempDir = new File(System.getProperty("java.io.tmpdir"));
+        private final Set<String> existingFiles = new HashSet<>(Arrays.asList(listTempFiles()));
+        private long count = 0;
+        private long nextCheck = 0;
+        private long maxTempSpace = 0;
+
+        private String[] listTempFiles() {
+            final String[] names = tempDir.list();
+            return names != null ? names : new String[0];
+        }
+
+        @Override
+        public void write(final int b) {
+            written(1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            written(len);
+        }
+
+        private void written(final int len) {
+            count += len;
+            if (count >= nextCheck) {
+                long tempSpace = 0;
+                for (String name : listTempFiles()) {
+                    if (!existingFiles.contains(name)) {
+                        tempSpace += new File(tempDir, name).length();
+                    }
+                }
+                maxTempSpace = Math.max(maxTempSpace, tempSpace);
+                nextCheck = count + CHECK_INTERVAL;
+            }
+        }
+    }
+
     @Test
     public void testImportFromFileURLWithResources() throws Exception {
         HippoSession session = (HippoSession) this.session;
@@ -21,15 +21,20 @@ import java.security.AccessControlException;
 import javax.jcr.LoginException;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
-import javax.jcr.SimpleCredentials;
 import javax.ws.rs.core.Response;
 
 import org.apache.cxf.configuration.security.AuthorizationPolicy;
+import org.apache.cxf.interceptor.OutgoingChainInterceptor;
 import org.apache.cxf.jaxrs.JAXRSInvoker;
 import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageContentsList;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.phase.PhaseInterceptorChain;
 import org.onehippo.cms7.services.HippoServiceRegistry;
 import org.onehippo.repository.RepositoryService;
+import org.onehippo.repository.jaxrs.SessionPool.PooledSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,6 +49,12 @@ import org.slf4j.LoggerFactory;
  *         .invoker(new org.apache.cxf.jaxrs.JAXRSInvoker());
  * </pre>
  *
+ * <p>The session of the caller is available to the resource through {@link #getSession()} until the response has been
+ * written, so that response entities such as a {@link StreamingListing} can read from the repository while they are
+ * written. Afterwards the session is logged out, unless the invoker keeps sessions for the next requests of the same
+ * caller, see {@link #AuthenticatingRepositoryJaxrsInvoker(int, long)} and
+ * {@link RepositoryJaxrsEndpoint#pooledSessions()}.</p>
+ *
  * <p>For more detailed documentation and example usage, see the
  * <a href="http://www.onehippo.org/library/concepts/hippo-services/repository-jaxrs-service.html">online
  * documentation</a>.<p>
@@ -52,20 +63,68 @@ public class AuthenticatingRepositoryJaxrsInvoker extends JAXRSInvoker {
 
     private static final Logger log = LoggerFactory.getLogger(AuthenticatingRepositoryJaxrsInvoker.class);
 
+    /**
+     * The maximum number of sessions kept per caller by endpoints that keep sessions without specifying a maximum
+     */
+    public static final int DEFAULT_MAX_IDLE_SESSIONS = 8;
+
+    /**
+     * The time to live of the sessions kept by endpoints that keep sessions without specifying a time to live
+     */
+    public static final long DEFAULT_SESSION_TIME_TO_LIVE = 60000L;
+
+    private final SessionPool sessionPool;
+
+    /**
+     * Creates an invoker that logs out the session of a caller after its request.
+     */
+    public AuthenticatingRepositoryJaxrsInvoker() {
+        this(0, DEFAULT_SESSION_TIME_TO_LIVE);
+    }
+
+    /**
+     * Creates an invoker that keeps the sessions of callers for their next requests. A kept session is only used for
+     * a request with the same credentials, and is refreshed before it is used. Changes to the password or the
+     * permissions of a caller may go unnoticed for at most the time to live of the sessions.
+     *
+     * @param maxIdleSessions    the maximum number of sessions kept per caller, 0 to log out every session after
+     *                           its request
+     * @param sessionTimeToLive  the time in milliseconds after its login during which a session may be reused
+     */
+    public AuthenticatingRepositoryJaxrsInvoker(int maxIdleSessions, long sessionTimeToLive) {
+        sessionPool = new SessionPool(maxIdleSessions, sessionTimeToLive);
+    }
+
+    /**
+     * @return the session of the caller of the current request, or null if the request is not handled by an
+     * authenticating invoker
+     */
+    public static Session getSession() {
+        final Message message = PhaseInterceptorChain.getCurrentMessage();
+        return message != null ? message.getExchange().get(Session.class) : null;
+    }
+
     @Override
     public Object invoke(Exchange exchange, Object requestParams, Object resourceObject) {
+        if (exchange.get(Session.class) != null) {
+            // sub-resource of a resource that was invoked with the session of the caller
+            return super.invoke(exchange, requestParams, resourceObject);
+        }
         Object result = null;
         final AuthorizationPolicy policy = exchange.getInMessage().get(AuthorizationPolicy.class);
         if (policy == null) {
             result = new MessageContentsList(Response.status(Response.Status.UNAUTHORIZED).header("WWW-Authenticate", "Basic").build());
         }
         else {
-            Session session = null;
+            PooledSession pooled = null;
             try {
                 final RepositoryService repository = HippoServiceRegistry.getService(RepositoryService.class);
-                session = repository.login(new SimpleCredentials(policy.getUserName(), policy.getPassword().toCharArray()));
-                checkAuthorized(exchange, requestParams, resourceObject, session);
+                pooled = sessionPool.acquire(repository, policy.getUserName(), policy.getPassword());
+                checkAuthorized(exchange, requestParams, resourceObject, pooled.getSession());
+                exchange.put(Session.class, pooled.getSession());
                 result = super.invoke(exchange, requestParams, resourceObject);
+                exchange.getInMessage().getInterceptorChain().add(new SessionReleasingInterceptor(sessionPool, pooled));
+                pooled = null;
             }
             catch (LoginException e) {
                 result = new MessageContentsList(Response.status(Response.Status.UNAUTHORIZED).header("WWW-Authenticate", "Basic").build());
@@ -79,8 +138,9 @@ public class AuthenticatingRepositoryJaxrsInvoker extends JAXRSInvoker {
             }
             finally
             {
-                if (session != null) {
-                    session.logout();
+                if (pooled != null) {
+                    exchange.remove(Session.class.getName());
+                    sessionPool.release(pooled);
                 }
             }
         }
@@ -90,4 +150,42 @@ public class AuthenticatingRepositoryJaxrsInvoker extends JAXRSInvoker {
     protected void checkAuthorized(Exchange exchange, Object requestParams, Object resourceObject, Session session)
             throws RepositoryException {
     }
+
+    /**
+     * Logs out the sessions that are kept for next requests.
+     */
+    public void logoutIdleSessions() {
+        sessionPool.clear();
+    }
+
+    int getIdleSessionCount() {
+        return sessionPool.getIdleSessionCount();
+    }
+
+    /**
+     * Releases the session of a request after the response has been written, which is done by the outgoing chain.
+     */
+    private static class SessionReleasingInterceptor extends AbstractPhaseInterceptor<Message> {
+
+        private final SessionPool sessionPool;
+        private final PooledSession pooled;
+
+        private SessionReleasingInterceptor(final SessionPool sessionPool, final PooledSession pooled) {
+            super(Phase.POST_INVOKE);
+            addAfter(OutgoingChainInterceptor.class.getName());
+            this.sessionPool = sessionPool;
+            this.pooled = pooled;
+        }
+
+        @Override
+        public void handleMessage(final Message message) {
+            message.getExchange().remove(Session.class.getName());
+            sessionPool.release(pooled);
+        }
+
+        @Override
+        public void handleFault(final Message message) {
+            handleMessage(message);
+        }
+    }
 }
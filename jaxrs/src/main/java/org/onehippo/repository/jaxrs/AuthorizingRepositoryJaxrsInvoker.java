@@ -42,6 +42,17 @@ public class AuthorizingRepositoryJaxrsInvoker extends AuthenticatingRepositoryJ
         this.requiredPermission = requiredPermission;
     }
 
+    /**
+     * Creates an invoker that keeps the sessions of callers for their next requests, see
+     * {@link AuthenticatingRepositoryJaxrsInvoker#AuthenticatingRepositoryJaxrsInvoker(int, long)}.
+     */
+    public AuthorizingRepositoryJaxrsInvoker(String securedNodePath, String requiredPermission,
+                                             int maxIdleSessions, long sessionTimeToLive) {
+        super(maxIdleSessions, sessionTimeToLive);
+        this.securedNodePath = securedNodePath;
+        this.requiredPermission = requiredPermission;
+    }
+
     @Override
     protected void checkAuthorized(final Exchange exchange, final Object requestParams, final Object resourceObject,
                                    final Session session) throws RepositoryException {
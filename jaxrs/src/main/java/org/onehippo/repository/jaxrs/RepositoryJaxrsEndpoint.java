@@ -36,6 +36,8 @@ public class RepositoryJaxrsEndpoint {
     private String address;
     private String authorizationNodePath;
     private String authorizationPermission;
+    private int maxIdleSessions;
+    private long sessionTimeToLive = AuthenticatingRepositoryJaxrsInvoker.DEFAULT_SESSION_TIME_TO_LIVE;
     private Application application;
     private Set<Class<?>> classes;
     private Set<Object> singletons;
@@ -86,6 +88,46 @@ public class RepositoryJaxrsEndpoint {
         return authorizationPermission;
     }
 
+    /**
+     * Configures the application endpoint to keep the sessions of its callers for their next requests, with the
+     * default maximum number of sessions per caller and time to live.
+     *
+     * @return
+     * @see #pooledSessions(int, long)
+     */
+    public RepositoryJaxrsEndpoint pooledSessions() {
+        return pooledSessions(AuthenticatingRepositoryJaxrsInvoker.DEFAULT_MAX_IDLE_SESSIONS,
+                AuthenticatingRepositoryJaxrsInvoker.DEFAULT_SESSION_TIME_TO_LIVE);
+    }
+
+    /**
+     * Configures the application endpoint to keep the sessions of its callers for their next requests. By default,
+     * the session of a caller is logged out after its request. Ignored when a custom invoker is set on a
+     * {@link CXFRepositoryJaxrsEndpoint}.
+     *
+     * @param maxIdleSessions the maximum number of sessions kept per caller, 0 to log out every session after its
+     *                        request
+     * @param sessionTimeToLive the time in milliseconds after its login during which a session may be reused
+     * @return
+     * @see AuthenticatingRepositoryJaxrsInvoker#AuthenticatingRepositoryJaxrsInvoker(int, long)
+     */
+    public RepositoryJaxrsEndpoint pooledSessions(int maxIdleSessions, long sessionTimeToLive) {
+        if (maxIdleSessions < 0 || sessionTimeToLive < 0) {
+            throw new IllegalArgumentException("Maximum number of idle sessions and time to live must not be negative");
+        }
+        this.maxIdleSessions = maxIdleSessions;
+        this.sessionTimeToLive = sessionTimeToLive;
+        return this;
+    }
+
+    public int getMaxIdleSessions() {
+        return maxIdleSessions;
+    }
+
+    public long getSessionTimeToLive() {
+        return sessionTimeToLive;
+    }
+
     public RepositoryJaxrsEndpoint app(Application app) {
         if (classes != null || singletons != null) {
             throw new IllegalStateException("Root class(es) or singleton(s) already set.");
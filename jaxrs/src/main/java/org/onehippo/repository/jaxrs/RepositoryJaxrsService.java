@@ -37,6 +37,7 @@ import org.apache.cxf.endpoint.Server;
 import org.apache.cxf.jaxrs.JAXRSInvoker;
 import org.apache.cxf.jaxrs.JAXRSServerFactoryBean;
 import org.apache.cxf.jaxrs.utils.ResourceUtils;
+import org.apache.cxf.service.invoker.Invoker;
 import org.apache.cxf.transport.http.AbstractHTTPDestination;
 import org.apache.cxf.transport.http.DestinationRegistry;
 import org.apache.cxf.transport.http.HTTPTransportFactory;
@@ -85,7 +86,7 @@ public final class RepositoryJaxrsService {
     private static HTTPTransportFactory destinationFactory;
     private static Map<String, RepositoryJaxrsEndpoint> pendingEndpoints = new LinkedHashMap<>();
     private static Map<String, Server> servers = new HashMap<>();
-    private static JAXRSInvoker jaxrsInvoker = new AuthenticatingRepositoryJaxrsInvoker();
+    private static AuthenticatingRepositoryJaxrsInvoker jaxrsInvoker = new AuthenticatingRepositoryJaxrsInvoker();
     private static ServletController controller;
 
     private static class ServletConfigWrapper implements ServletConfig {
@@ -196,12 +197,18 @@ public final class RepositoryJaxrsService {
             JAXRSInvoker invoker = cxfEndpoint != null ? cxfEndpoint.getInvoker() : null;
             
             if (invoker == null) {
-                if (endpoint.getAuthorizationNodePath() == null) {
-                    invoker = jaxrsInvoker;
+                if (endpoint.getAuthorizationNodePath() != null) {
+                    invoker = new AuthorizingRepositoryJaxrsInvoker(endpoint.getAuthorizationNodePath(),
+                            endpoint.getAuthorizationPermission(), endpoint.getMaxIdleSessions(),
+                            endpoint.getSessionTimeToLive());
+                }
+                else if (endpoint.getMaxIdleSessions() > 0) {
+                    // the sessions kept for an endpoint are not shared with other endpoints
+                    invoker = new AuthenticatingRepositoryJaxrsInvoker(endpoint.getMaxIdleSessions(),
+                            endpoint.getSessionTimeToLive());
                 }
                 else {
-                    invoker = new AuthorizingRepositoryJaxrsInvoker(endpoint.getAuthorizationNodePath(),
-                            endpoint.getAuthorizationPermission());
+                    invoker = jaxrsInvoker;
                 }
             }
             endpointFactory.setInvoker(invoker);
@@ -229,12 +236,21 @@ public final class RepositoryJaxrsService {
         Server server = servers.remove(address);
         if (server != null) {
             server.destroy();
+            logoutIdleSessions(server);
         }
         else {
             pendingEndpoints.remove(address);
         }
     }
 
+    private static void logoutIdleSessions(Server server) {
+        // the default invoker is shared by all endpoints without authorization settings
+        final Invoker invoker = server.getEndpoint().getService().getInvoker();
+        if (invoker != jaxrsInvoker && invoker instanceof AuthenticatingRepositoryJaxrsInvoker) {
+            ((AuthenticatingRepositoryJaxrsInvoker) invoker).logoutIdleSessions();
+        }
+    }
+
     public void invoke(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         Bus origBus = null;
         try {
@@ -253,7 +269,9 @@ public final class RepositoryJaxrsService {
                 try {
                     for (Server server : servers.values()) {
                         server.destroy();
+                        logoutIdleSessions(server);
                     }
+                    jaxrsInvoker.logoutIdleSessions();
                     if (destinationFactory != null) {
                         DestinationRegistry destinationRegistry = destinationFactory.getRegistry();
                         for (String path : destinationRegistry.getDestinationsPaths()) {
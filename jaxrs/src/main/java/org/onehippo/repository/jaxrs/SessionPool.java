@@ -0,0 +1,264 @@
+/*
+ * Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.repository.jaxrs;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+
+import org.onehippo.repository.RepositoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The idle sessions of the principals that called an application endpoint, so that a principal that calls again
+ * within a short time does not have to be logged in again.
+ * <p>
+ * An idle session is only handed out to a caller that presents the same credentials as the caller it was logged in
+ * for; other callers are logged in, so the repository validates their credentials. Idle sessions are refreshed before
+ * they are handed out again. A session is reused for at most the time to live after its login, which bounds the time
+ * a changed password or changed permissions of its principal go unnoticed. A session that has pending changes when it
+ * is released is logged out.
+ * <p>
+ * The most recently released session of a principal is handed out first, so that the sessions that are no longer
+ * needed expire.
+ */
+final class SessionPool {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionPool.class);
+
+    private final int maxIdleSessions;
+    private final long timeToLive;
+    private final byte[] salt = new byte[16];
+    private final ConcurrentMap<String, Deque<PooledSession>> idle = new ConcurrentHashMap<>();
+    private final AtomicLong lastEviction = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * @param maxIdleSessions the maximum number of idle sessions per principal, 0 to log out every session when it is
+     *                        released
+     * @param timeToLive      the time in milliseconds after its login during which a session may be reused
+     */
+    SessionPool(final int maxIdleSessions, final long timeToLive) {
+        if (maxIdleSessions < 0 || timeToLive < 0) {
+            throw new IllegalArgumentException("Maximum number of idle sessions and time to live must not be negative");
+        }
+        this.maxIdleSessions = maxIdleSessions;
+        this.timeToLive = timeToLive;
+        new SecureRandom().nextBytes(salt);
+    }
+
+    /**
+     * @return an idle session that was logged in with the same credentials, or else a newly logged in session
+     * @throws javax.jcr.LoginException if the credentials are not valid
+     */
+    PooledSession acquire(final RepositoryService repository, final String userId, final String password)
+            throws RepositoryException {
+        final long now = System.currentTimeMillis();
+        evictExpired(now);
+
+        final byte[] digest = digest(userId, password);
+        final Deque<PooledSession> sessions = idle.get(userId);
+        if (sessions != null) {
+            PooledSession pooled;
+            while ((pooled = take(sessions, digest, now)) != null) {
+                try {
+                    pooled.session.refresh(false);
+                    pooled.leased.set(true);
+                    return pooled;
+                } catch (RepositoryException | RuntimeException e) {
+                    log.debug("Cannot reuse session of {}: {}", userId, e.toString());
+                    logout(pooled);
+                }
+            }
+        }
+        final Session session = repository.login(new SimpleCredentials(userId, password.toCharArray()));
+        return new PooledSession(session, userId, digest, now);
+    }
+
+    /**
+     * Make the session available again to its principal, or log it out. Releasing a session more than once has no
+     * effect.
+     */
+    void release(final PooledSession pooled) {
+        if (!pooled.leased.compareAndSet(true, false)) {
+            return;
+        }
+        if (isReusable(pooled, System.currentTimeMillis())) {
+            Deque<PooledSession> sessions = idle.get(pooled.userId);
+            if (sessions == null) {
+                final Deque<PooledSession> created = new ArrayDeque<>();
+                sessions = idle.putIfAbsent(pooled.userId, created);
+                if (sessions == null) {
+                    sessions = created;
+                }
+            }
+            synchronized (sessions) {
+                if (sessions.size() < maxIdleSessions) {
+                    sessions.addFirst(pooled);
+                    return;
+                }
+            }
+        }
+        logout(pooled);
+    }
+
+    /**
+     * Log out all idle sessions. Sessions that are in use are pooled again when they are released.
+     */
+    void clear() {
+        for (Deque<PooledSession> sessions : idle.values()) {
+            final List<PooledSession> removed;
+            synchronized (sessions) {
+                removed = new ArrayList<>(sessions);
+                sessions.clear();
+            }
+            for (PooledSession pooled : removed) {
+                logout(pooled);
+            }
+        }
+    }
+
+    int getIdleSessionCount() {
+        int count = 0;
+        for (Deque<PooledSession> sessions : idle.values()) {
+            synchronized (sessions) {
+                count += sessions.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the most recently released session with the same credentials that may still be reused, after logging
+     * out the expired sessions that were released before it
+     */
+    private PooledSession take(final Deque<PooledSession> sessions, final byte[] digest, final long now) {
+        final List<PooledSession> expired = new ArrayList<>();
+        PooledSession taken = null;
+        synchronized (sessions) {
+            for (Iterator<PooledSession> iterator = sessions.iterator(); iterator.hasNext() && taken == null; ) {
+                final PooledSession pooled = iterator.next();
+                if (isExpired(pooled, now)) {
+                    iterator.remove();
+                    expired.add(pooled);
+                } else if (MessageDigest.isEqual(digest, pooled.digest)) {
+                    iterator.remove();
+                    taken = pooled;
+                }
+            }
+        }
+        for (PooledSession pooled : expired) {
+            logout(pooled);
+        }
+        return taken;
+    }
+
+    /**
+     * Log out the expired idle sessions of all principals, at most once per time to live.
+     */
+    private void evictExpired(final long now) {
+        final long last = lastEviction.get();
+        if (now - last < timeToLive || !lastEviction.compareAndSet(last, now)) {
+            return;
+        }
+        for (Deque<PooledSession> sessions : idle.values()) {
+            final List<PooledSession> expired = new ArrayList<>();
+            synchronized (sessions) {
+                for (Iterator<PooledSession> iterator = sessions.iterator(); iterator.hasNext(); ) {
+                    final PooledSession pooled = iterator.next();
+                    if (isExpired(pooled, now)) {
+                        iterator.remove();
+                        expired.add(pooled);
+                    }
+                }
+            }
+            for (PooledSession pooled : expired) {
+                logout(pooled);
+            }
+        }
+    }
+
+    private boolean isExpired(final PooledSession pooled, final long now) {
+        return now - pooled.loginTime >= timeToLive;
+    }
+
+    private boolean isReusable(final PooledSession pooled, final long now) {
+        if (maxIdleSessions == 0 || isExpired(pooled, now)) {
+            return false;
+        }
+        try {
+            return pooled.session.isLive() && !pooled.session.hasPendingChanges();
+        } catch (RepositoryException e) {
+            log.debug("Cannot determine whether session of {} has pending changes: {}", pooled.userId, e.toString());
+            return false;
+        }
+    }
+
+    private static void logout(final PooledSession pooled) {
+        try {
+            pooled.session.logout();
+        } catch (RuntimeException e) {
+            log.warn("Failed to log out session of {}: {}", pooled.userId, e.toString());
+        }
+    }
+
+    private byte[] digest(final String userId, final String password) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            digest.update(userId.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(password.getBytes(StandardCharsets.UTF_8));
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static final class PooledSession {
+
+        private final Session session;
+        private final String userId;
+        private final byte[] digest;
+        private final long loginTime;
+        private final AtomicBoolean leased = new AtomicBoolean(true);
+
+        private PooledSession(final Session session, final String userId, final byte[] digest, final long loginTime) {
+            this.session = session;
+            this.userId = userId;
+            this.digest = digest;
+            this.loginTime = loginTime;
+        }
+
+        Session getSession() {
+            return session;
+        }
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.repository.jaxrs;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.hippoecm.repository.util.NodeIterable;
+
+/**
+ * Response entity that writes a listing as JSON or XML while iterating over its items, so that neither the items nor
+ * the written document are held in memory.
+ *
+ * <p>The listing is written after the resource method has returned. Resources of an endpoint that uses an
+ * {@link AuthenticatingRepositoryJaxrsInvoker} can return a listing that iterates over nodes of the session of the
+ * caller, as that session is kept until the response has been written:</p>
+ *
+ * <pre>
+ * &#64;GET
+ * &#64;Produces(MediaType.APPLICATION_JSON)
+ * public Response getChildren(&#64;QueryParam("path") String path) throws RepositoryException {
+ *     final Session session = AuthenticatingRepositoryJaxrsInvoker.getSession();
+ *     return StreamingListing.nodes(session.getNode(path).getNodes(), StreamingListing.Format.JSON).build();
+ * }
+ * </pre>
+ *
+ * <p>A listing is written as <code>{"items":[{"name":"value",...},...]}</code> in JSON and as
+ * <code>&lt;items&gt;&lt;item&gt;&lt;name&gt;value&lt;/name&gt;...&lt;/item&gt;...&lt;/items&gt;</code> in XML, so
+ * field names must be XML names without a prefix. Writes block while the client does not read, so the items are
+ * iterated no faster than the client reads them. The output is flushed every {@link #flushInterval(int) number of
+ * items}. If an item cannot be written, the listing is cut off and the client gets an incomplete document.</p>
+ *
+ * <p>The repository keeps the child node entries of a node in memory, so large listings are better iterated from a
+ * query result than from the children of a single node.</p>
+ */
+public class StreamingListing<T> implements StreamingOutput {
+
+    public static final int DEFAULT_FLUSH_INTERVAL = 100;
+
+    public enum Format {
+
+        JSON(MediaType.APPLICATION_JSON_TYPE),
+        XML(MediaType.APPLICATION_XML_TYPE);
+
+        private final MediaType mediaType;
+
+        Format(final MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+    }
+
+    /**
+     * The fields of the item that is being written.
+     */
+    public interface Fields {
+
+        /**
+         * @param value the value of the field; null values are written as JSON null and omitted from XML
+         */
+        Fields field(String name, String value) throws IOException;
+    }
+
+    /**
+     * Writes the fields of an item.
+     */
+    public interface ItemWriter<T> {
+
+        void write(T item, Fields fields) throws RepositoryException, IOException;
+    }
+
+    /**
+     * Writes the name, path, identifier and primary type of a node.
+     */
+    public static final ItemWriter<Node> NODE_FIELDS = new ItemWriter<Node>() {
+        @Override
+        public void write(final Node node, final Fields fields) throws RepositoryException, IOException {
+            fields.field("name", node.getName())
+                    .field("path", node.getPath())
+                    .field("identifier", node.getIdentifier())
+                    .field("primaryType", node.getPrimaryNodeType().getName());
+        }
+    };
+
+    private static final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+
+    private final Iterator<? extends T> items;
+    private final Format format;
+    private final ItemWriter<? super T> writer;
+    private int flushInterval = DEFAULT_FLUSH_INTERVAL;
+
+    public static StreamingListing<Node> nodes(final NodeIterator nodes, final Format format) {
+        return nodes(nodes, format, NODE_FIELDS);
+    }
+
+    public static StreamingListing<Node> nodes(final NodeIterator nodes, final Format format,
+                                               final ItemWriter<? super Node> writer) {
+        return new StreamingListing<>(new NodeIterable(nodes).iterator(), format, writer);
+    }
+
+    public StreamingListing(final Iterator<? extends T> items, final Format format, final ItemWriter<? super T> writer) {
+        this.items = items;
+        this.format = format;
+        this.writer = writer;
+    }
+
+    /**
+     * @param flushInterval the number of items after which the output is flushed
+     */
+    public StreamingListing<T> flushInterval(final int flushInterval) {
+        if (flushInterval < 1) {
+            throw new IllegalArgumentException("Flush interval must be at least 1: " + flushInterval);
+        }
+        this.flushInterval = flushInterval;
+        return this;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * @return a response with this listing as entity and the media type of its format
+     */
+    public Response build() {
+        return Response.ok(this, format.getMediaType()).build();
+    }
+
+    @Override
+    public void write(final OutputStream output) throws IOException {
+        final Sink sink = format == Format.XML ? new XmlSink(output) : new JsonSink(output);
+        sink.begin();
+        int count = 0;
+        while (items.hasNext()) {
+            final T item = items.next();
+            sink.beginItem();
+            try {
+                writer.write(item, sink);
+            } catch (RepositoryException e) {
+                throw new IOException("Failed to write item " + count + " of listing", e);
+            }
+            sink.endItem();
+            if (++count % flushInterval == 0) {
+                sink.flush();
+            }
+        }
+        sink.end();
+        sink.flush();
+    }
+
+    private interface Sink extends Fields {
+
+        void begin() throws IOException;
+
+        void beginItem() throws IOException;
+
+        void endItem() throws IOException;
+
+        void end() throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    private static class JsonSink implements Sink {
+
+        private final Writer writer;
+        private boolean firstItem = true;
+        private boolean firstField;
+
+        private JsonSink(final OutputStream output) {
+            writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.write("{\"items\":[");
+        }
+
+        @Override
+        public void beginItem() throws IOException {
+            if (!firstItem) {
+                writer.write(',');
+            }
+            writer.write('{');
+            firstItem = false;
+            firstField = true;
+        }
+
+        @Override
+        public Fields field(final String name, final String value) throws IOException {
+            if (!firstField) {
+                writer.write(',');
+            }
+            writeString(name);
+            writer.write(':');
+            if (value == null) {
+                writer.write("null");
+            } else {
+                writeString(value);
+            }
+            firstField = false;
+            return this;
+        }
+
+        @Override
+        public void endItem() throws IOException {
+            writer.write('}');
+        }
+
+        @Override
+        public void end() throws IOException {
+            writer.write("]}");
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        private void writeString(final String value) throws IOException {
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        writer.write("\\\"");
+                        break;
+                    case '\\':
+                        writer.write("\\\\");
+                        break;
+                    case '\n':
+                        writer.write("\\n");
+                        break;
+                    case '\r':
+                        writer.write("\\r");
+                        break;
+                    case '\t':
+                        writer.write("\\t");
+                        break;
+                    default:
+                        if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                            writer.write(String.format("\\u%04x", (int) c));
+                        } else {
+                            writer.write(c);
+                        }
+                }
+            }
+            writer.write('"');
+        }
+    }
+
+    private static class XmlSink implements Sink {
+
+        private final OutputStream output;
+        private final XMLStreamWriter writer;
+
+        private XmlSink(final OutputStream output) throws IOException {
+            this.output = output;
+            try {
+                writer = xmlOutputFactory.createXMLStreamWriter(output, "UTF-8");
+            } catch (XMLStreamException e) {
+                throw new IOException("Failed to create XML writer", e);
+            }
+        }
+
+        @Override
+        public void begin() throws IOException {
+            try {
+                writer.writeStartDocument("UTF-8", "1.0");
+                writer.writeStartElement("items");
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void beginItem() throws IOException {
+            try {
+                writer.writeStartElement("item");
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public Fields field(final String name, final String value) throws IOException {
+            if (value != null) {
+                try {
+                    writer.writeStartElement(name);
+                    writer.writeCharacters(value);
+                    writer.writeEndElement();
+                } catch (XMLStreamException e) {
+                    throw new IOException(e);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        public void endItem() throws IOException {
+            try {
+                writer.writeEndElement();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void end() throws IOException {
+            try {
+                writer.writeEndElement();
+                writer.writeEndDocument();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                writer.flush();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+            output.flush();
+        }
+    }
+}
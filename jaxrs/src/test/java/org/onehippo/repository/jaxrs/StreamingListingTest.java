@@ -0,0 +1,326 @@
+/*
+ * Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.repository.jaxrs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.xml.bind.DatatypeConverter;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.onehippo.cms7.services.HippoServiceRegistry;
+import org.onehippo.repository.RepositoryService;
+import org.onehippo.repository.testutils.PortUtil;
+import org.onehippo.repository.testutils.RepositoryTestCase;
+
+import static com.jayway.restassured.RestAssured.given;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingListingTest extends RepositoryTestCase {
+
+    private static final int CHILD_COUNT = 1000;
+
+    private final ListingResource resource = new ListingResource();
+    private final AuthenticatingRepositoryJaxrsInvoker invoker = new AuthenticatingRepositoryJaxrsInvoker(
+            AuthenticatingRepositoryJaxrsInvoker.DEFAULT_MAX_IDLE_SESSIONS,
+            AuthenticatingRepositoryJaxrsInvoker.DEFAULT_SESSION_TIME_TO_LIVE);
+
+    private Tomcat tomcat;
+    private int portNumber;
+
+    @Rule
+    public TemporaryFolder tmpTomcatFolder = new TemporaryFolder();
+
+    @Before
+    public void setupTomcat() throws Exception {
+        final Node test = session.getRootNode().addNode("test", "nt:unstructured");
+        for (int i = 0; i < CHILD_COUNT; i++) {
+            test.addNode("node" + i, "nt:unstructured");
+        }
+        session.save();
+
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(tmpTomcatFolder.getRoot().getAbsolutePath());
+        portNumber = PortUtil.getPortNumber(getClass());
+        tomcat.setPort(portNumber);
+        Context context = tomcat.addContext("/jaxrs", tmpTomcatFolder.getRoot().getAbsolutePath());
+        Tomcat.addServlet(context, "jaxrs", new RepositoryJaxrsServlet());
+        context.addServletMapping("/*", "jaxrs");
+        tomcat.start();
+
+        if (HippoServiceRegistry.getService(RepositoryService.class) == null) {
+            HippoServiceRegistry.registerService(server.getRepository(), RepositoryService.class);
+        }
+        RepositoryJaxrsService.addEndpoint(new CXFRepositoryJaxrsEndpoint("/listing")
+                .invoker(invoker)
+                .singleton(resource));
+        RepositoryJaxrsService.addEndpoint(new RepositoryJaxrsEndpoint("/pooled")
+                .pooledSessions()
+                .singleton(new ListingResource()));
+    }
+
+    @After
+    public void tearDownTomcat() throws LifecycleException {
+        RepositoryJaxrsService.removeEndpoint("/listing");
+        RepositoryJaxrsService.removeEndpoint("/pooled");
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    @Test
+    public void streams_million_node_listing_with_bounded_heap() throws Exception {
+        final int rounds = 1000;
+        final long expected = (long) rounds * CHILD_COUNT;
+
+        final HttpURLConnection connection = open("/listing/repeated?rounds=" + rounds);
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(connection.getContentType().startsWith(MediaType.APPLICATION_JSON));
+
+        final Runtime runtime = Runtime.getRuntime();
+        final long baseline = usedHeap(runtime);
+        long maxGrowth = 0;
+        long bytes = 0;
+        long items = -1; // the outer object
+        long nextSample = 0;
+        boolean first = true;
+        final byte[] buffer = new byte[8192];
+        try (InputStream in = connection.getInputStream()) {
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '{') {
+                        items++;
+                    }
+                }
+                bytes += read;
+                if (first && items > 0) {
+                    first = false;
+                    // the server cannot run ahead of a client that does not read
+                    Thread.sleep(500);
+                    assertTrue("Listing was not written while iterating", resource.produced.get() < expected);
+                }
+                if (items >= nextSample) {
+                    maxGrowth = Math.max(maxGrowth, usedHeap(runtime) - baseline);
+                    nextSample += 100000;
+                }
+            }
+        }
+
+        assertEquals(expected, items);
+        assertEquals(expected, resource.produced.get());
+        assertTrue("Listing of " + bytes + " bytes grew the heap by " + maxGrowth + " bytes",
+                maxGrowth < bytes / 8);
+        waitForIdleSessions(1);
+    }
+
+    @Test
+    public void streams_children_as_xml() throws Exception {
+        final String xml = given()
+                .auth().preemptive().basic(SYSTEMUSER_ID, String.valueOf(SYSTEMUSER_PASSWORD))
+        .when()
+                .get("http://localhost:" + portNumber + "/jaxrs/listing/children")
+        .then()
+                .statusCode(200)
+        .extract().asString();
+
+        assertEquals(CHILD_COUNT, xml.split("<item>", -1).length - 1);
+        assertTrue(xml.contains("<item><name>node0</name><path>/test/node0</path><identifier>"));
+        assertTrue(xml.endsWith("</item></items>"));
+    }
+
+    @Test
+    public void sessions_are_reused_by_callers_with_the_same_credentials() throws Exception {
+        final String first = getSessionId();
+        waitForIdleSessions(1);
+        assertEquals(first, getSessionId());
+        waitForIdleSessions(1);
+
+        given()
+                .auth().preemptive().basic(SYSTEMUSER_ID, "wrong")
+        .when()
+                .get("http://localhost:" + portNumber + "/jaxrs/listing/session")
+        .then()
+                .statusCode(401);
+
+        invoker.logoutIdleSessions();
+        assertEquals(0, invoker.getIdleSessionCount());
+        assertFalse(first.equals(getSessionId()));
+    }
+
+    @Test
+    public void sessions_are_reused_by_endpoints_with_pooled_sessions() throws Exception {
+        final String first = getSessionId("/pooled");
+        String second = getSessionId("/pooled");
+        // the session of a request is released after the response has been written
+        for (int i = 0; i < 50 && !first.equals(second); i++) {
+            Thread.sleep(100);
+            second = getSessionId("/pooled");
+        }
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void escapes_json_strings() throws Exception {
+        final StreamingListing<String> listing = new StreamingListing<>(Arrays.asList("a\"b", "c\\d\n").iterator(),
+                StreamingListing.Format.JSON, new StreamingListing.ItemWriter<String>() {
+            @Override
+            public void write(final String item, final StreamingListing.Fields fields) throws IOException {
+                fields.field("value", item).field("none", null);
+            }
+        });
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        listing.write(output);
+        assertEquals("{\"items\":[{\"value\":\"a\\\"b\",\"none\":null},{\"value\":\"c\\\\d\\n\",\"none\":null}]}",
+                new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private String getSessionId() {
+        return getSessionId("/listing");
+    }
+
+    private String getSessionId(final String endpoint) {
+        return given()
+                .auth().preemptive().basic(SYSTEMUSER_ID, String.valueOf(SYSTEMUSER_PASSWORD))
+        .when()
+                .get("http://localhost:" + portNumber + "/jaxrs" + endpoint + "/session")
+        .then()
+                .statusCode(200)
+        .extract().asString();
+    }
+
+    /**
+     * The session of a request is released after the response has been written, which clients may notice later
+     */
+    private void waitForIdleSessions(final int expected) throws InterruptedException {
+        for (int i = 0; i < 50 && invoker.getIdleSessionCount() != expected; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals("Session was not released after the response was written", expected, invoker.getIdleSessionCount());
+    }
+
+    private HttpURLConnection open(final String path) throws IOException {
+        final HttpURLConnection connection =
+                (HttpURLConnection) new URL("http://localhost:" + portNumber + "/jaxrs" + path).openConnection();
+        final String credentials = SYSTEMUSER_ID + ":" + String.valueOf(SYSTEMUSER_PASSWORD);
+        connection.setRequestProperty("Authorization",
+                "Basic " + DatatypeConverter.printBase64Binary(credentials.getBytes(StandardCharsets.UTF_8)));
+        return connection;
+    }
+
+    private static long usedHeap(final Runtime runtime) {
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Path("/")
+    public static class ListingResource {
+
+        private final AtomicLong produced = new AtomicLong();
+
+        @GET
+        @Path("repeated")
+        @Produces(MediaType.APPLICATION_JSON)
+        public Response getRepeatedChildren(@QueryParam("rounds") int rounds) throws RepositoryException {
+            final Node test = AuthenticatingRepositoryJaxrsInvoker.getSession().getNode("/test");
+            return new StreamingListing<>(new RepeatedChildren(test, rounds, produced), StreamingListing.Format.JSON,
+                    StreamingListing.NODE_FIELDS).build();
+        }
+
+        @GET
+        @Path("children")
+        @Produces(MediaType.APPLICATION_XML)
+        public Response getChildren() throws RepositoryException {
+            final Node test = AuthenticatingRepositoryJaxrsInvoker.getSession().getNode("/test");
+            return StreamingListing.nodes(test.getNodes(), StreamingListing.Format.XML).build();
+        }
+
+        @GET
+        @Path("session")
+        @Produces(MediaType.TEXT_PLAIN)
+        public String getSessionId() {
+            return String.valueOf(System.identityHashCode(AuthenticatingRepositoryJaxrsInvoker.getSession()));
+        }
+    }
+
+    /**
+     * Iterates over the children of a node a number of times.
+     */
+    private static class RepeatedChildren implements Iterator<Node> {
+
+        private final Node parent;
+        private final AtomicLong produced;
+        private int rounds;
+        private NodeIterator children;
+
+        private RepeatedChildren(final Node parent, final int rounds, final AtomicLong produced) {
+            this.parent = parent;
+            this.rounds = rounds;
+            this.produced = produced;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ((children == null || !children.hasNext()) && rounds > 0) {
+                try {
+                    children = parent.getNodes();
+                } catch (RepositoryException e) {
+                    throw new IllegalStateException(e);
+                }
+                rounds--;
+            }
+            return children != null && children.hasNext();
+        }
+
+        @Override
+        public Node next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            produced.incrementAndGet();
+            return children.nextNode();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -239,23 +239,27 @@ public class FacetResultSetProvider extends HippoVirtualProvider
             if(upstream == null) {
                 continue;
             }
-            /* The next statements are painful performance wise.
-             * Only to obtain the child node name, we have to retrieve the parent state.
-             */
-            NodeState upstreamState = getCanonicalNodeState(upstream);
-            if(upstreamState == null) {
-                continue;
-            }
-            NodeId parentId = upstreamState.getParentId();
-            if(parentId == null) {
-                continue;
-            }
-            NodeState parentNodeState = getCanonicalNodeState(parentId);
-            if(parentNodeState == null || !parentNodeState.hasChildNodeEntry(upstream)) {
-                continue;
+            Name name = facetedResult.getName(upstream);
+            if (name == null) {
+                /* The next statements are painful performance wise.
+                 * Only to obtain the child node name, we have to retrieve the parent state.
+                 * The engine returns the name for nodes indexed with their name stored.
+                 */
+                NodeState upstreamState = getCanonicalNodeState(upstream);
+                if(upstreamState == null) {
+                    continue;
+                }
+                NodeId parentId = upstreamState.getParentId();
+                if(parentId == null) {
+                    continue;
+                }
+                NodeState parentNodeState = getCanonicalNodeState(parentId);
+                if(parentNodeState == null || !parentNodeState.hasChildNodeEntry(upstream)) {
+                    continue;
+                }
+                name = parentNodeState.getChildNodeEntry(upstream).getName();
             }
-            Name name = parentNodeState.getChildNodeEntry(upstream).getName();
-        
+
             state.addChildNodeEntry(name, subNodesProvider.newViewNodeId(state.getNodeId(), null, upstream, context, name, view, order , singledView));
         }
         
@@ -18,13 +18,13 @@ package org.hippoecm.repository.jackrabbit;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
+import javax.jcr.InvalidItemStateException;
 import javax.jcr.RepositoryException;
 
 import org.apache.jackrabbit.core.id.NodeId;
@@ -126,35 +126,60 @@ public class MirrorVirtualProvider extends HippoVirtualProvider
         }
         state.setMixinTypeNames(mixins);
 
-        for(Iterator iter = dereference.getPropertyNames().iterator(); iter.hasNext(); ) {
-            Name propName = (Name) iter.next();
-            PropertyId upstreamPropId = new PropertyId(dereference.getNodeId(), propName);
-            PropertyState upstreamPropState = getPropertyState(upstreamPropId);
-            if(propName.equals(jcrUUIDName)) {
-                if(mixins.contains(softDocumentName) || mixins.contains(softHandleName)) {
+        // only the property names are copied, the property states are created on first read by
+        // populate(StateProviderContext, HippoNodeId, Name) and share their values with the canonical properties
+        for (Name propName : dereference.getPropertyNames()) {
+            if (propName.equals(jcrUUIDName)) {
+                if (mixins.contains(softDocumentName) || mixins.contains(softHandleName)) {
                     propName = hippoUUIDName;
                 } else {
                     continue;
                 }
             }
-            if(omittedProperties.contains(propName))
+            if (omittedProperties.contains(propName)) {
                 continue;
-            state.addPropertyName(propName);
-            PropertyState propState = createNew(propName, state.getNodeId());
-            propState.setType(upstreamPropState.getType());
-            if(propName.equals(jcrMixinTypesName)) {
-                // replace the jcr:mixinTypes properties with the possibly changed mixin types
-                propState.setValues(InternalValue.create((Name[])state.getMixinTypeNames().toArray(new Name[state.getMixinTypeNames().size()])));
-            } else {
-                propState.setValues(upstreamPropState.getValues());
             }
-            propState.setMultiValued(upstreamPropState.isMultiValued());
+            state.addPropertyName(propName);
         }
 
         populateChildren(context, nodeId, state, dereference);
         return state;
     }
 
+    @Override
+    public PropertyState populate(StateProviderContext context, HippoNodeId nodeId, Name propName) throws RepositoryException {
+        // the node itself is always populated already, no need to parameterize its id
+        NodeState state = getNodeState(nodeId, null);
+        if (state == null || !state.hasPropertyName(propName)) {
+            return null;
+        }
+        NodeId canonicalId = ((MirrorNodeId)nodeId).getCanonicalId();
+        NodeState dereference = getCanonicalNodeState(canonicalId);
+        if (dereference == null) {
+            throw new InvalidItemStateException("Cannot populate mirrored property dereferencing " + canonicalId);
+        }
+        Name upstreamPropName = propName;
+        if (propName.equals(hippoUUIDName) && dereference.hasPropertyName(jcrUUIDName)
+                && (state.getMixinTypeNames().contains(softDocumentName) || state.getMixinTypeNames().contains(softHandleName))) {
+            upstreamPropName = jcrUUIDName;
+        }
+        if (!dereference.hasPropertyName(upstreamPropName)) {
+            return null;
+        }
+        PropertyState upstreamPropState = getPropertyState(new PropertyId(canonicalId, upstreamPropName));
+        PropertyState propState = createNew(propName, nodeId);
+        propState.setType(upstreamPropState.getType());
+        if (propName.equals(jcrMixinTypesName)) {
+            // replace the jcr:mixinTypes properties with the possibly changed mixin types
+            Set<Name> mixins = state.getMixinTypeNames();
+            propState.setValues(InternalValue.create(mixins.toArray(new Name[mixins.size()])));
+        } else {
+            propState.setValues(upstreamPropState.getValues());
+        }
+        propState.setMultiValued(upstreamPropState.isMultiValued());
+        return propState;
+    }
+
     protected NodeState populate(StateProviderContext context, MirrorVirtualProvider subProvider, NodeState state, String[] docbase, String[] newFacets, String[] newValues, String[] newModes, boolean newCriteria) throws RepositoryException {
         if (docbase == null || docbase.length == 0) {
             return state;
@@ -389,10 +414,8 @@ public class MirrorVirtualProvider extends HippoVirtualProvider
         if (isHandle && childrenArray.length > 0) {
             Arrays.sort(childrenArray, childrenArray[0].getValue().new ChildComparator());
         }
+        // the canonical child states have been checked for read access above already
         for (int i = 0; i < childrenArray.length && (i == 0 || !(viewId.singledView && isHandle)); i++) {
-            if(getCanonicalNodeState(childrenArray[i].getValue().getCanonicalId()) == null) {
-                continue;
-            }
             state.addChildNodeEntry(childrenArray[i].getKey(), childrenArray[i].getValue());
         }
         if(childrenArray.length > 0 && translationChildId != null) {
@@ -77,6 +77,18 @@ public abstract class AbstractFacetNavigationProvider extends HippoVirtualProvid
         countPropDef = lookupPropDef(resolveName(FacNavNodeType.NT_FACETNAVIGATION), countName);
     }
 
+    /**
+     * @return the view cache key of the faceted engine for the context of this provider, or <code>null</code> when
+     * the engine does not support sharing its view results
+     */
+    @SuppressWarnings("unchecked")
+    Object getViewCacheKey() {
+        if (facetedEngine instanceof FacetedNavigationEngine.ViewCaching) {
+            return ((FacetedNavigationEngine.ViewCaching<Context>) facetedEngine).getViewCacheKey(facetedContext);
+        }
+        return null;
+    }
+
     @Override
     public NodeState populate(StateProviderContext context, NodeState state) throws RepositoryException {
         throw new RepositoryException("Subclasses must implement populate(NodeState state)");
@@ -135,6 +147,8 @@ public abstract class AbstractFacetNavigationProvider extends HippoVirtualProvid
         List<OrderBy> orderByList;
         // the limt of the resultset: default is 1000
         int limit = 1000;
+        // the maximum number of facet value child nodes of a facets available node: default is no maximum
+        int facetValuesLimit = Integer.MAX_VALUE;
         // whether to skip the resultset for facets available
         boolean skipResultSetForFacetsAvailable;
         
@@ -48,6 +48,11 @@ public interface FacNavNodeType {
      * 
      */
     public static final String HIPPOFACNAV_FACETLIMIT = "hippofacnav:limit";
+
+    /**
+     * The maximum number of facet value child nodes below every facets available node
+     */
+    public static final String HIPPOFACNAV_FACETVALUESLIMIT = "hippofacnav:facetvalueslimit";
     
     /**
      * 
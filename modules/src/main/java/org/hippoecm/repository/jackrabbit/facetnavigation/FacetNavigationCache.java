@@ -0,0 +1,154 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.jackrabbit.facetnavigation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hippoecm.repository.FacetRange;
+
+/**
+ * Repository wide, size bounded cache of populated faceted navigation nodes, shared by the faceted navigation
+ * providers of all sessions.
+ * <p>
+ * The virtual node states themselves are session bound (their ids are generated per session and refer to the
+ * session's providers), so what is cached is an immutable snapshot of everything a provider needs to build them:
+ * the count and the ordered facet values with their counts. Every session builds its own node state from the
+ * snapshot, so modifications by one session never leak into the cache or into other sessions.
+ * <p>
+ * Entries are keyed on the faceted navigation engine's view cache key, which covers the engine, the authorization of
+ * the session and the index generation, plus everything that is passed to the engine to compute the view. Since the
+ * index generation changes on every index update, stale entries are never returned and simply age out. Engines that
+ * do not implement {@link org.hippoecm.repository.FacetedNavigationEngine.ViewCaching} are never cached.
+ */
+final class FacetNavigationCache {
+
+    static final int DEFAULT_MAX_SIZE = 1000;
+
+    private static final Map<List<Object>, Snapshot> cache = new LinkedHashMap<List<Object>, Snapshot>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<List<Object>, Snapshot> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    private static volatile int maxSize = Integer.getInteger("hippo.facetnavigation.cache.size", DEFAULT_MAX_SIZE);
+
+    private FacetNavigationCache() {
+    }
+
+    /**
+     * @return a key for the given engine view cache key and view arguments, or <code>null</code> when the engine
+     * does not allow its view results to be shared
+     */
+    static List<Object> createKey(final Object viewCacheKey, final Object... viewArguments) {
+        if (viewCacheKey == null || maxSize <= 0) {
+            return null;
+        }
+        final List<Object> key = new ArrayList<>(viewArguments.length + 1);
+        key.add(viewCacheKey);
+        for (Object argument : viewArguments) {
+            if (argument instanceof Object[]) {
+                key.add(Arrays.asList((Object[]) argument));
+            } else {
+                key.add(argument);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * @return a value based representation of <code>ranges</code> that can be used as part of a key, as
+     * {@link FacetRange} does not implement equals
+     */
+    static List<String> rangesKey(final List<FacetRange> ranges) {
+        if (ranges == null) {
+            return null;
+        }
+        final List<String> key = new ArrayList<>(ranges.size());
+        for (FacetRange range : ranges) {
+            key.add(range.getNamespacedProperty() + '\uFFFF' + range.getName() + '\uFFFF' + range.getResolution()
+                    + '\uFFFF' + range.getBegin() + '\uFFFF' + range.getEnd()
+                    + '\uFFFF' + range.getLower() + '\uFFFF' + range.getUpper());
+        }
+        return key;
+    }
+
+    static Snapshot get(final List<Object> key) {
+        if (key == null) {
+            return null;
+        }
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    static void put(final List<Object> key, final Snapshot snapshot) {
+        if (key == null) {
+            return;
+        }
+        synchronized (cache) {
+            cache.put(key, snapshot);
+        }
+    }
+
+    static void setMaxSize(final int size) {
+        maxSize = size;
+        synchronized (cache) {
+            if (size <= 0) {
+                cache.clear();
+            }
+        }
+    }
+
+    static void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    static int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Immutable result of populating a faceted navigation node: its count and, in display order, the facet values
+     * that become child nodes together with their counts.
+     */
+    static final class Snapshot {
+
+        final int count;
+        final String[] facetValues;
+        final int[] facetValueCounts;
+
+        Snapshot(final int count) {
+            this(count, new String[0], new int[0]);
+        }
+
+        Snapshot(final int count, final String[] facetValues, final int[] facetValueCounts) {
+            this.count = count;
+            this.facetValues = facetValues;
+            this.facetValueCounts = facetValueCounts;
+        }
+    }
+}
@@ -61,6 +61,7 @@ public class FacetNavigationProvider extends AbstractFacetNavigationProvider {
     Name facetNodeNamesName;
 
     Name facetLimit;
+    Name facetValuesLimit;
     Name facetSortBy;
     Name facetSortOrder;
     Name facetSortFunction;
@@ -77,6 +78,7 @@ public class FacetNavigationProvider extends AbstractFacetNavigationProvider {
         facetNodeNamesName = resolveName(FacNavNodeType.HIPPOFACNAV_FACETNODENAMES);
 
         facetLimit = resolveName(FacNavNodeType.HIPPOFACNAV_FACETLIMIT);
+        facetValuesLimit = resolveName(FacNavNodeType.HIPPOFACNAV_FACETVALUESLIMIT);
         facetSortBy = resolveName(HIPPOFACNAV_FACETSORTBY);
         facetSortOrder = resolveName(HIPPOFACNAV_FACETSORTORDER);
         facetSortFunction = resolveName(HIPPOFACNAV_FACETSORTFUNCTION);
@@ -115,6 +117,19 @@ public class FacetNavigationProvider extends AbstractFacetNavigationProvider {
             // no limit configured, ignore
         }
 
+        int valuesLimit = Integer.MAX_VALUE;
+        try {
+            valuesLimit = getPropertyAsInt(nodeId, facetValuesLimit);
+            if (valuesLimit < 0) {
+                log.warn("Skipping negative facet values limit '{}'. Using default", valuesLimit);
+                valuesLimit = Integer.MAX_VALUE;
+            }
+        } catch (NumberFormatException e) {
+            // no facet values limit configured, ignore
+        } catch (InvalidItemStateException e) {
+            // no facet values limit configured, ignore
+        }
+
         String[] facets = getProperty(nodeId, facetsName, null);
         String[] facetNodeNames = getProperty(nodeId, facetNodeNamesName, null);
         String[] sortbys = getProperty(nodeId, facetSortBy, null);
@@ -218,6 +233,7 @@ public class FacetNavigationProvider extends AbstractFacetNavigationProvider {
                     if(limit > -1) {
                         childNodeId.limit = limit;
                     }
+                    childNodeId.facetValuesLimit = valuesLimit;
                     childNodeId.orderByList = orderByList;
                     inheritParentFilters(childNodeId, state);
                     state.addChildNodeEntry(childName, childNodeId);
@@ -255,32 +271,37 @@ public class FacetNavigationProvider extends AbstractFacetNavigationProvider {
         hitsRequested.setResultRequested(false);
         hitsRequested.setFixedDrillPath(false);
 
-        FacetedNavigationEngine.Result facetedResult = null;
-        try {
-            Map<String, String> inheritedFilterMap = null;
-            
-            // get from public void inheritParentFilters(FacetNavigationNodeId childNodeId, NodeState state) {
-            ParentFilters parentFilters = new ParentFilters(state);
-            
-            if(parentFilters.view != null) {
-                inheritedFilterMap = new HashMap<String,String>();
-                for(Entry<Name, String> entry : parentFilters.view.entrySet()) {
-                    inheritedFilterMap.put(entry.getKey().toString(), entry.getValue());
-                }
-            }
-            
-            facetedResult = facetedEngine.view(null, initialQuery, facetedContext, new ArrayList<KeyValue<String, String>>(), null, (context != null ? context.getParameterQuery(facetedEngine) : null),
-                null, inheritedFilterMap , hitsRequested);
+        Map<String, String> inheritedFilterMap = null;
 
+        // get from public void inheritParentFilters(FacetNavigationNodeId childNodeId, NodeState state) {
+        ParentFilters parentFilters = new ParentFilters(state);
 
-        } catch (IllegalArgumentException e) {
-            log.warn("Cannot get the faceted result: '"+e.getMessage()+"'");
-            // we always need to populate the count
-            populateCount(state, 0);
-            return state;
+        if(parentFilters.view != null) {
+            inheritedFilterMap = new HashMap<String,String>();
+            for(Entry<Name, String> entry : parentFilters.view.entrySet()) {
+                inheritedFilterMap.put(entry.getKey().toString(), entry.getValue());
+            }
         }
-        
-        int count = facetedResult.length();
+
+        final List<Object> cacheKey = FacetNavigationCache.createKey(getViewCacheKey(),
+                initialQueryString.toString(), (context != null ? context.getParameterString() : null), inheritedFilterMap);
+        FacetNavigationCache.Snapshot snapshot = FacetNavigationCache.get(cacheKey);
+        if (snapshot == null) {
+            FacetedNavigationEngine.Result facetedResult;
+            try {
+                facetedResult = facetedEngine.view(null, initialQuery, facetedContext, new ArrayList<KeyValue<String, String>>(), null, (context != null ? context.getParameterQuery(facetedEngine) : null),
+                    null, inheritedFilterMap , hitsRequested);
+            } catch (IllegalArgumentException e) {
+                log.warn("Cannot get the faceted result: '"+e.getMessage()+"'");
+                // we always need to populate the count
+                populateCount(state, 0);
+                return state;
+            }
+            snapshot = new FacetNavigationCache.Snapshot(facetedResult.length());
+            FacetNavigationCache.put(cacheKey, snapshot);
+        }
+
+        int count = snapshot.count;
         
         populateCount(state, count);
         
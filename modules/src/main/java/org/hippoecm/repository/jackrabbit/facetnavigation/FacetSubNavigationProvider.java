@@ -139,6 +139,7 @@ public class FacetSubNavigationProvider extends AbstractFacetNavigationProvider
                 childNodeId.order = facetNavigationNodeId.order;
                 childNodeId.singledView = facetNavigationNodeId.singledView;
                 childNodeId.limit = facetNavigationNodeId.limit;
+                childNodeId.facetValuesLimit = facetNavigationNodeId.facetValuesLimit;
                 childNodeId.orderByList = facetNavigationNodeId.orderByList;
                 
                 childNodeId.usedFacetValueCombis = new ArrayList<KeyValue<String,String>>(usedFacetValueCombis);
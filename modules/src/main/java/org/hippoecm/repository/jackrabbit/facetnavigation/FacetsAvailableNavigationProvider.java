@@ -86,21 +86,6 @@ public class FacetsAvailableNavigationProvider extends AbstractFacetNavigationPr
             if (parsedFacet.getNamespacedProperty() == null) {
                 return state;
             }
-            Map<String, Map<String, FacetedNavigationEngine.Count>> facetSearchResultMap;
-            facetSearchResultMap = new HashMap<String, Map<String, FacetedNavigationEngine.Count>>();
-
-            Map<String, FacetedNavigationEngine.Count> facetSearchResult;
-            facetSearchResult = new HashMap<String, FacetedNavigationEngine.Count>();
-
-            if (parsedFacet.getRangeConfig() != null) {
-                // include the rangeConfig
-                facetSearchResultMap.put(parsedFacet.getNamespacedProperty() + "$" + parsedFacet.getRangeConfig(),
-                        facetSearchResult);
-            } else {
-                // normal resolvedFacet
-                facetSearchResultMap.put(parsedFacet.getNamespacedProperty(), facetSearchResult);
-            }
-
             StringBuilder initialQueryString = new StringBuilder();
             if(docbase != null) {
                 initialQueryString.append(docbase);
@@ -116,114 +101,56 @@ public class FacetsAvailableNavigationProvider extends AbstractFacetNavigationPr
                 return state;
             }
 
-            HitsRequested hitsRequested = new HitsRequested();
-            hitsRequested.setResultRequested(false);
-            hitsRequested.setFixedDrillPath(false);
-
-            FacetedNavigationEngine.Result facetedResult = null;
-            try {
-                Map<String, String> filters = null;
-                if(inheritedFilter != null) {
-                    filters = new HashMap<String,String>();
-                    for(Entry<Name, String> entry : inheritedFilter.entrySet()) {
-                        filters.put(entry.getKey().toString(), entry.getValue());
-                    }
+            Map<String, String> filters = null;
+            if(inheritedFilter != null) {
+                filters = new HashMap<String,String>();
+                for(Entry<Name, String> entry : inheritedFilter.entrySet()) {
+                    filters.put(entry.getKey().toString(), entry.getValue());
                 }
-                
-                long start = 0;
-                if(log.isDebugEnabled()) {
-                    start   = System.currentTimeMillis();
-                }
-
-                facetedResult = facetedEngine.view(null, initialQuery, facetedContext, currentSearch, currentRanges, (context != null ? context.getParameterQuery(facetedEngine) : null),
-                    facetSearchResultMap, filters, hitsRequested);
+            }
 
-                if(log.isDebugEnabled()) {
-                    log.debug("Creating facetResult took '{}' ms for '{}' number of unique facet values.", (System.currentTimeMillis() - start),  facetSearchResult.size());
+            final List<Object> cacheKey = FacetNavigationCache.createKey(getViewCacheKey(),
+                    initialQueryString.toString(), currentSearch, FacetNavigationCache.rangesKey(currentRanges),
+                    (context != null ? context.getParameterString() : null), filters, currentFacetNodeView.facet,
+                    currentFacetNodeView.comparator, currentFacetNodeView.sortorder, currentFacetNodeView.limit,
+                    facetNavigationNodeId.facetValuesLimit);
+            FacetNavigationCache.Snapshot snapshot = FacetNavigationCache.get(cacheKey);
+            if (snapshot == null) {
+                snapshot = view(context, parsedFacet, currentFacetNodeView, facetNavigationNodeId.facetValuesLimit,
+                        initialQuery, currentSearch, currentRanges, filters);
+                if (snapshot == null) {
+                    return state;
                 }
-                
-            } catch (IllegalArgumentException e) {
-                log.warn("Cannot get the faceted result: '"+e.getMessage()+"'");
-                return state;
+                FacetNavigationCache.put(cacheKey, snapshot);
+            } else {
+                log.debug("Reusing cached faceted navigation view");
             }
-            
-            int count = facetedResult.length();
 
             PropertyState propState = createNew(countName, state.getNodeId());
             propState.setType(PropertyType.LONG);
-            propState.setValues(new InternalValue[] { InternalValue.create(count) });
+            propState.setValues(new InternalValue[] { InternalValue.create(snapshot.count) });
             propState.setMultiValued(false);
             state.addPropertyName(countName);
 
             // add child node subnavigation:
-
-            // facetSearchResult logicals default order is the natural descending order of the count. Therefore, we need to create sort the facetSearchResult first.
-            FacetNavigationEntry[] facetNavigationEntries = new FacetNavigationEntry[facetSearchResult.size()];
-            int i = 0;
-            for (Map.Entry<String, FacetedNavigationEngine.Count> entry : facetSearchResult.entrySet()) {
-                facetNavigationEntries[i] = new FacetNavigationEntry(entry.getKey(), entry.getValue());
-                i++;
-            }
-            
-            if(facetNavigationNodeId.currentFacetNodeView != null && facetNavigationNodeId.currentFacetNodeView.comparator != null) {
-                Arrays.sort(facetNavigationEntries, facetNavigationNodeId.currentFacetNodeView.comparator);
-            } else if (parsedFacet.getFacetRanges() != null ) {
-                // special case: we need to order by the configured ranges if there are ranges configured:
-                List<FacetRange> ranges = parsedFacet.getFacetRanges();
-                if (facetNavigationNodeId.currentFacetNodeView.sortorder != null
-                        && "descending".equals(facetNavigationNodeId.currentFacetNodeView.sortorder)) {
-                    
-                    // first copy the list entries:
-                    List<FacetRange> listToReverse = new ArrayList<FacetRange>(ranges);
-                    
-                    // reverse order
-                    Collections.reverse(listToReverse);
-                    ranges = listToReverse;
-                }
-                
-                // fill the facet navigation entry array again, ordered by config
-                List<FacetNavigationEntry> entryList = new ArrayList<FacetNavigationEntry>();
-                for(FacetRange range : ranges) {
-                    if(facetSearchResult.containsKey(range.getName())) {
-                        entryList.add(new FacetNavigationEntry(range.getName(), facetSearchResult.get(range.getName())));
-                    }
-                }
-                
-                facetNavigationEntries = entryList.toArray(new FacetNavigationEntry[entryList.size()]);
-            }
-            else {
-                // default sorting is on count
-                Arrays.sort(facetNavigationEntries);
-            }
-            
-
-            int number = 0;
-            for (FacetNavigationEntry entry : facetNavigationEntries) {
-                if ("".equals(entry.facetValue)) {
-                    continue;
-                }
-                // if the currentFacetNodeView has a configured limit of the number of facet values, we stop when we are at the configured limit
-                if (facetNavigationNodeId.currentFacetNodeView != null && number >= facetNavigationNodeId.currentFacetNodeView.limit) {
-                    log.debug("Stop populating facetvalues because we reached the configured limit of '{}'", String.valueOf(facetNavigationNodeId.currentFacetNodeView.limit));
-                    break;
-                }
-                number++;
+            for (int i = 0; i < snapshot.facetValues.length; i++) {
+                final String facetValue = snapshot.facetValues[i];
 
                 List<KeyValue<String, String>> newSearch = new ArrayList<KeyValue<String, String>>(currentSearch);
                 List<FacetRange> newRanges = new ArrayList<FacetRange>(currentRanges);
                 if (parsedFacet.getRangeConfig() != null) {
                     for (FacetRange range : parsedFacet.getFacetRanges()) {
-                        if (range.getName().equals(entry.facetValue)) {
+                        if (range.getName().equals(facetValue)) {
                             newRanges.add(range);
                         }
                     }
                 } else {
-                    newSearch.add(new FacetKeyValue(parsedFacet.getNamespacedProperty(), entry.facetValue));
+                    newSearch.add(new FacetKeyValue(parsedFacet.getNamespacedProperty(), facetValue));
                 }
 
                 List<KeyValue<String, String>> usedFacetValueCombis = new ArrayList<KeyValue<String, String>>(
                         facetNavigationNodeId.usedFacetValueCombis);
-                KeyValue<String, String> facetValueCombi = new FacetKeyValue(currentFacetNodeView.facet, entry.facetValue);
+                KeyValue<String, String> facetValueCombi = new FacetKeyValue(currentFacetNodeView.facet, facetValue);
 
                 boolean stopSubNavigation = facetNavigationNodeId.stopSubNavigation;
                 if (!usedFacetValueCombis.contains(facetValueCombi)) {
@@ -236,7 +163,7 @@ public class FacetsAvailableNavigationProvider extends AbstractFacetNavigationPr
                 }
                 try {
                     // use forceSimpleName = true in encode because value may contain ":" but this is not related to a namespace prefix
-                    Name childName = resolveName(NodeNameCodec.encode(entry.facetValue, true));
+                    Name childName = resolveName(NodeNameCodec.encode(facetValue, true));
                     FacetNavigationNodeId childNodeId = new FacetNavigationNodeId(facetsSubNavigationProvider, state.getNodeId(), context, childName);
                     state.addChildNodeEntry(childName, childNodeId);
                     childNodeId.docbase = docbase;
@@ -245,7 +172,7 @@ public class FacetsAvailableNavigationProvider extends AbstractFacetNavigationPr
                     childNodeId.skipResultSetForFacetsAvailable = facetNavigationNodeId.skipResultSetForFacetsAvailable;
                     childNodeId.currentSearch = newSearch;
                     childNodeId.currentRanges = newRanges;
-                    childNodeId.count = entry.count.count;
+                    childNodeId.count = snapshot.facetValueCounts[i];
                     childNodeId.currentFacetNodeView = currentFacetNodeView;
 
                     String[] newAncestorAndSelfUsedCombinations = new String[ancestorAndSelfUsedCombinations != null ? ancestorAndSelfUsedCombinations.length + 1
@@ -254,7 +181,7 @@ public class FacetsAvailableNavigationProvider extends AbstractFacetNavigationPr
                         System.arraycopy(ancestorAndSelfUsedCombinations, 0, newAncestorAndSelfUsedCombinations, 0,
                                 ancestorAndSelfUsedCombinations.length);
                     }
-                    newAncestorAndSelfUsedCombinations[newAncestorAndSelfUsedCombinations.length - 1] = entry.facetValue;
+                    newAncestorAndSelfUsedCombinations[newAncestorAndSelfUsedCombinations.length - 1] = facetValue;
 
                     childNodeId.ancestorAndSelfUsedCombinations = newAncestorAndSelfUsedCombinations;
                     childNodeId.usedFacetValueCombis = usedFacetValueCombis;
@@ -264,6 +191,7 @@ public class FacetsAvailableNavigationProvider extends AbstractFacetNavigationPr
                     childNodeId.order = facetNavigationNodeId.order;
                     childNodeId.singledView = facetNavigationNodeId.singledView;
                     childNodeId.limit = facetNavigationNodeId.limit;
+                    childNodeId.facetValuesLimit = facetNavigationNodeId.facetValuesLimit;
                     childNodeId.orderByList = facetNavigationNodeId.orderByList;
 
                 } catch (RepositoryException ex) {
@@ -296,6 +224,126 @@ public class FacetsAvailableNavigationProvider extends AbstractFacetNavigationPr
         return state;
     }
 
+    /**
+     * Queries the faceted navigation engine for the count and the facet values of a facets available node, and
+     * returns them sorted and limited according to the facet node view and the facet values limit. When facet
+     * values are ordered by descending count, only the top facet values are requested from the engine, so facets
+     * with thousands of distinct values do not result in thousands of entries to sort and skip.
+     *
+     * @return the result or <code>null</code> if the engine could not compute it
+     */
+    private FacetNavigationCache.Snapshot view(final StateProviderContext context, final ParsedFacet parsedFacet,
+                                               final FacetNodeView currentFacetNodeView, final int facetValuesLimit,
+                                               final FacetedNavigationEngine.Query initialQuery,
+                                               final List<KeyValue<String, String>> currentSearch,
+                                               final List<FacetRange> currentRanges, final Map<String, String> filters) {
+        Map<String, Map<String, FacetedNavigationEngine.Count>> facetSearchResultMap;
+        facetSearchResultMap = new HashMap<String, Map<String, FacetedNavigationEngine.Count>>();
+
+        Map<String, FacetedNavigationEngine.Count> facetSearchResult;
+        facetSearchResult = new HashMap<String, FacetedNavigationEngine.Count>();
+
+        if (parsedFacet.getRangeConfig() != null) {
+            // include the rangeConfig
+            facetSearchResultMap.put(parsedFacet.getNamespacedProperty() + "$" + parsedFacet.getRangeConfig(),
+                    facetSearchResult);
+        } else {
+            // normal resolvedFacet
+            facetSearchResultMap.put(parsedFacet.getNamespacedProperty(), facetSearchResult);
+        }
+
+        HitsRequested hitsRequested = new HitsRequested();
+        hitsRequested.setResultRequested(false);
+        hitsRequested.setFixedDrillPath(false);
+
+        final int limit = Math.min(facetValuesLimit, currentFacetNodeView.limit);
+        final boolean orderedByDescendingCount = currentFacetNodeView.comparator == DESCENDING_COUNT_COMPARATOR
+                || (currentFacetNodeView.comparator == null && parsedFacet.getFacetRanges() == null);
+        if (orderedByDescendingCount) {
+            hitsRequested.setFacetValuesLimit(limit);
+        }
+
+        FacetedNavigationEngine.Result facetedResult = null;
+        try {
+            long start = 0;
+            if(log.isDebugEnabled()) {
+                start   = System.currentTimeMillis();
+            }
+
+            facetedResult = facetedEngine.view(null, initialQuery, facetedContext, currentSearch, currentRanges, (context != null ? context.getParameterQuery(facetedEngine) : null),
+                facetSearchResultMap, filters, hitsRequested);
+
+            if(log.isDebugEnabled()) {
+                log.debug("Creating facetResult took '{}' ms for '{}' number of unique facet values.", (System.currentTimeMillis() - start),  facetSearchResult.size());
+            }
+            
+        } catch (IllegalArgumentException e) {
+            log.warn("Cannot get the faceted result: '"+e.getMessage()+"'");
+            return null;
+        }
+        
+        // facetSearchResult logicals default order is the natural descending order of the count. Therefore, we need to create sort the facetSearchResult first.
+        FacetNavigationEntry[] facetNavigationEntries = new FacetNavigationEntry[facetSearchResult.size()];
+        int i = 0;
+        for (Map.Entry<String, FacetedNavigationEngine.Count> entry : facetSearchResult.entrySet()) {
+            facetNavigationEntries[i] = new FacetNavigationEntry(entry.getKey(), entry.getValue());
+            i++;
+        }
+        
+        if(currentFacetNodeView != null && currentFacetNodeView.comparator != null) {
+            Arrays.sort(facetNavigationEntries, currentFacetNodeView.comparator);
+        } else if (parsedFacet.getFacetRanges() != null ) {
+            // special case: we need to order by the configured ranges if there are ranges configured:
+            List<FacetRange> ranges = parsedFacet.getFacetRanges();
+            if (currentFacetNodeView.sortorder != null
+                    && "descending".equals(currentFacetNodeView.sortorder)) {
+                
+                // first copy the list entries:
+                List<FacetRange> listToReverse = new ArrayList<FacetRange>(ranges);
+                
+                // reverse order
+                Collections.reverse(listToReverse);
+                ranges = listToReverse;
+            }
+            
+            // fill the facet navigation entry array again, ordered by config
+            List<FacetNavigationEntry> entryList = new ArrayList<FacetNavigationEntry>();
+            for(FacetRange range : ranges) {
+                if(facetSearchResult.containsKey(range.getName())) {
+                    entryList.add(new FacetNavigationEntry(range.getName(), facetSearchResult.get(range.getName())));
+                }
+            }
+            
+            facetNavigationEntries = entryList.toArray(new FacetNavigationEntry[entryList.size()]);
+        }
+        else {
+            // default sorting is on count
+            Arrays.sort(facetNavigationEntries);
+        }
+
+        int number = 0;
+        final List<String> facetValues = new ArrayList<String>();
+        final List<Integer> facetValueCounts = new ArrayList<Integer>();
+        for (FacetNavigationEntry entry : facetNavigationEntries) {
+            if ("".equals(entry.facetValue)) {
+                continue;
+            }
+            // if the currentFacetNodeView or the facet navigation has a configured limit of the number of facet values, we stop when we are at the configured limit
+            if (number >= limit) {
+                log.debug("Stop populating facetvalues because we reached the configured limit of '{}'", String.valueOf(limit));
+                break;
+            }
+            number++;
+            facetValues.add(entry.facetValue);
+            facetValueCounts.add(entry.count.count);
+        }
+        final int[] counts = new int[facetValueCounts.size()];
+        for (int j = 0; j < counts.length; j++) {
+            counts[j] = facetValueCounts.get(j);
+        }
+        return new FacetNavigationCache.Snapshot(facetedResult.length(), facetValues.toArray(new String[facetValues.size()]), counts);
+    }
+
     @Override
     public NodeState populate(StateProviderContext context, HippoNodeId nodeId, NodeId parentId) throws RepositoryException {
         NodeState state = createNew(nodeId, virtualNodeName, parentId);
@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.jackrabbit.facetnavigation;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.hippoecm.repository.FacetKeyValue;
+import org.hippoecm.repository.FacetRange;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class FacetNavigationCacheTest {
+
+    @After
+    public void tearDown() {
+        FacetNavigationCache.setMaxSize(FacetNavigationCache.DEFAULT_MAX_SIZE);
+        FacetNavigationCache.clear();
+    }
+
+    @Test
+    public void equal_view_arguments_share_an_entry() {
+        final List<Object> key1 = FacetNavigationCache.createKey("auth", "docbase",
+                Arrays.asList(new FacetKeyValue("hippo:tag", "a")), new String[] {"x"});
+        final List<Object> key2 = FacetNavigationCache.createKey("auth", "docbase",
+                Arrays.asList(new FacetKeyValue("hippo:tag", "a")), new String[] {"x"});
+        assertEquals(key1, key2);
+
+        final FacetNavigationCache.Snapshot snapshot = new FacetNavigationCache.Snapshot(3);
+        FacetNavigationCache.put(key1, snapshot);
+        assertSame(snapshot, FacetNavigationCache.get(key2));
+    }
+
+    @Test
+    public void different_authorization_or_arguments_do_not_share_an_entry() {
+        assertFalse(FacetNavigationCache.createKey("auth1", "docbase").equals(FacetNavigationCache.createKey("auth2", "docbase")));
+        assertFalse(FacetNavigationCache.createKey("auth", "docbase1").equals(FacetNavigationCache.createKey("auth", "docbase2")));
+    }
+
+    @Test
+    public void no_key_without_view_cache_key() {
+        assertNull(FacetNavigationCache.createKey(null, "docbase"));
+        FacetNavigationCache.put(null, new FacetNavigationCache.Snapshot(1));
+        assertNull(FacetNavigationCache.get(null));
+    }
+
+    @Test
+    public void ranges_are_compared_by_value() {
+        final FacetRange range1 = new FacetRange();
+        range1.setName("last week");
+        range1.setBegin(-7);
+        final FacetRange range2 = new FacetRange();
+        range2.setName("last week");
+        range2.setBegin(-7);
+        assertEquals(FacetNavigationCache.rangesKey(Arrays.asList(range1)), FacetNavigationCache.rangesKey(Arrays.asList(range2)));
+        range2.setBegin(-14);
+        assertFalse(FacetNavigationCache.rangesKey(Arrays.asList(range1)).equals(FacetNavigationCache.rangesKey(Arrays.asList(range2))));
+    }
+
+    @Test
+    public void cache_is_bounded() {
+        FacetNavigationCache.setMaxSize(10);
+        for (int i = 0; i < 100; i++) {
+            FacetNavigationCache.put(FacetNavigationCache.createKey("auth", i), new FacetNavigationCache.Snapshot(i));
+        }
+        assertEquals(10, FacetNavigationCache.size());
+        assertNull(FacetNavigationCache.get(FacetNavigationCache.createKey("auth", 0)));
+        assertEquals(99, FacetNavigationCache.get(FacetNavigationCache.createKey("auth", 99)).count);
+    }
+}
@@ -249,6 +249,15 @@ public interface FacetedNavigationEngine<Q extends FacetedNavigationEngine.Query
          * @return an iterator over java.lang.String.
          */
         public abstract Iterator<NodeId> iterator();
+
+        /**
+         * The name of a matched node, if it is known to the engine.
+         * @param nodeId the id of a node returned by {@link #iterator()}
+         * @return the name of the node in its parent, or <code>null</code> when it is not known
+         */
+        public Name getName(NodeId nodeId) {
+            return null;
+        }
     }
 
     /** An abstract class passed between invocations of the parse()
@@ -266,6 +275,23 @@ public interface FacetedNavigationEngine<Q extends FacetedNavigationEngine.Query
     class Context {
     }
 
+    /**
+     * Optionally implemented by engines of which the view results can be shared across sessions.
+     */
+    interface ViewCaching<C extends Context> {
+
+        /**
+         * Returns a key identifying everything besides the view arguments themselves that determines the outcome
+         * of a {@link FacetedNavigationEngine#view} call for the given context: the engine, the authorization of the
+         * context and the current state of the index. Two contexts returning equal keys get equal view results for
+         * equal arguments. The key changes as soon as the index changes.
+         *
+         * @param context the context to get the key for
+         * @return the key, or <code>null</code> when view results for the context must not be shared
+         */
+        Object getViewCacheKey(C context);
+    }
+
     /**
      * The faceted navigation engine is informed when a new principal is set up
      * in the repository.  For instance when a user with unique set of
@@ -36,6 +36,13 @@ public class HitsRequested {
     private int offset = 0;
     
     private boolean fixedDrillPath = true;
+
+    /**
+     * The maximum number of facet values to return per facet, being the values with the highest counts.
+     * Defaults to {@link Integer#MAX_VALUE}, returning all facet values. When the facet values are limited, the empty
+     * facet value is not returned.
+     */
+    private int facetValuesLimit = Integer.MAX_VALUE;
     
     /**
      * The orderBy property when resultset is order, <code>null</code> if no ordering is needed
@@ -83,6 +90,14 @@ public class HitsRequested {
     public void setFixedDrillPath(boolean fixedDrillPath) {
         this.fixedDrillPath = fixedDrillPath;
     }
+
+    public int getFacetValuesLimit() {
+        return facetValuesLimit;
+    }
+
+    public void setFacetValuesLimit(int facetValuesLimit) {
+        this.facetValuesLimit = facetValuesLimit;
+    }
     
 }
 
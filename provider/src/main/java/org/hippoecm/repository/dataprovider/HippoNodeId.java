@@ -26,6 +26,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.jackrabbit.core.id.NodeId;
 import org.apache.jackrabbit.core.state.ItemStateException;
 import org.apache.jackrabbit.core.state.NodeState;
+import org.apache.jackrabbit.core.state.PropertyState;
 import org.apache.jackrabbit.spi.Name;
 
 /**
@@ -107,6 +108,10 @@ public class HippoNodeId extends NodeId
         return state;
     }
 
+    public final PropertyState populate(Name propName) throws RepositoryException {
+        return provider.populate((context != null ? context : new StateProviderContext()), this, propName);
+    }
+
     protected final HippoVirtualProvider getProvider() {
         return provider;
     }
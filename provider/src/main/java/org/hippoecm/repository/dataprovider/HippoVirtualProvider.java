@@ -141,6 +141,16 @@ public abstract class HippoVirtualProvider implements DataProviderModule
         }
     }
 
+    /**
+     * Creates the state of a property of a virtual node populated by this provider, for providers that only add
+     * the property names when populating the node and defer creating the property states until they are read.
+     *
+     * @return the property state, or <code>null</code> if the property does not exist
+     */
+    public PropertyState populate(StateProviderContext context, HippoNodeId nodeId, Name propName) throws RepositoryException {
+        return null;
+    }
+
     protected final NodeState createNew(NodeId nodeId, Name nodeTypeName, NodeId parentId) throws RepositoryException {
         return stateMgr.createNew(nodeId, nodeTypeName, parentId);
     }
@@ -18,6 +18,11 @@ package org.hippoecm.repository;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Calendar;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.jcr.LoginException;
 import javax.jcr.Node;
@@ -33,23 +38,26 @@ import javax.servlet.http.HttpSession;
 
 import org.apache.commons.lang.StringUtils;
 import org.onehippo.repository.security.JvmCredentials;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * <p>A servlet that can be used to check if the repository is up-and-running. This
- * is especially useful for load balancer checks. The check does the following steps:</p>
+ * is especially useful for load balancer checks. The checks run on a background thread every
+ * <code>check-interval</code> milliseconds and do the following steps:</p>
  * <ul>
- *   <li>Check for static custom return message, else</li>
- *   <ul>
- *     <li>obtain the repository with the connection string</li>
- *     <li>obtain the session with the specified username and password or an anonymous session</li>
- *     <li>try to read the check node</li>
- *     <li>try to write to the repository if enabled</li>
- *     <li>logout and close jcr session</li>
- *   </ul>
- *   <li>logout and close http session</li>
+ *   <li>obtain the repository with the connection string</li>
+ *   <li>obtain the session with the specified username and password or an anonymous session, the session
+ *       is kept open between checks and refreshed before each check</li>
+ *   <li>try to read the check node</li>
+ *   <li>try to write to the repository if enabled</li>
  * </ul>
- * <p>On success the servlet prints "Ok" and returns a 200 status, on failure, the error is 
- * printed and a 500 (internal server error) status is returned.</p>
+ * <p>A request returns the result of the last completed check without waiting for a running check,
+ * so a hanging repository does not block the requests. The response contains the duration of each step
+ * and the age of the result.</p>
+ * <p>On success the servlet prints "Ok" and returns a 200 status, on failure, the error is
+ * printed and a 500 (internal server error) status is returned. The check also fails when the last
+ * completed check is older than <code>max-result-age</code> milliseconds.</p>
  * <p>In case the custom message is provided, a service unavailable error (503) is returned</p>
  * 
  * <p>To enable the servlet add the following to your web.xml. Set the username to anonymous or leave out the username
@@ -82,6 +90,14 @@ import org.onehippo.repository.security.JvmCredentials;
         <param-name>write-check-node</param-name>
         <param-value>pingcheck</param-value>
       </init-param>
+      <init-param>
+        <param-name>check-interval</param-name>
+        <param-value>1000</param-value>
+      </init-param>
+      <init-param>
+        <param-name>max-result-age</param-name>
+        <param-value>10000</param-value>
+      </init-param>
       <!-- enable while doing upgrades
         init-param>
         <param-name>custom-message</param-name>
@@ -98,6 +114,8 @@ import org.onehippo.repository.security.JvmCredentials;
 public class PingServlet extends HttpServlet {
     private static final long serialVersionUID = 1L;
 
+    private static final Logger log = LoggerFactory.getLogger(PingServlet.class);
+
     /** Servlet parameters */
     private static final String REPOSITORY_ADDRESS_PARAM = "repository-address";
     private static final String USERNAME_PARAM = "check-username";
@@ -106,6 +124,8 @@ public class PingServlet extends HttpServlet {
     private static final String WRITE_ENABLE_PARAM = "write-check-enable";
     private static final String WRITE_PATH_PARAM = "write-check-path";
     private static final String CUSTOM_MESSAGE_PARAM = "custom-message";
+    private static final String CHECK_INTERVAL_PARAM = "check-interval";
+    private static final String MAX_RESULT_AGE_PARAM = "max-result-age";
 
     /** Default values */
     private static final String DEFAULT_REPOSITORY_ADDRESS = "vm://";
@@ -115,6 +135,8 @@ public class PingServlet extends HttpServlet {
     private static final String DEFAULT_WRITE_ENABLE = "false";
     private static final String DEFAULT_WRITE_PATH = "pingcheck";
     private static final String DEFAULT_CLUSTER_NODE_ID = "default";
+    private static final String DEFAULT_CHECK_INTERVAL = "1000";
+    private static final String DEFAULT_MAX_RESULT_AGE = "10000";
 
     /** Running config */
     private String repositoryLocation;
@@ -124,10 +146,18 @@ public class PingServlet extends HttpServlet {
     private String customMessage;
     private String writeTestPath;
     private boolean writeTestEnabled = false;
+    private long checkInterval;
+    private long maxResultAge;
 
     /** Local vars */
     private volatile HippoRepository repository;
 
+    /** Only accessed from the check thread */
+    private transient Session session;
+
+    private final transient AtomicReference<PingResult> lastResult = new AtomicReference<PingResult>();
+    private transient ScheduledExecutorService scheduler;
+
     @Override
     public void init(ServletConfig config) throws ServletException {
         super.init(config);
@@ -138,6 +168,55 @@ public class PingServlet extends HttpServlet {
         writeTestPath = makePathRelative(getParameter(config, WRITE_PATH_PARAM, DEFAULT_WRITE_PATH));
         writeTestEnabled = isTrueOrYes(getParameter(config, WRITE_ENABLE_PARAM, DEFAULT_WRITE_ENABLE));
         customMessage = getParameter(config, CUSTOM_MESSAGE_PARAM, null);
+        checkInterval = parseMillis(getParameter(config, CHECK_INTERVAL_PARAM, DEFAULT_CHECK_INTERVAL),
+                CHECK_INTERVAL_PARAM, DEFAULT_CHECK_INTERVAL);
+        maxResultAge = parseMillis(getParameter(config, MAX_RESULT_AGE_PARAM, DEFAULT_MAX_RESULT_AGE),
+                MAX_RESULT_AGE_PARAM, DEFAULT_MAX_RESULT_AGE);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(runnable, "hippo-ping-check");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                lastResult.set(doRepositoryChecks());
+            }
+        }, 0, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                if (!scheduler.awaitTermination(checkInterval, TimeUnit.MILLISECONDS)) {
+                    log.warn("Repository check did not stop in time, not closing its session");
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        closeSession();
+        super.destroy();
+    }
+
+    private long parseMillis(String value, String paramName, String defaultValue) {
+        try {
+            long millis = Long.parseLong(value.trim());
+            if (millis > 0) {
+                return millis;
+            }
+        } catch (NumberFormatException ignore) {
+        }
+        log.warn("Invalid value '{}' for parameter '{}', using {}", value, paramName, defaultValue);
+        return Long.parseLong(defaultValue);
     }
 
     private String getParameter(ServletConfig config, String paramName, String defaultValue) {
@@ -169,34 +248,45 @@ public class PingServlet extends HttpServlet {
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-        int resultStatus = HttpServletResponse.SC_OK;
-        String resultMessage = getOkMessage();
-        Exception exception = null;
-
-        if (hasCustomMessage()) {
-            resultMessage = "CUSTOM - " + customMessage;
-            resultStatus = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
-            printMessage(response, resultMessage, resultStatus, exception);
-            return;
-        }
-
         try {
-            doRepositoryChecks();
-        } catch (PingException e) {
-            resultStatus = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
-            resultMessage = e.getMessage();
-            exception = e;
-        } catch (RuntimeException e) {
-            resultStatus = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
-            resultMessage = "FAILURE - Serious problem with the ping servlet. Might have lost repository access: "
-                    + e.getClass().getName() + ": " + e.getMessage();
-            exception = e;
+            if (hasCustomMessage()) {
+                printMessage(response, "CUSTOM - " + customMessage, HttpServletResponse.SC_SERVICE_UNAVAILABLE, null);
+                return;
+            }
+
+            PingResult result = lastResult.get();
+            if (result == null) {
+                printMessage(response, "FAILURE - No repository check has completed yet.",
+                        HttpServletResponse.SC_INTERNAL_SERVER_ERROR, null);
+                return;
+            }
+            long age = System.currentTimeMillis() - result.timestamp;
+            if (age > maxResultAge) {
+                printMessage(response, "FAILURE - The last repository check completed " + age + " ms ago, "
+                        + "the repository may be hanging.", HttpServletResponse.SC_INTERNAL_SERVER_ERROR, null);
+            } else {
+                printMessage(response, result.message, result.status, result.exception);
+            }
+            printLatencies(response, result, age);
         } finally {
-            printMessage(response, resultMessage, resultStatus, exception);
             closeHttpSession(request);
         }
     }
 
+    private void printLatencies(HttpServletResponse response, PingResult result, long age) throws IOException {
+        PrintWriter writer = response.getWriter();
+        writer.println("age: " + age + " ms");
+        writer.println("login: " + formatLatency(result.loginTime));
+        writer.println("read: " + formatLatency(result.readTime));
+        if (writeTestEnabled) {
+            writer.println("write: " + formatLatency(result.writeTime));
+        }
+    }
+
+    private static String formatLatency(long millis) {
+        return (millis < 0 ? "n/a" : millis + " ms");
+    }
+
     private String getOkMessage() {
         String resultMessage = "OK - Repository online and accessible.";
         if (writeTestEnabled) {
@@ -230,14 +320,54 @@ public class PingServlet extends HttpServlet {
         }
     }
 
-    private synchronized void doRepositoryChecks() throws PingException {
-        Session session = null;
+    /**
+     * Runs the checks on the check thread.
+     */
+    private PingResult doRepositoryChecks() {
+        PingResult result = new PingResult();
         try {
-            session = obtainSession();
+            long start = System.currentTimeMillis();
+            if (session == null || !session.isLive()) {
+                session = obtainSession();
+                result.loginTime = System.currentTimeMillis() - start;
+            } else {
+                refreshSession();
+                result.loginTime = 0;
+            }
+
+            start = System.currentTimeMillis();
             doReadTest(session);
-            doWriteTestIfEnabled(session);
-        } finally {
-            closeSession(session);
+            result.readTime = System.currentTimeMillis() - start;
+
+            if (writeTestEnabled) {
+                start = System.currentTimeMillis();
+                doWriteTest(session);
+                result.writeTime = System.currentTimeMillis() - start;
+            }
+            result.status = HttpServletResponse.SC_OK;
+            result.message = getOkMessage();
+        } catch (PingException e) {
+            result.status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+            result.message = e.getMessage();
+            result.exception = e;
+            closeSession();
+        } catch (RuntimeException e) {
+            result.status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+            result.message = "FAILURE - Serious problem with the ping servlet. Might have lost repository access: "
+                    + e.getClass().getName() + ": " + e.getMessage();
+            result.exception = e;
+            closeSession();
+        }
+        result.timestamp = System.currentTimeMillis();
+        return result;
+    }
+
+    private void refreshSession() throws PingException {
+        try {
+            session.refresh(false);
+        } catch (RepositoryException e) {
+            String msg = "FAILURE - Could not refresh the session, maybe we lost the connection to the repository.";
+            throw new PingException(msg, e);
         }
     }
 
@@ -282,9 +412,16 @@ public class PingServlet extends HttpServlet {
         }
     }
 
-    private void closeSession(Session session) {
-        if (session != null && session.isLive()) {
-            session.logout();
+    private void closeSession() {
+        if (session != null) {
+            try {
+                if (session.isLive()) {
+                    session.logout();
+                }
+            } catch (RuntimeException e) {
+                log.debug("Could not log out the check session", e);
+            }
+            session = null;
         }
     }
 
@@ -306,12 +443,6 @@ public class PingServlet extends HttpServlet {
         }
     }
 
-    private void doWriteTestIfEnabled(Session session) throws PingException {
-        if (writeTestEnabled) {
-            doWriteTest(session);
-        }
-    }
-
     private void doWriteTest(Session session) throws PingException {
         try {
             Node writePath = getOrCreateWriteNode(session);
@@ -368,6 +499,19 @@ public class PingServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Result of a check, published to the requests once complete
+     */
+    private static final class PingResult {
+        private int status;
+        private String message;
+        private Exception exception;
+        private long timestamp;
+        private long loginTime = -1;
+        private long readTime = -1;
+        private long writeTime = -1;
+    }
+
     /**
      * Internal Exception class to be used internally to communicate the exception during the ping of the repository
      */
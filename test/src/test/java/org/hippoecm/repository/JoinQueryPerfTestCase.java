@@ -0,0 +1,113 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.query.Query;
+import javax.jcr.query.RowIterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onehippo.repository.testutils.RepositoryTestCase;
+
+/**
+ * Compares join execution on the index with the Jackrabbit query engine, on 100k nodes: 25k handles with a document
+ * each, every document linking to one of 25k targets.
+ */
+public class JoinQueryPerfTestCase extends RepositoryTestCase {
+
+    private static final String INDEXED_JOINS_PROPERTY = "repo.query.indexedjoins";
+
+    private static final int HANDLES = 25000;
+    private static final int FOLDER_SIZE = 500;
+    private static final int RUNS = 5;
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        final Node test = session.getRootNode().addNode("test");
+        Node handles = null;
+        Node targets = null;
+        for (int i = 0; i < HANDLES; i++) {
+            if (i % FOLDER_SIZE == 0) {
+                handles = test.addNode("handles" + i, "nt:unstructured");
+                targets = test.addNode("targets" + i, "nt:unstructured");
+            }
+            final Node target = targets.addNode("target" + i, "nt:unstructured");
+            target.addMixin("mix:referenceable");
+            final Node handle = handles.addNode("handle" + i, "nt:unstructured");
+            handle.setProperty("kind", "handle");
+            final Node document = handle.addNode("document", "nt:unstructured");
+            document.setProperty("kind", "document");
+            document.setProperty("link", target.getIdentifier());
+            if (i % FOLDER_SIZE == FOLDER_SIZE - 1) {
+                session.save();
+            }
+        }
+        session.save();
+    }
+
+    @After
+    @Override
+    public void tearDown() throws Exception {
+        System.clearProperty(INDEXED_JOINS_PROPERTY);
+        super.tearDown();
+    }
+
+    @Test
+    public void testChildNodeJoin() throws RepositoryException {
+        benchmark("ChildNodeJoin", "SELECT * FROM [nt:unstructured] AS document " +
+                "INNER JOIN [nt:unstructured] AS handle ON ISCHILDNODE(document, handle) " +
+                "WHERE document.[kind] = 'document' AND handle.[kind] = 'handle'");
+    }
+
+    @Test
+    public void testDescendantNodeJoin() throws RepositoryException {
+        benchmark("DescendantNodeJoin", "SELECT * FROM [nt:unstructured] AS document " +
+                "INNER JOIN [nt:unstructured] AS handle ON ISDESCENDANTNODE(document, handle) " +
+                "WHERE document.[kind] = 'document' AND handle.[kind] = 'handle'");
+    }
+
+    @Test
+    public void testEquiJoin() throws RepositoryException {
+        benchmark("EquiJoin", "SELECT * FROM [nt:unstructured] AS document " +
+                "INNER JOIN [mix:referenceable] AS target ON document.[link] = target.[jcr:uuid] " +
+                "WHERE document.[kind] = 'document'");
+    }
+
+    private void benchmark(final String name, final String statement) throws RepositoryException {
+        for (String indexed : new String[] { "false", "true" }) {
+            System.setProperty(INDEXED_JOINS_PROPERTY, indexed);
+            for (int run = 0; run < RUNS; run++) {
+                final long tBefore = System.currentTimeMillis();
+                final Query query = session.getWorkspace().getQueryManager().createQuery(statement, Query.JCR_SQL2);
+                final RowIterator rows = query.execute().getRows();
+                long count = 0;
+                while (rows.hasNext()) {
+                    rows.nextRow().getNode("document");
+                    count++;
+                }
+                final long tAfter = System.currentTimeMillis();
+                System.out.println("JoinQueryPerfTest " + name + " indexed=" + indexed + " rows=" + count + " "
+                        + Long.toString(tAfter - tBefore) + "ms");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,249 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.query.Query;
+import javax.jcr.query.QueryResult;
+import javax.jcr.query.Row;
+import javax.jcr.query.RowIterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onehippo.repository.testutils.RepositoryTestCase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JoinQueryTest extends RepositoryTestCase {
+
+    private static final String INDEXED_JOINS_PROPERTY = "repo.query.indexedjoins";
+
+    private static final int DOCUMENTS = 10;
+    private static final int CHILDREN = 3;
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        final Node test = session.getRootNode().addNode("test");
+        final Node targets = test.addNode("targets", "nt:unstructured");
+        final Node documents = test.addNode("documents", "nt:unstructured");
+        for (int i = 0; i < DOCUMENTS; i++) {
+            final Node target = targets.addNode("target" + i, "nt:unstructured");
+            target.addMixin("mix:referenceable");
+            final Node document = documents.addNode("document" + i, "nt:unstructured");
+            document.setProperty("kind", "document");
+            document.setProperty("index", i);
+            for (int j = 0; j < CHILDREN; j++) {
+                final Node child = document.addNode("child" + j, "nt:unstructured");
+                child.setProperty("kind", "child");
+                child.addNode("grandchild", "nt:unstructured").setProperty("kind", "grandchild");
+            }
+            session.save();
+            // every other document links to a target, the odd ones to a target that does not exist
+            document.setProperty("link", i % 2 == 0 ? target.getIdentifier() : "cafebabe-cafe-babe-cafe-babecafebabe");
+        }
+        session.save();
+    }
+
+    @After
+    @Override
+    public void tearDown() throws Exception {
+        System.clearProperty(INDEXED_JOINS_PROPERTY);
+        super.tearDown();
+    }
+
+    @Test
+    public void testChildNodeJoin() throws Exception {
+        final List<String> rows = assertSameResult("SELECT * FROM [nt:unstructured] AS child " +
+                "INNER JOIN [nt:unstructured] AS parent ON ISCHILDNODE(child, parent) " +
+                "WHERE parent.[kind] = 'document' AND child.[kind] = 'child'", "child", "parent");
+        assertEquals(DOCUMENTS * CHILDREN, rows.size());
+        assertContains(rows, "/test/documents/document3/child1", "/test/documents/document3");
+    }
+
+    @Test
+    public void testDescendantNodeJoin() throws Exception {
+        final List<String> rows = assertSameResult("SELECT * FROM [nt:unstructured] AS descendant " +
+                "INNER JOIN [nt:unstructured] AS ancestor ON ISDESCENDANTNODE(descendant, ancestor) " +
+                "WHERE ancestor.[kind] = 'document' AND descendant.[kind] = 'grandchild'", "descendant", "ancestor");
+        assertEquals(DOCUMENTS * CHILDREN, rows.size());
+        assertContains(rows, "/test/documents/document7/child2/grandchild", "/test/documents/document7");
+    }
+
+    @Test
+    public void testDescendantNodeJoinWithinSubtree() throws Exception {
+        final List<String> rows = assertSameResult("SELECT * FROM [nt:unstructured] AS descendant " +
+                "INNER JOIN [nt:unstructured] AS ancestor ON ISDESCENDANTNODE(descendant, ancestor) " +
+                "WHERE ISDESCENDANTNODE(ancestor, '/test/documents') AND descendant.[kind] = 'grandchild'",
+                "descendant", "ancestor");
+        // the document and the child above each grandchild
+        assertEquals(2 * DOCUMENTS * CHILDREN, rows.size());
+    }
+
+    @Test
+    public void testEquiJoin() throws Exception {
+        final List<String> rows = assertSameResult("SELECT * FROM [nt:unstructured] AS document " +
+                "INNER JOIN [mix:referenceable] AS target ON document.[link] = target.[jcr:uuid] " +
+                "WHERE ISDESCENDANTNODE(target, '/test/targets')", "document", "target");
+        assertEquals(DOCUMENTS / 2, rows.size());
+        assertContains(rows, "/test/documents/document4", "/test/targets/target4");
+    }
+
+    @Test
+    public void testSameNodeJoin() throws Exception {
+        final List<String> rows = assertSameResult("SELECT * FROM [nt:unstructured] AS a " +
+                "INNER JOIN [nt:unstructured] AS b ON ISSAMENODE(a, b) " +
+                "WHERE a.[kind] = 'document' AND b.[index] > 6", "a", "b");
+        assertEquals(3, rows.size());
+    }
+
+    @Test
+    public void testOffsetAndLimit() throws Exception {
+        final String statement = "SELECT * FROM [nt:unstructured] AS child " +
+                "INNER JOIN [nt:unstructured] AS parent ON ISCHILDNODE(child, parent) " +
+                "WHERE parent.[kind] = 'document'";
+        final Query query = session.getWorkspace().getQueryManager().createQuery(statement, Query.JCR_SQL2);
+        query.setOffset(5);
+        query.setLimit(10);
+        final QueryResult result = query.execute();
+        assertEquals(10, result.getRows().getSize());
+        assertEquals(10, getRows(result, "child", "parent").size());
+    }
+
+    @Test
+    public void testEquiJoinOnMultipleSharedValuesYieldsPairOnce() throws Exception {
+        final Node tagged = session.getNode("/test").addNode("tagged", "nt:unstructured");
+        for (int i = 0; i < 2; i++) {
+            tagged.addNode("tagged" + i, "nt:unstructured").setProperty("tags", new String[] { "red", "green" });
+            session.getNode("/test/documents/document" + i).setProperty("tags", new String[] { "red", "green", "blue" });
+        }
+        session.save();
+
+        final List<String> rows = assertSameResult("SELECT * FROM [nt:unstructured] AS document " +
+                "INNER JOIN [nt:unstructured] AS tagged ON document.[tags] = tagged.[tags] " +
+                "WHERE ISDESCENDANTNODE(tagged, '/test/tagged')", "document", "tagged");
+        assertEquals(4, rows.size());
+        assertContains(rows, "/test/documents/document1", "/test/tagged/tagged0");
+    }
+
+    @Test
+    public void testSizeExcludesRowsOfRemovedNodes() throws Exception {
+        System.setProperty(INDEXED_JOINS_PROPERTY, "true");
+        final Query query = session.getWorkspace().getQueryManager().createQuery(
+                "SELECT * FROM [nt:unstructured] AS child " +
+                "INNER JOIN [nt:unstructured] AS parent ON ISCHILDNODE(child, parent) " +
+                "WHERE parent.[kind] = 'document' AND child.[kind] = 'child'", Query.JCR_SQL2);
+        final QueryResult result = query.execute();
+        session.getNode("/test/documents/document0").remove();
+        session.save();
+
+        final RowIterator rows = result.getRows();
+        assertEquals((DOCUMENTS - 1) * CHILDREN, rows.getSize());
+        int count = 0;
+        while (rows.hasNext()) {
+            final Row row = rows.nextRow();
+            if (row.getNode("parent").getPath().equals("/test/documents/document0")) {
+                fail("Row of removed node returned");
+            }
+            count++;
+        }
+        assertEquals((DOCUMENTS - 1) * CHILDREN, count);
+    }
+
+    @Test
+    public void testValuesOfJoinedNodes() throws Exception {
+        final Query query = session.getWorkspace().getQueryManager().createQuery(
+                "SELECT child.[kind] AS childKind, parent.[index] FROM [nt:unstructured] AS child " +
+                "INNER JOIN [nt:unstructured] AS parent ON ISCHILDNODE(child, parent) " +
+                "WHERE parent.[index] = 5 AND child.[kind] = 'child'", Query.JCR_SQL2);
+        final RowIterator rows = query.execute().getRows();
+        assertEquals(CHILDREN, rows.getSize());
+        while (rows.hasNext()) {
+            final Row row = rows.nextRow();
+            assertEquals("child", row.getValue("childKind").getString());
+            assertEquals(5L, row.getValue("parent.index").getLong());
+        }
+    }
+
+    @Test
+    public void testUnsupportedJoinsAreExecuted() throws Exception {
+        final List<String> rows = assertSameResult("SELECT * FROM [nt:unstructured] AS child " +
+                "INNER JOIN [nt:unstructured] AS parent ON ISCHILDNODE(child, parent) " +
+                "WHERE parent.[kind] = 'document' AND (child.[kind] = 'child' OR parent.[index] = 1)", "child", "parent");
+        assertEquals(DOCUMENTS * CHILDREN, rows.size());
+
+        final List<String> outerRows = assertSameResult("SELECT * FROM [nt:unstructured] AS document " +
+                "LEFT OUTER JOIN [mix:referenceable] AS target ON document.[link] = target.[jcr:uuid] " +
+                "WHERE document.[kind] = 'document'", "document", "target");
+        assertEquals(DOCUMENTS, outerRows.size());
+    }
+
+    private List<String> assertSameResult(final String statement, final String selector1, final String selector2)
+            throws RepositoryException {
+        System.setProperty(INDEXED_JOINS_PROPERTY, "true");
+        final List<String> indexed = execute(statement, selector1, selector2);
+        System.setProperty(INDEXED_JOINS_PROPERTY, "false");
+        final List<String> engine = execute(statement, selector1, selector2);
+        // the order of unordered results differs, duplicates do not
+        Collections.sort(indexed);
+        Collections.sort(engine);
+        assertEquals(engine, indexed);
+        return indexed;
+    }
+
+    private List<String> execute(final String statement, final String selector1, final String selector2)
+            throws RepositoryException {
+        final Query query = session.getWorkspace().getQueryManager().createQuery(statement, Query.JCR_SQL2);
+        return getRows(query.execute(), selector1, selector2);
+    }
+
+    /**
+     * @return the rows of the result, after checking the size reported by the result if it reports one
+     */
+    private static List<String> getRows(final QueryResult result, final String selector1, final String selector2)
+            throws RepositoryException {
+        final List<String> rows = new ArrayList<>();
+        final RowIterator iterator = result.getRows();
+        final long size = iterator.getSize();
+        while (iterator.hasNext()) {
+            final Row row = iterator.nextRow();
+            rows.add(getPath(row, selector1) + " " + getPath(row, selector2));
+        }
+        if (size != -1) {
+            assertEquals(size, rows.size());
+        }
+        return rows;
+    }
+
+    private static String getPath(final Row row, final String selector) throws RepositoryException {
+        final Node node = row.getNode(selector);
+        return node != null ? node.getPath() : null;
+    }
+
+    private static void assertContains(final List<String> rows, final String path1, final String path2) {
+        assertTrue(rows.contains(path1 + " " + path2));
+    }
+
+}
@@ -23,6 +23,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.onehippo.repository.testutils.RepositoryTestCase;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -187,6 +188,39 @@ public class MirrorTest extends RepositoryTestCase {
         assertFalse(session.getRootNode().getNode("test/navigation").getNode("mirror").hasNode("test1[2]"));
     }
     
+    @Test
+    public void testMirroredPropertiesFollowCanonicalChanges() throws Exception {
+        final Node canonical = session.getNode("/test/documents/test2");
+        canonical.setProperty("later", "before");
+        session.save();
+
+        // read one property of the mirrored node before the change, only populate the node of the other one
+        assertEquals("anders", session.getNode("/test/navigation/mirror/test2").getProperty("wel").getString());
+        assertTrue(session.getNode("/test/navigation/mirror/test3/test4").hasProperty("lachen"));
+
+        canonical.setProperty("wel", "nog anders");
+        canonical.setProperty("later", "after");
+        canonical.setProperty("nieuw", "waarde");
+        session.getNode("/test/documents/test3/test4").getProperty("lachen").remove();
+        session.save();
+        session.refresh(false);
+
+        final Node mirrored = session.getNode("/test/navigation/mirror/test2");
+        assertEquals("nog anders", mirrored.getProperty("wel").getString());
+        assertEquals("after", mirrored.getProperty("later").getString());
+        assertEquals("waarde", mirrored.getProperty("nieuw").getString());
+        assertFalse(session.getNode("/test/navigation/mirror/test3/test4").hasProperty("lachen"));
+
+        final Session other = server.login(SYSTEMUSER_ID, SYSTEMUSER_PASSWORD);
+        try {
+            final Node otherMirrored = other.getNode("/test/navigation/mirror/test2");
+            assertEquals("nog anders", otherMirrored.getProperty("wel").getString());
+            assertEquals("after", otherMirrored.getProperty("later").getString());
+        } finally {
+            other.logout();
+        }
+    }
+
     @Test
     public void testSubTypeMirror() throws Exception {        
         assertTrue(session.getRootNode().getNode("test/navigation").getNode("subtypemirror").hasProperty("hippo:docbase"));
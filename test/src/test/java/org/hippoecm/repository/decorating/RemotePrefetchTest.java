@@ -0,0 +1,275 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.decorating;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.server.RemoteObject;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Property;
+import javax.jcr.Repository;
+import javax.jcr.Session;
+import javax.jcr.Workspace;
+import javax.jcr.query.Query;
+import javax.jcr.query.QueryManager;
+import javax.jcr.query.QueryResult;
+
+import org.apache.jackrabbit.rmi.remote.RemoteIterator;
+import org.apache.jackrabbit.rmi.remote.RemoteNode;
+import org.apache.jackrabbit.rmi.remote.RemoteProperty;
+import org.apache.jackrabbit.rmi.remote.RemoteQuery;
+import org.apache.jackrabbit.rmi.remote.RemoteQueryManager;
+import org.apache.jackrabbit.rmi.remote.RemoteQueryResult;
+import org.apache.jackrabbit.rmi.remote.RemoteRepository;
+import org.apache.jackrabbit.rmi.remote.RemoteSession;
+import org.apache.jackrabbit.rmi.remote.RemoteWorkspace;
+import org.hippoecm.repository.RepositoryUrl;
+import org.hippoecm.repository.decorating.client.ClientServicesAdapterFactory;
+import org.hippoecm.repository.decorating.server.ServerServicingAdapterFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onehippo.repository.testutils.RepositoryTestCase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reads content through a loopback RMI connection, counting the remote calls made by the client.
+ */
+public class RemotePrefetchTest extends RepositoryTestCase {
+
+    private static final int CHILD_COUNT = 20;
+
+    private RemoteRepository remoteRepository;
+    private CountingAdapterFactory factory;
+    private Repository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        Node folder = session.getRootNode().addNode("test", "nt:unstructured");
+        for (int i = 0; i < CHILD_COUNT; i++) {
+            Node child = folder.addNode("child" + i, "nt:unstructured");
+            child.setProperty("title", "title " + i);
+            child.setProperty("count", (long) i);
+            child.setProperty("tags", new String[] { "a", "b" });
+        }
+        session.save();
+
+        RepositoryUrl url = new RepositoryUrl("rmi://localhost:1099/hipporepository");
+        remoteRepository = new ServerServicingAdapterFactory(url).getRemoteRepository(background.getRepository());
+        factory = new CountingAdapterFactory();
+        repository = factory.getRepository((RemoteRepository) RemoteObject.toStub(remoteRepository));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        UnicastRemoteObject.unexportObject(remoteRepository, true);
+        super.tearDown();
+    }
+
+    private List<String> readFolder(Session remoteSession) throws Exception {
+        List<String> values = new ArrayList<String>();
+        Node folder = remoteSession.getRootNode().getNode("test");
+        for (NodeIterator children = folder.getNodes(); children.hasNext(); ) {
+            Node child = children.nextNode();
+            values.add(child.getName() + "=" + child.getProperty("title").getString() + ","
+                    + child.getProperty("count").getLong() + "," + child.getProperty("tags").getValues().length + ","
+                    + child.hasProperty("missing"));
+        }
+        return values;
+    }
+
+    private List<String> queryFolder(Session remoteSession) throws Exception {
+        List<String> values = new ArrayList<String>();
+        Query query = remoteSession.getWorkspace().getQueryManager().createQuery(
+                "/jcr:root/test/* order by @count", Query.XPATH);
+        for (NodeIterator nodes = query.execute().getNodes(); nodes.hasNext(); ) {
+            Node node = nodes.nextNode();
+            values.add(node.getPath() + "=" + node.getProperty("title").getString());
+        }
+        return values;
+    }
+
+    @Test
+    public void testPrefetchReducesRemoteCalls() throws Exception {
+        Session remoteSession = repository.login(CREDENTIALS);
+        try {
+            factory.calls.set(0);
+            List<String> expected = readFolder(remoteSession);
+            int callsWithoutPrefetch = factory.calls.get();
+
+            factory.setPrefetchEnabled(true);
+            factory.calls.set(0);
+            assertEquals(expected, readFolder(remoteSession));
+            int callsWithPrefetch = factory.calls.get();
+
+            assertEquals(CHILD_COUNT, expected.size());
+            assertTrue("expected at least one call per child without prefetching, got " + callsWithoutPrefetch,
+                    callsWithoutPrefetch > CHILD_COUNT);
+            assertTrue("expected fewer calls with prefetching, got " + callsWithPrefetch + " instead of "
+                    + callsWithoutPrefetch, callsWithPrefetch * 5 < callsWithoutPrefetch);
+        } finally {
+            remoteSession.logout();
+        }
+    }
+
+    @Test
+    public void testPrefetchWithSmallBatchesAndCompression() throws Exception {
+        Session remoteSession = repository.login(CREDENTIALS);
+        try {
+            List<String> expected = readFolder(remoteSession);
+            factory.setPrefetchEnabled(true);
+            factory.setPrefetchSize(7);
+            factory.setCompressionEnabled(true);
+            assertEquals(expected, readFolder(remoteSession));
+        } finally {
+            remoteSession.logout();
+        }
+    }
+
+    @Test
+    public void testQueryResultPage() throws Exception {
+        Session remoteSession = repository.login(CREDENTIALS);
+        try {
+            factory.calls.set(0);
+            List<String> expected = queryFolder(remoteSession);
+            int callsWithoutPrefetch = factory.calls.get();
+
+            factory.setPrefetchEnabled(true);
+            factory.calls.set(0);
+            assertEquals(expected, queryFolder(remoteSession));
+            int callsWithPrefetch = factory.calls.get();
+
+            assertEquals(CHILD_COUNT, expected.size());
+            assertTrue("expected fewer calls with prefetching, got " + callsWithPrefetch + " instead of "
+                    + callsWithoutPrefetch, callsWithPrefetch * 5 < callsWithoutPrefetch);
+        } finally {
+            remoteSession.logout();
+        }
+    }
+
+    @Test
+    public void testSnapshotInvalidatedByModification() throws Exception {
+        factory.setPrefetchEnabled(true);
+        Session remoteSession = repository.login(CREDENTIALS);
+        try {
+            Node child = remoteSession.getRootNode().getNode("test").getNodes().nextNode();
+            assertEquals("title 0", child.getProperty("title").getString());
+
+            child.setProperty("title", "changed");
+            assertEquals("changed", child.getProperty("title").getString());
+
+            child.getProperty("title").setValue("changed again");
+            assertEquals("changed again", child.getProperty("title").getString());
+
+            remoteSession.refresh(false);
+            assertEquals("title 0", child.getProperty("title").getString());
+
+            session.getNode("/test/child0").setProperty("title", "saved elsewhere");
+            session.save();
+            assertEquals("title 0", child.getProperty("title").getString());
+            remoteSession.refresh(false);
+            assertEquals("saved elsewhere", child.getProperty("title").getString());
+        } finally {
+            remoteSession.logout();
+        }
+    }
+
+    /**
+     * Wraps all remote objects handed to the client objects, counting the calls made on them.
+     */
+    private static class CountingAdapterFactory extends ClientServicesAdapterFactory {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @SuppressWarnings("unchecked")
+        private <T> T count(final T remote) {
+            if (remote == null) {
+                return null;
+            }
+            return (T) Proxy.newProxyInstance(getClass().getClassLoader(), remote.getClass().getInterfaces(),
+                    new InvocationHandler() {
+                        @Override
+                        public Object invoke(final Object proxy, final Method method, final Object[] args)
+                                throws Throwable {
+                            if (method.getDeclaringClass() != Object.class) {
+                                calls.incrementAndGet();
+                            }
+                            try {
+                                return method.invoke(remote, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        }
+                    });
+        }
+
+        @Override
+        public Repository getRepository(RemoteRepository remote) {
+            return super.getRepository(count(remote));
+        }
+
+        @Override
+        public Session getSession(Repository repository, RemoteSession remote) {
+            return super.getSession(repository, count(remote));
+        }
+
+        @Override
+        public Workspace getWorkspace(Session session, RemoteWorkspace remote) {
+            return super.getWorkspace(session, count(remote));
+        }
+
+        @Override
+        public Node getNode(Session session, RemoteNode remote) {
+            return super.getNode(session, count(remote));
+        }
+
+        @Override
+        public Property getProperty(Session session, RemoteProperty remote) {
+            return super.getProperty(session, count(remote));
+        }
+
+        @Override
+        public NodeIterator getNodeIterator(Session session, RemoteIterator remote) {
+            return super.getNodeIterator(session, count(remote));
+        }
+
+        @Override
+        public QueryManager getQueryManager(Session session, RemoteQueryManager remote) {
+            return super.getQueryManager(session, count(remote));
+        }
+
+        @Override
+        public Query getQuery(Session session, RemoteQuery remote) {
+            return super.getQuery(session, count(remote));
+        }
+
+        @Override
+        public QueryResult getQueryResult(Session session, RemoteQueryResult remote) {
+            return super.getQueryResult(session, count(remote));
+        }
+    }
+}
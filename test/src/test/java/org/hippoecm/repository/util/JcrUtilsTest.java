@@ -15,21 +15,35 @@
  */
 package org.hippoecm.repository.util;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.UUID;
+
+import javax.jcr.Binary;
 import javax.jcr.Node;
 import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
+import javax.jcr.Session;
 import javax.jcr.Value;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.jackrabbit.api.JackrabbitValue;
+import org.hippoecm.repository.HippoRepository;
+import org.hippoecm.repository.HippoRepositoryFactory;
 import org.junit.Before;
 import org.junit.Test;
+import org.onehippo.repository.testutils.CountingFileDataStore;
 import org.onehippo.repository.testutils.RepositoryTestCase;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
 import static junit.framework.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class JcrUtilsTest extends RepositoryTestCase {
 
+    private static final int BINARY_SIZE = 64 * 1024;
+
     private Node node;
 
     @Before
@@ -169,4 +183,91 @@ public class JcrUtilsTest extends RepositoryTestCase {
             assertTrue(expected.getMessage().equals("No applicable child node definition"));
         }
     }
+
+    @Test
+    public void testCopyLargeSubtree() throws Exception {
+        final Node source = createLargeSubtree(node);
+        session.save();
+
+        JcrUtils.copy(session, "/test/node/source", "/test/copy");
+        session.save();
+
+        final Node copy = session.getNode("/test/copy");
+        assertEquals(100 * 100 + 100, countDescendants(copy));
+        assertEquals(99, copy.getNode("folder99/node99").getProperty("index").getLong());
+        assertEquals(BINARY_SIZE, copy.getNode("folder0/node0").getProperty("data").getBinary().getSize());
+        assertEquals(BINARY_SIZE, source.getNode("folder0/node0").getProperty("data").getBinary().getSize());
+    }
+
+    @Test
+    public void testCopyLargeSubtreeSharesBinariesInDataStore() throws Exception {
+        final File storage = new File(System.getProperty("java.io.tmpdir"), "repository-" + UUID.randomUUID().toString());
+        final String originalRepoConfig = System.getProperty("repo.config");
+        HippoRepository repository = null;
+        try {
+            System.setProperty("repo.config", "/org/onehippo/repository/testutils/datastore-repository.xml");
+            repository = HippoRepositoryFactory.getHippoRepository(storage.getAbsolutePath());
+            final Session dataStoreSession = repository.login(SYSTEMUSER_ID, SYSTEMUSER_PASSWORD);
+            try {
+                final Node test = dataStoreSession.getRootNode().addNode("test", "nt:unstructured");
+                final Node source = createLargeSubtree(test);
+                dataStoreSession.save();
+
+                CountingFileDataStore.resetAddRecordCount();
+                JcrUtils.copy(dataStoreSession, "/test/source", "/test/copy");
+                dataStoreSession.save();
+                // the copy refers to the same record instead of storing the binary again
+                assertEquals("Binary was stored again", 0, CountingFileDataStore.getAddRecordCount());
+
+                final Node copy = dataStoreSession.getNode("/test/copy");
+                assertEquals(100 * 100 + 100, countDescendants(copy));
+                final Value sourceValue = source.getNode("folder0/node0").getProperty("data").getValue();
+                final Value copyValue = copy.getNode("folder0/node0").getProperty("data").getValue();
+                assertEquals(BINARY_SIZE, copyValue.getBinary().getSize());
+                final String identity = ((JackrabbitValue) sourceValue).getContentIdentity();
+                assertNotNull("Binary is not stored in the data store", identity);
+                assertEquals(identity, ((JackrabbitValue) copyValue).getContentIdentity());
+            } finally {
+                dataStoreSession.logout();
+            }
+        } finally {
+            if (originalRepoConfig != null) {
+                System.setProperty("repo.config", originalRepoConfig);
+            } else {
+                System.clearProperty("repo.config");
+            }
+            if (repository != null) {
+                repository.close();
+            }
+            FileUtils.deleteQuietly(storage);
+        }
+    }
+
+    /**
+     * Creates 100 folders of 100 nodes each below a node "source", with a binary on the first node
+     */
+    private static Node createLargeSubtree(final Node parent) throws RepositoryException {
+        final byte[] data = new byte[BINARY_SIZE];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        final Node source = parent.addNode("source", "nt:unstructured");
+        for (int i = 0; i < 100; i++) {
+            final Node folder = source.addNode("folder" + i, "nt:unstructured");
+            for (int j = 0; j < 100; j++) {
+                folder.addNode("node" + j, "nt:unstructured").setProperty("index", j);
+            }
+        }
+        final Binary binary = parent.getSession().getValueFactory().createBinary(new ByteArrayInputStream(data));
+        source.getNode("folder0/node0").setProperty("data", binary);
+        return source;
+    }
+
+    private static int countDescendants(Node node) throws RepositoryException {
+        int count = 0;
+        for (Node child : new NodeIterable(node.getNodes())) {
+            count += 1 + countDescendants(child);
+        }
+        return count;
+    }
 }
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collections;
+import java.util.zip.ZipOutputStream;
 
 import javax.jcr.Credentials;
 import javax.jcr.InvalidSerializedDataException;
@@ -387,6 +388,11 @@ public class MockSession implements HippoSession {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void exportEnhancedSystemViewPackage(final String parentAbsPath, final boolean recurse, final ZipOutputStream zipOut) throws IOException, RepositoryException {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public XAResource getXAResource() {
         throw new UnsupportedOperationException();
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onehippo.repository.testutils;
+
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jackrabbit.core.data.DataRecord;
+import org.apache.jackrabbit.core.data.DataStoreException;
+import org.apache.jackrabbit.core.data.FileDataStore;
+
+/**
+ * File data store that counts the records that are added to it, so that tests can verify that binaries are not
+ * stored again. Jackrabbit creates the data store from the repository configuration, hence the count is static.
+ */
+public class CountingFileDataStore extends FileDataStore {
+
+    private static final AtomicInteger addRecordCount = new AtomicInteger();
+
+    @Override
+    public DataRecord addRecord(final InputStream input) throws DataStoreException {
+        addRecordCount.incrementAndGet();
+        return super.addRecord(input);
+    }
+
+    /**
+     * @return the number of times a record was added since the count was last reset
+     */
+    public static int getAddRecordCount() {
+        return addRecordCount.get();
+    }
+
+    public static void resetAddRecordCount() {
+        addRecordCount.set(0);
+    }
+}
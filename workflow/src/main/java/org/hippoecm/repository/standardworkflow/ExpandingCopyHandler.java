@@ -17,6 +17,7 @@ package org.hippoecm.repository.standardworkflow;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -95,7 +96,7 @@ class ExpandingCopyHandler extends DefaultCopyHandler {
             }
 
             nodeInfo = new NodeInfo(name, nodeInfo.getIndex(), primaryType, mixins.toArray(new NodeType[mixins.size()]));
-            if (!nodeInfo.hasApplicableChildNodeDef(getCurrentNodeTypes())) {
+            if (getApplicableChildNodeDef(nodeInfo) == null) {
                 // no applicable child node definition
                 // this happens for instance when trying to rename hippo:translation nodes which shouldn't be renamed
                 if (origName.equals(name)) {
@@ -119,12 +120,12 @@ class ExpandingCopyHandler extends DefaultCopyHandler {
     public void setProperty(PropInfo propInfo) throws RepositoryException {
         if (getCurrent() != null) {
             String name = propInfo.getName();
-
+            final String suffix = "/" + name;
 
             String[] substitutes = null;
             for (Map.Entry<String, String[]> entry : renames.entrySet()) {
                 final String key = entry.getKey();
-                if (key.endsWith("/" + name) && path.matchKey(key, lastSubstituteName)) {
+                if (key.endsWith(suffix) && path.matchKey(key, lastSubstituteName)) {
                     substitutes = entry.getValue();
                     break;
                 }
@@ -171,6 +172,7 @@ class ExpandingCopyHandler extends DefaultCopyHandler {
 
     private static class Path {
         private final Stack<String> names = new Stack<>();
+        private final Map<String, String[]> keyElements = new HashMap<>();
 
         private void push(final String name) {
             names.push(name);
@@ -181,7 +183,11 @@ class ExpandingCopyHandler extends DefaultCopyHandler {
         }
 
         private boolean matchKey(final String keyPath, final String substitute) {
-            final String[] elements = keyPath.split("/");
+            String[] elements = keyElements.get(keyPath);
+            if (elements == null) {
+                elements = keyPath.split("/");
+                keyElements.put(keyPath, elements);
+            }
             if (names.size() != elements.length-1) {
                 return false;
             }
@@ -17,10 +17,12 @@ package org.hippoecm.repository.standardworkflow;
 
 import java.io.Serializable;
 import java.rmi.RemoteException;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -113,7 +115,7 @@ public class FolderWorkflowImpl implements FolderWorkflow, EmbedWorkflow, Intern
 
     private static final Logger log = LoggerFactory.getLogger(FolderWorkflowImpl.class);
     private static final long serialVersionUID = 1L;
-    private static final String TEMPLATES_PATH = "/hippo:configuration/hippo:queries/hippo:templates";
+    static final String TEMPLATES_PATH = "/hippo:configuration/hippo:queries/hippo:templates";
 
     private final Session userSession;
     private final Session rootSession;
@@ -167,6 +169,34 @@ public class FolderWorkflowImpl implements FolderWorkflow, EmbedWorkflow, Intern
     }
 
     protected Map<String, Set<String>> prototypes() throws RepositoryException {
+        final String userId = userSession.getUserID();
+        final String folderTypes = getFolderTypesKey();
+        Map<String, Set<String>> types = PrototypesCache.get(userId, folderTypes);
+        if (types == null) {
+            final long generation = PrototypesCache.getGeneration();
+            types = resolvePrototypes();
+            PrototypesCache.put(userId, folderTypes, types, generation);
+        }
+        return types;
+    }
+
+    private String getFolderTypesKey() throws RepositoryException {
+        if (!subject.hasProperty("hippostd:foldertype")) {
+            return null;
+        }
+        try {
+            final StringBuilder sb = new StringBuilder();
+            for (Value value : subject.getProperty("hippostd:foldertype").getValues()) {
+                sb.append(value.getString()).append('\n');
+            }
+            return sb.toString();
+        } catch (ValueFormatException ex) {
+            // resolved like a folder without folder types
+            return null;
+        }
+    }
+
+    private Map<String, Set<String>> resolvePrototypes() {
         Map<String, Set<String>> types = new LinkedHashMap<String, Set<String>>();
         try {
             QueryManager qmgr = userSession.getWorkspace().getQueryManager();
@@ -516,27 +546,81 @@ public class FolderWorkflowImpl implements FolderWorkflow, EmbedWorkflow, Intern
 
     public void reorder(List<String> newOrder) throws WorkflowException, MappingException, RepositoryException, RemoteException {
         Node folder = rootSession.getNodeByIdentifier(subject.getIdentifier());
-        Session session = folder.getSession();
 
-        LinkedList<String> list = new LinkedList<String>();
+        List<Node> children = new ArrayList<Node>();
+        Map<String, Integer> positions = new HashMap<String, Integer>();
+        for (Node child : new NodeIterable(folder.getNodes())) {
+            positions.put(child.getIdentifier(), children.size());
+            children.add(child);
+        }
+
+        // the requested nodes go first, the other nodes keep their relative order
+        Set<String> requested = new LinkedHashSet<String>();
         for (String nodeName : newOrder) {
-            Node node = folder.getNode(nodeName);
-            list.addFirst(node.getIdentifier());
+            requested.add(folder.getNode(nodeName).getIdentifier());
+        }
+        List<Node> order = new ArrayList<Node>(children.size());
+        for (String identifier : requested) {
+            order.add(children.get(positions.get(identifier)));
+        }
+        for (Node child : children) {
+            if (!requested.contains(child.getIdentifier())) {
+                order.add(child);
+            }
         }
 
-        for (String identifier : list) {
-            Node headNode = folder.getNodes().nextNode();
+        int[] currentPositions = new int[order.size()];
+        for (int i = 0; i < currentPositions.length; i++) {
+            currentPositions[i] = positions.get(order.get(i).getIdentifier());
+        }
+        boolean[] inPlace = longestIncreasingSubsequence(currentPositions);
 
-            if (!headNode.getIdentifier().equals(identifier)) {
-                Node srcNode = session.getNodeByIdentifier(identifier);
-                String srcNodeName = srcNode.getName() + (srcNode.getIndex() > 1? "["+srcNode.getIndex()+"]" : "");
-                String headNodeName = headNode.getName() + (headNode.getIndex() > 1 ? "[" + headNode.getIndex() + "]" : "");
-                folder.orderBefore(srcNodeName, headNodeName);
+        // only move the nodes that are out of place, each in front of its successor in the new order
+        Node successor = null;
+        for (int i = order.size() - 1; i >= 0; i--) {
+            Node node = order.get(i);
+            if (!inPlace[i]) {
+                folder.orderBefore(getRelPath(node), successor != null ? getRelPath(successor) : null);
             }
+            successor = node;
         }
         folder.save();
     }
 
+    private static String getRelPath(Node node) throws RepositoryException {
+        return node.getName() + (node.getIndex() > 1 ? "[" + node.getIndex() + "]" : "");
+    }
+
+    /**
+     * @return for each of the values whether it is part of a longest strictly increasing subsequence
+     */
+    static boolean[] longestIncreasingSubsequence(int[] values) {
+        int[] tails = new int[values.length];
+        int[] predecessors = new int[values.length];
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            int low = 0, high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            predecessors[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        boolean[] inSubsequence = new boolean[values.length];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = predecessors[i]) {
+            inSubsequence[i] = true;
+        }
+        return inSubsequence;
+    }
+
     public void delete(String name) throws WorkflowException, MappingException, RepositoryException, RemoteException {
         if (name.startsWith("/")) {
             name = name.substring(1);
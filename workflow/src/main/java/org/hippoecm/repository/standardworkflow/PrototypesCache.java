@@ -0,0 +1,140 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.standardworkflow;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the prototypes resolved by {@link FolderWorkflowImpl#prototypes()}, keyed on the folder types of the
+ * folder and the user the prototype queries were executed for.
+ * <p>
+ * The cache is only used while the {@link PrototypesCacheModule} is running, as that module invalidates the cache
+ * when the templates configuration, the namespaces or the security configuration change. The latter keeps entries
+ * keyed on the user id valid when the groups, roles or domains of the user change. Prototypes stored while an invalidation took place are discarded.
+ */
+final class PrototypesCache {
+
+    private static final int MAX_SIZE = 1000;
+
+    private static final Map<Key, Map<String, Set<String>>> cache = new ConcurrentHashMap<>();
+    private static final AtomicLong generation = new AtomicLong();
+    private static volatile boolean enabled;
+
+    private PrototypesCache() {
+    }
+
+    static void enable() {
+        invalidate();
+        enabled = true;
+    }
+
+    static void disable() {
+        enabled = false;
+        invalidate();
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    static void invalidate() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    static long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * @return a copy of the cached prototypes, or <code>null</code> if none are cached
+     */
+    static Map<String, Set<String>> get(final String userId, final String folderTypes) {
+        if (!enabled) {
+            return null;
+        }
+        final Map<String, Set<String>> prototypes = cache.get(new Key(userId, folderTypes));
+        return prototypes != null ? copy(prototypes) : null;
+    }
+
+    /**
+     * Stores prototypes that were resolved when the cache was at generation <code>resolvedGeneration</code>.
+     */
+    static void put(final String userId, final String folderTypes, final Map<String, Set<String>> prototypes,
+                    final long resolvedGeneration) {
+        if (!enabled) {
+            return;
+        }
+        if (cache.size() >= MAX_SIZE) {
+            cache.clear();
+        }
+        final Key key = new Key(userId, folderTypes);
+        cache.put(key, copy(prototypes));
+        if (generation.get() != resolvedGeneration) {
+            cache.remove(key);
+        }
+    }
+
+    static int size() {
+        return cache.size();
+    }
+
+    private static Map<String, Set<String>> copy(final Map<String, Set<String>> prototypes) {
+        final Map<String, Set<String>> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, Set<String>> entry : prototypes.entrySet()) {
+            copy.put(entry.getKey(), new TreeSet<>(entry.getValue()));
+        }
+        return copy;
+    }
+
+    private static final class Key {
+
+        private final String userId;
+        private final String folderTypes;
+
+        private Key(final String userId, final String folderTypes) {
+            this.userId = userId;
+            this.folderTypes = folderTypes;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return equals(userId, other.userId) && equals(folderTypes, other.folderTypes);
+        }
+
+        private static boolean equals(final String s1, final String s2) {
+            return s1 == null ? s2 == null : s1.equals(s2);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (userId != null ? userId.hashCode() : 0) + (folderTypes != null ? folderTypes.hashCode() : 0);
+        }
+    }
+}
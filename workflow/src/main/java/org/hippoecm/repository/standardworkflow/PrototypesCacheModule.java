@@ -0,0 +1,102 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.standardworkflow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
+import javax.jcr.observation.ObservationManager;
+
+import org.onehippo.repository.modules.DaemonModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.hippoecm.repository.api.HippoNodeType.CONFIGURATION_PATH;
+import static org.hippoecm.repository.api.HippoNodeType.DOMAINS_PATH;
+import static org.hippoecm.repository.api.HippoNodeType.GROUPS_PATH;
+import static org.hippoecm.repository.api.HippoNodeType.NAMESPACES_PATH;
+import static org.hippoecm.repository.api.HippoNodeType.ROLES_PATH;
+
+/**
+ * Enables caching of the prototypes of the folder workflow, and invalidates that cache whenever anything changes
+ * below the templates configuration, the namespaces, of which the prototype queries read the prototypes, or the
+ * security configuration that determines which prototypes a user can read.
+ */
+public class PrototypesCacheModule implements DaemonModule {
+
+    private static final Logger log = LoggerFactory.getLogger(PrototypesCacheModule.class);
+
+    private static final int EVENT_TYPES = Event.NODE_ADDED | Event.NODE_REMOVED | Event.NODE_MOVED
+            | Event.PROPERTY_REMOVED | Event.PROPERTY_CHANGED | Event.PROPERTY_ADDED;
+
+    private static final String[] OBSERVED_PATHS = {
+            FolderWorkflowImpl.TEMPLATES_PATH,
+            "/" + NAMESPACES_PATH,
+            "/" + CONFIGURATION_PATH + "/" + GROUPS_PATH,
+            "/" + CONFIGURATION_PATH + "/" + ROLES_PATH,
+            "/" + CONFIGURATION_PATH + "/" + DOMAINS_PATH
+    };
+
+    private Session session;
+    private final List<EventListener> listeners = new ArrayList<>();
+
+    @Override
+    public void initialize(final Session session) throws RepositoryException {
+        this.session = session;
+        final ObservationManager observationManager = session.getWorkspace().getObservationManager();
+        for (String path : OBSERVED_PATHS) {
+            // a listener can only be registered once
+            final EventListener listener = new InvalidatingListener(path);
+            observationManager.addEventListener(listener, EVENT_TYPES, path, true, null, null, false);
+            listeners.add(listener);
+        }
+        PrototypesCache.enable();
+    }
+
+    @Override
+    public void shutdown() {
+        PrototypesCache.disable();
+        try {
+            final ObservationManager observationManager = session.getWorkspace().getObservationManager();
+            for (EventListener listener : listeners) {
+                observationManager.removeEventListener(listener);
+            }
+        } catch (RepositoryException e) {
+            log.error("Failed to stop listener", e);
+        }
+        listeners.clear();
+    }
+
+    private static class InvalidatingListener implements EventListener {
+
+        private final String path;
+
+        private InvalidatingListener(final String path) {
+            this.path = path;
+        }
+
+        @Override
+        public void onEvent(final EventIterator events) {
+            log.debug("{} changed, invalidating folder workflow prototypes", path);
+            PrototypesCache.invalidate();
+        }
+    }
+}
@@ -0,0 +1,429 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.onehippo.repository.documentworkflow;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.hippoecm.repository.api.Document;
+import org.hippoecm.repository.api.HippoWorkspace;
+import org.hippoecm.repository.api.Workflow;
+import org.hippoecm.repository.api.WorkflowException;
+import org.hippoecm.repository.api.WorkflowManager;
+import org.hippoecm.repository.impl.WorkflowManagerImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes the same {@link DocumentWorkflow} action on many document handles.
+ * <p>
+ * All actions are invoked through one workflow manager and are part of one workflow interaction. Instead of saving
+ * the changes of every document separately, the changes of {@link #setBatchSize(int) a batch} of documents are
+ * saved at once. When the action fails for a document, the changes of the current batch are discarded and the action
+ * is invoked again for the documents of the batch that succeeded, so a failing document never prevents the others
+ * from being processed. The outcome of every document is reported in the {@link Result}.
+ * </p>
+ * <p>
+ * The versions that actions create are checked in after their batch has been saved, so documents of which the
+ * changes are discarded do not get a version, and documents of which the action is executed again get only one.
+ * Every check in is a separate commit to the version storage.
+ * </p>
+ * <p>
+ * Every action still (re)starts the document workflow state machine of its document, as the actions that are
+ * allowed depend on the state and the permissions of each document. Batching is only possible for a local
+ * repository; otherwise every action saves its own changes.
+ * </p>
+ */
+public class BulkDocumentWorkflow {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkDocumentWorkflow.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    /**
+     * A document workflow action to execute on every document.
+     */
+    public interface Action {
+
+        /**
+         * @return the name of the action, used in the name of the workflow interaction
+         */
+        String getName();
+
+        void execute(Node handle, DocumentWorkflow workflow) throws WorkflowException, RepositoryException, RemoteException;
+    }
+
+    /**
+     * The outcome of the action for one document handle.
+     */
+    public static final class Outcome {
+
+        private final String identifier;
+        private final String path;
+        private final Throwable failure;
+
+        private Outcome(final String identifier, final String path, final Throwable failure) {
+            this.identifier = identifier;
+            this.path = path;
+            this.failure = failure;
+        }
+
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        /**
+         * @return the path of the handle before the action was executed
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public boolean isSuccess() {
+            return failure == null;
+        }
+
+        /**
+         * @return the reason the action failed for the document, or null if it succeeded
+         */
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            return path + (failure == null ? ": success" : ": " + failure);
+        }
+    }
+
+    /**
+     * The outcomes of a bulk action, in the order of the handles.
+     */
+    public static final class Result {
+
+        private final List<Outcome> outcomes;
+        private final int saveCount;
+
+        private Result(final List<Outcome> outcomes, final int saveCount) {
+            this.outcomes = Collections.unmodifiableList(outcomes);
+            this.saveCount = saveCount;
+        }
+
+        public List<Outcome> getOutcomes() {
+            return outcomes;
+        }
+
+        public int getSuccessCount() {
+            int count = 0;
+            for (Outcome outcome : outcomes) {
+                if (outcome.isSuccess()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        public int getFailureCount() {
+            return outcomes.size() - getSuccessCount();
+        }
+
+        /**
+         * @return the number of times the changes of the documents were saved to the workspace; the check ins of
+         * versions are not counted
+         */
+        public int getSaveCount() {
+            return saveCount;
+        }
+    }
+
+    private final WorkflowManager workflowManager;
+    private final String category;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Create a bulk document workflow using the document workflow in category "default".
+     */
+    public BulkDocumentWorkflow(final Session session) throws RepositoryException {
+        this(((HippoWorkspace) session.getWorkspace()).getWorkflowManager(), "default");
+    }
+
+    public BulkDocumentWorkflow(final WorkflowManager workflowManager, final String category) {
+        this.workflowManager = workflowManager;
+        this.category = category;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize the maximum number of documents of which the changes are saved at once
+     */
+    public void setBatchSize(final int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public Result publish(final List<Node> handles) {
+        return execute(handles, new Action() {
+            @Override
+            public String getName() {
+                return "publish";
+            }
+
+            @Override
+            public void execute(final Node handle, final DocumentWorkflow workflow) throws WorkflowException, RepositoryException, RemoteException {
+                workflow.publish();
+            }
+        });
+    }
+
+    public Result depublish(final List<Node> handles) {
+        return execute(handles, new Action() {
+            @Override
+            public String getName() {
+                return "depublish";
+            }
+
+            @Override
+            public void execute(final Node handle, final DocumentWorkflow workflow) throws WorkflowException, RepositoryException, RemoteException {
+                workflow.depublish();
+            }
+        });
+    }
+
+    /**
+     * Archive the documents, see {@link DocumentWorkflow#delete()}.
+     */
+    public Result archive(final List<Node> handles) {
+        return execute(handles, new Action() {
+            @Override
+            public String getName() {
+                return "delete";
+            }
+
+            @Override
+            public void execute(final Node handle, final DocumentWorkflow workflow) throws WorkflowException, RepositoryException, RemoteException {
+                workflow.delete();
+            }
+        });
+    }
+
+    /**
+     * Move the documents to a folder, keeping their names.
+     */
+    public Result move(final List<Node> handles, final Document destination) {
+        return execute(handles, new Action() {
+            @Override
+            public String getName() {
+                return "move";
+            }
+
+            @Override
+            public void execute(final Node handle, final DocumentWorkflow workflow) throws WorkflowException, RepositoryException, RemoteException {
+                workflow.move(destination, handle.getName());
+            }
+        });
+    }
+
+    public Result execute(final List<Node> handles, final Action action) {
+        final Outcome[] outcomes = new Outcome[handles.size()];
+        final int saveCount;
+        if (workflowManager instanceof WorkflowManagerImpl) {
+            saveCount = new Batches((WorkflowManagerImpl) workflowManager, handles, action, outcomes).execute();
+        } else {
+            // every action saves its own changes
+            int succeeded = 0;
+            for (int i = 0; i < outcomes.length; i++) {
+                final Node handle = handles.get(i);
+                final String path = getPath(handle);
+                outcomes[i] = new Outcome(getIdentifier(handle), path, invoke(handle, action));
+                if (outcomes[i].isSuccess()) {
+                    succeeded++;
+                }
+            }
+            saveCount = succeeded;
+        }
+        return new Result(Arrays.asList(outcomes), saveCount);
+    }
+
+    /**
+     * @return the failure of the action, or null if it succeeded
+     */
+    private Throwable invoke(final Node handle, final Action action) {
+        try {
+            final Workflow workflow = workflowManager.getWorkflow(category, handle);
+            if (!(workflow instanceof DocumentWorkflow)) {
+                throw new WorkflowException("No document workflow in category " + category + " for " + handle.getPath());
+            }
+            action.execute(handle, (DocumentWorkflow) workflow);
+            return null;
+        } catch (WorkflowException | RepositoryException | RemoteException | RuntimeException e) {
+            return e;
+        }
+    }
+
+    private static String getIdentifier(final Node handle) {
+        try {
+            return handle.getIdentifier();
+        } catch (RepositoryException e) {
+            log.debug("Cannot get identifier of handle: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static String getPath(final Node handle) {
+        try {
+            return handle.getPath();
+        } catch (RepositoryException e) {
+            log.debug("Cannot get path of handle: {}", e.toString());
+            return null;
+        }
+    }
+
+    private class Batches {
+
+        private final WorkflowManagerImpl workflowManager;
+        private final List<Node> handles;
+        private final Action action;
+        private final Outcome[] outcomes;
+
+        /**
+         * The indexes of the handles that succeeded since the last save, with the paths they had before
+         */
+        private final List<Integer> pending = new ArrayList<>();
+        private final List<String> pendingPaths = new ArrayList<>();
+        private int saveCount = 0;
+
+        private Batches(final WorkflowManagerImpl workflowManager, final List<Node> handles, final Action action,
+                        final Outcome[] outcomes) {
+            this.workflowManager = workflowManager;
+            this.handles = handles;
+            this.action = action;
+            this.outcomes = outcomes;
+        }
+
+        private int execute() {
+            workflowManager.beginBatch(category + ":bulk:" + action.getName());
+            try {
+                for (int i = 0; i < handles.size(); i++) {
+                    final String path = getPath(handles.get(i));
+                    final Throwable failure = invoke(handles.get(i), action);
+                    if (failure == null) {
+                        pending.add(i);
+                        pendingPaths.add(path);
+                        if (pending.size() >= batchSize) {
+                            save();
+                        }
+                    } else {
+                        outcomes[i] = outcome(i, path, failure);
+                        rollbackAndReplay();
+                    }
+                }
+                if (!pending.isEmpty()) {
+                    save();
+                }
+            } finally {
+                workflowManager.endBatch();
+            }
+            log.info("Executed {} on {} documents in {} saves", action.getName(), handles.size(), saveCount);
+            return saveCount;
+        }
+
+        private void save() {
+            try {
+                workflowManager.saveBatch();
+                saveCount++;
+                for (int i = 0; i < pending.size(); i++) {
+                    outcomes[pending.get(i)] = outcome(pending.get(i), pendingPaths.get(i), null);
+                }
+            } catch (RepositoryException e) {
+                log.warn("Failed to save a batch of {} documents, saving them one by one: {}", pending.size(), e.toString());
+                rollback();
+                saveOneByOne();
+            }
+            pending.clear();
+            pendingPaths.clear();
+        }
+
+        private void saveOneByOne() {
+            for (int i = 0; i < pending.size(); i++) {
+                final int index = pending.get(i);
+                Throwable failure = invoke(handles.get(index), action);
+                if (failure == null) {
+                    try {
+                        workflowManager.saveBatch();
+                        saveCount++;
+                    } catch (RepositoryException e) {
+                        failure = e;
+                        rollback();
+                    }
+                } else {
+                    rollback();
+                }
+                outcomes[index] = outcome(index, pendingPaths.get(i), failure);
+            }
+        }
+
+        /**
+         * Discard the changes of the batch, which include those of the failed document, and execute the action again
+         * for the documents of the batch that succeeded before.
+         */
+        private void rollbackAndReplay() {
+            rollback();
+            boolean replayed = false;
+            while (!replayed) {
+                replayed = true;
+                final Iterator<String> paths = pendingPaths.iterator();
+                for (Iterator<Integer> iterator = pending.iterator(); iterator.hasNext(); ) {
+                    final int index = iterator.next();
+                    final String path = paths.next();
+                    final Throwable failure = invoke(handles.get(index), action);
+                    if (failure != null) {
+                        outcomes[index] = outcome(index, path, failure);
+                        iterator.remove();
+                        paths.remove();
+                        rollback();
+                        replayed = false;
+                        break;
+                    }
+                }
+            }
+        }
+
+        private void rollback() {
+            try {
+                workflowManager.rollbackBatch();
+            } catch (RepositoryException e) {
+                log.error("Failed to discard the changes of a batch of documents", e);
+            }
+        }
+
+        private Outcome outcome(final int index, final String path, final Throwable failure) {
+            return new Outcome(getIdentifier(handles.get(index)), path, failure);
+        }
+    }
+}
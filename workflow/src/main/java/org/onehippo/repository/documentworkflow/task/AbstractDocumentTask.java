@@ -37,6 +37,7 @@ import org.hippoecm.repository.api.HippoNodeType;
 import org.hippoecm.repository.api.WorkflowContext;
 import org.hippoecm.repository.api.WorkflowException;
 import org.hippoecm.repository.HippoStdPubWfNodeType;
+import org.hippoecm.repository.impl.WorkflowManagerImpl;
 import org.hippoecm.repository.util.CopyHandler;
 import org.hippoecm.repository.util.JcrUtils;
 import org.hippoecm.repository.util.NodeInfo;
@@ -116,6 +117,25 @@ public abstract class AbstractDocumentTask implements WorkflowTask, Serializable
         this.workflowContext = workflowContext;
     }
 
+    /**
+     * @return whether the workflow manager of this task defers the saves of the current thread to the end of a batch
+     */
+    protected boolean isBatchActive() {
+        final WorkflowManagerImpl workflowManager = WorkflowManagerImpl.getWorkflowManager(getWorkflowContext());
+        return workflowManager != null && workflowManager.isBatchActive();
+    }
+
+    /**
+     * Save the pending changes of the internal workflow session. In a batch the changes are saved together with those
+     * of the other actions in the batch instead, as saving them here would also save the changes of the actions before
+     * it, which a rollback of the batch then can no longer discard.
+     */
+    protected void saveInternalWorkflowSession() throws RepositoryException {
+        if (!isBatchActive()) {
+            getWorkflowContext().getInternalWorkflowSession().save();
+        }
+    }
+
     protected Node cloneDocumentNode(Node srcNode) throws RepositoryException {
         final Node parent = srcNode.getParent();
         JcrUtils.ensureIsCheckedOut(parent);
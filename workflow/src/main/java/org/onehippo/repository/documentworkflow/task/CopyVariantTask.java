@@ -99,7 +99,9 @@ public class CopyVariantTask extends AbstractDocumentTask {
             copyTo(sourceNode, targetNode);
         }
 
-        if (saveNeeded) {
+        if (saveNeeded && !isBatchActive()) {
+            // in a batch the new variant is only saved with the batch, so a concurrently created duplicate cannot be
+            // detected yet
             workflowSession.save();
             if (dm.hasMultipleDocumentVariants(getTargetState())) {
                 deleteDuplicateVariant(workflowSession, dm, targetDoc, getTargetState());
@@ -48,7 +48,7 @@ public class DeleteRequestTask extends AbstractDocumentTask {
         Node requestNode = request.getCheckedOutNode(session);
         JcrUtils.ensureIsCheckedOut(requestNode.getParent());
         requestNode.remove();
-        session.save();
+        saveInternalWorkflowSession();
         return null;
     }
 }
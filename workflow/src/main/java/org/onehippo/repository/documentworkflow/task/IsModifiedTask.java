@@ -15,19 +15,35 @@
  */
 package org.onehippo.repository.documentworkflow.task;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
+import javax.jcr.Binary;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.Property;
 import javax.jcr.PropertyIterator;
+import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
+import javax.jcr.Session;
 import javax.jcr.Value;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.hippoecm.repository.HippoStdNodeType;
 import org.hippoecm.repository.HippoStdPubWfNodeType;
+import org.hippoecm.repository.decorating.SessionDecorator;
+import org.hippoecm.repository.jackrabbit.ContentDigestCache;
+import org.hippoecm.repository.jackrabbit.InternalHippoSession;
 import org.hippoecm.repository.util.JcrUtils;
 import org.hippoecm.repository.util.PropertyIterable;
 import org.onehippo.repository.documentworkflow.DocumentHandle;
@@ -35,6 +51,10 @@ import org.onehippo.repository.documentworkflow.DocumentVariant;
 
 /**
  * Custom workflow task for determining if current draft is modified compared to the unpublished variant.
+ * <p>
+ * Variants are compared by their content digests, which are cached per node and invalidated when content is saved.
+ * Only when the draft has outstanding changes in the session of its holder are the variants compared property by
+ * property.
  */
 public class IsModifiedTask extends AbstractDocumentTask {
 
@@ -42,6 +62,11 @@ public class IsModifiedTask extends AbstractDocumentTask {
 
     private static final String[] IGNORED_PROPERTIES = new String[] { HippoStdPubWfNodeType.HIPPOSTDPUBWF_LAST_MODIFIED_DATE };
 
+    private static final String DIGEST_ALGORITHM = "SHA-1";
+
+    // virtual nodes are all equal to each other, but not to any other node
+    private static final byte[] VIRTUAL_DIGEST = new byte[20];
+
     @Override
     public Object doExecute() throws RepositoryException {
 
@@ -50,16 +75,131 @@ public class IsModifiedTask extends AbstractDocumentTask {
         DocumentVariant unpublished = dm.getDocuments().get(HippoStdNodeType.UNPUBLISHED);
 
         if (draft != null && unpublished != null) {
-            Node draftNode = draft.getNode(getWorkflowContext().getInternalWorkflowSession());
+            final Session internalSession = getWorkflowContext().getInternalWorkflowSession();
+            final Node unpublishedNode = unpublished.getNode(internalSession);
             if (getWorkflowContext().getUserIdentity().equals(draft.getHolder())) {
-                // use user session bound draftNode which might contain outstanding changes
-                draftNode = draft.getNode(getWorkflowContext().getUserSession());
+                final Session userSession = getWorkflowContext().getUserSession();
+                if (userSession.hasPendingChanges()) {
+                    // use user session bound draftNode which might contain outstanding changes
+                    return !equals(draft.getNode(userSession), unpublishedNode);
+                }
             }
-            return !equals(draftNode, unpublished.getNode(getWorkflowContext().getInternalWorkflowSession()));
+            final Node draftNode = draft.getNode(internalSession);
+            final ContentDigestCache cache = getContentDigestCache(internalSession);
+            if (cache == null) {
+                return !equals(draftNode, unpublishedNode);
+            }
+            final long stamp = cache.getStamp();
+            return !Arrays.equals(digest(draftNode, cache, stamp), digest(unpublishedNode, cache, stamp));
+        }
+        return null;
+    }
+
+    /**
+     * @return the cache of content digests, or <code>null</code> if the content digests of <code>session</code> can
+     * not be cached, in which case variants are compared by their content
+     */
+    private static ContentDigestCache getContentDigestCache(final Session session) throws RepositoryException {
+        final Session internalSession = SessionDecorator.unwrap(session);
+        if (internalSession instanceof InternalHippoSession && !session.hasPendingChanges()) {
+            return ((InternalHippoSession) internalSession).getContentDigestCache();
         }
         return null;
     }
 
+    /**
+     * Computes the digest of the content of a node and its descendants. Two nodes have the same digest if and only if
+     * they are {@link #equals(Node, Node) equal}, barring collisions. The digests of the node and its descendants are
+     * taken from and stored in <code>cache</code>, if it is not <code>null</code>, so only the digests of nodes of which
+     * the subtree was saved since they were last computed need to be computed again.
+     */
+    protected byte[] digest(final Node node, final ContentDigestCache cache, final long stamp) throws RepositoryException {
+        if (JcrUtils.isVirtual(node)) {
+            return VIRTUAL_DIGEST;
+        }
+        final String identifier = node.getIdentifier();
+        if (cache != null) {
+            final byte[] digest = cache.get(identifier);
+            if (digest != null) {
+                return digest;
+            }
+        }
+
+        final SortedMap<String, Property> properties = new TreeMap<>();
+        for (Property property : new PropertyIterable(node.getProperties())) {
+            if (!isIgnored(property)) {
+                properties.put(property.getName(), property);
+            }
+        }
+        final MessageDigest messageDigest = createMessageDigest();
+        update(messageDigest, properties.size());
+        for (Property property : properties.values()) {
+            update(messageDigest, property.getName());
+            update(messageDigest, property.getType());
+            if (property.isMultiple()) {
+                final Value[] values = property.getValues();
+                update(messageDigest, values.length);
+                for (Value value : values) {
+                    update(messageDigest, value);
+                }
+            } else {
+                update(messageDigest, -1);
+                update(messageDigest, property.getValue());
+            }
+        }
+        final NodeIterator children = node.getNodes();
+        update(messageDigest, (int) children.getSize());
+        while (children.hasNext()) {
+            messageDigest.update(digest(children.nextNode(), cache, stamp));
+        }
+
+        final byte[] digest = messageDigest.digest();
+        if (cache != null) {
+            cache.put(identifier, digest, stamp);
+        }
+        return digest;
+    }
+
+    private static MessageDigest createMessageDigest() throws RepositoryException {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RepositoryException("Cannot compute content digest", e);
+        }
+    }
+
+    private static void update(final MessageDigest messageDigest, final int value) {
+        messageDigest.update(new byte[] { (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value });
+    }
+
+    private static void update(final MessageDigest messageDigest, final String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        update(messageDigest, bytes.length);
+        messageDigest.update(bytes);
+    }
+
+    private static void update(final MessageDigest messageDigest, final Value value) throws RepositoryException {
+        if (value.getType() != PropertyType.BINARY) {
+            update(messageDigest, value.getString());
+            return;
+        }
+        final Binary binary = value.getBinary();
+        try (InputStream stream = binary.getStream()) {
+            final DigestInputStream digestStream = new DigestInputStream(stream, createMessageDigest());
+            IOUtils.copy(digestStream, new NullOutputStream());
+            messageDigest.update(digestStream.getMessageDigest().digest());
+        } catch (IOException e) {
+            throw new RepositoryException("Cannot read binary value", e);
+        }
+    }
+
+    private boolean isIgnored(final Property property) throws RepositoryException {
+        final String name = property.getName();
+        return Arrays.binarySearch(PROTECTED_PROPERTIES, name) >= 0
+                || Arrays.binarySearch(IGNORED_PROPERTIES, name) >= 0
+                || property.getDefinition().isProtected();
+    }
+
     protected boolean equals(Node a, Node b) throws RepositoryException {
         final boolean virtualA = JcrUtils.isVirtual(a);
         if (virtualA != JcrUtils.isVirtual(b)) {
@@ -74,13 +214,7 @@ public class IsModifiedTask extends AbstractDocumentTask {
         Map<String, Property> properties = new HashMap<>();
         for (Property property : new PropertyIterable(aProperties)) {
             final String name = property.getName();
-            if (Arrays.binarySearch(PROTECTED_PROPERTIES, name) >= 0) {
-                continue;
-            }
-            if (Arrays.binarySearch(IGNORED_PROPERTIES, name) >= 0) {
-                continue;
-            }
-            if (property.getDefinition().isProtected()) {
+            if (isIgnored(property)) {
                 continue;
             }
             if (!b.hasProperty(name)) {
@@ -91,13 +225,7 @@ public class IsModifiedTask extends AbstractDocumentTask {
         }
         for (Property bProp : new PropertyIterable(bProperties)) {
             final String name = bProp.getName();
-            if (Arrays.binarySearch(PROTECTED_PROPERTIES, name) >= 0) {
-                continue;
-            }
-            if (Arrays.binarySearch(IGNORED_PROPERTIES, name) >= 0) {
-                continue;
-            }
-            if (bProp.getDefinition().isProtected()) {
+            if (isIgnored(bProp)) {
                 continue;
             }
             if (!properties.containsKey(name)) {
@@ -152,6 +280,15 @@ public class IsModifiedTask extends AbstractDocumentTask {
     }
 
     private boolean equals(final Value aValue, final Value bValue) throws RepositoryException {
-        return aValue.getString().equals(bValue.getString());
+        if (aValue.getType() != PropertyType.BINARY) {
+            return aValue.getString().equals(bValue.getString());
+        }
+        final Binary aBinary = aValue.getBinary();
+        final Binary bBinary = bValue.getBinary();
+        try (InputStream aStream = aBinary.getStream(); InputStream bStream = bBinary.getStream()) {
+            return aBinary.getSize() == bBinary.getSize() && IOUtils.contentEquals(aStream, bStream);
+        } catch (IOException e) {
+            throw new RepositoryException("Cannot read binary value", e);
+        }
     }
 }
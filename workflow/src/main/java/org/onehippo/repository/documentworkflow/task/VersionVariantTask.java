@@ -23,10 +23,16 @@ import javax.jcr.Session;
 
 import org.hippoecm.repository.api.Document;
 import org.hippoecm.repository.api.WorkflowException;
+import org.hippoecm.repository.impl.WorkflowManagerImpl;
 import org.onehippo.repository.documentworkflow.DocumentVariant;
 
+import static org.onehippo.repository.util.JcrConstants.MIX_VERSIONABLE;
+
 /**
  * Custom workflow task for creating a JCR version of a document variant node.
+ * <p>
+ * In a batch of the workflow manager, the variant is checked in once the batch has been saved, and the variant itself
+ * is returned instead of the version.
  */
 public class VersionVariantTask extends AbstractDocumentTask {
 
@@ -51,6 +57,16 @@ public class VersionVariantTask extends AbstractDocumentTask {
         final Session workflowSession = getWorkflowContext().getInternalWorkflowSession();
         Node targetNode = getVariant().getNode(workflowSession);
 
+        final WorkflowManagerImpl workflowManager = WorkflowManagerImpl.getWorkflowManager(getWorkflowContext());
+        if (workflowManager != null && workflowManager.isBatchActive()) {
+            if (!targetNode.isNodeType(MIX_VERSIONABLE)) {
+                throw new WorkflowException("Variant " + targetNode.getPath() + " is not versionable");
+            }
+            // the changes of the batch, including those of the variant, are saved before the variant is checked in
+            workflowManager.checkinAfterSave(targetNode);
+            return new Document(targetNode);
+        }
+
         // ensure no pending changes which would fail the checkin
         workflowSession.save();
         return new Document(targetNode.checkin());
@@ -78,7 +78,7 @@ public class WorkflowRequestTask extends AbstractDocumentTask {
                         contextVariant, getWorkflowContext().getUserIdentity(), targetDate);
             }
 
-            getWorkflowContext().getInternalWorkflowSession().save();
+            saveInternalWorkflowSession();
         } else {
             throw new WorkflowException("publication request already pending");
         }
@@ -324,6 +324,58 @@ public class FolderWorkflowTest extends RepositoryTestCase {
 
     }
 
+    @Test
+    public void testReorderLargeFolder() throws RepositoryException, WorkflowException, RemoteException {
+        Node node = root.addNode("f", "hippostd:folder");
+        node.addMixin("mix:versionable");
+        List<String> identifiers = new LinkedList<String>();
+        for (int i = 0; i < 200; i++) {
+            identifiers.add(node.addNode("n" + i).getIdentifier());
+        }
+        session.save();
+
+        FolderWorkflow workflow = (FolderWorkflow) manager.getWorkflow("internal", node);
+        List<String> newOrder = new LinkedList<String>();
+        newOrder.add("n199");
+        newOrder.add("n100");
+        workflow.reorder(newOrder);
+        node.getSession().refresh(false);
+
+        String last = identifiers.remove(199);
+        identifiers.add(0, identifiers.remove(100));
+        identifiers.add(0, last);
+        NodeIterator it = node.getNodes();
+        for (String identifier : identifiers) {
+            assertEquals(identifier, it.nextNode().getIdentifier());
+        }
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testPrototypesFollowTemplateChanges() throws Exception {
+        FolderWorkflow workflow = (FolderWorkflow) manager.getWorkflow("internal", node);
+        assertFalse(workflow.list().containsKey("new-test-folder"));
+
+        JcrUtils.copy(session, "/hippo:configuration/hippo:queries/hippo:templates/new-folder",
+                "/hippo:configuration/hippo:queries/hippo:templates/new-test-folder");
+        session.save();
+        try {
+            // the prototypes cache is invalidated asynchronously
+            boolean found = false;
+            for (int i = 0; i < 50 && !found; i++) {
+                workflow = (FolderWorkflow) manager.getWorkflow("internal", node);
+                found = workflow.list().containsKey("new-test-folder");
+                if (!found) {
+                    Thread.sleep(100);
+                }
+            }
+            assertTrue(found);
+        } finally {
+            session.getNode("/hippo:configuration/hippo:queries/hippo:templates/new-test-folder").remove();
+            session.save();
+        }
+    }
+
     /* The following two tests can only be executed if repository is run
      * locally, and the method copy in FolderWorkflowImpl is made public,
      * which is shouldn't be.  They where used for development purposes,
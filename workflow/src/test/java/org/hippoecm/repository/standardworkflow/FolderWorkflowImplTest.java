@@ -0,0 +1,44 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.standardworkflow;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class FolderWorkflowImplTest {
+
+    @Test
+    public void nodes_in_order_stay_in_place() {
+        assertArrayEquals(new boolean[] { true, true, true },
+                FolderWorkflowImpl.longestIncreasingSubsequence(new int[] { 0, 1, 2 }));
+    }
+
+    @Test
+    public void only_moved_nodes_are_out_of_place() {
+        assertArrayEquals(new boolean[] { false, true, true, true },
+                FolderWorkflowImpl.longestIncreasingSubsequence(new int[] { 3, 0, 1, 2 }));
+        assertArrayEquals(new boolean[] { true, false, true, true },
+                FolderWorkflowImpl.longestIncreasingSubsequence(new int[] { 0, 3, 1, 2 }));
+        assertArrayEquals(new boolean[] { true, false, false, true, true },
+                FolderWorkflowImpl.longestIncreasingSubsequence(new int[] { 0, 4, 3, 1, 2 }));
+    }
+
+    @Test
+    public void empty_folder() {
+        assertArrayEquals(new boolean[0], FolderWorkflowImpl.longestIncreasingSubsequence(new int[0]));
+    }
+}
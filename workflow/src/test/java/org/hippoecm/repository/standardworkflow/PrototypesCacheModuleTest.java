@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.hippoecm.repository.standardworkflow;
+
+import java.util.Set;
+
+import javax.jcr.Node;
+
+import org.hippoecm.repository.api.HippoWorkspace;
+import org.hippoecm.repository.api.WorkflowManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onehippo.repository.testutils.RepositoryTestCase;
+
+import static org.hippoecm.repository.api.HippoNodeType.NT_GROUP;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrototypesCacheModuleTest extends RepositoryTestCase {
+
+    private static final String NAMESPACE_PATH = "/hippo:namespaces/prototypescachetest";
+    private static final String GROUP_PATH = "/hippo:configuration/hippo:groups/prototypescachetest";
+
+    private Node folder;
+    private WorkflowManager workflowManager;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        folder = session.getRootNode().addNode("test", "hippostd:folder");
+        session.save();
+        workflowManager = ((HippoWorkspace) session.getWorkspace()).getWorkflowManager();
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        removeNode(NAMESPACE_PATH);
+        removeNode(GROUP_PATH);
+        super.tearDown();
+    }
+
+    @Test
+    public void testAddedPrototypeIsListed() throws Exception {
+        assertFalse(getDocumentPrototypes().contains("hippostd:folder"));
+
+        final Node namespace = session.getNode("/hippo:namespaces").addNode("prototypescachetest", "hipposysedit:namespace");
+        namespace.addMixin("mix:referenceable");
+        final Node templateType = namespace.addNode("folder", "hipposysedit:templatetype");
+        templateType.addMixin("mix:referenceable");
+        templateType.addNode("hipposysedit:nodetype", "hippo:handle").addMixin("mix:referenceable");
+        templateType.addNode("hipposysedit:prototypes", "hipposysedit:prototypeset")
+                .addNode("hipposysedit:prototype", "hippostd:folder");
+        session.save();
+
+        // the prototypes cache is invalidated asynchronously
+        boolean found = false;
+        for (int i = 0; i < 50 && !found; i++) {
+            found = getDocumentPrototypes().contains("hippostd:folder");
+            if (!found) {
+                Thread.sleep(100);
+            }
+        }
+        assertTrue("Prototype added to a namespace is not listed", found);
+    }
+
+    @Test
+    public void testSecurityChangeInvalidatesPrototypes() throws Exception {
+        getDocumentPrototypes();
+        final long generation = PrototypesCache.getGeneration();
+
+        session.getNode("/hippo:configuration/hippo:groups").addNode("prototypescachetest", NT_GROUP);
+        session.save();
+
+        for (int i = 0; i < 50 && PrototypesCache.getGeneration() == generation; i++) {
+            Thread.sleep(100);
+        }
+        assertTrue("Prototypes were not invalidated by a change of the groups",
+                PrototypesCache.getGeneration() > generation);
+    }
+
+    private Set<String> getDocumentPrototypes() throws Exception {
+        final FolderWorkflow workflow = (FolderWorkflow) workflowManager.getWorkflow("internal", folder);
+        return workflow.list().get("new-document");
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.onehippo.repository.documentworkflow.integration;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.ObservationManager;
+import javax.jcr.version.VersionHistory;
+
+import org.hippoecm.repository.api.SynchronousEventListener;
+import org.hippoecm.repository.api.WorkflowException;
+import org.hippoecm.repository.util.JcrUtils;
+import org.hippoecm.repository.util.NodeIterable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onehippo.repository.documentworkflow.BulkDocumentWorkflow;
+import org.onehippo.repository.documentworkflow.DocumentWorkflow;
+import org.onehippo.repository.testutils.RepositoryTestCase;
+
+import static org.hippoecm.repository.HippoStdNodeType.HIPPOSTD_STATE;
+import static org.hippoecm.repository.HippoStdNodeType.NT_FOLDER;
+import static org.hippoecm.repository.HippoStdNodeType.NT_RELAXED;
+import static org.hippoecm.repository.HippoStdNodeType.PUBLISHED;
+import static org.hippoecm.repository.HippoStdNodeType.UNPUBLISHED;
+import static org.hippoecm.repository.HippoStdPubWfNodeType.HIPPOSTDPUBWF_CREATED_BY;
+import static org.hippoecm.repository.HippoStdPubWfNodeType.HIPPOSTDPUBWF_CREATION_DATE;
+import static org.hippoecm.repository.HippoStdPubWfNodeType.HIPPOSTDPUBWF_DOCUMENT;
+import static org.hippoecm.repository.HippoStdPubWfNodeType.HIPPOSTDPUBWF_LAST_MODIFIED_BY;
+import static org.hippoecm.repository.HippoStdPubWfNodeType.HIPPOSTDPUBWF_LAST_MODIFIED_DATE;
+import static org.hippoecm.repository.HippoStdPubWfNodeType.HIPPOSTDPUBWF_PUBLICATION_DATE;
+import static org.hippoecm.repository.api.HippoNodeType.HIPPO_AVAILABILITY;
+import static org.hippoecm.repository.api.HippoNodeType.NT_DOCUMENT;
+import static org.hippoecm.repository.api.HippoNodeType.NT_HANDLE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.onehippo.repository.util.JcrConstants.MIX_VERSIONABLE;
+
+public class BulkDocumentWorkflowTest extends RepositoryTestCase {
+
+    private final PublicationListener listener = new PublicationListener();
+    private Node test;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        test = session.getRootNode().addNode("test", NT_FOLDER);
+        session.save();
+        getObservationManager().addEventListener(listener, Event.PROPERTY_ADDED | Event.PROPERTY_CHANGED,
+                "/test", true, null, null, false);
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        getObservationManager().removeEventListener(listener);
+        super.tearDown();
+    }
+
+    @Test
+    public void publishingThousandDocumentsSavesOncePerBatch() throws Exception {
+        final List<Node> handles = createDocuments(1000);
+        final BulkDocumentWorkflow workflow = new BulkDocumentWorkflow(session);
+        workflow.setBatchSize(100);
+
+        final BulkDocumentWorkflow.Result result = workflow.publish(handles);
+
+        assertEquals(1000, result.getSuccessCount());
+        assertEquals(10, result.getSaveCount());
+        assertEquals("Publications were not saved in batches", 10, listener.publicationSaves.get());
+        for (Node handle : handles) {
+            assertTrue("Document " + handle.getPath() + " not live after publication", isLive(handle));
+        }
+    }
+
+    @Test
+    public void failingDocumentDoesNotAffectOtherDocuments() throws Exception {
+        final List<Node> handles = createDocuments(10);
+        final BulkDocumentWorkflow workflow = new BulkDocumentWorkflow(session);
+        workflow.setBatchSize(4);
+
+        final BulkDocumentWorkflow.Result result = workflow.execute(handles, new BulkDocumentWorkflow.Action() {
+            @Override
+            public String getName() {
+                return "publish";
+            }
+
+            @Override
+            public void execute(final Node handle, final DocumentWorkflow workflow) throws WorkflowException, RepositoryException, RemoteException {
+                workflow.publish();
+                if (handle.getName().equals("document5")) {
+                    throw new WorkflowException("failure after publication");
+                }
+            }
+        });
+
+        assertEquals(9, result.getSuccessCount());
+        assertEquals(1, result.getFailureCount());
+        assertFalse(result.getOutcomes().get(5).isSuccess());
+        assertEquals("/test/document5", result.getOutcomes().get(5).getPath());
+        // saves after documents 0-3, 4 and 6-8 (replaying 4 after the failure of 5), and 9
+        assertEquals(3, result.getSaveCount());
+        for (int i = 0; i < handles.size(); i++) {
+            assertEquals("Unexpected publication state of document " + i, i != 5, isLive(handles.get(i)));
+            // versions are only created for saved publications, once for replayed documents
+            assertEquals("Unexpected number of versions of document " + i, i != 5 ? 1 : 0, getVersionCount(handles.get(i)));
+        }
+    }
+
+    @Test
+    public void failingDocumentDoesNotAffectNeverPublishedDocuments() throws Exception {
+        final List<Node> handles = createDocuments(10, false);
+        final BulkDocumentWorkflow workflow = new BulkDocumentWorkflow(session);
+        workflow.setBatchSize(4);
+
+        final BulkDocumentWorkflow.Result result = workflow.execute(handles, new BulkDocumentWorkflow.Action() {
+            @Override
+            public String getName() {
+                return "publish";
+            }
+
+            @Override
+            public void execute(final Node handle, final DocumentWorkflow workflow) throws WorkflowException, RepositoryException, RemoteException {
+                workflow.publish();
+                if (handle.getName().equals("document5")) {
+                    throw new WorkflowException("failure after publication");
+                }
+            }
+        });
+
+        assertEquals(9, result.getSuccessCount());
+        assertFalse(result.getOutcomes().get(5).isSuccess());
+        // creating the published variants does not save the documents before them in the batch
+        assertEquals(3, result.getSaveCount());
+        assertEquals("Publications were not saved in batches", 3, listener.publicationSaves.get());
+        for (int i = 0; i < handles.size(); i++) {
+            assertEquals("Unexpected publication state of document " + i, i != 5, isLive(handles.get(i)));
+            assertEquals("Unexpected number of versions of document " + i, i != 5 ? 1 : 0, getVersionCount(handles.get(i)));
+        }
+    }
+
+    @Test
+    public void unavailableActionIsReportedPerDocument() throws Exception {
+        final List<Node> handles = createDocuments(3);
+        final BulkDocumentWorkflow workflow = new BulkDocumentWorkflow(session);
+
+        assertEquals(3, workflow.publish(handles).getSuccessCount());
+        // unmodified documents cannot be published again
+        final BulkDocumentWorkflow.Result result = workflow.publish(Arrays.asList(handles.get(0), handles.get(1)));
+        assertEquals(2, result.getFailureCount());
+        assertEquals(0, result.getSaveCount());
+
+        assertEquals(3, workflow.depublish(handles).getSuccessCount());
+        for (Node handle : handles) {
+            assertFalse(isLive(handle));
+        }
+    }
+
+    private List<Node> createDocuments(final int count) throws RepositoryException {
+        return createDocuments(count, true);
+    }
+
+    private List<Node> createDocuments(final int count, final boolean published) throws RepositoryException {
+        final List<Node> handles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final Node handle = test.addNode("document" + i, NT_HANDLE);
+            createVariant(handle, UNPUBLISHED).addMixin(MIX_VERSIONABLE);
+            if (published) {
+                createVariant(handle, PUBLISHED);
+            }
+            handles.add(handle);
+            if (i % 100 == 99) {
+                session.save();
+            }
+        }
+        session.save();
+        return handles;
+    }
+
+    private static Node createVariant(final Node handle, final String state) throws RepositoryException {
+        final Node variant = handle.addNode(handle.getName(), NT_DOCUMENT);
+        variant.addMixin(HIPPOSTDPUBWF_DOCUMENT);
+        variant.addMixin(NT_RELAXED);
+        variant.setProperty(HIPPOSTDPUBWF_CREATION_DATE, Calendar.getInstance());
+        variant.setProperty(HIPPOSTDPUBWF_CREATED_BY, "testuser");
+        variant.setProperty(HIPPOSTDPUBWF_LAST_MODIFIED_DATE, Calendar.getInstance());
+        variant.setProperty(HIPPOSTDPUBWF_LAST_MODIFIED_BY, "testuser");
+        variant.setProperty(HIPPOSTD_STATE, state);
+        return variant;
+    }
+
+    private static boolean isLive(final Node handle) throws RepositoryException {
+        for (Node variant : new NodeIterable(handle.getNodes(handle.getName()))) {
+            if (PUBLISHED.equals(JcrUtils.getStringProperty(variant, HIPPOSTD_STATE, null))) {
+                final String[] availability = JcrUtils.getMultipleStringProperty(variant, HIPPO_AVAILABILITY, new String[0]);
+                return Arrays.asList(availability).contains("live");
+            }
+        }
+        return false;
+    }
+
+    private long getVersionCount(final Node handle) throws RepositoryException {
+        for (Node variant : new NodeIterable(handle.getNodes(handle.getName()))) {
+            if (UNPUBLISHED.equals(JcrUtils.getStringProperty(variant, HIPPOSTD_STATE, null))) {
+                final VersionHistory history = session.getWorkspace().getVersionManager().getVersionHistory(variant.getPath());
+                // without the root version
+                return history.getAllVersions().getSize() - 1;
+            }
+        }
+        return 0;
+    }
+
+    private ObservationManager getObservationManager() throws RepositoryException {
+        return session.getWorkspace().getObservationManager();
+    }
+
+    /**
+     * Counts the saves that include a publication, as synchronous listeners get the events of one save at a time
+     */
+    private static final class PublicationListener implements SynchronousEventListener {
+
+        private final AtomicInteger publicationSaves = new AtomicInteger();
+
+        @Override
+        public void onEvent(final EventIterator events) {
+            try {
+                while (events.hasNext()) {
+                    if (events.nextEvent().getPath().endsWith("/" + HIPPOSTDPUBWF_PUBLICATION_DATE)) {
+                        publicationSaves.incrementAndGet();
+                        return;
+                    }
+                }
+            } catch (RepositoryException ignore) {
+            }
+        }
+    }
+}
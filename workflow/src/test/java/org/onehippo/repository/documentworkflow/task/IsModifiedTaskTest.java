@@ -0,0 +1,144 @@
+/*
+ *  Copyright 2016 Hippo B.V. (http://www.onehippo.com)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.onehippo.repository.documentworkflow.task;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Calendar;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+
+import org.hippoecm.repository.HippoStdNodeType;
+import org.hippoecm.repository.HippoStdPubWfNodeType;
+import org.hippoecm.repository.jackrabbit.ContentDigestCache;
+import org.junit.Before;
+import org.junit.Test;
+import org.onehippo.repository.mock.MockNode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class IsModifiedTaskTest {
+
+    private final IsModifiedTask task = new IsModifiedTask();
+
+    private MockNode unpublished;
+    private MockNode draft;
+
+    @Before
+    public void setUp() throws Exception {
+        final MockNode handle = MockNode.root().addNode("document", "hippo:handle");
+        unpublished = handle.addNode("document", "hippo:document");
+        unpublished.setProperty(HippoStdNodeType.HIPPOSTD_STATE, HippoStdNodeType.UNPUBLISHED);
+        unpublished.setProperty(HippoStdPubWfNodeType.HIPPOSTDPUBWF_LAST_MODIFIED_DATE, Calendar.getInstance());
+        unpublished.setProperty("title", "title");
+        unpublished.setProperty("keywords", new String[] { "one", "two" });
+        unpublished.setProperty("data", new ByteArrayInputStream("binary".getBytes()));
+        final MockNode compound = unpublished.addNode("compound", "nt:unstructured");
+        compound.setProperty("text", "text");
+        final MockNode nested = compound.addNode("nested1", "nt:unstructured");
+        nested.setProperty("values", new String[] { "a", "b", "c" });
+        nested.setProperty("image", new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+        compound.addNode("nested2", "nt:unstructured").setProperty("values", new String[] { "d" });
+
+        draft = new MockNode(unpublished);
+        draft.setProperty(HippoStdNodeType.HIPPOSTD_STATE, HippoStdNodeType.DRAFT);
+    }
+
+    @Test
+    public void copiesAreEqual() throws Exception {
+        assertEquivalent(true);
+    }
+
+    @Test
+    public void ignoredPropertiesAreNotCompared() throws Exception {
+        final Calendar later = Calendar.getInstance();
+        later.add(Calendar.HOUR, 1);
+        draft.setProperty(HippoStdPubWfNodeType.HIPPOSTDPUBWF_LAST_MODIFIED_DATE, later);
+        draft.setProperty(HippoStdNodeType.HIPPOSTD_HOLDER, "editor");
+        assertEquivalent(true);
+    }
+
+    @Test
+    public void changedPropertyInNestedCompoundIsDetected() throws Exception {
+        getNested(draft, 1).setProperty("values", new String[] { "a", "b", "x" });
+        assertEquivalent(false);
+    }
+
+    @Test
+    public void multiValuedPropertiesAreComparedInOrder() throws Exception {
+        draft.setProperty("keywords", new String[] { "two", "one" });
+        assertEquivalent(false);
+        draft.setProperty("keywords", new String[] { "one", "two", "" });
+        assertEquivalent(false);
+        draft.setProperty("keywords", new String[] { "one", "two" });
+        assertEquivalent(true);
+    }
+
+    @Test
+    public void singleAndMultiValuedPropertiesDiffer() throws Exception {
+        draft.setProperty("title", new String[] { "title" });
+        assertEquivalent(false);
+    }
+
+    @Test
+    public void changedBinaryIsDetected() throws Exception {
+        getNested(draft, 1).setProperty("image", new ByteArrayInputStream(new byte[] { 1, 2, 4 }));
+        assertEquivalent(false);
+        getNested(draft, 1).setProperty("image", new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+        assertEquivalent(true);
+    }
+
+    @Test
+    public void addedOrRemovedItemsAreDetected() throws Exception {
+        draft.getNode("compound").addNode("added", "nt:unstructured");
+        assertEquivalent(false);
+        draft.getNode("compound").getNode("added").remove();
+        assertEquivalent(true);
+        draft.setProperty("added", "added");
+        assertEquivalent(false);
+        draft.getProperty("added").remove();
+        unpublished.getNode("compound").getProperty("text").remove();
+        assertEquivalent(false);
+    }
+
+    @Test
+    public void digestsAreCached() throws Exception {
+        final ContentDigestCache cache = new ContentDigestCache();
+        final byte[] digest = task.digest(unpublished, cache, cache.getStamp());
+        assertNotNull(cache.get(unpublished.getIdentifier()));
+        assertNotNull(cache.get(getNested(unpublished, 1).getIdentifier()));
+        assertTrue(Arrays.equals(digest, task.digest(unpublished, null, 0)));
+
+        // a cached digest is used instead of computing it from the content
+        final byte[] nestedDigest = cache.get(getNested(unpublished, 2).getIdentifier());
+        getNested(unpublished, 2).setProperty("values", new String[] { "e" });
+        assertTrue(Arrays.equals(nestedDigest, task.digest(getNested(unpublished, 2), cache, cache.getStamp())));
+    }
+
+    private void assertEquivalent(final boolean expected) throws RepositoryException {
+        assertEquals(expected, task.equals(draft, unpublished));
+        assertEquals(expected, task.equals(unpublished, draft));
+        assertEquals(expected, Arrays.equals(task.digest(draft, null, 0), task.digest(unpublished, null, 0)));
+    }
+
+    private static Node getNested(final Node variant, final int index) throws RepositoryException {
+        return variant.getNode("compound").getNode("nested" + index);
+    }
+
+}